@@ -0,0 +1,139 @@
+package com.dwarfeng.springdatamark.api.integration.batch;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+import com.dwarfeng.springdatamark.api.integration.jpa.EntityInfo;
+import com.dwarfeng.springdatamark.api.integration.jpa.EntityMetadata;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+
+import javax.annotation.Nonnull;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 数据标识批量写入器。
+ *
+ * <p>
+ * 用于不经过 JPA 的写入路径（如 <code>JdbcTemplate#batchUpdate</code>、jOOQ 等），
+ * 在对象被写入数据库之前，批量地为对象中所有含有 {@link DatamarkField} 注解的字段写入当前的数据标识。<br>
+ * 字段的收集、写入方法的编译以及 serviceId 的解析规则与
+ * {@link com.dwarfeng.springdatamark.api.integration.jpa.DatamarkEntityListener} 完全一致，
+ * 每个类的写入计划基于 {@link ClassValue} 缓存，只会被绑定一次。
+ *
+ * <p>
+ * 在一次 {@link #stamp(Iterable)} 调用中，每个数据标识服务只会被解析一次，
+ * 因此同一批次中的所有对象都会带有一致的数据标识，且服务调用的次数与批次的大小无关。
+ *
+ * <p>
+ * 示例代码如下：
+ * <blockquote><pre>
+ * DatamarkBatchStamper stamper = new DatamarkBatchStamper(datamarkServiceMap);
+ * stamper.stamp(users);
+ * jdbcTemplate.batchUpdate(sql, SqlParameterSourceUtils.createBatch(users));
+ * </pre></blockquote>
+ *
+ * @author DwArFeng
+ * @see DatamarkField
+ * @since 1.2.0
+ */
+public class DatamarkBatchStamper {
+
+    private final Map<String, DatamarkService> datamarkServiceMap;
+
+    /**
+     * 写入计划缓存。
+     *
+     * <p>
+     * 不含 {@link DatamarkField} 注解字段的类同样会被缓存，其值为 {@link EntityInfo#EMPTY}。
+     */
+    private final ClassValue<EntityInfo> entityInfoCache = new ClassValue<EntityInfo>() {
+
+        @Override
+        protected EntityInfo computeValue(@Nonnull Class<?> type) {
+            return EntityInfo.bind(datamarkServiceMap, EntityMetadata.of(type));
+        }
+    };
+
+    public DatamarkBatchStamper(Map<String, DatamarkService> datamarkServiceMap) {
+        this.datamarkServiceMap = datamarkServiceMap;
+    }
+
+    /**
+     * 为指定的对象写入数据标识。
+     *
+     * @param object 对象。
+     * @return 对象中是否存在被写入的字段。
+     * @throws Exception 解析或写入数据标识的过程中发生的任何异常。
+     */
+    public boolean stamp(@Nonnull Object object) throws Exception {
+        EntityInfo entityInfo = entityInfoCache.get(object.getClass());
+        for (EntityInfo.EntityFieldInfo fieldInfo : entityInfo.getFieldInfos()) {
+            fieldInfo.setValue(object, resolveDatamark(fieldInfo.getDatamarkService()));
+        }
+        return !entityInfo.getFieldInfos().isEmpty();
+    }
+
+    /**
+     * 为指定的所有对象批量写入数据标识。
+     *
+     * <p>
+     * 对象中的 <code>null</code> 元素会被忽略。<br>
+     * 在本次调用中，每个数据标识服务只会被解析一次；
+     * 连续的同类对象会复用同一个写入计划，不会重复查询写入计划缓存。
+     *
+     * @param objects 对象。
+     * @return 存在被写入的字段的对象的数量。
+     * @throws Exception 解析或写入数据标识的过程中发生的任何异常。
+     */
+    public int stamp(@Nonnull Iterable<?> objects) throws Exception {
+        Map<DatamarkService, String> datamarkCache = new IdentityHashMap<>();
+        Class<?> lastClass = null;
+        EntityInfo entityInfo = EntityInfo.EMPTY;
+        int count = 0;
+        for (Object object : objects) {
+            if (Objects.isNull(object)) {
+                continue;
+            }
+            Class<?> objectClass = object.getClass();
+            if (objectClass != lastClass) {
+                entityInfo = entityInfoCache.get(objectClass);
+                lastClass = objectClass;
+            }
+            if (entityInfo.getFieldInfos().isEmpty()) {
+                continue;
+            }
+            for (EntityInfo.EntityFieldInfo fieldInfo : entityInfo.getFieldInfos()) {
+                DatamarkService datamarkService = fieldInfo.getDatamarkService();
+                String datamark = datamarkCache.get(datamarkService);
+                if (Objects.isNull(datamark)) {
+                    datamark = resolveDatamark(datamarkService);
+                    datamarkCache.put(datamarkService, datamark);
+                }
+                fieldInfo.setValue(object, datamark);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 解析指定数据标识服务的当前数据标识。
+     *
+     * <p>
+     * 默认实现直接调用 {@link DatamarkService#get()}，子类可以重写该方法以改变数据标识的解析策略。
+     *
+     * @param datamarkService 数据标识服务。
+     * @return 当前数据标识。
+     * @throws Exception 解析过程中发生的任何异常。
+     */
+    protected String resolveDatamark(DatamarkService datamarkService) throws Exception {
+        return datamarkService.get();
+    }
+
+    @Override
+    public String toString() {
+        return "DatamarkBatchStamper{" +
+                "datamarkServiceMap=" + datamarkServiceMap +
+                '}';
+    }
+}
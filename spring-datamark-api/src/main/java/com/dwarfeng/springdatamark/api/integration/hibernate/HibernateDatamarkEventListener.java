@@ -0,0 +1,183 @@
+package com.dwarfeng.springdatamark.api.integration.hibernate;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkStamper;
+import com.dwarfeng.springdatamark.api.integration.jpa.EntityInfo;
+import com.dwarfeng.springdatamark.api.integration.jpa.EntityMetadata;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.hibernate.HibernateException;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate 原生的数据标识事件侦听器。
+ *
+ * <p>
+ * 与 {@link com.dwarfeng.springdatamark.api.integration.jpa.DatamarkEntityListener} 不同，
+ * 该侦听器直接注册为 Hibernate 的 {@link PreInsertEventListener} 与 {@link PreUpdateEventListener}，
+ * 不经过 JPA 回调的反射分发。<br>
+ * 侦听器会为每个实体（按照实体名称区分）生成一份写入计划，计划中记录了每个 {@link DatamarkField} 字段在实体状态数组中的下标，
+ * 事件发生时，数据标识被直接写入即将持久化的状态数组，同时通过预先编译的写入方法同步到实体对象中，
+ * 不再经过 Hibernate 的属性访问器。<br>
+ * serviceId 的解析规则与 JPA 实体侦听器完全一致。
+ *
+ * <p>
+ * 实体对象必须与状态数组保持同步，因此对于持久化属性，侦听器在写入状态数组之后仍会写入实体对象：
+ * Hibernate 会将事件中的状态数组作为实体在会话中的已加载状态，如果只写入状态数组，
+ * 实体对象中的旧值会在同一个会话的下一次刷新时被脏检查识别为修改，导致每一次刷新都产生一条多余的 UPDATE 语句，
+ * 调用者在保存之后读取到的也仍然是旧值。<br>
+ * 写入实体对象时使用的是实体元数据中预先编译的写入方法，如果注解处理器为实体类生成了 {@link DatamarkStamper}，
+ * 则直接调用生成的写入器，不经过任何反射。
+ *
+ * <p>
+ * 需要注意的是：
+ * <ul>
+ *     <li>该侦听器应当通过 {@link HibernateDatamarkEventListenerRegistrar} 注册，
+ *     且不应与 JPA 实体侦听器同时用于同一个实体，否则数据标识会被写入两次。</li>
+ *     <li>对于启用了 <code>@DynamicUpdate</code> 的实体，Hibernate 在触发更新前事件之前就已经确定了需要更新的列，
+ *     如果数据标识字段本身没有被修改，其新值不会被写入数据库。</li>
+ *     <li>没有被映射为持久化属性的 {@link DatamarkField} 字段（如 <code>@Transient</code> 字段）只会被写入实体对象。</li>
+ * </ul>
+ *
+ * @author DwArFeng
+ * @see HibernateDatamarkEventListenerRegistrar
+ * @since 1.2.0
+ */
+public class HibernateDatamarkEventListener implements PreInsertEventListener, PreUpdateEventListener {
+
+    private static final long serialVersionUID = 2915447233925412164L;
+
+    private final transient Map<String, DatamarkService> datamarkServiceMap;
+
+    /**
+     * 写入计划缓存，以实体名称为键。
+     *
+     * <p>
+     * 同一个实体在同一个 SessionFactory 中的属性下标是固定的，而每个 SessionFactory 都拥有独立的侦听器实例，
+     * 因此可以按照实体名称缓存写入计划。
+     */
+    private final transient Map<String, StatePlan> statePlanCache = new ConcurrentHashMap<>();
+
+    public HibernateDatamarkEventListener(Map<String, DatamarkService> datamarkServiceMap) {
+        this.datamarkServiceMap = datamarkServiceMap;
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        stamp(event.getEntity(), event.getPersister(), event.getState());
+        return false;
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        stamp(event.getEntity(), event.getPersister(), event.getState());
+        return false;
+    }
+
+    private void stamp(Object entity, EntityPersister persister, Object[] state) {
+        StatePlan statePlan = statePlan(persister);
+        if (statePlan.isEmpty()) {
+            return;
+        }
+        try {
+            for (StateField stateField : statePlan.stateFields) {
+                String datamark = resolveDatamark(stateField.datamarkService);
+                // 状态数组决定写入数据库的值；实体对象需要同步写入，否则下一次刷新时的脏检查会产生多余的更新。
+                if (stateField.propertyIndex >= 0) {
+                    state[stateField.propertyIndex] = datamark;
+                }
+                stateField.fieldInfo.setValue(entity, datamark);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new HibernateException("写入数据标识时发生异常", e);
+        }
+    }
+
+    private StatePlan statePlan(EntityPersister persister) {
+        String entityName = persister.getEntityName();
+        StatePlan statePlan = statePlanCache.get(entityName);
+        if (Objects.nonNull(statePlan)) {
+            return statePlan;
+        }
+        return statePlanCache.computeIfAbsent(entityName, k -> StatePlan.of(datamarkServiceMap, persister));
+    }
+
+    /**
+     * 解析指定数据标识服务的当前数据标识。
+     *
+     * <p>
+     * 默认实现直接调用 {@link DatamarkService#get()}，子类可以重写该方法以改变数据标识的解析策略。
+     *
+     * @param datamarkService 数据标识服务。
+     * @return 当前数据标识。
+     * @throws Exception 解析过程中发生的任何异常。
+     */
+    protected String resolveDatamark(DatamarkService datamarkService) throws Exception {
+        return datamarkService.get();
+    }
+
+    /**
+     * 实体的写入计划。
+     */
+    private static final class StatePlan {
+
+        private static final StatePlan EMPTY = new StatePlan(new StateField[0]);
+
+        public static StatePlan of(Map<String, DatamarkService> datamarkServiceMap, EntityPersister persister) {
+            Class<?> mappedClass = persister.getMappedClass();
+            // 动态映射的实体（如 Hibernate 的 dynamic-map）没有对应的 Java 类型。
+            if (Objects.isNull(mappedClass)) {
+                return EMPTY;
+            }
+            EntityInfo entityInfo = EntityInfo.bind(datamarkServiceMap, EntityMetadata.of(mappedClass));
+            List<EntityInfo.EntityFieldInfo> fieldInfos = entityInfo.getFieldInfos();
+            if (fieldInfos.isEmpty()) {
+                return EMPTY;
+            }
+            StateField[] stateFields = new StateField[fieldInfos.size()];
+            for (int i = 0; i < stateFields.length; i++) {
+                EntityInfo.EntityFieldInfo fieldInfo = fieldInfos.get(i);
+                Integer propertyIndex = persister.getEntityMetamodel().getPropertyIndexOrNull(fieldInfo.getFieldName());
+                stateFields[i] = new StateField(fieldInfo, Objects.isNull(propertyIndex) ? -1 : propertyIndex);
+            }
+            return new StatePlan(stateFields);
+        }
+
+        private final StateField[] stateFields;
+
+        private StatePlan(@Nonnull StateField[] stateFields) {
+            this.stateFields = stateFields;
+        }
+
+        public boolean isEmpty() {
+            return stateFields.length == 0;
+        }
+    }
+
+    /**
+     * 写入计划中的字段。
+     */
+    private static final class StateField {
+
+        private final EntityInfo.EntityFieldInfo fieldInfo;
+        private final DatamarkService datamarkService;
+        private final int propertyIndex;
+
+        public StateField(EntityInfo.EntityFieldInfo fieldInfo, int propertyIndex) {
+            this.fieldInfo = fieldInfo;
+            this.datamarkService = fieldInfo.getDatamarkService();
+            this.propertyIndex = propertyIndex;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.dwarfeng.springdatamark.api.integration.hibernate;
+
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+import javax.annotation.Nonnull;
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+
+/**
+ * Hibernate 原生数据标识事件侦听器的注册器。
+ *
+ * <p>
+ * 注册器在应用上下文中所有的单例 Bean 初始化完成后工作，它会为应用上下文中的每一个 {@link EntityManagerFactory}
+ * 创建一个 {@link HibernateDatamarkEventListener}，并将其注册为该 SessionFactory 的插入前与更新前事件侦听器。
+ *
+ * <p>
+ * 使用该注册器需要在项目中引入 <code>org.hibernate:hibernate-core</code> 依赖，示例配置如下：
+ * <blockquote><pre>
+ * &lt;bean class="com.dwarfeng.springdatamark.api.integration.hibernate.HibernateDatamarkEventListenerRegistrar"/&gt;
+ * </pre></blockquote>
+ * 使用该注册器时，实体类上不需要（也不应该）再声明 {@link com.dwarfeng.springdatamark.api.integration.jpa.DatamarkEntityListener}。
+ *
+ * @author DwArFeng
+ * @see HibernateDatamarkEventListener
+ * @since 1.2.0
+ */
+public class HibernateDatamarkEventListenerRegistrar implements SmartInitializingSingleton, ApplicationContextAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HibernateDatamarkEventListenerRegistrar.class);
+
+    private final Map<String, DatamarkService> datamarkServiceMap;
+
+    private ApplicationContext applicationContext;
+
+    public HibernateDatamarkEventListenerRegistrar(Map<String, DatamarkService> datamarkServiceMap) {
+        this.datamarkServiceMap = datamarkServiceMap;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<String, EntityManagerFactory> entityManagerFactoryMap =
+                applicationContext.getBeansOfType(EntityManagerFactory.class);
+        for (Map.Entry<String, EntityManagerFactory> entry : entityManagerFactoryMap.entrySet()) {
+            SessionFactoryImplementor sessionFactory = entry.getValue().unwrap(SessionFactoryImplementor.class);
+            EventListenerRegistry eventListenerRegistry =
+                    sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+            HibernateDatamarkEventListener listener = createListener(datamarkServiceMap);
+            eventListenerRegistry.appendListeners(EventType.PRE_INSERT, listener);
+            eventListenerRegistry.appendListeners(EventType.PRE_UPDATE, listener);
+            LOGGER.info("已向 EntityManagerFactory {} 注册数据标识事件侦听器", entry.getKey());
+        }
+    }
+
+    /**
+     * 创建数据标识事件侦听器。
+     *
+     * <p>
+     * 子类可以重写该方法，以使用 {@link HibernateDatamarkEventListener} 的子类。
+     *
+     * @param datamarkServiceMap 数据标识服务映射。
+     * @return 数据标识事件侦听器。
+     */
+    protected HibernateDatamarkEventListener createListener(Map<String, DatamarkService> datamarkServiceMap) {
+        return new HibernateDatamarkEventListener(datamarkServiceMap);
+    }
+
+    @Override
+    public void setApplicationContext(@Nonnull ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public String toString() {
+        return "HibernateDatamarkEventListenerRegistrar{" +
+                "datamarkServiceMap=" + datamarkServiceMap +
+                '}';
+    }
+}
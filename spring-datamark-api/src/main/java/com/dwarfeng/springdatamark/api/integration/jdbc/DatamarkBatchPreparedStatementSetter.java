@@ -0,0 +1,95 @@
+package com.dwarfeng.springdatamark.api.integration.jdbc;
+
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+import javax.annotation.Nonnull;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * 数据标识批量语句设置器。
+ *
+ * <p>
+ * {@link BatchPreparedStatementSetter} 的装饰器，在代理设置器设置完每一行的参数之后，
+ * 将数据标识写入指定下标的参数中，数据标识参数会覆盖代理设置器在相同下标上设置的值。<br>
+ * 数据标识在装饰器创建时解析，每个数据标识服务只会被解析一次，设置参数时不会调用任何数据标识服务。
+ *
+ * <p>
+ * 示例代码如下：
+ * <blockquote><pre>
+ * jdbcTemplate.batchUpdate(
+ *         "INSERT INTO tbl_user (id, name, datamark) VALUES (?, ?, ?)",
+ *         DatamarkBatchPreparedStatementSetter.of(setter, Collections.singletonMap(3, datamarkService))
+ * );
+ * </pre></blockquote>
+ *
+ * @author DwArFeng
+ * @see DatamarkSqlParameterSource
+ * @since 1.2.0
+ */
+public class DatamarkBatchPreparedStatementSetter implements BatchPreparedStatementSetter {
+
+    /**
+     * 装饰指定的批量语句设置器。
+     *
+     * @param delegate            代理设置器。
+     * @param parameterServiceMap 数据标识参数的下标（从 1 开始）与数据标识服务的映射。
+     * @return 装饰后的批量语句设置器。
+     * @throws DatamarkException 数据标识异常。
+     */
+    public static DatamarkBatchPreparedStatementSetter of(
+            @Nonnull BatchPreparedStatementSetter delegate,
+            @Nonnull Map<Integer, DatamarkService> parameterServiceMap
+    ) throws DatamarkException {
+        Map<Integer, String> datamarkParameters = DatamarkResolver.resolve(parameterServiceMap);
+        int[] parameterIndexes = new int[datamarkParameters.size()];
+        String[] datamarks = new String[datamarkParameters.size()];
+        int i = 0;
+        for (Map.Entry<Integer, String> entry : datamarkParameters.entrySet()) {
+            parameterIndexes[i] = entry.getKey();
+            datamarks[i] = entry.getValue();
+            i++;
+        }
+        return new DatamarkBatchPreparedStatementSetter(delegate, parameterIndexes, datamarks);
+    }
+
+    private final BatchPreparedStatementSetter delegate;
+    private final int[] parameterIndexes;
+    private final String[] datamarks;
+
+    private DatamarkBatchPreparedStatementSetter(
+            @Nonnull BatchPreparedStatementSetter delegate, @Nonnull int[] parameterIndexes,
+            @Nonnull String[] datamarks
+    ) {
+        this.delegate = delegate;
+        this.parameterIndexes = parameterIndexes;
+        this.datamarks = datamarks;
+    }
+
+    @Override
+    public void setValues(@Nonnull PreparedStatement ps, int i) throws SQLException {
+        delegate.setValues(ps, i);
+        for (int j = 0; j < parameterIndexes.length; j++) {
+            ps.setString(parameterIndexes[j], datamarks[j]);
+        }
+    }
+
+    @Override
+    public int getBatchSize() {
+        return delegate.getBatchSize();
+    }
+
+    public BatchPreparedStatementSetter getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String toString() {
+        return "DatamarkBatchPreparedStatementSetter{" +
+                "delegate=" + delegate +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package com.dwarfeng.springdatamark.api.integration.jdbc;
+
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+
+import javax.annotation.Nonnull;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 数据标识解析器。
+ *
+ * <p>
+ * 将参数与数据标识服务的映射解析为参数与数据标识的映射，每个数据标识服务只会被解析一次。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+final class DatamarkResolver {
+
+    static <K> Map<K, String> resolve(@Nonnull Map<K, DatamarkService> parameterServiceMap)
+            throws DatamarkException {
+        Map<DatamarkService, String> datamarkCache = new IdentityHashMap<>();
+        Map<K, String> result = new LinkedHashMap<>();
+        for (Map.Entry<K, DatamarkService> entry : parameterServiceMap.entrySet()) {
+            DatamarkService datamarkService = entry.getValue();
+            String datamark = datamarkCache.get(datamarkService);
+            if (Objects.isNull(datamark)) {
+                datamark = datamarkService.get();
+                datamarkCache.put(datamarkService, datamark);
+            }
+            result.put(entry.getKey(), datamark);
+        }
+        return result;
+    }
+
+    private DatamarkResolver() {
+        throw new IllegalStateException("禁止实例化");
+    }
+}
@@ -0,0 +1,131 @@
+package com.dwarfeng.springdatamark.api.integration.jdbc;
+
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import javax.annotation.Nonnull;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 数据标识参数源。
+ *
+ * <p>
+ * {@link SqlParameterSource} 的装饰器，在代理参数源的基础上注入数据标识参数，数据标识参数的值优先于代理参数源中的同名参数。<br>
+ * 数据标识参数的值在装饰器创建之前就已经确定，因此读取参数时不会调用任何数据标识服务。
+ *
+ * <p>
+ * 对于批量操作，请使用 {@link #decorate(SqlParameterSource[], Map)}，
+ * 该方法对每个数据标识服务只解析一次，并将结果复用于批次中的所有参数源，示例代码如下：
+ * <blockquote><pre>
+ * SqlParameterSource[] batch = DatamarkSqlParameterSource.decorate(
+ *         SqlParameterSourceUtils.createBatch(users),
+ *         Collections.singletonMap("datamark", datamarkService)
+ * );
+ * namedParameterJdbcTemplate.batchUpdate(
+ *         "INSERT INTO tbl_user (id, name, datamark) VALUES (:id, :name, :datamark)", batch
+ * );
+ * </pre></blockquote>
+ *
+ * @author DwArFeng
+ * @see DatamarkBatchPreparedStatementSetter
+ * @since 1.2.0
+ */
+public class DatamarkSqlParameterSource implements SqlParameterSource {
+
+    /**
+     * 装饰指定的批量参数源。
+     *
+     * <p>
+     * 每个数据标识服务只会被解析一次，批次中的所有参数源共享同一组数据标识参数。
+     *
+     * @param batch               批量参数源。
+     * @param parameterServiceMap 数据标识参数的名称与数据标识服务的映射。
+     * @return 装饰后的批量参数源。
+     * @throws DatamarkException 数据标识异常。
+     */
+    public static SqlParameterSource[] decorate(
+            @Nonnull SqlParameterSource[] batch, @Nonnull Map<String, DatamarkService> parameterServiceMap
+    ) throws DatamarkException {
+        Map<String, String> datamarkParameters = Collections.unmodifiableMap(
+                DatamarkResolver.resolve(parameterServiceMap)
+        );
+        SqlParameterSource[] result = new SqlParameterSource[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            result[i] = new DatamarkSqlParameterSource(batch[i], datamarkParameters);
+        }
+        return result;
+    }
+
+    private final SqlParameterSource delegate;
+    private final Map<String, String> datamarkParameters;
+
+    public DatamarkSqlParameterSource(
+            @Nonnull SqlParameterSource delegate, @Nonnull Map<String, String> datamarkParameters
+    ) {
+        this.delegate = delegate;
+        this.datamarkParameters = datamarkParameters;
+    }
+
+    @Override
+    public boolean hasValue(@Nonnull String paramName) {
+        return datamarkParameters.containsKey(paramName) || delegate.hasValue(paramName);
+    }
+
+    @Override
+    public Object getValue(@Nonnull String paramName) throws IllegalArgumentException {
+        if (datamarkParameters.containsKey(paramName)) {
+            return datamarkParameters.get(paramName);
+        }
+        return delegate.getValue(paramName);
+    }
+
+    @Override
+    public int getSqlType(@Nonnull String paramName) {
+        if (datamarkParameters.containsKey(paramName)) {
+            return Types.VARCHAR;
+        }
+        return delegate.getSqlType(paramName);
+    }
+
+    @Override
+    public String getTypeName(@Nonnull String paramName) {
+        if (datamarkParameters.containsKey(paramName)) {
+            return null;
+        }
+        return delegate.getTypeName(paramName);
+    }
+
+    @Override
+    public String[] getParameterNames() {
+        String[] parameterNames = delegate.getParameterNames();
+        if (Objects.isNull(parameterNames)) {
+            return null;
+        }
+        Set<String> result = new LinkedHashSet<>();
+        Collections.addAll(result, parameterNames);
+        result.addAll(datamarkParameters.keySet());
+        return result.toArray(new String[0]);
+    }
+
+    public SqlParameterSource getDelegate() {
+        return delegate;
+    }
+
+    public Map<String, String> getDatamarkParameters() {
+        return datamarkParameters;
+    }
+
+    @Override
+    public String toString() {
+        return "DatamarkSqlParameterSource{" +
+                "delegate=" + delegate +
+                ", datamarkParameters=" + datamarkParameters +
+                '}';
+    }
+}
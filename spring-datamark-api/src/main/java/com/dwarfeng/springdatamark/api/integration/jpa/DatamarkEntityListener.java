@@ -1,210 +1,141 @@
 package com.dwarfeng.springdatamark.api.integration.jpa;
 
+import com.dwarfeng.springdatamark.sdk.metrics.NoOpDatamarkMetrics;
+import com.dwarfeng.springdatamark.stack.metrics.DatamarkMetrics;
 import com.dwarfeng.springdatamark.stack.service.DatamarkService;
-import org.apache.commons.beanutils.BeanUtilsBean;
-import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
 
 import javax.annotation.Nonnull;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
-import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Objects;
 
 /**
  * 数据标识实体侦听器。
  *
  * <p>
- * 侦听器在工作时，会寻找参数对象对应的类的所有包含 {@link DatamarkField} 注解的所有声明字段（包括私有字段，但不包括父类字段），
- * 并将这些字段的值通过 Bean 方法设置为当前的数据标识。
+ * 侦听器在工作时，会寻找参数对象对应的类的所有包含 {@link DatamarkField} 注解的所有字段（包括私有字段，以及父类中的字段），
+ * 并将这些字段的值通过 Bean 方法设置为当前的数据标识。<br>
+ * 如果参数对象是 ORM 框架生成的代理对象，侦听器会使用其真实实体类的字段。
+ *
+ * <p>
+ * 每个字段的写入方法在解析实体元数据时被一次性编译为 {@link java.lang.invoke.MethodHandle}，并在全局范围内缓存：
+ * 如果字段存在对应的 Bean 写方法，则使用写方法；否则直接写入字段。
+ * 因此，实体回调时不再进行任何反射内省或基于字符串的属性解析。
+ *
+ * <p>
+ * 如果希望在应用启动时就完成实体元数据的解析与校验，请同时使用 {@link DatamarkEntityScanner}。<br>
+ * 如果希望同一事务中的所有实体使用同一个数据标识，请使用 {@link TransactionScopedDatamarkEntityListener}。
+ *
+ * <p>
+ * 如果应用上下文中存在唯一的 {@link DatamarkMetrics} Bean，侦听器会通过它记录每一次实体回调的耗时；
+ * 否则，侦听器不会进行任何计时。
  *
  * @author DwArFeng
  * @see DatamarkField
+ * @see DatamarkEntityScanner
+ * @see TransactionScopedDatamarkEntityListener
  * @since 1.0.0
  */
-public class DatamarkEntityListener {
+public class DatamarkEntityListener implements ApplicationContextAware {
+
+    private static final String CALLBACK_PRE_PERSIST = "prePersist";
+    private static final String CALLBACK_PRE_UPDATE = "preUpdate";
 
     private final Map<String, DatamarkService> datamarkServiceMap;
 
-    private final Map<Class<?>, EntityInfo> entityFieldInfoMap = new HashMap<>();
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * 实体信息缓存。
+     *
+     * <p>
+     * 基于 {@link ClassValue} 实现，查询时不需要获取任何锁，每个实体类只会被绑定一次（并发首次绑定时以先完成者为准）。
+     * 不含 {@link DatamarkField} 注解字段的实体类同样会被缓存，其值为 {@link EntityInfo#EMPTY}。
+     */
+    private final ClassValue<EntityInfo> entityInfoCache = new ClassValue<EntityInfo>() {
+
+        @Override
+        protected EntityInfo computeValue(@Nonnull Class<?> type) {
+            return EntityInfo.bind(datamarkServiceMap, EntityMetadata.of(type));
+        }
+    };
+
+    private DatamarkMetrics datamarkMetrics;
+    private boolean metricsEnabled;
 
     public DatamarkEntityListener(Map<String, DatamarkService> datamarkServiceMap) {
         this.datamarkServiceMap = datamarkServiceMap;
     }
 
-    @SuppressWarnings("DuplicatedCode")
     @PrePersist
     public void prePersist(Object entity) throws Exception {
-        lock.readLock().lock();
-        try {
-            if (entityFieldInfoMap.containsKey(entity.getClass())) {
-                updateDatamarkField(entity, entityFieldInfoMap.get(entity.getClass()));
-            }
-        } finally {
-            lock.readLock().unlock();
-        }
-        lock.writeLock().lock();
-        try {
-            if (entityFieldInfoMap.containsKey(entity.getClass())) {
-                updateDatamarkField(entity, entityFieldInfoMap.get(entity.getClass()));
-            }
-            EntityInfo entityInfo = parseEntityInfo(entity);
-            entityFieldInfoMap.put(entity.getClass(), entityInfo);
-            updateDatamarkField(entity, entityInfo);
-        } finally {
-            lock.writeLock().unlock();
-        }
+        handleCallback(entity, CALLBACK_PRE_PERSIST);
     }
 
-    @SuppressWarnings("DuplicatedCode")
     @PreUpdate
     public void preUpdate(Object entity) throws Exception {
-        lock.readLock().lock();
-        try {
-            if (entityFieldInfoMap.containsKey(entity.getClass())) {
-                updateDatamarkField(entity, entityFieldInfoMap.get(entity.getClass()));
-            }
-        } finally {
-            lock.readLock().unlock();
+        handleCallback(entity, CALLBACK_PRE_UPDATE);
+    }
+
+    private void handleCallback(Object entity, String callback) throws Exception {
+        Class<?> entityClass = entity.getClass();
+        if (!metricsEnabled) {
+            updateDatamarkField(entity, entityInfoCache.get(entityClass));
+            return;
         }
-        lock.writeLock().lock();
+        long startNanos = System.nanoTime();
         try {
-            if (entityFieldInfoMap.containsKey(entity.getClass())) {
-                updateDatamarkField(entity, entityFieldInfoMap.get(entity.getClass()));
-            }
-            EntityInfo entityInfo = parseEntityInfo(entity);
-            entityFieldInfoMap.put(entity.getClass(), entityInfo);
-            updateDatamarkField(entity, entityInfo);
+            updateDatamarkField(entity, entityInfoCache.get(entityClass));
         } finally {
-            lock.writeLock().unlock();
+            datamarkMetrics.recordEntityCallback(entityClass, callback, System.nanoTime() - startNanos);
         }
     }
 
     private void updateDatamarkField(Object entity, EntityInfo entityInfo) throws Exception {
-        for (EntityFieldInfo fieldInfo : entityInfo.getFieldInfos()) {
-            BeanUtilsBean.getInstance().getPropertyUtils().setProperty(
-                    entity,
-                    fieldInfo.getFieldName(),
-                    fieldInfo.getDatamarkService().get()
-            );
+        for (EntityInfo.EntityFieldInfo fieldInfo : entityInfo.getFieldInfos()) {
+            fieldInfo.setValue(entity, resolveDatamark(fieldInfo.getDatamarkService()));
         }
     }
 
-    private EntityInfo parseEntityInfo(Object entity) {
-        // 如果 datamarkServiceMap 为空映射，直接抛出异常。
-        if (datamarkServiceMap.isEmpty()) {
-            throw new IllegalStateException("应用上下文中不存在任何 DatamarkService");
-        }
-
-        Field[] fields = entity.getClass().getDeclaredFields();
-        // 遍历 fields 寻找含有 DatamarkField 注解的字段，解析 entityFieldInfo，并添加到 entityFieldInfos 中。
-        final List<EntityFieldInfo> entityFieldInfos = new ArrayList<>();
-        for (Field field : fields) {
-            if (!field.isAnnotationPresent(DatamarkField.class)) {
-                continue;
-            }
-            entityFieldInfos.add(parseEntityFieldInfo(entity, field));
-        }
-        // 构造结果并返回。
-        return new EntityInfo(entityFieldInfos);
+    /**
+     * 解析指定数据标识服务的当前数据标识。
+     *
+     * <p>
+     * 默认实现直接调用 {@link DatamarkService#get()}，子类可以重写该方法以改变数据标识的解析策略。
+     *
+     * @param datamarkService 数据标识服务。
+     * @return 当前数据标识。
+     * @throws Exception 解析过程中发生的任何异常。
+     * @see TransactionScopedDatamarkEntityListener
+     * @since 1.2.0
+     */
+    protected String resolveDatamark(DatamarkService datamarkService) throws Exception {
+        return datamarkService.get();
     }
 
-    private EntityFieldInfo parseEntityFieldInfo(Object entity, Field field) {
-        DatamarkField datamarkField = field.getAnnotation(DatamarkField.class);
-        // 在方法调用的时候，已经保证了 datamarkField 不会是 null。
-        assert datamarkField != null;
-        String serviceId = datamarkField.serviceId();
-        // 解析 datamarkService。
-        DatamarkService datamarkService;
-        /*
-         * 当 serviceId 是空字符串时：
-         * 1. 如果只有一个 datamarkService，那么选用这个 datamarkService。
-         * 2. 如果有多个 dataMarkService，抛出异常。
-         */
-        if (StringUtils.isEmpty(serviceId)) {
-            if (datamarkServiceMap.size() == 1) {
-                datamarkService = datamarkServiceMap.values().stream().findAny().get();
-            } else {
-                String message = entity.getClass().getCanonicalName() + "." + field.getName() +
-                        " 字段中 @DatamarkField 注解的 serviceId 未指定（或为空字符串）, " +
-                        "但应用上下文中存在多个 DatamarkService";
-                throw new IllegalStateException(message);
-            }
-        }
-        /*
-         * 当 serviceId 不是空字符串时：
-         * 1. 取 serviceId 对应的 datamarkService。
-         * 2. 如果 serviceId 对应的 datamarkService 不存在，则抛出异常。
-         */
-        else {
-            if (datamarkServiceMap.containsKey(serviceId)) {
-                datamarkService = datamarkServiceMap.get(serviceId);
-            } else {
-                String message = entity.getClass().getCanonicalName() + "." + field.getName() +
-                        " 字段中 @DatamarkField 注解的 serviceId 为 " + serviceId +
-                        ", 但应用上下文中不存在对应的 DatamarkService";
-                throw new IllegalStateException(message);
-            }
+    @Override
+    public void setApplicationContext(@Nonnull ApplicationContext applicationContext) {
+        // 显式设置的指标记录器优先。
+        if (Objects.nonNull(datamarkMetrics)) {
+            return;
         }
-        // 解析 fieldName。
-        String fieldName = field.getName();
-        // 构造结果并返回。
-        return new EntityFieldInfo(datamarkService, fieldName);
+        setDatamarkMetrics(applicationContext.getBeanProvider(DatamarkMetrics.class)
+                .getIfUnique(NoOpDatamarkMetrics::getInstance));
     }
 
-    private static final class EntityInfo {
-
-        private final List<EntityFieldInfo> fieldInfos;
-
-        public EntityInfo(@Nonnull List<EntityFieldInfo> fieldInfos) {
-            this.fieldInfos = fieldInfos;
-        }
-
-        @Nonnull
-        public List<EntityFieldInfo> getFieldInfos() {
-            return fieldInfos;
-        }
-
-        @Override
-        public String toString() {
-            return "EntityInfo{" +
-                    "fieldInfos=" + fieldInfos +
-                    '}';
-        }
+    public DatamarkMetrics getDatamarkMetrics() {
+        return datamarkMetrics;
     }
 
-    private static final class EntityFieldInfo {
-
-        private final DatamarkService datamarkService;
-        private final String fieldName;
-
-        public EntityFieldInfo(
-                @Nonnull DatamarkService datamarkService,
-                @Nonnull String fieldName
-        ) {
-            this.datamarkService = datamarkService;
-            this.fieldName = fieldName;
-        }
-
-        public DatamarkService getDatamarkService() {
-            return datamarkService;
-        }
-
-        public String getFieldName() {
-            return fieldName;
-        }
-
-        @Override
-        public String toString() {
-            return "EntityFieldInfo{" +
-                    "datamarkService=" + datamarkService +
-                    ", fieldName='" + fieldName + '\'' +
-                    '}';
-        }
+    /**
+     * 设置指标记录器。
+     *
+     * @param datamarkMetrics 指标记录器。
+     * @since 1.2.0
+     */
+    public void setDatamarkMetrics(DatamarkMetrics datamarkMetrics) {
+        this.datamarkMetrics = datamarkMetrics;
+        this.metricsEnabled = Objects.nonNull(datamarkMetrics) && !(datamarkMetrics instanceof NoOpDatamarkMetrics);
     }
 }
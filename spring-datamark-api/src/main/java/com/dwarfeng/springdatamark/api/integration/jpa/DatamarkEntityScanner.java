@@ -0,0 +1,166 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
+
+import javax.annotation.Nonnull;
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import java.util.*;
+
+/**
+ * 数据标识实体扫描器。
+ *
+ * <p>
+ * 扫描器在应用上下文中所有的单例 Bean 初始化完成后工作，它会从 JPA 元模型以及指定的基础包中寻找实体类，
+ * 提前解析这些实体类的 {@link DatamarkField} 元数据，并将其中的 serviceId 与应用上下文中的 {@link DatamarkService} 绑定。<br>
+ * 解析得到的实体元数据会被全局缓存，{@link DatamarkEntityListener} 在实体回调时可以直接使用，
+ * 从而避免应用启动后的第一批请求承担实体元数据的解析开销。
+ *
+ * <p>
+ * 如果任何一个实体类的元数据解析失败，或者 serviceId 无法绑定，扫描器会汇总所有的错误并抛出异常，使应用启动失败。
+ *
+ * <p>
+ * 示例配置如下：
+ * <blockquote><pre>
+ * &lt;bean class="com.dwarfeng.springdatamark.api.integration.jpa.DatamarkEntityScanner"&gt;
+ *     &lt;property name="basePackages" value="com.example.entity"/&gt;
+ * &lt;/bean&gt;
+ * </pre></blockquote>
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkEntityScanner implements SmartInitializingSingleton, ApplicationContextAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatamarkEntityScanner.class);
+
+    private final Map<String, DatamarkService> datamarkServiceMap;
+
+    private ApplicationContext applicationContext;
+
+    private String[] basePackages = new String[0];
+    private boolean metamodelScanEnabled = true;
+
+    public DatamarkEntityScanner(Map<String, DatamarkService> datamarkServiceMap) {
+        this.datamarkServiceMap = datamarkServiceMap;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        LOGGER.info("开始扫描含有 @DatamarkField 注解的实体类...");
+        long startNanos = System.nanoTime();
+
+        // 收集所有的候选实体类。
+        Set<Class<?>> entityClasses = new LinkedHashSet<>();
+        if (metamodelScanEnabled) {
+            collectFromMetamodel(entityClasses);
+        }
+        collectFromBasePackages(entityClasses);
+
+        // 解析并绑定每一个实体类，记录所有的错误。
+        int datamarkEntityCount = 0;
+        int datamarkFieldCount = 0;
+        List<String> failureMessages = new ArrayList<>();
+        for (Class<?> entityClass : entityClasses) {
+            try {
+                EntityMetadata entityMetadata = EntityMetadata.of(entityClass);
+                EntityInfo.bind(datamarkServiceMap, entityMetadata);
+                if (!entityMetadata.isEmpty()) {
+                    datamarkEntityCount++;
+                    datamarkFieldCount += entityMetadata.getFieldMetadatas().size();
+                }
+            } catch (Exception e) {
+                LOGGER.warn("实体类 {} 的数据标识元数据解析失败, 异常信息如下: ", entityClass.getName(), e);
+                failureMessages.add(entityClass.getName() + ": " + e.getMessage());
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000L;
+        if (!failureMessages.isEmpty()) {
+            StringJoiner sj = new StringJoiner(System.lineSeparator() + "  ");
+            sj.add("共有 " + failureMessages.size() + " 个实体类的数据标识元数据解析失败:");
+            failureMessages.forEach(sj::add);
+            throw new IllegalStateException(sj.toString());
+        }
+        LOGGER.info(
+                "实体类扫描完成, 共扫描 {} 个实体类, 其中 {} 个实体类含有 {} 个 @DatamarkField 字段, 耗时 {} 毫秒",
+                entityClasses.size(), datamarkEntityCount, datamarkFieldCount, elapsedMillis
+        );
+    }
+
+    private void collectFromMetamodel(Set<Class<?>> entityClasses) {
+        Map<String, EntityManagerFactory> entityManagerFactoryMap =
+                applicationContext.getBeansOfType(EntityManagerFactory.class);
+        for (Map.Entry<String, EntityManagerFactory> entry : entityManagerFactoryMap.entrySet()) {
+            LOGGER.debug("从 EntityManagerFactory {} 的元模型中收集实体类...", entry.getKey());
+            for (EntityType<?> entityType : entry.getValue().getMetamodel().getEntities()) {
+                Class<?> javaType = entityType.getJavaType();
+                // 动态映射的实体（如 Hibernate 的 dynamic-map）没有对应的 Java 类型。
+                if (Objects.nonNull(javaType)) {
+                    entityClasses.add(javaType);
+                }
+            }
+        }
+    }
+
+    private void collectFromBasePackages(Set<Class<?>> entityClasses) {
+        if (basePackages.length == 0) {
+            return;
+        }
+        ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(false);
+        provider.setResourceLoader(applicationContext);
+        provider.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        ClassLoader classLoader = applicationContext.getClassLoader();
+        for (String basePackage : basePackages) {
+            LOGGER.debug("从基础包 {} 中收集实体类...", basePackage);
+            for (BeanDefinition beanDefinition : provider.findCandidateComponents(basePackage)) {
+                String className = beanDefinition.getBeanClassName();
+                try {
+                    entityClasses.add(ClassUtils.forName(Objects.requireNonNull(className), classLoader));
+                } catch (ClassNotFoundException | LinkageError e) {
+                    throw new IllegalStateException("无法加载实体类 " + className, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setApplicationContext(@Nonnull ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    public String[] getBasePackages() {
+        return basePackages;
+    }
+
+    public void setBasePackages(String... basePackages) {
+        this.basePackages = Objects.isNull(basePackages) ? new String[0] : basePackages;
+    }
+
+    public boolean isMetamodelScanEnabled() {
+        return metamodelScanEnabled;
+    }
+
+    public void setMetamodelScanEnabled(boolean metamodelScanEnabled) {
+        this.metamodelScanEnabled = metamodelScanEnabled;
+    }
+
+    @Override
+    public String toString() {
+        return "DatamarkEntityScanner{" +
+                "datamarkServiceMap=" + datamarkServiceMap +
+                ", basePackages=" + Arrays.toString(basePackages) +
+                ", metamodelScanEnabled=" + metamodelScanEnabled +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+/**
+ * 数据标识写入器。
+ *
+ * <p>
+ * 数据标识写入器由 <code>spring-datamark-processor</code> 注解处理器在编译期为每个含有 {@link DatamarkField}
+ * 注解字段的实体类生成，并登记在类路径下的 {@link DatamarkStamperIndex#INDEX_LOCATION} 索引文件中。<br>
+ * 写入器以普通的 Java 代码直接调用实体的写方法或直接写入字段，不使用任何反射。
+ * 解析实体元数据时，如果存在实体类对应的写入器，则优先使用写入器；否则回退到运行时的反射扫描。
+ *
+ * <p>
+ * 写入器中字段的顺序与运行时扫描的顺序一致：父类的字段在前，子类的字段在后，子类中的字段覆盖父类中的同名字段。
+ *
+ * @author DwArFeng
+ * @see DatamarkStamperIndex
+ * @since 1.2.0
+ */
+public interface DatamarkStamper {
+
+    /**
+     * 获取写入器对应的实体类。
+     *
+     * @return 写入器对应的实体类。
+     */
+    Class<?> getEntityClass();
+
+    /**
+     * 获取含有 {@link DatamarkField} 注解的字段的数量。
+     *
+     * @return 字段的数量。
+     */
+    int getFieldCount();
+
+    /**
+     * 获取指定下标的字段的名称。
+     *
+     * @param index 字段的下标。
+     * @return 字段的名称。
+     */
+    String getFieldName(int index);
+
+    /**
+     * 获取指定下标的字段的 {@link DatamarkField#serviceId()}。
+     *
+     * @param index 字段的下标。
+     * @return 字段的 serviceId。
+     */
+    String getServiceId(int index);
+
+    /**
+     * 将数据标识写入实体中指定下标的字段。
+     *
+     * @param entity   实体。
+     * @param index    字段的下标。
+     * @param datamark 数据标识。
+     */
+    void setValue(Object entity, int index, String datamark);
+}
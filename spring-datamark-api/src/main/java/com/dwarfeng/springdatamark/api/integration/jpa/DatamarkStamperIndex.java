@@ -0,0 +1,116 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 数据标识写入器索引。
+ *
+ * <p>
+ * 索引文件位于类路径下的 {@link #INDEX_LOCATION}，由 <code>spring-datamark-processor</code> 注解处理器在编译期生成，
+ * 每一行的格式为 <code>实体类全名=写入器类全名</code>，以 <code>#</code> 开头的行为注释。<br>
+ * 同一个类加载器可见的所有索引文件会被合并，并按照类加载器缓存，每个类加载器只会读取一次。
+ *
+ * @author DwArFeng
+ * @see DatamarkStamper
+ * @since 1.2.0
+ */
+public final class DatamarkStamperIndex {
+
+    /**
+     * 索引文件在类路径中的位置。
+     */
+    public static final String INDEX_LOCATION = "META-INF/spring-datamark.stampers";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatamarkStamperIndex.class);
+
+    private static final Map<ClassLoader, Map<String, String>> INDEX_CACHE =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 查找指定实体类的数据标识写入器。
+     *
+     * <p>
+     * 如果索引中登记的写入器无法加载、无法实例化或者与实体类不匹配，则记录警告并返回 <code>null</code>，
+     * 调用者应当回退到运行时的反射扫描。
+     *
+     * @param entityClass 实体类。
+     * @return 实体类的数据标识写入器，如果不存在，则返回 <code>null</code>。
+     */
+    @Nullable
+    public static DatamarkStamper find(@Nonnull Class<?> entityClass) {
+        ClassLoader classLoader = entityClass.getClassLoader();
+        if (Objects.isNull(classLoader)) {
+            return null;
+        }
+        String stamperClassName = INDEX_CACHE.computeIfAbsent(classLoader, DatamarkStamperIndex::loadIndex)
+                .get(entityClass.getName());
+        if (Objects.isNull(stamperClassName)) {
+            return null;
+        }
+        try {
+            Class<?> stamperClass = Class.forName(stamperClassName, true, classLoader);
+            DatamarkStamper stamper = (DatamarkStamper) stamperClass.getConstructor().newInstance();
+            if (stamper.getEntityClass() != entityClass) {
+                LOGGER.warn("数据标识写入器 {} 与实体类 {} 不匹配, 将使用运行时扫描", stamperClassName, entityClass.getName());
+                return null;
+            }
+            return stamper;
+        } catch (Exception | LinkageError e) {
+            LOGGER.warn("无法加载数据标识写入器 {}, 将使用运行时扫描, 异常信息如下: ", stamperClassName, e);
+            return null;
+        }
+    }
+
+    private static Map<String, String> loadIndex(ClassLoader classLoader) {
+        Map<String, String> index = new HashMap<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                LOGGER.debug("读取数据标识写入器索引 {}...", url);
+                try (
+                        InputStream in = url.openStream();
+                        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+                ) {
+                    String line;
+                    while (Objects.nonNull(line = reader.readLine())) {
+                        parseLine(index, line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("读取数据标识写入器索引时发生异常, 将使用运行时扫描, 异常信息如下: ", e);
+            return Collections.emptyMap();
+        }
+        return index;
+    }
+
+    private static void parseLine(Map<String, String> index, String line) {
+        line = StringUtils.trim(line);
+        if (StringUtils.isEmpty(line) || line.startsWith("#")) {
+            return;
+        }
+        int separatorIndex = line.indexOf('=');
+        if (separatorIndex <= 0 || separatorIndex == line.length() - 1) {
+            LOGGER.warn("数据标识写入器索引中存在格式错误的行: {}, 将忽略该行", line);
+            return;
+        }
+        index.put(line.substring(0, separatorIndex).trim(), line.substring(separatorIndex + 1).trim());
+    }
+
+    private DatamarkStamperIndex() {
+        throw new IllegalStateException("禁止实例化");
+    }
+}
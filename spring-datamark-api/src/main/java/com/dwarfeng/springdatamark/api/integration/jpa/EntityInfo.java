@@ -0,0 +1,149 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 实体信息。
+ *
+ * <p>
+ * 实体信息是 {@link EntityMetadata} 与具体的数据标识服务映射绑定后的结果，
+ * 其中每个字段都已经确定了对应的 {@link DatamarkService}。<br>
+ * serviceId 的解析规则对所有的集成都是一致的。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class EntityInfo {
+
+    public static final EntityInfo EMPTY = new EntityInfo(Collections.emptyList());
+
+    /**
+     * 将实体元数据与数据标识服务映射绑定。
+     *
+     * @param datamarkServiceMap 数据标识服务映射。
+     * @param entityMetadata     实体元数据。
+     * @return 绑定后的实体信息。
+     * @throws IllegalStateException 实体元数据中的 serviceId 无法绑定到数据标识服务时抛出。
+     */
+    public static EntityInfo bind(
+            @Nonnull Map<String, DatamarkService> datamarkServiceMap, @Nonnull EntityMetadata entityMetadata
+    ) {
+        // 如果没有任何字段含有 DatamarkField 注解，返回空的实体信息，作为负缓存。
+        if (entityMetadata.isEmpty()) {
+            return EMPTY;
+        }
+        // 如果 datamarkServiceMap 为空映射，直接抛出异常。
+        if (datamarkServiceMap.isEmpty()) {
+            throw new IllegalStateException("应用上下文中不存在任何 DatamarkService");
+        }
+        List<EntityFieldInfo> fieldInfos = new ArrayList<>();
+        for (EntityMetadata.FieldMetadata fieldMetadata : entityMetadata.getFieldMetadatas()) {
+            DatamarkService datamarkService = resolveDatamarkService(
+                    datamarkServiceMap, entityMetadata.getEntityClass(), fieldMetadata
+            );
+            fieldInfos.add(new EntityFieldInfo(datamarkService, fieldMetadata));
+        }
+        return new EntityInfo(Collections.unmodifiableList(fieldInfos));
+    }
+
+    private static DatamarkService resolveDatamarkService(
+            Map<String, DatamarkService> datamarkServiceMap, Class<?> entityClass,
+            EntityMetadata.FieldMetadata fieldMetadata
+    ) {
+        String serviceId = fieldMetadata.getServiceId();
+        /*
+         * 当 serviceId 是空字符串时：
+         * 1. 如果只有一个 datamarkService，那么选用这个 datamarkService。
+         * 2. 如果有多个 dataMarkService，抛出异常。
+         */
+        if (StringUtils.isEmpty(serviceId)) {
+            if (datamarkServiceMap.size() == 1) {
+                return datamarkServiceMap.values().iterator().next();
+            } else {
+                String message = entityClass.getCanonicalName() + "." + fieldMetadata.getFieldName() +
+                        " 字段中 @DatamarkField 注解的 serviceId 未指定（或为空字符串）, " +
+                        "但应用上下文中存在多个 DatamarkService";
+                throw new IllegalStateException(message);
+            }
+        }
+        /*
+         * 当 serviceId 不是空字符串时：
+         * 1. 取 serviceId 对应的 datamarkService。
+         * 2. 如果 serviceId 对应的 datamarkService 不存在，则抛出异常。
+         */
+        else {
+            if (datamarkServiceMap.containsKey(serviceId)) {
+                return datamarkServiceMap.get(serviceId);
+            } else {
+                String message = entityClass.getCanonicalName() + "." + fieldMetadata.getFieldName() +
+                        " 字段中 @DatamarkField 注解的 serviceId 为 " + serviceId +
+                        ", 但应用上下文中不存在对应的 DatamarkService";
+                throw new IllegalStateException(message);
+            }
+        }
+    }
+
+    private final List<EntityFieldInfo> fieldInfos;
+
+    private EntityInfo(@Nonnull List<EntityFieldInfo> fieldInfos) {
+        this.fieldInfos = fieldInfos;
+    }
+
+    @Nonnull
+    public List<EntityFieldInfo> getFieldInfos() {
+        return fieldInfos;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityInfo{" +
+                "fieldInfos=" + fieldInfos +
+                '}';
+    }
+
+    /**
+     * 实体字段信息。
+     */
+    public static final class EntityFieldInfo {
+
+        private final DatamarkService datamarkService;
+        private final EntityMetadata.FieldMetadata fieldMetadata;
+
+        EntityFieldInfo(
+                @Nonnull DatamarkService datamarkService,
+                @Nonnull EntityMetadata.FieldMetadata fieldMetadata
+        ) {
+            this.datamarkService = datamarkService;
+            this.fieldMetadata = fieldMetadata;
+        }
+
+        public void setValue(Object entity, String datamark) throws Exception {
+            fieldMetadata.setValue(entity, datamark);
+        }
+
+        @Nonnull
+        public DatamarkService getDatamarkService() {
+            return datamarkService;
+        }
+
+        @Nonnull
+        public String getFieldName() {
+            return fieldMetadata.getFieldName();
+        }
+
+        @Override
+        public String toString() {
+            return "EntityFieldInfo{" +
+                    "datamarkService=" + datamarkService +
+                    ", fieldMetadata=" + fieldMetadata +
+                    '}';
+        }
+    }
+}
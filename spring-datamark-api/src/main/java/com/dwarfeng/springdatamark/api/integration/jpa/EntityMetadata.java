@@ -0,0 +1,329 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * 实体元数据。
+ *
+ * <p>
+ * 实体元数据描述了一个实体类中所有含有 {@link DatamarkField} 注解的字段，以及这些字段编译后的写入方法。<br>
+ * 字段的收集会遍历整个类层次结构（包括 <code>@MappedSuperclass</code> 等父类），
+ * 并按照父类在前、子类在后的顺序展开为一个扁平的字段列表；子类中的字段会覆盖父类中的同名字段。<br>
+ * 代理类与字节码增强生成的子类会直接复用其真实实体类的实体元数据。<br>
+ * 实体元数据与具体的 {@link com.dwarfeng.springdatamark.stack.service.DatamarkService} 无关，
+ * 因此可以在全局范围内缓存，并被所有的侦听器实例以及启动扫描器共享。<br>
+ * 除 JPA 实体侦听器之外，其它的集成（如 Hibernate 原生事件侦听器）也复用同一份实体元数据。
+ *
+ * <p>
+ * 如果类路径中存在注解处理器为实体类生成的 {@link DatamarkStamper}，实体元数据直接使用写入器中的字段信息，
+ * 字段的写入也由写入器直接完成，整个过程不进行任何反射；否则，实体元数据通过反射扫描类层次结构并编译写入方法。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class EntityMetadata {
+
+    private static final String[] PROXY_CLASS_NAME_MARKERS = {
+            "$HibernateProxy$", "$$_javassist_", "_$$_jvst"
+    };
+    private static final Set<String> PROXY_INTERFACE_NAMES = new HashSet<>(Arrays.asList(
+            "org.hibernate.proxy.HibernateProxy",
+            "org.hibernate.proxy.ProxyConfiguration",
+            "javassist.util.proxy.ProxyObject",
+            "javassist.util.proxy.Proxy"
+    ));
+
+    private static final ClassValue<EntityMetadata> CACHE = new ClassValue<EntityMetadata>() {
+
+        @Override
+        protected EntityMetadata computeValue(@Nonnull Class<?> type) {
+            return parse(type);
+        }
+    };
+
+    /**
+     * 获取指定实体类的实体元数据。
+     *
+     * <p>
+     * 实体元数据基于 {@link ClassValue} 缓存，每个实体类只会被解析一次。
+     *
+     * @param entityClass 实体类。
+     * @return 实体类对应的实体元数据。
+     */
+    public static EntityMetadata of(@Nonnull Class<?> entityClass) {
+        return CACHE.get(entityClass);
+    }
+
+    private static EntityMetadata parse(Class<?> entityClass) {
+        // 如果实体类是代理类或字节码增强生成的子类，则直接复用真实实体类的实体元数据，不再重复扫描。
+        if (isProxyClass(entityClass)) {
+            return CACHE.get(entityClass.getSuperclass());
+        }
+        // 优先使用编译期生成的数据标识写入器。
+        DatamarkStamper stamper = DatamarkStamperIndex.find(entityClass);
+        if (Objects.nonNull(stamper)) {
+            return fromStamper(entityClass, stamper);
+        }
+        // 自下而上遍历类层次结构，收集含有 DatamarkField 注解的字段。
+        // 子类中的字段会覆盖父类中的同名字段。
+        Deque<List<Field>> hierarchyFields = new ArrayDeque<>();
+        Set<String> fieldNames = new HashSet<>();
+        Class<?> clazz = entityClass;
+        while (Objects.nonNull(clazz) && clazz != Object.class) {
+            List<Field> declaredFields = new ArrayList<>();
+            for (Field field : clazz.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(DatamarkField.class)) {
+                    continue;
+                }
+                if (!fieldNames.add(field.getName())) {
+                    continue;
+                }
+                declaredFields.add(field);
+            }
+            hierarchyFields.push(declaredFields);
+            clazz = clazz.getSuperclass();
+        }
+        // 按照父类在前、子类在后的顺序展开字段，解析 fieldMetadata，并添加到 fieldMetadatas 中。
+        final List<FieldMetadata> fieldMetadatas = new ArrayList<>();
+        for (List<Field> declaredFields : hierarchyFields) {
+            for (Field field : declaredFields) {
+                DatamarkField datamarkField = field.getAnnotation(DatamarkField.class);
+                fieldMetadatas.add(new FieldMetadata(
+                        field.getName(), datamarkField.serviceId(), compileSetter(entityClass, field)
+                ));
+            }
+        }
+        // 构造结果并返回。
+        if (fieldMetadatas.isEmpty()) {
+            return new EntityMetadata(entityClass, Collections.emptyList());
+        }
+        return new EntityMetadata(entityClass, Collections.unmodifiableList(fieldMetadatas));
+    }
+
+    private static EntityMetadata fromStamper(Class<?> entityClass, DatamarkStamper stamper) {
+        int fieldCount = stamper.getFieldCount();
+        if (fieldCount == 0) {
+            return new EntityMetadata(entityClass, Collections.emptyList());
+        }
+        List<FieldMetadata> fieldMetadatas = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            fieldMetadatas.add(new FieldMetadata(stamper.getFieldName(i), stamper.getServiceId(i), stamper, i));
+        }
+        return new EntityMetadata(entityClass, Collections.unmodifiableList(fieldMetadatas));
+    }
+
+    /**
+     * 判断指定的类是否是 ORM 框架生成的代理类。
+     *
+     * <p>
+     * 为了不引入 ORM 框架的依赖，此处通过接口名称与类名称中的特征字符串进行判断，
+     * 覆盖了 Hibernate 基于 ByteBuddy 与 Javassist 生成的代理类。
+     */
+    private static boolean isProxyClass(Class<?> clazz) {
+        Class<?> superclass = clazz.getSuperclass();
+        if (Objects.isNull(superclass) || superclass == Object.class) {
+            return false;
+        }
+        String className = clazz.getName();
+        for (String marker : PROXY_CLASS_NAME_MARKERS) {
+            if (className.contains(marker)) {
+                return true;
+            }
+        }
+        for (Class<?> anInterface : clazz.getInterfaces()) {
+            if (PROXY_INTERFACE_NAMES.contains(anInterface.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 为指定的字段编译写入方法。
+     *
+     * <p>
+     * 优先使用字段对应的公共写方法；如果写方法不存在，则直接写入字段。<br>
+     * 写方法的查找规则与 <code>spring-datamark-processor</code> 生成写入器时的规则一致，
+     * 因此同一个字段无论是否使用生成的写入器，都以相同的方式写入。<br>
+     * 返回的方法句柄的类型统一为 <code>(Object, Object)void</code>，以便在调用时使用 <code>invokeExact</code>。
+     */
+    private static MethodHandle compileSetter(Class<?> entityClass, Field field) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle setter;
+        try {
+            Method writeMethod = findWriteMethod(entityClass, field.getName());
+            if (Objects.nonNull(writeMethod)) {
+                writeMethod.setAccessible(true);
+                setter = lookup.unreflect(writeMethod);
+            } else if (Modifier.isFinal(field.getModifiers())) {
+                String message = entityClass.getCanonicalName() + "." + field.getName() +
+                        " 字段被 final 修饰, 且不存在对应的写方法, 无法设置数据标识";
+                throw new IllegalStateException(message);
+            } else if (!field.getType().isAssignableFrom(String.class)) {
+                String message = entityClass.getCanonicalName() + "." + field.getName() +
+                        " 字段的类型无法接受字符串, 且不存在对应的写方法, 无法设置数据标识";
+                throw new IllegalStateException(message);
+            } else {
+                field.setAccessible(true);
+                setter = lookup.unreflectSetter(field);
+            }
+        } catch (IllegalAccessException e) {
+            String message = entityClass.getCanonicalName() + "." + field.getName() +
+                    " 字段的写入方法编译失败";
+            throw new IllegalStateException(message, e);
+        }
+        return setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+    }
+
+    /**
+     * 查找字段对应的公共写方法。
+     *
+     * <p>
+     * 写方法的名称为 <code>set</code> 加上首字母大写的字段名称（如字段 <code>aField</code> 对应
+     * <code>setAField</code>），不使用 {@link java.beans.Introspector} 的属性名称推断规则，
+     * 以保证与注解处理器生成的写入器一致。<br>
+     * 写方法必须是非静态的公共方法，返回类型为 <code>void</code>，且只有一个能够接受字符串类型的数据标识的参数；
+     * 存在多个重载时，优先使用参数类型为 {@link String} 的写方法。
+     */
+    @Nullable
+    private static Method findWriteMethod(Class<?> entityClass, String fieldName) {
+        String methodName = writeMethodName(fieldName);
+        Method result = null;
+        for (Method method : entityClass.getMethods()) {
+            if (!Objects.equals(method.getName(), methodName) || !isWriteMethod(method)) {
+                continue;
+            }
+            if (method.getParameterTypes()[0] == String.class) {
+                return method;
+            }
+            if (Objects.isNull(result)) {
+                result = method;
+            }
+        }
+        return result;
+    }
+
+    private static String writeMethodName(String fieldName) {
+        return "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+    }
+
+    private static boolean isWriteMethod(Method method) {
+        if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() != void.class) {
+            return false;
+        }
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        // 写方法的参数必须能够接受字符串类型的数据标识。
+        return parameterTypes.length == 1 && parameterTypes[0].isAssignableFrom(String.class);
+    }
+
+    private final Class<?> entityClass;
+    private final List<FieldMetadata> fieldMetadatas;
+
+    private EntityMetadata(@Nonnull Class<?> entityClass, @Nonnull List<FieldMetadata> fieldMetadatas) {
+        this.entityClass = entityClass;
+        this.fieldMetadatas = fieldMetadatas;
+    }
+
+    public boolean isEmpty() {
+        return fieldMetadatas.isEmpty();
+    }
+
+    @Nonnull
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    @Nonnull
+    public List<FieldMetadata> getFieldMetadatas() {
+        return fieldMetadatas;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityMetadata{" +
+                "entityClass=" + entityClass +
+                ", fieldMetadatas=" + fieldMetadatas +
+                '}';
+    }
+
+    /**
+     * 字段元数据。
+     */
+    public static final class FieldMetadata {
+
+        private final String fieldName;
+        private final String serviceId;
+        private final MethodHandle setter;
+        private final DatamarkStamper stamper;
+        private final int stamperIndex;
+
+        FieldMetadata(@Nonnull String fieldName, @Nonnull String serviceId, @Nonnull MethodHandle setter) {
+            this.fieldName = fieldName;
+            this.serviceId = serviceId;
+            this.setter = setter;
+            this.stamper = null;
+            this.stamperIndex = -1;
+        }
+
+        FieldMetadata(
+                @Nonnull String fieldName, @Nonnull String serviceId, @Nonnull DatamarkStamper stamper,
+                int stamperIndex
+        ) {
+            this.fieldName = fieldName;
+            this.serviceId = serviceId;
+            this.setter = null;
+            this.stamper = stamper;
+            this.stamperIndex = stamperIndex;
+        }
+
+        public void setValue(Object entity, String datamark) throws Exception {
+            if (Objects.nonNull(stamper)) {
+                stamper.setValue(entity, stamperIndex, datamark);
+                return;
+            }
+            try {
+                setter.invokeExact(entity, (Object) datamark);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        @Nonnull
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        @Nonnull
+        public String getServiceId() {
+            return serviceId;
+        }
+
+        /**
+         * 返回字段是否由编译期生成的数据标识写入器写入。
+         *
+         * @return 字段是否由编译期生成的数据标识写入器写入。
+         */
+        public boolean isGenerated() {
+            return Objects.nonNull(stamper);
+        }
+
+        @Override
+        public String toString() {
+            return "FieldMetadata{" +
+                    "fieldName='" + fieldName + '\'' +
+                    ", serviceId='" + serviceId + '\'' +
+                    ", generated=" + isGenerated() +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 事务范围的数据标识实体侦听器。
+ *
+ * <p>
+ * 与 {@link DatamarkEntityListener} 不同，该侦听器在 Spring 事务同步处于激活状态时，
+ * 对每个数据标识服务在每个事务中只调用一次 {@link DatamarkService#get()}，
+ * 并将结果复用于该事务中的所有实体。<br>
+ * 这样一来，一次包含大量实体的刷新只会产生与数据标识服务数量相同的服务调用，
+ * 同时，同一事务中写入的所有数据都会带有一致的数据标识。
+ *
+ * <p>
+ * 事务中缓存的数据标识通过 {@link TransactionSynchronizationManager} 绑定到当前线程，
+ * 在事务挂起时解绑、恢复时重新绑定，并在事务完成后清除。<br>
+ * 如果当前没有激活的事务同步，该侦听器的行为与 {@link DatamarkEntityListener} 完全一致。
+ *
+ * <p>
+ * 需要注意的是，在事务执行期间通过 {@link DatamarkService#update(String)} 更新的数据标识，
+ * 不会影响该事务中后续写入的实体。
+ *
+ * <p>
+ * 示例代码如下：
+ * <blockquote><pre>
+ * {@literal @}Entity
+ * {@literal @}Table(name = "tbl_user")
+ * {@literal @}EntityListeners(TransactionScopedDatamarkEntityListener.class)
+ * public class HibernateUser implements Bean {
+ *     // 省略代码...
+ * }
+ * </pre></blockquote>
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class TransactionScopedDatamarkEntityListener extends DatamarkEntityListener {
+
+    /**
+     * 事务资源的键。
+     *
+     * <p>
+     * 数据标识只与数据标识服务有关，因此所有侦听器实例共享同一个事务资源。
+     */
+    private static final Object RESOURCE_KEY = new Object();
+
+    public TransactionScopedDatamarkEntityListener(Map<String, DatamarkService> datamarkServiceMap) {
+        super(datamarkServiceMap);
+    }
+
+    @Override
+    protected String resolveDatamark(DatamarkService datamarkService) throws Exception {
+        // 如果当前没有激活的事务同步，直接调用服务。
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return datamarkService.get();
+        }
+        // 获取当前事务的数据标识缓存，如果不存在则创建并绑定。
+        @SuppressWarnings("unchecked")
+        Map<DatamarkService, String> datamarkCache =
+                (Map<DatamarkService, String>) TransactionSynchronizationManager.getResource(RESOURCE_KEY);
+        if (Objects.isNull(datamarkCache)) {
+            datamarkCache = new IdentityHashMap<>();
+            TransactionSynchronizationManager.bindResource(RESOURCE_KEY, datamarkCache);
+            TransactionSynchronizationManager.registerSynchronization(new DatamarkCacheSynchronization(datamarkCache));
+        }
+        // 每个数据标识服务在每个事务中只解析一次。
+        String datamark = datamarkCache.get(datamarkService);
+        if (Objects.isNull(datamark)) {
+            datamark = datamarkService.get();
+            datamarkCache.put(datamarkService, datamark);
+        }
+        return datamark;
+    }
+
+    /**
+     * 数据标识缓存的事务同步。
+     *
+     * <p>
+     * 负责在事务挂起、恢复、完成时维护数据标识缓存与当前线程的绑定关系。
+     */
+    private static final class DatamarkCacheSynchronization implements TransactionSynchronization {
+
+        private final Map<DatamarkService, String> datamarkCache;
+
+        public DatamarkCacheSynchronization(Map<DatamarkService, String> datamarkCache) {
+            this.datamarkCache = datamarkCache;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(RESOURCE_KEY);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(RESOURCE_KEY, datamarkCache);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(RESOURCE_KEY);
+        }
+
+        @Override
+        public String toString() {
+            return "DatamarkCacheSynchronization{" +
+                    "datamarkCache=" + datamarkCache +
+                    '}';
+        }
+    }
+}
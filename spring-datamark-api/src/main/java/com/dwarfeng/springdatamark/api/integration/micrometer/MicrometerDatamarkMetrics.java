@@ -0,0 +1,187 @@
+package com.dwarfeng.springdatamark.api.integration.micrometer;
+
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import com.dwarfeng.springdatamark.stack.metrics.DatamarkMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Micrometer 的数据标识指标记录器。
+ *
+ * <p>
+ * 记录器向 {@link MeterRegistry} 注册以下指标：
+ * <ul>
+ *     <li><code>datamark.get</code>：计数器，数据标识的获取次数，标签为 <code>service</code> 与 <code>result</code>（hit/miss）。</li>
+ *     <li><code>datamark.refresh</code>：计时器，数据标识的刷新耗时，标签为 <code>service</code> 与 <code>outcome</code>。</li>
+ *     <li><code>datamark.update</code>：计时器，数据标识的更新耗时，标签为 <code>service</code> 与 <code>outcome</code>。</li>
+ *     <li><code>datamark.exceptions</code>：计数器，数据标识服务抛出的异常次数，标签为 <code>service</code> 与 <code>exception</code>。</li>
+ *     <li><code>datamark.entity.callback</code>：计时器，实体回调的耗时，标签为 <code>entity</code> 与 <code>callback</code>。</li>
+ * </ul>
+ * 所有的计时器都会发布百分位直方图。<br>
+ * 指标在首次记录时创建并缓存，此后的记录不再查询 {@link MeterRegistry}。
+ *
+ * <p>
+ * 使用该记录器需要在项目中引入 <code>io.micrometer:micrometer-core</code> 依赖，示例配置如下：
+ * <blockquote><pre>
+ * &lt;bean class="com.dwarfeng.springdatamark.api.integration.micrometer.MicrometerDatamarkMetrics"&gt;
+ *     &lt;constructor-arg ref="meterRegistry"/&gt;
+ * &lt;/bean&gt;
+ * </pre></blockquote>
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class MicrometerDatamarkMetrics implements DatamarkMetrics {
+
+    private static final String METER_GET = "datamark.get";
+    private static final String METER_REFRESH = "datamark.refresh";
+    private static final String METER_UPDATE = "datamark.update";
+    private static final String METER_EXCEPTIONS = "datamark.exceptions";
+    private static final String METER_ENTITY_CALLBACK = "datamark.entity.callback";
+
+    private static final String TAG_SERVICE = "service";
+    private static final String TAG_RESULT = "result";
+    private static final String TAG_OUTCOME = "outcome";
+    private static final String TAG_EXCEPTION = "exception";
+    private static final String TAG_ENTITY = "entity";
+    private static final String TAG_CALLBACK = "callback";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ServiceMeters> serviceMetersMap = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Map<String, Timer>> entityCallbackTimerMap = new ConcurrentHashMap<>();
+
+    public MicrometerDatamarkMetrics(@Nonnull MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void recordGet(@Nonnull String serviceId, boolean hit) {
+        ServiceMeters serviceMeters = serviceMeters(serviceId);
+        (hit ? serviceMeters.getHitCounter : serviceMeters.getMissCounter).increment();
+    }
+
+    @Override
+    public void recordRefresh(@Nonnull String serviceId, long durationNanos, boolean succeed) {
+        ServiceMeters serviceMeters = serviceMeters(serviceId);
+        (succeed ? serviceMeters.refreshSuccessTimer : serviceMeters.refreshFailureTimer)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordUpdate(@Nonnull String serviceId, long durationNanos, boolean succeed) {
+        ServiceMeters serviceMeters = serviceMeters(serviceId);
+        (succeed ? serviceMeters.updateSuccessTimer : serviceMeters.updateFailureTimer)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordException(@Nonnull String serviceId, @Nonnull DatamarkException exception) {
+        serviceMeters(serviceId).exceptionCounter(exception.getClass()).increment();
+    }
+
+    @Override
+    public void recordEntityCallback(@Nonnull Class<?> entityClass, @Nonnull String callback, long durationNanos) {
+        // 先使用 get 查询，避免 computeIfAbsent 在缓存命中时加锁。
+        Map<String, Timer> timerMap = entityCallbackTimerMap.get(entityClass);
+        if (Objects.isNull(timerMap)) {
+            timerMap = entityCallbackTimerMap.computeIfAbsent(entityClass, k -> new ConcurrentHashMap<>());
+        }
+        Timer timer = timerMap.get(callback);
+        if (Objects.isNull(timer)) {
+            timer = timerMap.computeIfAbsent(callback, k -> Timer.builder(METER_ENTITY_CALLBACK)
+                    .tag(TAG_ENTITY, entityClass.getName())
+                    .tag(TAG_CALLBACK, k)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private ServiceMeters serviceMeters(String serviceId) {
+        ServiceMeters serviceMeters = serviceMetersMap.get(serviceId);
+        if (Objects.nonNull(serviceMeters)) {
+            return serviceMeters;
+        }
+        return serviceMetersMap.computeIfAbsent(serviceId, k -> new ServiceMeters(meterRegistry, k));
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    @Override
+    public String toString() {
+        return "MicrometerDatamarkMetrics{" +
+                "meterRegistry=" + meterRegistry +
+                '}';
+    }
+
+    /**
+     * 单个数据标识服务的指标。
+     */
+    private static final class ServiceMeters {
+
+        private final MeterRegistry meterRegistry;
+        private final String serviceId;
+
+        private final Counter getHitCounter;
+        private final Counter getMissCounter;
+        private final Timer refreshSuccessTimer;
+        private final Timer refreshFailureTimer;
+        private final Timer updateSuccessTimer;
+        private final Timer updateFailureTimer;
+        private final Map<Class<?>, Counter> exceptionCounterMap = new ConcurrentHashMap<>();
+
+        public ServiceMeters(MeterRegistry meterRegistry, String serviceId) {
+            this.meterRegistry = meterRegistry;
+            this.serviceId = serviceId;
+            this.getHitCounter = getCounter("hit");
+            this.getMissCounter = getCounter("miss");
+            this.refreshSuccessTimer = timer(METER_REFRESH, "success");
+            this.refreshFailureTimer = timer(METER_REFRESH, "failure");
+            this.updateSuccessTimer = timer(METER_UPDATE, "success");
+            this.updateFailureTimer = timer(METER_UPDATE, "failure");
+        }
+
+        private Counter getCounter(String result) {
+            return Counter.builder(METER_GET)
+                    .tag(TAG_SERVICE, serviceId)
+                    .tag(TAG_RESULT, result)
+                    .register(meterRegistry);
+        }
+
+        private Timer timer(String name, String outcome) {
+            return Timer.builder(name)
+                    .tag(TAG_SERVICE, serviceId)
+                    .tag(TAG_OUTCOME, outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        public Counter exceptionCounter(Class<?> exceptionClass) {
+            Counter counter = exceptionCounterMap.get(exceptionClass);
+            if (Objects.nonNull(counter)) {
+                return counter;
+            }
+            return exceptionCounterMap.computeIfAbsent(exceptionClass, k -> Counter.builder(METER_EXCEPTIONS)
+                    .tag(TAG_SERVICE, serviceId)
+                    .tag(TAG_EXCEPTION, k.getSimpleName())
+                    .register(meterRegistry));
+        }
+
+        @Override
+        public String toString() {
+            return "ServiceMeters{" +
+                    "serviceId='" + serviceId + '\'' +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.dwarfeng.springdatamark.api.integration.reactor;
+
+import com.dwarfeng.springdatamark.stack.service.AsyncDatamarkService;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Reactor 数据标识服务。
+ *
+ * <p>
+ * {@link AsyncDatamarkService} 的 Reactor 适配器，适用于 WebFlux 等基于事件循环的应用。<br>
+ * 返回的 {@link Mono} 是惰性的，只有在被订阅时才会调用异步数据标识服务，每一次订阅都会重新调用。
+ * 资源的读写在异步数据标识服务的执行器中进行，不会阻塞事件循环线程；
+ * 缓存命中时，{@link #get()} 会在订阅线程中直接发出数据标识。
+ *
+ * <p>
+ * 使用该类需要在项目中引入 <code>io.projectreactor:reactor-core</code> 依赖，示例配置如下：
+ * <blockquote><pre>
+ * &lt;bean id="asyncDatamarkService" class="com.dwarfeng.springdatamark.impl.service.AsyncDatamarkServiceImpl"&gt;
+ *     &lt;constructor-arg ref="datamarkService"/&gt;
+ * &lt;/bean&gt;
+ * &lt;bean class="com.dwarfeng.springdatamark.api.integration.reactor.ReactorDatamarkService"&gt;
+ *     &lt;constructor-arg ref="asyncDatamarkService"/&gt;
+ * &lt;/bean&gt;
+ * </pre></blockquote>
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class ReactorDatamarkService {
+
+    private final AsyncDatamarkService asyncDatamarkService;
+
+    public ReactorDatamarkService(@Nonnull AsyncDatamarkService asyncDatamarkService) {
+        this.asyncDatamarkService = asyncDatamarkService;
+    }
+
+    /**
+     * 返回服务是否允许更新。
+     *
+     * @return 服务是否允许更新。
+     */
+    public boolean updateAllowed() {
+        return asyncDatamarkService.updateAllowed();
+    }
+
+    /**
+     * 获取数据标识。
+     *
+     * @return 发出数据标识的 Mono。
+     */
+    public Mono<String> get() {
+        return Mono.defer(() -> Mono.fromFuture(asyncDatamarkService.get()));
+    }
+
+    /**
+     * 刷新数据标识。
+     *
+     * @return 刷新完成时完成的 Mono。
+     */
+    public Mono<Void> refresh() {
+        return Mono.defer(() -> Mono.fromFuture(asyncDatamarkService.refresh()));
+    }
+
+    /**
+     * 刷新数据标识并获取。
+     *
+     * @return 发出刷新后的数据标识的 Mono。
+     */
+    public Mono<String> refreshAndGet() {
+        return Mono.defer(() -> Mono.fromFuture(asyncDatamarkService.refreshAndGet()));
+    }
+
+    /**
+     * 更新数据标识。
+     *
+     * @param datamark 数据标识。
+     * @return 更新完成时完成的 Mono。
+     */
+    public Mono<Void> update(String datamark) {
+        return Mono.defer(() -> Mono.fromFuture(asyncDatamarkService.update(datamark)));
+    }
+
+    public AsyncDatamarkService getAsyncDatamarkService() {
+        return asyncDatamarkService;
+    }
+
+    @Override
+    public String toString() {
+        return "ReactorDatamarkService{" +
+                "asyncDatamarkService=" + asyncDatamarkService +
+                '}';
+    }
+}
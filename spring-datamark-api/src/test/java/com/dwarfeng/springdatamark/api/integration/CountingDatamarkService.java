@@ -0,0 +1,61 @@
+package com.dwarfeng.springdatamark.api.integration;
+
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 用于测试的数据标识服务。
+ *
+ * <p>
+ * 数据标识保存在内存中，并记录 {@link #get()} 的调用次数。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class CountingDatamarkService implements DatamarkService {
+
+    private final AtomicInteger getCount = new AtomicInteger();
+
+    private volatile String datamark;
+
+    public CountingDatamarkService(String datamark) {
+        this.datamark = datamark;
+    }
+
+    @Override
+    public boolean updateAllowed() {
+        return true;
+    }
+
+    @Override
+    public String get() {
+        getCount.incrementAndGet();
+        return datamark;
+    }
+
+    @Override
+    public void refresh() {
+    }
+
+    @Override
+    public String refreshAndGet() {
+        return get();
+    }
+
+    @Override
+    public void update(String datamark) {
+        this.datamark = datamark;
+    }
+
+    public int getGetCount() {
+        return getCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CountingDatamarkService{" +
+                "datamark='" + datamark + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,117 @@
+package com.dwarfeng.springdatamark.api.integration.batch;
+
+import com.dwarfeng.springdatamark.api.integration.CountingDatamarkService;
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatamarkBatchStamper} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkBatchStamperTest {
+
+    private CountingDatamarkService fooService;
+    private CountingDatamarkService barService;
+    private DatamarkBatchStamper stamper;
+
+    @Before
+    public void setUp() {
+        fooService = new CountingDatamarkService("foo-v1");
+        barService = new CountingDatamarkService("bar-v1");
+        Map<String, DatamarkService> datamarkServiceMap = new HashMap<>();
+        datamarkServiceMap.put("fooService", fooService);
+        datamarkServiceMap.put("barService", barService);
+        stamper = new DatamarkBatchStamper(datamarkServiceMap);
+    }
+
+    @Test
+    public void testStampIterableResolvesEachServiceOnce() throws Exception {
+        List<FooRecord> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(new FooRecord());
+        }
+        assertEquals(100, stamper.stamp(records));
+        for (FooRecord record : records) {
+            assertEquals("foo-v1", record.datamark);
+        }
+        // 服务调用的次数与批次的大小无关。
+        assertEquals(1, fooService.getGetCount());
+        assertEquals(0, barService.getGetCount());
+
+        // 每一次调用都会重新解析数据标识。
+        fooService.update("foo-v2");
+        assertEquals(100, stamper.stamp(records));
+        assertEquals("foo-v2", records.get(99).datamark);
+        assertEquals(2, fooService.getGetCount());
+    }
+
+    @Test
+    public void testStampIterableWithMixedClassesAndNulls() throws Exception {
+        List<Object> objects = new ArrayList<>();
+        List<FooRecord> fooRecords = new ArrayList<>();
+        List<FooBarRecord> fooBarRecords = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // 交替排列不同的类，写入计划在类变化时切换。
+            FooRecord fooRecord = new FooRecord();
+            FooBarRecord fooBarRecord = new FooBarRecord();
+            fooRecords.add(fooRecord);
+            fooBarRecords.add(fooBarRecord);
+            objects.add(fooRecord);
+            objects.add(null);
+            objects.add(fooBarRecord);
+            objects.add(new PlainRecord());
+        }
+        // 只有存在被写入字段的对象被计数，null 元素与不含注解字段的对象被忽略。
+        assertEquals(20, stamper.stamp(objects));
+        for (FooRecord record : fooRecords) {
+            assertEquals("foo-v1", record.datamark);
+        }
+        for (FooBarRecord record : fooBarRecords) {
+            assertEquals("foo-v1", record.fooDatamark);
+            assertEquals("bar-v1", record.barDatamark);
+        }
+        assertEquals(1, fooService.getGetCount());
+        assertEquals(1, barService.getGetCount());
+    }
+
+    @Test
+    public void testStampSingleObject() throws Exception {
+        FooBarRecord record = new FooBarRecord();
+        assertTrue(stamper.stamp(record));
+        assertEquals("foo-v1", record.fooDatamark);
+        assertEquals("bar-v1", record.barDatamark);
+        assertFalse(stamper.stamp(new PlainRecord()));
+    }
+
+    public static class FooRecord {
+
+        @DatamarkField(serviceId = "fooService")
+        private String datamark;
+    }
+
+    public static class FooBarRecord {
+
+        @DatamarkField(serviceId = "fooService")
+        private String fooDatamark;
+
+        @DatamarkField(serviceId = "barService")
+        private String barDatamark;
+    }
+
+    public static class PlainRecord {
+
+        @SuppressWarnings("unused")
+        private String datamark;
+    }
+}
@@ -0,0 +1,272 @@
+package com.dwarfeng.springdatamark.api.integration.hibernate;
+
+import com.dwarfeng.springdatamark.api.integration.CountingDatamarkService;
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link HibernateDatamarkEventListener} 的测试。
+ *
+ * <p>
+ * 使用 H2 内存数据库构建 SessionFactory，并通过 {@link HibernateDatamarkEventListenerRegistrar} 注册侦听器，
+ * 通过 {@link StatementInspector} 统计会话执行的 UPDATE 语句。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class HibernateDatamarkEventListenerTest {
+
+    private final AtomicInteger updateCount = new AtomicInteger();
+
+    private CountingDatamarkService datamarkService;
+    private StandardServiceRegistry serviceRegistry;
+    private SessionFactory sessionFactory;
+    private GenericApplicationContext applicationContext;
+
+    @Before
+    public void setUp() {
+        datamarkService = new CountingDatamarkService("v1");
+        StatementInspector statementInspector = sql -> {
+            if (sql.trim().toLowerCase(Locale.ROOT).startsWith("update")) {
+                updateCount.incrementAndGet();
+            }
+            return sql;
+        };
+        serviceRegistry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DRIVER, "org.h2.Driver")
+                .applySetting(AvailableSettings.URL, "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1")
+                .applySetting(AvailableSettings.DIALECT, "org.hibernate.dialect.H2Dialect")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .applySetting(AvailableSettings.STATEMENT_INSPECTOR, statementInspector)
+                .build();
+        sessionFactory = new MetadataSources(serviceRegistry)
+                .addAnnotatedClass(StampedEntity.class)
+                .addAnnotatedClass(DynamicUpdateEntity.class)
+                .buildMetadata()
+                .buildSessionFactory();
+
+        applicationContext = new GenericApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("sessionFactory", sessionFactory);
+        applicationContext.refresh();
+        HibernateDatamarkEventListenerRegistrar registrar = new HibernateDatamarkEventListenerRegistrar(
+                Collections.<String, DatamarkService>singletonMap("datamarkService", datamarkService)
+        );
+        registrar.setApplicationContext(applicationContext);
+        registrar.afterSingletonsInstantiated();
+    }
+
+    @After
+    public void tearDown() {
+        applicationContext.close();
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(serviceRegistry);
+    }
+
+    @Test
+    public void testInsertStampsStateAndEntity() {
+        StampedEntity entity = new StampedEntity(1L, "name");
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            session.persist(entity);
+            session.flush();
+            // 数据标识同时写入了实体对象，下一次刷新时脏检查不会产生多余的 UPDATE 语句。
+            assertEquals("v1", entity.getDatamark());
+            updateCount.set(0);
+            session.flush();
+            session.getTransaction().commit();
+        }
+        assertEquals(0, updateCount.get());
+        assertEquals("v1", selectDatamark("stamped_entity", 1L));
+    }
+
+    @Test
+    public void testUpdateStampsStateAndEntity() {
+        insert(new StampedEntity(1L, "name"));
+        datamarkService.update("v2");
+        updateCount.set(0);
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            StampedEntity entity = session.get(StampedEntity.class, 1L);
+            entity.setName("new name");
+            session.flush();
+            assertEquals(1, updateCount.get());
+            assertEquals("v2", entity.getDatamark());
+            // 再次刷新时实体对象与已加载状态一致，不会再次更新。
+            session.flush();
+            session.getTransaction().commit();
+        }
+        assertEquals(1, updateCount.get());
+        assertEquals("v2", selectDatamark("stamped_entity", 1L));
+    }
+
+    @Test
+    public void testTransientFieldStampedOnEntityOnly() {
+        StampedEntity entity = new StampedEntity(1L, "name");
+        insert(entity);
+        // 没有映射为持久化属性的字段没有状态数组下标，只写入实体对象。
+        assertEquals("v1", entity.getTransientDatamark());
+        assertEquals("v1", selectDatamark("stamped_entity", 1L));
+    }
+
+    @Test
+    public void testDynamicUpdateStampsEntityWithoutExtraUpdate() {
+        insert(new DynamicUpdateEntity(1L, "name"));
+        datamarkService.update("v2");
+        updateCount.set(0);
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            DynamicUpdateEntity entity = session.get(DynamicUpdateEntity.class, 1L);
+            entity.setName("new name");
+            session.flush();
+            assertEquals("v2", entity.getDatamark());
+            session.flush();
+            session.getTransaction().commit();
+        }
+        // 需要更新的列在更新前事件之前就已经确定，数据标识列没有被修改，因此其新值不会写入数据库，
+        // 但实体对象与已加载状态保持一致，不会产生多余的 UPDATE 语句。
+        assertEquals(1, updateCount.get());
+        assertEquals("v1", selectDatamark("dynamic_update_entity", 1L));
+    }
+
+    private void insert(Object entity) {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            session.persist(entity);
+            session.getTransaction().commit();
+        }
+    }
+
+    private String selectDatamark(String table, long id) {
+        try (Session session = sessionFactory.openSession()) {
+            return (String) session.createNativeQuery("SELECT datamark FROM " + table + " WHERE id = :id")
+                    .setParameter("id", id)
+                    .getSingleResult();
+        }
+    }
+
+    @Entity
+    @Table(name = "stamped_entity")
+    public static class StampedEntity {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @DatamarkField
+        private String datamark;
+
+        @DatamarkField
+        @Transient
+        private String transientDatamark;
+
+        public StampedEntity() {
+        }
+
+        public StampedEntity(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getDatamark() {
+            return datamark;
+        }
+
+        public void setDatamark(String datamark) {
+            this.datamark = datamark;
+        }
+
+        public String getTransientDatamark() {
+            return transientDatamark;
+        }
+
+        public void setTransientDatamark(String transientDatamark) {
+            this.transientDatamark = transientDatamark;
+        }
+    }
+
+    @Entity
+    @Table(name = "dynamic_update_entity")
+    @DynamicUpdate
+    public static class DynamicUpdateEntity {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @DatamarkField
+        private String datamark;
+
+        public DynamicUpdateEntity() {
+        }
+
+        public DynamicUpdateEntity(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getDatamark() {
+            return datamark;
+        }
+
+        public void setDatamark(String datamark) {
+            this.datamark = datamark;
+        }
+    }
+}
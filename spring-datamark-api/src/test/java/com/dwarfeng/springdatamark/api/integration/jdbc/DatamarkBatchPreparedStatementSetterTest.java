@@ -0,0 +1,119 @@
+package com.dwarfeng.springdatamark.api.integration.jdbc;
+
+import com.dwarfeng.springdatamark.api.integration.CountingDatamarkService;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.Nonnull;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatamarkBatchPreparedStatementSetter} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkBatchPreparedStatementSetterTest {
+
+    private static final int BATCH_SIZE = 20;
+
+    private CountingDatamarkService datamarkService;
+    private Connection keepAliveConnection;
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() throws Exception {
+        datamarkService = new CountingDatamarkService("v1");
+        JdbcDataSource dataSource = new JdbcDataSource();
+        // 每个测试使用独立的内存数据库，保持一个连接以防止数据库在连接全部关闭后被销毁。
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID());
+        keepAliveConnection = dataSource.getConnection();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(
+                "CREATE TABLE tbl_record (id INT PRIMARY KEY, name VARCHAR(50), datamark VARCHAR(50), " +
+                        "audit_datamark VARCHAR(50))"
+        );
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        keepAliveConnection.close();
+    }
+
+    @Test
+    public void testDatamarkParameterOverridesDelegate() throws Exception {
+        // 代理设置器在数据标识参数的下标上设置了其它的值，数据标识参数覆盖该值。
+        DatamarkBatchPreparedStatementSetter setter = DatamarkBatchPreparedStatementSetter.of(
+                new RecordSetter(), Collections.<Integer, DatamarkService>singletonMap(3, datamarkService)
+        );
+        assertEquals(BATCH_SIZE, setter.getBatchSize());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO tbl_record (id, name, datamark, audit_datamark) VALUES (?, ?, ?, ?)", setter
+        );
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, name, datamark, audit_datamark FROM tbl_record ORDER BY id"
+        );
+        assertEquals(BATCH_SIZE, rows.size());
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Map<String, Object> row = rows.get(i);
+            assertEquals("name-" + i, row.get("NAME"));
+            assertEquals("v1", row.get("DATAMARK"));
+            assertEquals("delegate", row.get("AUDIT_DATAMARK"));
+        }
+    }
+
+    @Test
+    public void testEachServiceResolvedOnce() throws Exception {
+        Map<Integer, DatamarkService> parameterServiceMap = new LinkedHashMap<>();
+        parameterServiceMap.put(3, datamarkService);
+        parameterServiceMap.put(4, datamarkService);
+        DatamarkBatchPreparedStatementSetter setter = DatamarkBatchPreparedStatementSetter.of(
+                new RecordSetter(), parameterServiceMap
+        );
+        // 数据标识在装饰器创建时解析，设置参数时不会调用数据标识服务。
+        assertEquals(1, datamarkService.getGetCount());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO tbl_record (id, name, datamark, audit_datamark) VALUES (?, ?, ?, ?)", setter
+        );
+        assertEquals(1, datamarkService.getGetCount());
+
+        assertEquals(
+                Integer.valueOf(BATCH_SIZE),
+                jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM tbl_record WHERE datamark = 'v1' AND audit_datamark = 'v1'",
+                        Integer.class
+                )
+        );
+    }
+
+    private static final class RecordSetter implements BatchPreparedStatementSetter {
+
+        @Override
+        public void setValues(@Nonnull PreparedStatement ps, int i) throws SQLException {
+            ps.setInt(1, i);
+            ps.setString(2, "name-" + i);
+            ps.setString(3, "delegate");
+            ps.setString(4, "delegate");
+        }
+
+        @Override
+        public int getBatchSize() {
+            return BATCH_SIZE;
+        }
+    }
+}
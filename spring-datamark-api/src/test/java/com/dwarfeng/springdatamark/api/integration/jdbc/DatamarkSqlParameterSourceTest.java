@@ -0,0 +1,114 @@
+package com.dwarfeng.springdatamark.api.integration.jdbc;
+
+import com.dwarfeng.springdatamark.api.integration.CountingDatamarkService;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatamarkSqlParameterSource} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkSqlParameterSourceTest {
+
+    private CountingDatamarkService datamarkService;
+
+    @Before
+    public void setUp() {
+        datamarkService = new CountingDatamarkService("v1");
+    }
+
+    @Test
+    public void testDatamarkParameterOverridesDelegate() {
+        MapSqlParameterSource delegate = new MapSqlParameterSource()
+                .addValue("id", 1L, Types.BIGINT)
+                .addValue("datamark", "delegate", Types.CHAR, "CHAR");
+        DatamarkSqlParameterSource source = new DatamarkSqlParameterSource(
+                delegate, Collections.singletonMap("datamark", "v1")
+        );
+
+        assertTrue(source.hasValue("datamark"));
+        assertEquals("v1", source.getValue("datamark"));
+        assertEquals(Types.VARCHAR, source.getSqlType("datamark"));
+        assertNull(source.getTypeName("datamark"));
+        // 其余的参数仍然由代理参数源提供。
+        assertEquals(1L, source.getValue("id"));
+        assertEquals(Types.BIGINT, source.getSqlType("id"));
+        assertFalse(source.hasValue("name"));
+    }
+
+    @Test
+    public void testGetParameterNamesReturnsMergedSet() {
+        MapSqlParameterSource delegate = new MapSqlParameterSource()
+                .addValue("id", 1L)
+                .addValue("datamark", "delegate");
+        Map<String, String> datamarkParameters = new LinkedHashMap<>();
+        datamarkParameters.put("datamark", "v1");
+        datamarkParameters.put("auditDatamark", "v1");
+        DatamarkSqlParameterSource source = new DatamarkSqlParameterSource(delegate, datamarkParameters);
+
+        String[] parameterNames = source.getParameterNames();
+        // 同名参数只出现一次。
+        assertEquals(3, parameterNames.length);
+        assertEquals(
+                new HashSet<>(Arrays.asList("id", "datamark", "auditDatamark")),
+                new HashSet<>(Arrays.asList(parameterNames))
+        );
+    }
+
+    @Test
+    public void testGetParameterNamesWhenDelegateDoesNotSupport() {
+        SqlParameterSource delegate = new SqlParameterSource() {
+
+            @Override
+            public boolean hasValue(String paramName) {
+                return false;
+            }
+
+            @Override
+            public Object getValue(String paramName) {
+                throw new IllegalArgumentException(paramName);
+            }
+        };
+        DatamarkSqlParameterSource source = new DatamarkSqlParameterSource(
+                delegate, Collections.singletonMap("datamark", "v1")
+        );
+        // 代理参数源不支持列举参数名称时，装饰器同样不支持。
+        assertNull(source.getParameterNames());
+    }
+
+    @Test
+    public void testDecorateResolvesEachServiceOnce() throws Exception {
+        SqlParameterSource[] batch = new SqlParameterSource[50];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new MapSqlParameterSource("id", i);
+        }
+        Map<String, DatamarkService> parameterServiceMap = new LinkedHashMap<>();
+        parameterServiceMap.put("datamark", datamarkService);
+        parameterServiceMap.put("auditDatamark", datamarkService);
+
+        SqlParameterSource[] decorated = DatamarkSqlParameterSource.decorate(batch, parameterServiceMap);
+        assertEquals(1, datamarkService.getGetCount());
+        assertEquals(batch.length, decorated.length);
+        for (int i = 0; i < decorated.length; i++) {
+            assertEquals(i, decorated[i].getValue("id"));
+            assertEquals("v1", decorated[i].getValue("datamark"));
+            assertEquals("v1", decorated[i].getValue("auditDatamark"));
+        }
+        // 读取参数时不会调用数据标识服务。
+        assertEquals(1, datamarkService.getGetCount());
+    }
+}
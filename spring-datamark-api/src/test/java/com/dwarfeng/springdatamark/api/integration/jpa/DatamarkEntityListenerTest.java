@@ -0,0 +1,217 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import com.dwarfeng.springdatamark.api.integration.CountingDatamarkService;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatamarkEntityListener} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkEntityListenerTest {
+
+    private CountingDatamarkService datamarkService;
+    private DatamarkEntityListener listener;
+
+    @Before
+    public void setUp() {
+        datamarkService = new CountingDatamarkService("v1");
+        listener = new DatamarkEntityListener(
+                Collections.<String, DatamarkService>singletonMap("datamarkService", datamarkService)
+        );
+    }
+
+    @Test
+    public void testSetterPreferred() throws Exception {
+        SetterEntity entity = new SetterEntity();
+        listener.prePersist(entity);
+        assertEquals("v1", entity.datamark);
+        assertEquals(1, entity.setterInvocationCount);
+
+        datamarkService.update("v2");
+        listener.preUpdate(entity);
+        assertEquals("v2", entity.datamark);
+        assertEquals(2, entity.setterInvocationCount);
+    }
+
+    @Test
+    public void testFieldFallbackWithoutSetter() throws Exception {
+        FieldEntity entity = new FieldEntity();
+        listener.prePersist(entity);
+        assertEquals("v1", entity.datamark);
+    }
+
+    @Test
+    public void testFieldFallbackWhenSetterNotAcceptString() throws Exception {
+        // 写方法的参数不能接受字符串时，直接写入字段。
+        IncompatibleSetterEntity entity = new IncompatibleSetterEntity();
+        listener.prePersist(entity);
+        assertEquals("v1", entity.datamark);
+        assertFalse(entity.setterInvoked);
+    }
+
+    @Test
+    public void testFinalFieldWithoutSetterRejected() throws Exception {
+        try {
+            listener.prePersist(new FinalFieldEntity());
+            fail("final 字段且不存在写方法时应当抛出异常");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("final"));
+        }
+        assertEquals(0, datamarkService.getGetCount());
+    }
+
+    @Test
+    public void testWriteMethodNamedAfterCapitalizedFieldName() throws Exception {
+        // 字段 aField 对应的写方法是 setAField，与注解处理器生成的写入器一致。
+        CapitalizedEntity entity = new CapitalizedEntity();
+        listener.prePersist(entity);
+        assertEquals("v1", entity.aField);
+        assertEquals(1, entity.setterInvocationCount);
+    }
+
+    @Test
+    public void testNonStringFieldWithoutSetterRejected() throws Exception {
+        try {
+            listener.prePersist(new NonStringFieldEntity());
+            fail("字段的类型无法接受字符串且不存在写方法时应当抛出异常");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("datamark"));
+        }
+    }
+
+    @Test
+    public void testClassWithoutDatamarkFieldCachedAsEmpty() throws Exception {
+        EntityMetadata entityMetadata = EntityMetadata.of(PlainEntity.class);
+        assertTrue(entityMetadata.isEmpty());
+        assertSame(entityMetadata, EntityMetadata.of(PlainEntity.class));
+        // 负缓存不需要任何数据标识服务，即使服务映射为空也不会抛出异常。
+        assertSame(EntityInfo.EMPTY, EntityInfo.bind(Collections.emptyMap(), entityMetadata));
+        DatamarkEntityListener emptyListener = new DatamarkEntityListener(Collections.emptyMap());
+        for (int i = 0; i < 3; i++) {
+            emptyListener.prePersist(new PlainEntity());
+            emptyListener.preUpdate(new PlainEntity());
+        }
+    }
+
+    @Test
+    public void testEntityInfoBoundOncePerClass() throws Exception {
+        CountingServiceMap datamarkServiceMap = new CountingServiceMap();
+        datamarkServiceMap.put("namedService", datamarkService);
+        DatamarkEntityListener countingListener = new DatamarkEntityListener(datamarkServiceMap);
+        for (int i = 0; i < 100; i++) {
+            NamedServiceEntity entity = new NamedServiceEntity();
+            countingListener.prePersist(entity);
+            assertEquals("v1", entity.datamark);
+        }
+        // serviceId 只在首次回调时解析一次，此后的回调直接使用缓存的实体信息。
+        assertEquals(1, datamarkServiceMap.getCount);
+        assertEquals(100, datamarkService.getGetCount());
+    }
+
+    public static class SetterEntity {
+
+        @DatamarkField
+        private String datamark;
+
+        private int setterInvocationCount;
+
+        public String getDatamark() {
+            return datamark;
+        }
+
+        public void setDatamark(String datamark) {
+            this.datamark = datamark;
+            setterInvocationCount++;
+        }
+    }
+
+    public static class FieldEntity {
+
+        @DatamarkField
+        private String datamark;
+    }
+
+    public static class IncompatibleSetterEntity {
+
+        @DatamarkField
+        private String datamark;
+
+        private boolean setterInvoked;
+
+        public void setDatamark(Integer datamark) {
+            this.datamark = String.valueOf(datamark);
+            setterInvoked = true;
+        }
+    }
+
+    public static class CapitalizedEntity {
+
+        @DatamarkField
+        private String aField;
+
+        private int setterInvocationCount;
+
+        public String getAField() {
+            return aField;
+        }
+
+        public void setAField(String aField) {
+            this.aField = aField;
+            setterInvocationCount++;
+        }
+    }
+
+    public static class NonStringFieldEntity {
+
+        @DatamarkField
+        private Integer datamark;
+    }
+
+    public static class NamedServiceEntity {
+
+        @DatamarkField(serviceId = "namedService")
+        private String datamark;
+    }
+
+    public static class PlainEntity {
+
+        @SuppressWarnings("unused")
+        private String datamark;
+    }
+
+    public static class FinalFieldEntity {
+
+        @DatamarkField
+        private final String datamark;
+
+        public FinalFieldEntity() {
+            this.datamark = null;
+        }
+
+        public String getDatamark() {
+            return datamark;
+        }
+    }
+
+    private static final class CountingServiceMap extends HashMap<String, DatamarkService> {
+
+        private static final long serialVersionUID = -6212458406525837740L;
+
+        private int getCount;
+
+        @Override
+        public DatamarkService get(Object key) {
+            getCount++;
+            return super.get(key);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import com.dwarfeng.springdatamark.api.integration.CountingDatamarkService;
+import com.dwarfeng.springdatamark.api.integration.jpa.scan.ScanFixtures;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatamarkEntityScanner} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkEntityScannerTest {
+
+    private Map<String, DatamarkService> datamarkServiceMap;
+    private GenericApplicationContext applicationContext;
+    private StandardServiceRegistry serviceRegistry;
+
+    @Before
+    public void setUp() {
+        datamarkServiceMap = Collections.singletonMap("datamarkService", new CountingDatamarkService("v1"));
+        applicationContext = new GenericApplicationContext();
+    }
+
+    @After
+    public void tearDown() {
+        applicationContext.close();
+        if (Objects.nonNull(serviceRegistry)) {
+            StandardServiceRegistryBuilder.destroy(serviceRegistry);
+        }
+    }
+
+    @Test
+    public void testBasePackageScanAggregatesFailures() {
+        applicationContext.refresh();
+        DatamarkEntityScanner scanner = newScanner();
+        scanner.setMetamodelScanEnabled(false);
+        scanner.setBasePackages(ScanFixtures.class.getPackage().getName());
+        try {
+            scanner.afterSingletonsInstantiated();
+            fail("存在错误的数据标识绑定时应当抛出异常");
+        } catch (IllegalStateException e) {
+            // 所有错误的绑定汇总在同一个异常中，非实体类不会被扫描。
+            String message = e.getMessage();
+            assertTrue(message, message.startsWith("共有 2 个实体类的数据标识元数据解析失败:"));
+            assertTrue(message, message.contains(ScanFixtures.UnknownServiceEntity.class.getName() + ": "));
+            assertTrue(message, message.contains("unknownService"));
+            assertTrue(message, message.contains(ScanFixtures.FinalFieldEntity.class.getName() + ": "));
+            assertFalse(message, message.contains(ScanFixtures.NonEntity.class.getName()));
+            assertFalse(message, message.contains(ScanFixtures.ValidEntity.class.getName()));
+        }
+    }
+
+    @Test
+    public void testMetamodelScanSucceeds() {
+        registerSessionFactory(ScanFixtures.ValidEntity.class, ScanFixtures.PlainEntity.class);
+        applicationContext.refresh();
+        DatamarkEntityScanner scanner = newScanner();
+        scanner.afterSingletonsInstantiated();
+        assertFalse(EntityMetadata.of(ScanFixtures.ValidEntity.class).isEmpty());
+    }
+
+    @Test
+    public void testMetamodelScanFailsFast() {
+        registerSessionFactory(ScanFixtures.ValidEntity.class, ScanFixtures.UnknownServiceEntity.class);
+        applicationContext.refresh();
+        DatamarkEntityScanner scanner = newScanner();
+        try {
+            scanner.afterSingletonsInstantiated();
+            fail("存在错误的数据标识绑定时应当抛出异常");
+        } catch (IllegalStateException e) {
+            String message = e.getMessage();
+            assertTrue(message, message.startsWith("共有 1 个实体类的数据标识元数据解析失败:"));
+            assertTrue(message, message.contains(ScanFixtures.UnknownServiceEntity.class.getName() + ": "));
+        }
+    }
+
+    private DatamarkEntityScanner newScanner() {
+        DatamarkEntityScanner scanner = new DatamarkEntityScanner(datamarkServiceMap);
+        scanner.setApplicationContext(applicationContext);
+        return scanner;
+    }
+
+    private void registerSessionFactory(Class<?>... entityClasses) {
+        serviceRegistry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DRIVER, "org.h2.Driver")
+                .applySetting(AvailableSettings.URL, "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1")
+                .applySetting(AvailableSettings.DIALECT, "org.hibernate.dialect.H2Dialect")
+                .build();
+        MetadataSources metadataSources = new MetadataSources(serviceRegistry);
+        for (Class<?> entityClass : entityClasses) {
+            metadataSources.addAnnotatedClass(entityClass);
+        }
+        SessionFactory sessionFactory = metadataSources.buildMetadata().buildSessionFactory();
+        // 应用上下文关闭时同时关闭 SessionFactory。
+        applicationContext.registerBean("sessionFactory", SessionFactory.class, () -> sessionFactory);
+    }
+}
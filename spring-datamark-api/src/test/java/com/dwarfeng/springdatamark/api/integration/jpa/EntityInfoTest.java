@@ -0,0 +1,96 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import com.dwarfeng.springdatamark.api.integration.CountingDatamarkService;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link EntityInfo} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class EntityInfoTest {
+
+    private final CountingDatamarkService fooService = new CountingDatamarkService("foo");
+    private final CountingDatamarkService barService = new CountingDatamarkService("bar");
+
+    @Test
+    public void testEmptyServiceIdWithSingleService() {
+        EntityInfo entityInfo = EntityInfo.bind(
+                Collections.<String, DatamarkService>singletonMap("fooService", fooService),
+                EntityMetadata.of(DefaultServiceEntity.class)
+        );
+        assertEquals(1, entityInfo.getFieldInfos().size());
+        assertSame(fooService, entityInfo.getFieldInfos().get(0).getDatamarkService());
+    }
+
+    @Test
+    public void testEmptyServiceIdWithMultipleServicesRejected() {
+        try {
+            EntityInfo.bind(twoServices(), EntityMetadata.of(DefaultServiceEntity.class));
+            fail("serviceId 未指定且存在多个服务时应当抛出异常");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("datamark"));
+        }
+    }
+
+    @Test
+    public void testNamedServiceId() {
+        EntityInfo entityInfo = EntityInfo.bind(twoServices(), EntityMetadata.of(NamedServiceEntity.class));
+        assertEquals(2, entityInfo.getFieldInfos().size());
+        assertSame(fooService, entityInfo.getFieldInfos().get(0).getDatamarkService());
+        assertSame(barService, entityInfo.getFieldInfos().get(1).getDatamarkService());
+    }
+
+    @Test
+    public void testUnknownServiceIdRejected() {
+        try {
+            EntityInfo.bind(
+                    Collections.<String, DatamarkService>singletonMap("fooService", fooService),
+                    EntityMetadata.of(NamedServiceEntity.class)
+            );
+            fail("serviceId 对应的服务不存在时应当抛出异常");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("barService"));
+        }
+    }
+
+    @Test
+    public void testEmptyServiceMapRejected() {
+        try {
+            EntityInfo.bind(Collections.emptyMap(), EntityMetadata.of(DefaultServiceEntity.class));
+            fail("服务映射为空时应当抛出异常");
+        } catch (IllegalStateException e) {
+            // 期望的异常。
+        }
+    }
+
+    private Map<String, DatamarkService> twoServices() {
+        Map<String, DatamarkService> datamarkServiceMap = new HashMap<>();
+        datamarkServiceMap.put("fooService", fooService);
+        datamarkServiceMap.put("barService", barService);
+        return datamarkServiceMap;
+    }
+
+    public static class DefaultServiceEntity {
+
+        @DatamarkField
+        private String datamark;
+    }
+
+    public static class NamedServiceEntity {
+
+        @DatamarkField(serviceId = "fooService")
+        private String fooDatamark;
+
+        @DatamarkField(serviceId = "barService")
+        private String barDatamark;
+    }
+}
@@ -0,0 +1,182 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import com.dwarfeng.springdatamark.api.integration.CountingDatamarkService;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import org.hibernate.proxy.HibernateProxy;
+import org.junit.Test;
+
+import javax.persistence.MappedSuperclass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link EntityMetadata} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class EntityMetadataTest {
+
+    @Test
+    public void testMappedSuperclassFieldsCollected() throws Exception {
+        EntityMetadata entityMetadata = EntityMetadata.of(LeafEntity.class);
+        assertEquals(Arrays.asList("baseDatamark", "leafDatamark"), fieldNames(entityMetadata));
+
+        LeafEntity entity = new LeafEntity();
+        for (EntityMetadata.FieldMetadata fieldMetadata : entityMetadata.getFieldMetadatas()) {
+            fieldMetadata.setValue(entity, fieldMetadata.getFieldName());
+        }
+        assertEquals("baseDatamark", entity.getBaseDatamark());
+        assertEquals("leafDatamark", entity.leafDatamark);
+    }
+
+    @Test
+    public void testSuperclassFirstOrderingAndSubclassOverride() throws Exception {
+        EntityMetadata entityMetadata = EntityMetadata.of(OverridingEntity.class);
+        // 父类的字段在前，被子类覆盖的同名字段只出现一次，且使用子类的注解。
+        assertEquals(Arrays.asList("baseDatamark", "datamark", "childDatamark"), fieldNames(entityMetadata));
+        EntityMetadata.FieldMetadata overridden = entityMetadata.getFieldMetadatas().get(1);
+        assertEquals("barService", overridden.getServiceId());
+
+        OverridingEntity entity = new OverridingEntity();
+        overridden.setValue(entity, "v1");
+        assertEquals("v1", entity.datamark);
+        assertNull(((BaseEntity) entity).getDatamark());
+    }
+
+    @Test
+    public void testOverridingFieldBoundToSubclassService() throws Exception {
+        CountingDatamarkService fooService = new CountingDatamarkService("foo");
+        CountingDatamarkService barService = new CountingDatamarkService("bar");
+        Map<String, DatamarkService> datamarkServiceMap = new HashMap<>();
+        datamarkServiceMap.put("fooService", fooService);
+        datamarkServiceMap.put("barService", barService);
+        DatamarkEntityListener listener = new DatamarkEntityListener(datamarkServiceMap);
+
+        OverridingEntity entity = new OverridingEntity();
+        listener.prePersist(entity);
+        assertEquals("foo", entity.getBaseDatamark());
+        assertEquals("bar", entity.datamark);
+        assertEquals("foo", entity.childDatamark);
+        assertNull(((BaseEntity) entity).getDatamark());
+    }
+
+    @Test
+    public void testHibernateProxyInterfaceResolvesToEntityMetadata() throws Exception {
+        // 以 ByteBuddy 生成实现了 HibernateProxy 接口的子类，类名称中不含代理类的特征字符串。
+        Class<? extends LeafEntity> proxyClass = new ByteBuddy()
+                .subclass(LeafEntity.class)
+                .implement(HibernateProxy.class)
+                .make()
+                .load(LeafEntity.class.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                .getLoaded();
+        assertFalse(proxyClass.getName().contains("$HibernateProxy$"));
+        // 代理类直接复用真实实体类的实体元数据。
+        assertSame(EntityMetadata.of(LeafEntity.class), EntityMetadata.of(proxyClass));
+
+        LeafEntity proxy = proxyClass.getConstructor().newInstance();
+        DatamarkEntityListener listener = new DatamarkEntityListener(
+                Collections.<String, DatamarkService>singletonMap(
+                        "datamarkService", new CountingDatamarkService("v1")
+                )
+        );
+        listener.prePersist(proxy);
+        assertEquals("v1", proxy.getBaseDatamark());
+        assertEquals("v1", proxy.leafDatamark);
+    }
+
+    @Test
+    public void testHibernateProxyNameResolvesToEntityMetadata() {
+        assertTrue(LeafEntity$HibernateProxy$Fixture.class.getName().contains("$HibernateProxy$"));
+        assertSame(EntityMetadata.of(LeafEntity.class), EntityMetadata.of(LeafEntity$HibernateProxy$Fixture.class));
+    }
+
+    @Test
+    public void testPlainSubclassNotTreatedAsProxy() {
+        // 普通的子类拥有独立的实体元数据。
+        EntityMetadata entityMetadata = EntityMetadata.of(LeafSubEntity.class);
+        assertNotSame(EntityMetadata.of(LeafEntity.class), entityMetadata);
+        assertSame(LeafSubEntity.class, entityMetadata.getEntityClass());
+        assertEquals(Arrays.asList("baseDatamark", "leafDatamark", "subDatamark"), fieldNames(entityMetadata));
+    }
+
+    private static List<String> fieldNames(EntityMetadata entityMetadata) {
+        List<String> result = new ArrayList<>();
+        for (EntityMetadata.FieldMetadata fieldMetadata : entityMetadata.getFieldMetadatas()) {
+            result.add(fieldMetadata.getFieldName());
+        }
+        return result;
+    }
+
+    @MappedSuperclass
+    public abstract static class BaseEntity {
+
+        @DatamarkField(serviceId = "fooService")
+        private String baseDatamark;
+
+        @DatamarkField(serviceId = "fooService")
+        private String datamark;
+
+        public String getBaseDatamark() {
+            return baseDatamark;
+        }
+
+        public void setBaseDatamark(String baseDatamark) {
+            this.baseDatamark = baseDatamark;
+        }
+
+        public String getDatamark() {
+            return datamark;
+        }
+    }
+
+    @MappedSuperclass
+    public abstract static class MappedBaseEntity {
+
+        @DatamarkField
+        private String baseDatamark;
+
+        public String getBaseDatamark() {
+            return baseDatamark;
+        }
+
+        public void setBaseDatamark(String baseDatamark) {
+            this.baseDatamark = baseDatamark;
+        }
+    }
+
+    public static class LeafEntity extends MappedBaseEntity {
+
+        @DatamarkField
+        private String leafDatamark;
+    }
+
+    public static class OverridingEntity extends BaseEntity {
+
+        @DatamarkField(serviceId = "barService")
+        private String datamark;
+
+        @DatamarkField(serviceId = "fooService")
+        private String childDatamark;
+    }
+
+    public static class LeafSubEntity extends LeafEntity {
+
+        @DatamarkField
+        private String subDatamark;
+    }
+
+    /**
+     * 类名称中含有 Hibernate 代理类特征字符串的子类。
+     */
+    public static class LeafEntity$HibernateProxy$Fixture extends LeafEntity {
+    }
+}
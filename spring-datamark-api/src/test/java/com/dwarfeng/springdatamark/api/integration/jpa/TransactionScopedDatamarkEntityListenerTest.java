@@ -0,0 +1,126 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import com.dwarfeng.springdatamark.api.integration.CountingDatamarkService;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link TransactionScopedDatamarkEntityListener} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class TransactionScopedDatamarkEntityListenerTest {
+
+    private CountingDatamarkService datamarkService;
+    private TransactionScopedDatamarkEntityListener listener;
+
+    @Before
+    public void setUp() {
+        datamarkService = new CountingDatamarkService("v1");
+        listener = new TransactionScopedDatamarkEntityListener(
+                Collections.<String, DatamarkService>singletonMap("datamarkService", datamarkService)
+        );
+    }
+
+    @After
+    public void tearDown() {
+        // 测试失败时清理当前线程的事务同步状态，避免影响其它测试。
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.getResourceMap().keySet()
+                .forEach(TransactionSynchronizationManager::unbindResourceIfPossible);
+    }
+
+    @Test
+    public void testWithoutSynchronizationCallsServiceEachTime() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("v1", stamp().datamark);
+        }
+        assertEquals(3, datamarkService.getGetCount());
+        assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+    }
+
+    @Test
+    public void testCachedWithinSynchronizationAndUnboundAfterCompletion() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals("v1", stamp().datamark);
+        // 同一个事务中数据标识保持一致，服务只被调用一次。
+        datamarkService.update("v2");
+        assertEquals("v1", stamp().datamark);
+        assertEquals(1, datamarkService.getGetCount());
+        assertEquals(1, TransactionSynchronizationManager.getResourceMap().size());
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+
+        TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED
+        );
+        TransactionSynchronizationManager.clearSynchronization();
+        // 事务完成后缓存被解绑，之后的调用重新解析数据标识。
+        assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+        assertEquals("v2", stamp().datamark);
+        assertEquals(2, datamarkService.getGetCount());
+    }
+
+    @Test
+    public void testRequiresNewSuspendsAndResumesCache() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID());
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        TransactionTemplate outerTemplate = new TransactionTemplate(transactionManager);
+        TransactionTemplate innerTemplate = new TransactionTemplate(transactionManager);
+        innerTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        outerTemplate.executeWithoutResult(outerStatus -> {
+            assertEquals("v1", stampUnchecked().datamark);
+            datamarkService.update("v2");
+            // 新事务挂起了外层事务的缓存，使用自己的缓存。
+            innerTemplate.executeWithoutResult(innerStatus -> {
+                assertEquals("v2", stampUnchecked().datamark);
+                datamarkService.update("v3");
+                assertEquals("v2", stampUnchecked().datamark);
+            });
+            // 新事务完成后，外层事务的缓存被恢复。
+            assertEquals("v1", stampUnchecked().datamark);
+        });
+        assertEquals(2, datamarkService.getGetCount());
+        assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+        assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+        assertEquals("v3", stampUnchecked().datamark);
+    }
+
+    private StampedEntity stamp() throws Exception {
+        StampedEntity entity = new StampedEntity();
+        listener.prePersist(entity);
+        return entity;
+    }
+
+    private StampedEntity stampUnchecked() {
+        try {
+            return stamp();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class StampedEntity {
+
+        @DatamarkField
+        private String datamark;
+    }
+}
@@ -0,0 +1,72 @@
+package com.dwarfeng.springdatamark.api.integration.jpa.scan;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * {@link com.dwarfeng.springdatamark.api.integration.jpa.DatamarkEntityScanner} 测试使用的实体类。
+ *
+ * <p>
+ * 该包作为扫描的基础包，包中的实体类包含正确与错误的数据标识绑定。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class ScanFixtures {
+
+    @Entity
+    public static class ValidEntity {
+
+        @Id
+        private Long id;
+
+        @DatamarkField(serviceId = "datamarkService")
+        private String datamark;
+    }
+
+    @Entity
+    public static class PlainEntity {
+
+        @Id
+        private Long id;
+    }
+
+    @Entity
+    public static class UnknownServiceEntity {
+
+        @Id
+        private Long id;
+
+        @DatamarkField(serviceId = "unknownService")
+        private String datamark;
+    }
+
+    @Entity
+    public static class FinalFieldEntity {
+
+        @Id
+        private Long id;
+
+        @DatamarkField(serviceId = "datamarkService")
+        private final String datamark;
+
+        public FinalFieldEntity() {
+            this.datamark = null;
+        }
+    }
+
+    /**
+     * 不是实体类，即使绑定错误也不会被扫描。
+     */
+    public static class NonEntity {
+
+        @DatamarkField(serviceId = "unknownService")
+        private String datamark;
+    }
+
+    private ScanFixtures() {
+        throw new IllegalStateException("禁止实例化");
+    }
+}
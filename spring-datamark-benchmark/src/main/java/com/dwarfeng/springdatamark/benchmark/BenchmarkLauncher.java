@@ -0,0 +1,45 @@
+package com.dwarfeng.springdatamark.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试启动器。
+ *
+ * <p>
+ * 启动器接受所有 JMH 的命令行参数，并在命令行没有指定结果格式与结果文件时，
+ * 将结果以 JSON 格式输出到 <code>jmh-result.json</code>，以便在不同版本之间比较基准测试的结果。
+ *
+ * <p>
+ * 使用方法如下：
+ * <blockquote><pre>
+ * mvn -pl spring-datamark-benchmark -am package
+ * java -jar spring-datamark-benchmark/target/benchmarks.jar [JMH 参数]
+ * </pre></blockquote>
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class BenchmarkLauncher {
+
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder optionsBuilder = new OptionsBuilder().parent(commandLineOptions);
+        if (!commandLineOptions.getResultFormat().hasValue()) {
+            optionsBuilder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLineOptions.getResult().hasValue()) {
+            optionsBuilder.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(optionsBuilder.build()).run();
+    }
+
+    private BenchmarkLauncher() {
+        throw new IllegalStateException("禁止实例化");
+    }
+}
@@ -0,0 +1,98 @@
+package com.dwarfeng.springdatamark.benchmark;
+
+import com.dwarfeng.springdatamark.benchmark.entity.EntityWith0Fields;
+import com.dwarfeng.springdatamark.benchmark.entity.EntityWith10Fields;
+import com.dwarfeng.springdatamark.benchmark.entity.EntityWith1Field;
+import com.dwarfeng.springdatamark.benchmark.entity.EntityWith2Fields;
+import com.dwarfeng.springdatamark.impl.service.DatamarkServiceImpl;
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 基准测试的工具类。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+final class BenchmarkSupport {
+
+    /**
+     * 基准测试使用的数据标识。
+     */
+    public static final String DATAMARK = "benchmark";
+
+    /**
+     * 类路径中的数据标识资源。
+     */
+    public static final String CLASSPATH_RESOURCE_URL = "classpath:datamark/benchmark-storage";
+
+    /**
+     * 创建存储文件，并写入基准测试使用的数据标识。
+     *
+     * @return 存储文件。
+     * @throws IOException IO 异常。
+     */
+    public static Path createStorageFile() throws IOException {
+        Path file = Files.createTempFile("spring-datamark-benchmark-", ".storage");
+        Files.write(file, (DATAMARK + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * 根据资源的 URL 构造配置。
+     *
+     * @param resourceUrl 资源的 URL。
+     * @return 配置。
+     */
+    public static DatamarkConfig createConfig(String resourceUrl) {
+        return new DatamarkConfig(resourceUrl, StandardCharsets.UTF_8.name(), true);
+    }
+
+    /**
+     * 根据配置构造并初始化数据标识服务。
+     *
+     * @param datamarkConfig 配置。
+     * @return 初始化后的数据标识服务。
+     * @throws Exception 初始化过程中发生的任何异常。
+     */
+    public static DatamarkServiceImpl createService(DatamarkConfig datamarkConfig) throws Exception {
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.refresh();
+        DatamarkServiceImpl datamarkService = new DatamarkServiceImpl();
+        datamarkService.setApplicationContext(applicationContext);
+        datamarkService.setBeanName("datamarkService");
+        datamarkService.setDatamarkConfig(datamarkConfig);
+        datamarkService.afterPropertiesSet();
+        return datamarkService;
+    }
+
+    /**
+     * 获取含有指定数量的数据标识字段的实体类。
+     *
+     * @param fieldCount 数据标识字段的数量，可选值为 0、1、2、10。
+     * @return 实体类。
+     */
+    public static Class<?> entityClass(int fieldCount) {
+        switch (fieldCount) {
+            case 0:
+                return EntityWith0Fields.class;
+            case 1:
+                return EntityWith1Field.class;
+            case 2:
+                return EntityWith2Fields.class;
+            case 10:
+                return EntityWith10Fields.class;
+            default:
+                throw new IllegalArgumentException("不支持的字段数量: " + fieldCount);
+        }
+    }
+
+    private BenchmarkSupport() {
+        throw new IllegalStateException("禁止实例化");
+    }
+}
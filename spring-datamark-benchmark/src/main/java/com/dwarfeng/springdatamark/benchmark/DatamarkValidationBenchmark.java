@@ -0,0 +1,60 @@
+package com.dwarfeng.springdatamark.benchmark;
+
+import com.dwarfeng.springdatamark.sdk.util.Constraints;
+import com.dwarfeng.springdatamark.sdk.util.DatamarkUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据标识校验的基准测试。
+ *
+ * <p>
+ * 测量 {@link DatamarkUtil#isDatamarkValid(String)} 对于不同长度、不同合法性的数据标识的耗时。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatamarkValidationBenchmark {
+
+    @Param({"short", "max-length", "illegal-head", "illegal-tail", "too-long"})
+    public String datamarkType;
+
+    private String datamark;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String maxLength = StringUtils.repeat('a', Constraints.LENGTH_DATAMARK);
+        switch (datamarkType) {
+            case "short":
+                datamark = BenchmarkSupport.DATAMARK;
+                break;
+            case "max-length":
+                datamark = maxLength;
+                break;
+            case "illegal-head":
+                datamark = "#" + maxLength.substring(1);
+                break;
+            case "illegal-tail":
+                datamark = maxLength.substring(1) + "#";
+                break;
+            case "too-long":
+                datamark = maxLength + "a";
+                break;
+            default:
+                throw new IllegalArgumentException("未知的数据标识类型: " + datamarkType);
+        }
+    }
+
+    @Benchmark
+    public boolean isDatamarkValid() {
+        return DatamarkUtil.isDatamarkValid(datamark);
+    }
+}
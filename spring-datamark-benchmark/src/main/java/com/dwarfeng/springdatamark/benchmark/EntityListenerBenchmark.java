@@ -0,0 +1,64 @@
+package com.dwarfeng.springdatamark.benchmark;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkEntityListener;
+import com.dwarfeng.springdatamark.impl.service.DatamarkServiceImpl;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据标识实体侦听器的基准测试（实体元数据已缓存）。
+ *
+ * <p>
+ * 测量实体元数据已被缓存时，{@link DatamarkEntityListener#prePersist(Object)} 对于含有不同数量数据标识字段的实体的耗时。
+ *
+ * @author DwArFeng
+ * @see EntityListenerColdBenchmark
+ * @since 1.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityListenerBenchmark {
+
+    @Param({"0", "1", "2", "10"})
+    public int fieldCount;
+
+    private Path storageFile;
+    private DatamarkServiceImpl datamarkService;
+    private DatamarkEntityListener datamarkEntityListener;
+    private Object entity;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        storageFile = BenchmarkSupport.createStorageFile();
+        datamarkService = BenchmarkSupport.createService(
+                BenchmarkSupport.createConfig(storageFile.toUri().toString())
+        );
+        Map<String, DatamarkService> datamarkServiceMap = Collections.singletonMap("datamarkService", datamarkService);
+        datamarkEntityListener = new DatamarkEntityListener(datamarkServiceMap);
+        entity = BenchmarkSupport.entityClass(fieldCount).getDeclaredConstructor().newInstance();
+        // 预先执行一次回调，使实体元数据被缓存。
+        datamarkEntityListener.prePersist(entity);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        datamarkService.destroy();
+        Files.deleteIfExists(storageFile);
+    }
+
+    @Benchmark
+    public Object prePersist() throws Exception {
+        datamarkEntityListener.prePersist(entity);
+        return entity;
+    }
+}
@@ -0,0 +1,97 @@
+package com.dwarfeng.springdatamark.benchmark;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkEntityListener;
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkStamperIndex;
+import com.dwarfeng.springdatamark.impl.service.DatamarkServiceImpl;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据标识实体侦听器的基准测试（实体元数据未缓存）。
+ *
+ * <p>
+ * 每一次测量前，都会通过 {@link IsolatedClassLoader} 重新定义 {@link #BATCH_SIZE} 个互不相同的实体类，并构造新的侦听器，
+ * 测量时依次对这些实体调用一次 {@link DatamarkEntityListener#prePersist(Object)}，
+ * 结果按照 {@link OperationsPerInvocation} 折算为单个实体类第一次经过侦听器时的耗时。<br>
+ * 采用 {@link Mode#SingleShotTime} 与批量的方式，而不是在 {@link Level#Invocation} 级别准备实体，
+ * 以免每一次调用的计时开销与准备工作影响测量结果。
+ *
+ * <p>
+ * 测量结果包括实体元数据的解析（遍历类层次结构、编译写入方法）、serviceId 的绑定、两级 {@link ClassValue} 缓存的写入、
+ * 在已经读取的写入器索引中的查找以及数据标识的写入；
+ * 不包括实体类的定义，也不包括写入器索引的读取：索引按照类加载器缓存，实际应用中每个类加载器只读取一次，
+ * 而基准测试中每个实体类都有独立的类加载器，因此在准备阶段通过 {@link DatamarkStamperIndex#find(Class)} 预先读取。<br>
+ * 预热阶段会预热侦听器的代码路径，因此测量的是数据上的冷启动，而不是未经即时编译的冷启动。
+ *
+ * @author DwArFeng
+ * @see EntityListenerBenchmark
+ * @since 1.2.0
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityListenerColdBenchmark {
+
+    /**
+     * 每一次测量中的实体类数量。
+     */
+    public static final int BATCH_SIZE = 200;
+
+    @Param({"0", "1", "2", "10"})
+    public int fieldCount;
+
+    private Path storageFile;
+    private DatamarkServiceImpl datamarkService;
+    private Map<String, DatamarkService> datamarkServiceMap;
+    private String entityClassName;
+
+    private DatamarkEntityListener datamarkEntityListener;
+    private Object[] entities;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        storageFile = BenchmarkSupport.createStorageFile();
+        datamarkService = BenchmarkSupport.createService(
+                BenchmarkSupport.createConfig(storageFile.toUri().toString())
+        );
+        datamarkServiceMap = Collections.singletonMap("datamarkService", datamarkService);
+        entityClassName = BenchmarkSupport.entityClass(fieldCount).getName();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws Exception {
+        entities = new Object[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ClassLoader classLoader = new IsolatedClassLoader(getClass().getClassLoader(), entityClassName);
+            Class<?> entityClass = classLoader.loadClass(entityClassName);
+            // 预先读取该类加载器的写入器索引，只影响索引缓存，不会解析实体元数据。
+            DatamarkStamperIndex.find(entityClass);
+            entities[i] = entityClass.getDeclaredConstructor().newInstance();
+        }
+        datamarkEntityListener = new DatamarkEntityListener(datamarkServiceMap);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        datamarkService.destroy();
+        Files.deleteIfExists(storageFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Object[] prePersist() throws Exception {
+        for (Object entity : entities) {
+            datamarkEntityListener.prePersist(entity);
+        }
+        return entities;
+    }
+}
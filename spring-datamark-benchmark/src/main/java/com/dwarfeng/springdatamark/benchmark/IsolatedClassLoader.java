@@ -0,0 +1,63 @@
+package com.dwarfeng.springdatamark.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * 隔离的类加载器。
+ *
+ * <p>
+ * 对于指定的类，该类加载器不委托给父类加载器，而是读取类文件并重新定义，从而得到一个全新的 {@link Class} 对象，
+ * 其它的类仍然委托给父类加载器加载。<br>
+ * 基准测试通过该类加载器构造与任何缓存都没有关联的实体类，以测量实体元数据未被缓存时的开销。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+final class IsolatedClassLoader extends ClassLoader {
+
+    private final String isolatedClassName;
+
+    public IsolatedClassLoader(ClassLoader parent, String isolatedClassName) {
+        super(parent);
+        this.isolatedClassName = isolatedClassName;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!Objects.equals(name, isolatedClassName)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> clazz = findLoadedClass(name);
+            if (Objects.isNull(clazz)) {
+                byte[] bytes = readClassBytes(name);
+                clazz = defineClass(name, bytes, 0, bytes.length);
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+    }
+
+    private byte[] readClassBytes(String name) throws ClassNotFoundException {
+        String resourceName = name.replace('.', '/') + ".class";
+        try (InputStream in = getParent().getResourceAsStream(resourceName)) {
+            if (Objects.isNull(in)) {
+                throw new ClassNotFoundException(name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+}
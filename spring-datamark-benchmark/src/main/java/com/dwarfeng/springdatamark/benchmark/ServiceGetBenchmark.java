@@ -0,0 +1,62 @@
+package com.dwarfeng.springdatamark.benchmark;
+
+import com.dwarfeng.springdatamark.impl.service.DatamarkServiceImpl;
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据标识服务读取路径的基准测试。
+ *
+ * <p>
+ * 测量缓存命中时 {@link DatamarkServiceImpl#get()} 在不同线程数下的吞吐量。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceGetBenchmark {
+
+    private Path storageFile;
+    private DatamarkServiceImpl datamarkService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        storageFile = BenchmarkSupport.createStorageFile();
+        datamarkService = BenchmarkSupport.createService(
+                BenchmarkSupport.createConfig(storageFile.toUri().toString())
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        datamarkService.destroy();
+        Files.deleteIfExists(storageFile);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String get1Thread() throws DatamarkException {
+        return datamarkService.get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String get4Threads() throws DatamarkException {
+        return datamarkService.get();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String getMaxThreads() throws DatamarkException {
+        return datamarkService.get();
+    }
+}
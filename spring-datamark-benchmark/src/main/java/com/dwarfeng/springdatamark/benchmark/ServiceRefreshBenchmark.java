@@ -0,0 +1,66 @@
+package com.dwarfeng.springdatamark.benchmark;
+
+import com.dwarfeng.springdatamark.impl.service.DatamarkServiceImpl;
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据标识服务刷新路径的基准测试。
+ *
+ * <p>
+ * 分别测量文件资源（NIO 读取路径）与类路径资源（通用读取路径）的 {@link DatamarkServiceImpl#refresh()} 的耗时，
+ * 以及启用变更检测时跳过读取的耗时。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceRefreshBenchmark {
+
+    @Param({"file", "classpath"})
+    public String resourceType;
+
+    @Param({"false", "true"})
+    public boolean changeDetectionEnabled;
+
+    private Path storageFile;
+    private DatamarkServiceImpl datamarkService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String resourceUrl;
+        if (Objects.equals(resourceType, "file")) {
+            storageFile = BenchmarkSupport.createStorageFile();
+            resourceUrl = storageFile.toUri().toString();
+        } else {
+            resourceUrl = BenchmarkSupport.CLASSPATH_RESOURCE_URL;
+        }
+        DatamarkConfig datamarkConfig = BenchmarkSupport.createConfig(resourceUrl);
+        datamarkConfig.setResourceChangeDetectionEnabled(changeDetectionEnabled);
+        datamarkService = BenchmarkSupport.createService(datamarkConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        datamarkService.destroy();
+        if (Objects.nonNull(storageFile)) {
+            Files.deleteIfExists(storageFile);
+        }
+    }
+
+    @Benchmark
+    public String refreshAndGet() throws DatamarkException {
+        return datamarkService.refreshAndGet();
+    }
+}
@@ -0,0 +1,68 @@
+package com.dwarfeng.springdatamark.benchmark;
+
+import com.dwarfeng.springdatamark.impl.service.DatamarkServiceImpl;
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据标识服务更新路径的基准测试。
+ *
+ * <p>
+ * 测量文件资源在直接写入、原子写入以及延迟写入模式下 {@link DatamarkServiceImpl#update(String)} 的耗时。
+ * 类路径资源不可写，因此不在测量范围内。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceUpdateBenchmark {
+
+    @Param({"direct", "atomic", "write-behind"})
+    public String writeMode;
+
+    private Path storageFile;
+    private DatamarkServiceImpl datamarkService;
+
+    private String[] datamarks;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        storageFile = BenchmarkSupport.createStorageFile();
+        DatamarkConfig datamarkConfig = BenchmarkSupport.createConfig(storageFile.toUri().toString());
+        switch (writeMode) {
+            case "atomic":
+                datamarkConfig.setResourceAtomicWriteEnabled(true);
+                break;
+            case "write-behind":
+                datamarkConfig.setServiceWriteBehindEnabled(true);
+                break;
+            default:
+                break;
+        }
+        datamarkService = BenchmarkSupport.createService(datamarkConfig);
+        // 交替写入不同的数据标识，避免任何层面的“内容未变化”优化。
+        datamarks = new String[]{BenchmarkSupport.DATAMARK + "-a", BenchmarkSupport.DATAMARK + "-b"};
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        datamarkService.destroy();
+        Files.deleteIfExists(storageFile);
+    }
+
+    @Benchmark
+    public void update() throws DatamarkException {
+        datamarkService.update(datamarks[index++ & 1]);
+    }
+}
@@ -0,0 +1,40 @@
+package com.dwarfeng.springdatamark.benchmark.entity;
+
+/**
+ * 不含数据标识字段的实体。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class EntityWith0Fields {
+
+    private Long id;
+    private String name;
+
+    public EntityWith0Fields() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityWith0Fields{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,162 @@
+package com.dwarfeng.springdatamark.benchmark.entity;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+
+/**
+ * 含有 10 个数据标识字段的实体。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class EntityWith10Fields {
+
+    private Long id;
+    private String name;
+
+    @DatamarkField
+    private String datamark0;
+
+    @DatamarkField
+    private String datamark1;
+
+    @DatamarkField
+    private String datamark2;
+
+    @DatamarkField
+    private String datamark3;
+
+    @DatamarkField
+    private String datamark4;
+
+    @DatamarkField
+    private String datamark5;
+
+    @DatamarkField
+    private String datamark6;
+
+    @DatamarkField
+    private String datamark7;
+
+    @DatamarkField
+    private String datamark8;
+
+    @DatamarkField
+    private String datamark9;
+
+    public EntityWith10Fields() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDatamark0() {
+        return datamark0;
+    }
+
+    public void setDatamark0(String datamark0) {
+        this.datamark0 = datamark0;
+    }
+
+    public String getDatamark1() {
+        return datamark1;
+    }
+
+    public void setDatamark1(String datamark1) {
+        this.datamark1 = datamark1;
+    }
+
+    public String getDatamark2() {
+        return datamark2;
+    }
+
+    public void setDatamark2(String datamark2) {
+        this.datamark2 = datamark2;
+    }
+
+    public String getDatamark3() {
+        return datamark3;
+    }
+
+    public void setDatamark3(String datamark3) {
+        this.datamark3 = datamark3;
+    }
+
+    public String getDatamark4() {
+        return datamark4;
+    }
+
+    public void setDatamark4(String datamark4) {
+        this.datamark4 = datamark4;
+    }
+
+    public String getDatamark5() {
+        return datamark5;
+    }
+
+    public void setDatamark5(String datamark5) {
+        this.datamark5 = datamark5;
+    }
+
+    public String getDatamark6() {
+        return datamark6;
+    }
+
+    public void setDatamark6(String datamark6) {
+        this.datamark6 = datamark6;
+    }
+
+    public String getDatamark7() {
+        return datamark7;
+    }
+
+    public void setDatamark7(String datamark7) {
+        this.datamark7 = datamark7;
+    }
+
+    public String getDatamark8() {
+        return datamark8;
+    }
+
+    public void setDatamark8(String datamark8) {
+        this.datamark8 = datamark8;
+    }
+
+    public String getDatamark9() {
+        return datamark9;
+    }
+
+    public void setDatamark9(String datamark9) {
+        this.datamark9 = datamark9;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityWith10Fields{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", datamark0='" + datamark0 + '\'' +
+                ", datamark1='" + datamark1 + '\'' +
+                ", datamark2='" + datamark2 + '\'' +
+                ", datamark3='" + datamark3 + '\'' +
+                ", datamark4='" + datamark4 + '\'' +
+                ", datamark5='" + datamark5 + '\'' +
+                ", datamark6='" + datamark6 + '\'' +
+                ", datamark7='" + datamark7 + '\'' +
+                ", datamark8='" + datamark8 + '\'' +
+                ", datamark9='" + datamark9 + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.dwarfeng.springdatamark.benchmark.entity;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+
+/**
+ * 含有 1 个数据标识字段的实体。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class EntityWith1Field {
+
+    private Long id;
+    private String name;
+
+    @DatamarkField
+    private String datamark0;
+
+    public EntityWith1Field() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDatamark0() {
+        return datamark0;
+    }
+
+    public void setDatamark0(String datamark0) {
+        this.datamark0 = datamark0;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityWith1Field{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", datamark0='" + datamark0 + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,66 @@
+package com.dwarfeng.springdatamark.benchmark.entity;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+
+/**
+ * 含有 2 个数据标识字段的实体。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class EntityWith2Fields {
+
+    private Long id;
+    private String name;
+
+    @DatamarkField
+    private String datamark0;
+
+    @DatamarkField
+    private String datamark1;
+
+    public EntityWith2Fields() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDatamark0() {
+        return datamark0;
+    }
+
+    public void setDatamark0(String datamark0) {
+        this.datamark0 = datamark0;
+    }
+
+    public String getDatamark1() {
+        return datamark1;
+    }
+
+    public void setDatamark1(String datamark1) {
+        this.datamark1 = datamark1;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityWith2Fields{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", datamark0='" + datamark0 + '\'' +
+                ", datamark1='" + datamark1 + '\'' +
+                '}';
+    }
+}
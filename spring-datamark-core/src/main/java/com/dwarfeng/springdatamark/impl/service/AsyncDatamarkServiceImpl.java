@@ -0,0 +1,175 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.impl.util.SharedExecutors;
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import com.dwarfeng.springdatamark.stack.service.AsyncDatamarkService;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 异步数据标识服务的默认实现。
+ *
+ * <p>
+ * 该实现是 {@link DatamarkService} 的适配器，代理服务的调用被提交到执行器中执行。
+ * 如果没有指定执行器，则使用 {@link SharedExecutors#io()}。<br>
+ * 如果代理服务是 {@link DatamarkServiceImpl}，缓存命中时 {@link #get()} 直接在调用线程中返回已完成的结果，
+ * 不会向执行器提交任何任务。
+ *
+ * <p>
+ * 并发的操作会被合并：
+ * <ul>
+ *     <li>缓存未命中时，同一时刻只有一个读取任务在执行，并发的 {@link #get()} 共享该任务的结果。</li>
+ *     <li>同一时刻只有一个刷新任务在执行，并发的 {@link #refresh()} 与 {@link #refreshAndGet()} 共享该任务的结果。
+ *     因此，在刷新任务执行期间发起的刷新请求，得到的可能是该请求发起之前就已经开始的刷新的结果。</li>
+ *     <li>{@link #update(String)} 不会被合并，每一次调用都会提交一个独立的任务。</li>
+ * </ul>
+ * 每个调用者都会得到一个独立的 {@link CompletableFuture}，取消或完成它不会影响其它调用者。
+ *
+ * <p>
+ * 如果执行器拒绝了任务，返回的 {@link CompletableFuture} 以 {@link RejectedExecutionException} 异常完成。
+ *
+ * <p>
+ * 示例配置如下：
+ * <blockquote><pre>
+ * &lt;bean class="com.dwarfeng.springdatamark.impl.service.AsyncDatamarkServiceImpl"&gt;
+ *     &lt;constructor-arg ref="datamarkService"/&gt;
+ * &lt;/bean&gt;
+ * </pre></blockquote>
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class AsyncDatamarkServiceImpl implements AsyncDatamarkService {
+
+    private final DatamarkService datamarkService;
+    private final Executor executor;
+
+    private final AtomicReference<CompletableFuture<String>> inFlightLoad = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<String>> inFlightRefresh = new AtomicReference<>();
+
+    public AsyncDatamarkServiceImpl(@Nonnull DatamarkService datamarkService) {
+        this(datamarkService, SharedExecutors.io());
+    }
+
+    public AsyncDatamarkServiceImpl(@Nonnull DatamarkService datamarkService, @Nonnull Executor executor) {
+        this.datamarkService = datamarkService;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean updateAllowed() {
+        return datamarkService.updateAllowed();
+    }
+
+    @Override
+    public CompletableFuture<String> get() {
+        // 快速路径：缓存命中时直接返回已完成的结果，不切换线程。
+        if (datamarkService instanceof DatamarkServiceImpl) {
+            try {
+                String datamark = ((DatamarkServiceImpl) datamarkService).getIfPresent();
+                if (Objects.nonNull(datamark)) {
+                    return CompletableFuture.completedFuture(datamark);
+                }
+            } catch (DatamarkException e) {
+                CompletableFuture<String> future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+                return future;
+            }
+        }
+        return coalesce(inFlightLoad, datamarkService::get);
+    }
+
+    @Override
+    public CompletableFuture<Void> refresh() {
+        return refreshAndGet().thenApply(datamark -> null);
+    }
+
+    @Override
+    public CompletableFuture<String> refreshAndGet() {
+        return coalesce(inFlightRefresh, datamarkService::refreshAndGet);
+    }
+
+    @Override
+    public CompletableFuture<Void> update(String datamark) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        execute(future, () -> {
+            datamarkService.update(datamark);
+            return null;
+        });
+        return future;
+    }
+
+    /**
+     * 合并并发的操作。
+     *
+     * <p>
+     * 如果存在正在执行的操作，则返回跟随该操作的结果的 CompletableFuture；否则提交新的操作。
+     */
+    private CompletableFuture<String> coalesce(
+            AtomicReference<CompletableFuture<String>> inFlightReference, Callable<String> task
+    ) {
+        while (true) {
+            CompletableFuture<String> inFlight = inFlightReference.get();
+            if (Objects.nonNull(inFlight)) {
+                return follow(inFlight);
+            }
+            CompletableFuture<String> future = new CompletableFuture<>();
+            if (!inFlightReference.compareAndSet(null, future)) {
+                continue;
+            }
+            // 操作完成后解除合并，此后的请求将提交新的操作。
+            future.whenComplete((datamark, throwable) -> inFlightReference.compareAndSet(future, null));
+            execute(future, task);
+            return follow(future);
+        }
+    }
+
+    private <T> void execute(CompletableFuture<T> future, Callable<T> task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> follow(CompletableFuture<T> source) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        source.whenComplete((value, throwable) -> {
+            if (Objects.nonNull(throwable)) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(value);
+            }
+        });
+        return future;
+    }
+
+    public DatamarkService getDatamarkService() {
+        return datamarkService;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncDatamarkServiceImpl{" +
+                "datamarkService=" + datamarkService +
+                ", executor=" + executor +
+                '}';
+    }
+}
@@ -1,12 +1,21 @@
 package com.dwarfeng.springdatamark.impl.service;
 
+import com.dwarfeng.springdatamark.impl.util.FileDatamarkAccessor;
+import com.dwarfeng.springdatamark.impl.util.KeyedDatamarkStorage;
+import com.dwarfeng.springdatamark.impl.util.ResourceFileWatcher;
+import com.dwarfeng.springdatamark.impl.util.ScheduledIoTask;
+import com.dwarfeng.springdatamark.impl.util.SharedExecutors;
+import com.dwarfeng.springdatamark.sdk.metrics.NoOpDatamarkMetrics;
 import com.dwarfeng.springdatamark.sdk.util.DatamarkUtil;
 import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
 import com.dwarfeng.springdatamark.stack.exception.*;
+import com.dwarfeng.springdatamark.stack.metrics.DatamarkMetrics;
 import com.dwarfeng.springdatamark.stack.service.DatamarkService;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -14,216 +23,1403 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.WritableResource;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class DatamarkServiceImpl implements DatamarkService, InitializingBean, ApplicationContextAware {
+/**
+ * 数据标识服务的默认实现。
+ *
+ * <p>
+ * 缓存的数据标识与配置以不可变快照的形式通过 volatile 字段发布，缓存命中时，{@link #get()} 只需一次 volatile 读取，
+ * 不需要获取任何锁。<br>
+ * 所有的写操作（刷新、更新、设置属性）都在同一把锁中发布新的快照，该锁只在发布时短暂持有，持有期间不进行任何 IO。
+ *
+ * <p>
+ * 资源的读取以单飞（single-flight）的方式执行：同一时刻最多只有一个读取在进行，
+ * 缓存未命中的 {@link #get()} 以及并发的刷新操作都会等待正在进行的读取，并共享它的结果或异常，
+ * 因此无论有多少个线程同时等待，一个失败的资源也只会被读取一次。<br>
+ * 资源的读写由另一把 IO 锁串行化，以保证读取不会看到写入到一半的内容，并保证并发的更新按照写入资源的顺序发布。<br>
+ * 每一次更新都会递增更新序号，读取在开始前记录更新序号，如果发布结果时更新序号已经变化，读取的结果会被丢弃，
+ * 因此旧的读取结果永远不会覆盖更新后的数据标识。
+ *
+ * <p>
+ * 如果配置中启用了资源监视，并且资源能够解析为文件系统中的文件，服务会通过共享的 {@link ResourceFileWatcher}
+ * 监视该文件，并在文件内容变化时自动刷新。
+ *
+ * <p>
+ * 如果配置中启用了变更检测，刷新时会首先比较资源的最后修改时间与内容长度，如果与上一次读取时相同，
+ * 则跳过本次读取，直接返回缓存的数据标识。执行与跳过的读取次数可以通过 {@link #getPerformedReloadCount()}
+ * 与 {@link #getSkippedReloadCount()} 获取。
+ *
+ * <p>
+ * 对于文件系统中的资源，服务使用 {@link FileDatamarkAccessor} 通过 NIO 通道读写，读取时复用定长的缓冲区；
+ * 其它资源则使用通用的输入输出流读写。如果配置中启用了原子写入，文件资源会以“临时文件 + 原子移动”的方式写入。
+ *
+ * <p>
+ * 如果配置中启用了延迟写入，{@link #update(String)} 只校验数据标识并立即发布新的数据标识，
+ * 资源的写入在延迟时间到期后提交到共享的 IO 执行器中执行，延迟时间内的多次更新只会写入最后一个数据标识。<br>
+ * 在尚未写入的数据标识写入资源之前，刷新操作不会读取资源，而是直接返回内存中的数据标识。
+ * 可以通过 {@link #flush()} 立即写入尚未写入的数据标识，服务销毁时也会执行一次写入。
+ *
+ * <p>
+ * 默认情况下，刷新失败会立即清除缓存，此后的每一次 {@link #get()} 都会重新读取资源。<br>
+ * 如果配置中的陈旧期限大于 0，刷新失败时服务会在期限内继续提供最后一次成功获取的数据标识；
+ * 如果配置中的失败缓存时间大于 0，刷新失败并且没有可以提供的数据标识时，服务会在该时间内直接抛出最后一次失败的异常。
+ * 两者任意一个生效时，服务都会在后台以指数退避的方式重试刷新，直到刷新成功，重试的读取在共享的 IO 执行器中进行。<br>
+ * 服务是否处于降级状态可以通过 {@link #isDegraded()} 等方法获取。
+ *
+ * <p>
+ * 如果配置中的定时刷新间隔大于 0，服务会通过 {@link ScheduledIoTask} 定时刷新数据标识：调度器只负责计时，
+ * 读取在共享的 IO 执行器中进行，读取完成后才会安排下一次刷新。延迟写入与后台重试也以同样的方式执行。
+ * 首次刷新的时间在一个间隔内随机选取，此后每一次的间隔都会按照配置的抖动比例随机浮动，
+ * 从而避免多个服务在同一时刻集中访问资源。<br>
+ * 服务会统计所有刷新操作（包括定时刷新）的次数、失败次数与耗时，可以通过 {@link #getRefreshCount()} 等方法获取。
+ *
+ * <p>
+ * 如果配置中的资源键不为空，资源中的每一行都是 <code>键=数据标识</code> 的形式，服务通过共享的 {@link KeyedDatamarkStorage}
+ * 读写其中与资源键对应的一行。共享同一个存储的多个服务中，任意一个服务读取资源时，存储都会将解析的结果发布到所有服务的缓存中，
+ * 因此启动与刷新所有服务时只需要一次 IO，在其中一个服务上启用资源监视即可刷新所有的服务。
+ * 该模式下资源总是以原子方式重写，变更检测不会生效。
+ *
+ * <p>
+ * 服务默认在初始化时同步读取资源。如果配置中的初始化模式为并行模式，初始读取会被提交到共享的有界线程池中，
+ * 多个服务的初始读取并行进行，并由 {@link DatamarkServiceInitializer} 在所有单例初始化完成之后统一等待；
+ * 如果初始化模式为懒加载模式，服务初始化时不读取资源，第一次获取数据标识时再读取。
+ *
+ * <p>
+ * 服务通过 {@link DatamarkMetrics} 记录缓存命中情况、刷新与更新的耗时以及抛出的异常，指标以服务的 Bean 名称区分。
+ * 如果没有显式地设置指标记录器，服务会在初始化时使用应用上下文中唯一的 {@link DatamarkMetrics} Bean；
+ * 不存在这样的 Bean 时，服务会跳过所有的指标采集。
+ *
+ * @author DwArFeng
+ * @since 1.0.0
+ */
+public class DatamarkServiceImpl implements DatamarkService, InitializingBean, DisposableBean,
+        ApplicationContextAware, BeanNameAware {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DatamarkServiceImpl.class);
 
-    private DatamarkConfig datamarkConfig;
-    private ApplicationContext applicationContext;
+    private final Lock lock = new ReentrantLock();
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * IO 锁。
+     *
+     * <p>
+     * 串行化资源的读写，并保护资源、文件访问器与资源戳记的缓存。<br>
+     * 需要同时持有两把锁时，总是先获取 IO 锁，再获取 {@link #lock}，因此持有 {@link #lock} 时不会进行任何 IO。
+     */
+    private final Lock ioLock = new ReentrantLock();
 
-    private String cachedDatamark;
+    private volatile Snapshot snapshot = new Snapshot(null, null);
+    private volatile ApplicationContext applicationContext;
+
+    // 以下字段在初始化时确定，此后不再变化。
+    private String beanName = "datamarkService";
+    private DatamarkMetrics datamarkMetrics;
+    private boolean metricsEnabled;
+    private KeyedDatamarkStorage keyedDatamarkStorage;
+    private String resourceKey;
+
+    private ResourceFileWatcher.Registration watchRegistration;
+
+    private final ScheduledIoTask refreshTask = new ScheduledIoTask(
+            "定时刷新", this::runScheduledRefresh, this::scheduleNextRefresh
+    );
+    private final ScheduledIoTask flushTask = new ScheduledIoTask(
+            "延迟写入", this::runScheduledFlush, this::rescheduleFlush
+    );
+    private final ScheduledIoTask retryTask = new ScheduledIoTask(
+            "后台重试", this::runScheduledRetry, this::rescheduleRetry
+    );
+
+    // 以下字段只在持有锁时访问。
+    private String pendingDatamark;
+    private long lastSuccessNanos;
+    private CompletableFuture<String> inFlightLoad;
+    private long updateSequence;
+
+    private volatile CompletableFuture<Void> initFuture;
+
+    // 以下字段只在持有 IO 锁时访问。
+    private Resource cachedResource;
+    private String cachedResourceUrl;
+    private FileDatamarkAccessor cachedFileAccessor;
+    private boolean resourceStampValid;
+    private long resourceLastModified;
+    private long resourceContentLength;
+
+    private final AtomicLong performedReloadCount = new AtomicLong();
+    private final AtomicLong skippedReloadCount = new AtomicLong();
+
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    private final AtomicLong totalRefreshDurationNanos = new AtomicLong();
+    private volatile long lastRefreshDurationNanos;
+    private volatile long maxRefreshDurationNanos;
+
+    private volatile int consecutiveFailureCount;
+    private volatile DatamarkException lastFailure;
 
     public DatamarkServiceImpl() {
     }
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        lock.writeLock().lock();
+        resolveDatamarkMetrics();
+        resolveKeyedDatamarkStorage();
+        String initMode = StringUtils.defaultIfEmpty(
+                snapshot.getDatamarkConfig().getServiceInitMode(), DatamarkConfig.INIT_MODE_SYNC
+        );
+        if (Objects.nonNull(keyedDatamarkStorage) && keyedDatamarkStorage.isLoaded()) {
+            // 共享的存储已经在其它服务初始化时读取了资源，直接使用解析的结果，不再读取资源。
+            try {
+                initFromKeyedDatamarkStorage();
+            } catch (DatamarkException e) {
+                cancelRetryOnInitFailure();
+                throw e;
+            }
+        } else if (DatamarkConfig.INIT_MODE_SYNC.equals(initMode)) {
+            try {
+                readAndUpdateCache();
+            } catch (DatamarkException e) {
+                cancelRetryOnInitFailure();
+                throw e;
+            }
+        } else if (DatamarkConfig.INIT_MODE_PARALLEL.equals(initMode)) {
+            LOGGER.debug("以并行模式初始化, 将读取提交到共享的线程池中...");
+            initFuture = submitInitialLoad();
+        } else if (DatamarkConfig.INIT_MODE_LAZY.equals(initMode)) {
+            LOGGER.debug("以懒加载模式初始化, 第一次获取数据标识时再读取资源...");
+        } else {
+            throw new IllegalArgumentException("非法的初始化模式: " + initMode);
+        }
+        startResourceWatch();
+        startScheduledRefresh();
+    }
+
+    /**
+     * 将初始读取提交到共享的 IO 线程池中。
+     *
+     * <p>
+     * 初始读取以单飞的方式执行，读取完成之前的 {@link #get()} 会等待并共享它的结果。
+     * 线程池拒绝任务时，在当前线程中同步读取。
+     */
+    private CompletableFuture<Void> submitInitialLoad() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                load(false);
+                future.complete(null);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        };
+        try {
+            SharedExecutors.io().execute(task);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("共享的线程池拒绝了初始读取, 在当前线程中同步读取...");
+            task.run();
+        }
+        return future;
+    }
+
+    private void cancelRetryOnInitFailure() {
+        // 初始化失败时服务不会被销毁，因此需要取消已经安排的重试。
+        retryTask.cancel();
+    }
+
+    /**
+     * 等待并行模式下提交的初始读取完成。
+     *
+     * <p>
+     * 如果服务不是以并行模式初始化的，则该方法立即返回。
+     * 通常不需要直接调用该方法，{@link DatamarkServiceInitializer} 会在所有单例初始化完成之后统一等待。
+     *
+     * @throws DatamarkException 初始读取失败时抛出。
+     * @since 1.2.0
+     */
+    public void awaitInitialization() throws DatamarkException {
+        CompletableFuture<Void> future = initFuture;
+        if (Objects.isNull(future)) {
+            return;
+        }
         try {
-            readAndUpdateCache();
+            awaitLoad(future);
+        } catch (DatamarkException e) {
+            cancelRetryOnInitFailure();
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        lock.lock();
+        try {
+            stopResourceWatch();
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
+        }
+        refreshTask.stop();
+        retryTask.stop();
+        flushTask.stop();
+        try {
+            flushPending();
+        } catch (DatamarkException e) {
+            LOGGER.warn("服务销毁时写入尚未写入的数据标识失败, 该数据标识将会丢失, 异常信息如下: ", e);
+        }
+        if (Objects.nonNull(keyedDatamarkStorage)) {
+            keyedDatamarkStorage.unregister(resourceKey);
         }
     }
 
     @Override
     public boolean updateAllowed() {
-        return datamarkConfig.isServiceUpdateAllowed();
+        return snapshot.getDatamarkConfig().isServiceUpdateAllowed();
     }
 
     @Override
     public String get() throws DatamarkException {
-        lock.readLock().lock();
-        try {
-            if (isCached()) {
-                return cachedDatamark;
-            }
-        } finally {
-            lock.readLock().unlock();
+        if (!metricsEnabled) {
+            return doGet();
         }
-        lock.writeLock().lock();
         try {
-            if (isCached()) {
-                return cachedDatamark;
+            return doGet();
+        } catch (DatamarkException e) {
+            datamarkMetrics.recordException(beanName, e);
+            throw e;
+        }
+    }
+
+    private String doGet() throws DatamarkException {
+        // 快速路径：缓存命中时，只需一次 volatile 读取。
+        String datamark = cachedDatamark(snapshot);
+        if (Objects.nonNull(datamark)) {
+            if (metricsEnabled) {
+                datamarkMetrics.recordGet(beanName, true);
             }
-            readAndUpdateCache();
-            return cachedDatamark;
-        } finally {
-            lock.writeLock().unlock();
+            return datamark;
         }
+        // 慢速路径：缓存未命中，加入正在进行的读取，或者发起新的读取。
+        return load(true);
     }
 
     @Override
     public void refresh() throws DatamarkException {
-        lock.writeLock().lock();
         try {
-            readAndUpdateCache();
-        } finally {
-            lock.writeLock().unlock();
+            load(false);
+        } catch (DatamarkException e) {
+            recordException(e);
+            throw e;
         }
     }
 
     @Override
     public String refreshAndGet() throws DatamarkException {
-        lock.writeLock().lock();
         try {
-            readAndUpdateCache();
-            return cachedDatamark;
-        } finally {
-            lock.writeLock().unlock();
+            return load(false);
+        } catch (DatamarkException e) {
+            recordException(e);
+            throw e;
         }
     }
 
     @Override
     public void update(String datamark) throws DatamarkException {
-        lock.writeLock().lock();
+        if (!metricsEnabled) {
+            writeAndUpdateCache(datamark);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        boolean succeed = false;
         try {
             writeAndUpdateCache(datamark);
+            succeed = true;
+        } catch (DatamarkException e) {
+            datamarkMetrics.recordException(beanName, e);
+            throw e;
         } finally {
-            lock.writeLock().unlock();
+            datamarkMetrics.recordUpdate(beanName, System.nanoTime() - startNanos, succeed);
         }
     }
 
-    public DatamarkConfig getDatamarkConfig() {
-        lock.readLock().lock();
+    /**
+     * 获取缓存中可以直接提供的数据标识。
+     *
+     * <p>
+     * 该方法不会读取资源，也不会获取任何锁，适合在不允许阻塞的线程中调用。
+     *
+     * @return 缓存中可以直接提供的数据标识，缓存未命中时返回 <code>null</code>。
+     * @throws DatamarkException 缓存中的失败结果尚未过期时，抛出该失败结果。
+     * @since 1.2.0
+     */
+    @Nullable
+    public String getIfPresent() throws DatamarkException {
+        String datamark;
         try {
-            return datamarkConfig;
-        } finally {
-            lock.readLock().unlock();
+            datamark = cachedDatamark(snapshot);
+        } catch (DatamarkException e) {
+            recordException(e);
+            throw e;
         }
+        if (Objects.nonNull(datamark) && metricsEnabled) {
+            datamarkMetrics.recordGet(beanName, true);
+        }
+        return datamark;
     }
 
-    public void setDatamarkConfig(DatamarkConfig datamarkConfig) {
-        lock.writeLock().lock();
+    /**
+     * 立即将尚未写入的数据标识写入资源。
+     *
+     * <p>
+     * 仅在启用延迟写入时有意义，如果没有尚未写入的数据标识，则该方法不执行任何操作。
+     *
+     * @throws DatamarkException 数据标识异常。
+     * @since 1.2.0
+     */
+    public void flush() throws DatamarkException {
+        flushTask.cancel();
         try {
-            this.datamarkConfig = datamarkConfig;
-        } finally {
-            lock.writeLock().unlock();
+            flushPending();
+        } catch (DatamarkException e) {
+            recordException(e);
+            throw e;
         }
     }
 
-    public ApplicationContext getApplicationContext() {
-        lock.readLock().lock();
+    /**
+     * 获取实际执行的资源读取次数。
+     *
+     * @return 实际执行的资源读取次数。
+     * @since 1.2.0
+     */
+    public long getPerformedReloadCount() {
+        return performedReloadCount.get();
+    }
+
+    /**
+     * 获取由于变更检测而跳过的资源读取次数。
+     *
+     * @return 由于变更检测而跳过的资源读取次数。
+     * @since 1.2.0
+     */
+    public long getSkippedReloadCount() {
+        return skippedReloadCount.get();
+    }
+
+    /**
+     * 获取服务是否处于降级状态。
+     *
+     * <p>
+     * 最近一次刷新失败，并且此后没有成功获取数据标识时，服务处于降级状态。
+     * 此时服务提供的可能是陈旧的数据标识，也可能直接抛出最后一次失败的异常。
+     *
+     * @return 服务是否处于降级状态。
+     * @since 1.2.0
+     */
+    public boolean isDegraded() {
+        return consecutiveFailureCount > 0;
+    }
+
+    /**
+     * 获取连续失败的刷新次数。
+     *
+     * @return 连续失败的刷新次数，服务不处于降级状态时为 0。
+     * @since 1.2.0
+     */
+    public int getConsecutiveFailureCount() {
+        return consecutiveFailureCount;
+    }
+
+    /**
+     * 获取最后一次刷新失败的异常。
+     *
+     * @return 最后一次刷新失败的异常，服务不处于降级状态时为 <code>null</code>。
+     * @since 1.2.0
+     */
+    @Nullable
+    public DatamarkException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * 获取刷新操作的执行次数。
+     *
+     * <p>
+     * 刷新操作包括手动刷新、定时刷新、后台重试、资源变化触发的刷新以及缓存未命中时的读取。
+     *
+     * @return 刷新操作的执行次数。
+     * @since 1.2.0
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * 获取失败的刷新操作的次数。
+     *
+     * @return 失败的刷新操作的次数。
+     * @since 1.2.0
+     */
+    public long getRefreshFailureCount() {
+        return refreshFailureCount.get();
+    }
+
+    /**
+     * 获取所有刷新操作的总耗时，单位为纳秒。
+     *
+     * @return 所有刷新操作的总耗时。
+     * @since 1.2.0
+     */
+    public long getTotalRefreshDurationNanos() {
+        return totalRefreshDurationNanos.get();
+    }
+
+    /**
+     * 获取最近一次刷新操作的耗时，单位为纳秒。
+     *
+     * @return 最近一次刷新操作的耗时。
+     * @since 1.2.0
+     */
+    public long getLastRefreshDurationNanos() {
+        return lastRefreshDurationNanos;
+    }
+
+    /**
+     * 获取耗时最长的刷新操作的耗时，单位为纳秒。
+     *
+     * @return 耗时最长的刷新操作的耗时。
+     * @since 1.2.0
+     */
+    public long getMaxRefreshDurationNanos() {
+        return maxRefreshDurationNanos;
+    }
+
+    public DatamarkConfig getDatamarkConfig() {
+        return snapshot.getDatamarkConfig();
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    @Override
+    public void setBeanName(@Nonnull String beanName) {
+        this.beanName = beanName;
+    }
+
+    public DatamarkMetrics getDatamarkMetrics() {
+        return datamarkMetrics;
+    }
+
+    /**
+     * 设置指标记录器。
+     *
+     * <p>
+     * 该方法需要在服务初始化之前调用。如果没有调用该方法，服务会在初始化时使用应用上下文中唯一的 {@link DatamarkMetrics} Bean。
+     *
+     * @param datamarkMetrics 指标记录器。
+     * @since 1.2.0
+     */
+    public void setDatamarkMetrics(DatamarkMetrics datamarkMetrics) {
+        this.datamarkMetrics = datamarkMetrics;
+    }
+
+    public KeyedDatamarkStorage getKeyedDatamarkStorage() {
+        return keyedDatamarkStorage;
+    }
+
+    /**
+     * 设置共享的键值数据标识存储。
+     *
+     * <p>
+     * 该方法需要在服务初始化之前调用，仅在配置中的资源键不为空时有意义。
+     * 如果没有调用该方法，服务会在初始化时根据配置中的资源地址与字符集创建一个独占的存储。
+     *
+     * @param keyedDatamarkStorage 键值数据标识存储。
+     * @since 1.2.0
+     */
+    public void setKeyedDatamarkStorage(KeyedDatamarkStorage keyedDatamarkStorage) {
+        this.keyedDatamarkStorage = keyedDatamarkStorage;
+    }
+
+    public void setDatamarkConfig(DatamarkConfig datamarkConfig) {
+        lock.lock();
         try {
-            return applicationContext;
+            snapshot = snapshot.withDatamarkConfig(datamarkConfig);
         } finally {
-            lock.readLock().unlock();
+            lock.unlock();
         }
     }
 
+    public ApplicationContext getApplicationContext() {
+        return applicationContext;
+    }
+
     @Override
     public void setApplicationContext(@Nonnull ApplicationContext applicationContext) {
-        lock.writeLock().lock();
+        lock.lock();
         try {
             this.applicationContext = applicationContext;
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
+        }
+    }
+
+    private void startResourceWatch() throws Exception {
+        DatamarkConfig datamarkConfig = snapshot.getDatamarkConfig();
+        if (!datamarkConfig.isResourceWatchEnabled()) {
+            return;
+        }
+        Resource resource;
+        ioLock.lock();
+        try {
+            resource = resolveResource(datamarkConfig);
+        } finally {
+            ioLock.unlock();
+        }
+        if (!resource.isFile()) {
+            LOGGER.warn("资源 {} 不是文件系统中的文件, 无法监视其变化, 资源监视将不会生效", datamarkConfig.getResourceUrl());
+            return;
+        }
+        watchRegistration = ResourceFileWatcher.getInstance().register(
+                resource.getFile().toPath(), datamarkConfig.getResourceWatchDebounce(), this::onResourceChanged
+        );
+    }
+
+    private void stopResourceWatch() {
+        if (Objects.isNull(watchRegistration)) {
+            return;
+        }
+        watchRegistration.cancel();
+        watchRegistration = null;
+    }
+
+    private void onResourceChanged() {
+        LOGGER.debug("资源文件内容发生变化, 自动刷新数据标识...");
+        try {
+            refresh();
+        } catch (DatamarkException e) {
+            LOGGER.warn("资源文件内容发生变化后自动刷新数据标识失败, 异常信息如下: ", e);
+        }
+    }
+
+    private void resolveDatamarkMetrics() {
+        if (Objects.isNull(datamarkMetrics)) {
+            datamarkMetrics = applicationContext.getBeanProvider(DatamarkMetrics.class)
+                    .getIfUnique(NoOpDatamarkMetrics::getInstance);
+        }
+        metricsEnabled = !(datamarkMetrics instanceof NoOpDatamarkMetrics);
+        LOGGER.debug("使用指标记录器 {}", datamarkMetrics);
+    }
+
+    private void resolveKeyedDatamarkStorage() {
+        DatamarkConfig datamarkConfig = snapshot.getDatamarkConfig();
+        if (StringUtils.isEmpty(datamarkConfig.getResourceKey())) {
+            keyedDatamarkStorage = null;
+            return;
+        }
+        resourceKey = datamarkConfig.getResourceKey();
+        if (Objects.isNull(keyedDatamarkStorage)) {
+            keyedDatamarkStorage = new KeyedDatamarkStorage();
+            keyedDatamarkStorage.setResourceUrl(datamarkConfig.getResourceUrl());
+            keyedDatamarkStorage.setResourceCharset(datamarkConfig.getResourceCharset());
+            keyedDatamarkStorage.setResourceLoader(applicationContext);
+        }
+        keyedDatamarkStorage.register(resourceKey, this::onKeyedDatamarkLoaded);
+        LOGGER.debug("使用键值数据标识存储 {}, 资源键为 {}", keyedDatamarkStorage, resourceKey);
+    }
+
+    private void initFromKeyedDatamarkStorage() throws DatamarkException {
+        String datamark = StringUtils.trim(keyedDatamarkStorage.getLoadedDatamark(resourceKey));
+        if (!DatamarkUtil.isDatamarkValid(datamark)) {
+            LOGGER.warn("数据标识不合法, 将抛出异常");
+            throw new IllegalDatamarkException(datamark);
+        }
+        lock.lock();
+        try {
+            publishUpdate(snapshot.getDatamarkConfig(), datamark);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 接收共享的存储解析的数据标识。
+     *
+     * <p>
+     * 该方法由存储在读取资源的线程中调用，此时存储持有它的 IO 锁，而本服务的锁不会在 IO 期间持有，因此不会死锁。<br>
+     * 发布时递增更新序号，使本服务正在进行的、可能读取了更旧内容的读取结果被丢弃。
+     */
+    private void onKeyedDatamarkLoaded(String datamark) {
+        datamark = StringUtils.trim(datamark);
+        if (!DatamarkUtil.isDatamarkValid(datamark)) {
+            LOGGER.debug("共享存储中的数据标识 {} 不合法, 忽略本次发布, 服务刷新时将会抛出异常", datamark);
+            return;
+        }
+        lock.lock();
+        try {
+            if (Objects.nonNull(pendingDatamark)) {
+                LOGGER.debug("存在尚未写入资源的数据标识, 忽略共享存储发布的数据标识...");
+                return;
+            }
+            if (Objects.isNull(snapshot.getDatamarkConfig())) {
+                return;
+            }
+            publishUpdate(snapshot.getDatamarkConfig(), datamark);
+        } finally {
+            lock.unlock();
         }
     }
 
-    private boolean isCached() {
-        return Objects.nonNull(cachedDatamark);
+    private void recordException(DatamarkException e) {
+        if (metricsEnabled) {
+            datamarkMetrics.recordException(beanName, e);
+        }
     }
 
-    // 为了代码的可阅读性，此处不做简化。
-    @SuppressWarnings("ConstantValue")
-    private void readAndUpdateCache() throws DatamarkException {
+    private void startScheduledRefresh() {
+        long interval = snapshot.getDatamarkConfig().getServiceRefreshInterval();
+        if (interval <= 0) {
+            return;
+        }
+        // 首次刷新的时间在一个间隔内随机选取，避免同时启动的多个服务同时刷新。
+        long initialDelay = ScheduledIoTask.initialDelay(interval);
+        LOGGER.debug("启用定时刷新, 间隔 {} 毫秒, 首次刷新将在 {} 毫秒后执行", interval, initialDelay);
+        refreshTask.schedule(initialDelay);
+    }
+
+    private void runScheduledRefresh() {
+        try {
+            load(false);
+        } catch (DatamarkException e) {
+            LOGGER.warn("定时刷新数据标识失败, 异常信息如下: ", e);
+        } finally {
+            scheduleNextRefresh();
+        }
+    }
+
+    private void scheduleNextRefresh() {
+        // 刷新期间服务可能已经被销毁，此时任务已经停止，不会再被安排。
+        DatamarkConfig datamarkConfig = snapshot.getDatamarkConfig();
+        refreshTask.schedule(ScheduledIoTask.jitteredDelay(
+                datamarkConfig.getServiceRefreshInterval(), datamarkConfig.getServiceRefreshJitter()
+        ));
+    }
+
+    /**
+     * 以单飞的方式读取资源并更新缓存。
+     *
+     * <p>
+     * 如果已经存在正在进行的读取，则等待该读取完成，并共享它的结果或异常；否则由当前线程发起读取。
+     *
+     * @param cacheFirst 是否优先使用缓存，为 <code>true</code> 时，如果缓存命中则直接返回缓存中的数据标识。
+     * @return 数据标识。
+     * @throws DatamarkException 数据标识异常。
+     */
+    private String load(boolean cacheFirst) throws DatamarkException {
+        CompletableFuture<String> flight;
+        boolean leader = false;
+        lock.lock();
+        try {
+            if (cacheFirst) {
+                String datamark = cachedDatamark(snapshot);
+                if (Objects.nonNull(datamark)) {
+                    if (metricsEnabled) {
+                        datamarkMetrics.recordGet(beanName, true);
+                    }
+                    return datamark;
+                }
+                if (metricsEnabled) {
+                    datamarkMetrics.recordGet(beanName, false);
+                }
+            }
+            flight = inFlightLoad;
+            if (Objects.isNull(flight)) {
+                flight = new CompletableFuture<>();
+                inFlightLoad = flight;
+                leader = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!leader) {
+            LOGGER.debug("等待正在进行的读取...");
+            return awaitLoad(flight);
+        }
+        String datamark;
+        try {
+            datamark = readAndUpdateCache();
+        } catch (Throwable t) {
+            endLoad(flight);
+            flight.completeExceptionally(t);
+            throw t;
+        }
+        endLoad(flight);
+        flight.complete(datamark);
+        return datamark;
+    }
+
+    private void endLoad(CompletableFuture<String> flight) {
+        lock.lock();
+        try {
+            if (inFlightLoad == flight) {
+                inFlightLoad = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <T> T awaitLoad(CompletableFuture<T> flight) throws DatamarkException {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DatamarkException) {
+                throw (DatamarkException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private String readAndUpdateCache() throws DatamarkException {
+        long startNanos = System.nanoTime();
+        boolean succeed = false;
+        try {
+            String datamark = doReadAndUpdateCache();
+            succeed = true;
+            return datamark;
+        } finally {
+            long durationNanos = System.nanoTime() - startNanos;
+            refreshCount.incrementAndGet();
+            if (!succeed) {
+                refreshFailureCount.incrementAndGet();
+            }
+            totalRefreshDurationNanos.addAndGet(durationNanos);
+            lastRefreshDurationNanos = durationNanos;
+            if (durationNanos > maxRefreshDurationNanos) {
+                maxRefreshDurationNanos = durationNanos;
+            }
+            if (metricsEnabled) {
+                datamarkMetrics.recordRefresh(beanName, durationNanos, succeed);
+            }
+        }
+    }
+
+    private String doReadAndUpdateCache() throws DatamarkException {
         LOGGER.debug("刷新并更新缓存...");
-        String tempDatamark;
-        LOGGER.debug("读取资源中的内容...");
-        Resource resource = applicationContext.getResource(datamarkConfig.getResourceUrl());
-        try (
-                InputStream in = resource.getInputStream();
-                Scanner scanner = new Scanner(in, datamarkConfig.getResourceCharset())
-        ) {
-            if (!scanner.hasNextLine()) {
-                LOGGER.debug("资源中没有下一行内容, 将 tempDatamark 设置为空字符串...");
-                tempDatamark = StringUtils.EMPTY;
-            } else {
-                LOGGER.debug("资源中有下一行内容, 将 tempDatamark 设置为下一行的 trimmed 内容...");
-                tempDatamark = StringUtils.trim(scanner.nextLine());
+        // 第一阶段：在锁中确定本次读取使用的配置，并记录当前的更新序号。
+        DatamarkConfig datamarkConfig;
+        long sequence;
+        boolean cached;
+        lock.lock();
+        try {
+            if (Objects.nonNull(pendingDatamark)) {
+                LOGGER.debug("存在尚未写入资源的数据标识, 跳过本次读取...");
+                return pendingDatamark;
+            }
+            datamarkConfig = snapshot.getDatamarkConfig();
+            sequence = updateSequence;
+            cached = Objects.nonNull(snapshot.getDatamark());
+        } finally {
+            lock.unlock();
+        }
+        // 第二阶段：在锁外读取资源，读取期间 get() 不会被阻塞。
+        ReadResult readResult = readResourceExclusively(datamarkConfig, cached);
+        // 第三阶段：在锁中发布读取的结果。
+        lock.lock();
+        try {
+            if (sequence != updateSequence) {
+                LOGGER.debug("读取期间数据标识已被更新, 丢弃本次读取的结果...");
+                return snapshot.getDatamark();
+            }
+            if (readResult.isUnchanged()) {
+                LOGGER.debug("资源的修改时间与内容长度没有变化, 跳过本次读取...");
+                skippedReloadCount.incrementAndGet();
+                return snapshot.getDatamark();
+            }
+            if (Objects.nonNull(readResult.getFailure())) {
+                throw handleReadFailure(datamarkConfig, readResult.getFailure());
+            }
+            LOGGER.debug("更新缓存内容为 tempDatamark...");
+            publish(datamarkConfig, readResult.getDatamark());
+            return readResult.getDatamark();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在 IO 锁中读取并校验资源中的数据标识。
+     *
+     * @param datamarkConfig 数据标识配置。
+     * @param cached         缓存中是否存在数据标识，用于变更检测。
+     * @return 读取的结果。
+     */
+    private ReadResult readResourceExclusively(DatamarkConfig datamarkConfig, boolean cached) {
+        ioLock.lock();
+        try {
+            if (Objects.nonNull(keyedDatamarkStorage)) {
+                return readKeyedDatamarkStorage(datamarkConfig);
+            }
+            Resource resource = resolveResource(datamarkConfig);
+            if (datamarkConfig.isResourceChangeDetectionEnabled()) {
+                // 无论缓存是否命中，都需要记录资源的最新戳记，以便下一次刷新时比较。
+                boolean resourceChanged = updateResourceStamp(resource);
+                if (cached && !resourceChanged) {
+                    return ReadResult.unchanged();
+                }
+            }
+            performedReloadCount.incrementAndGet();
+            String tempDatamark;
+            LOGGER.debug("读取资源中的内容...");
+            try {
+                tempDatamark = readResource(datamarkConfig, resource);
+            } catch (Exception e) {
+                LOGGER.warn("刷新数据标识时发生异常, 将抛出异常, 异常信息如下: ", e);
+                resourceStampValid = false;
+                return ReadResult.failed(new ResourceReadFailedException(e, datamarkConfig.getResourceUrl()));
+            }
+            LOGGER.debug("校验 tempDatamark 内容...");
+            if (!DatamarkUtil.isDatamarkValid(tempDatamark)) {
+                LOGGER.warn("数据标识不合法, 将抛出异常");
+                resourceStampValid = false;
+                return ReadResult.failed(new IllegalDatamarkException(tempDatamark));
             }
+            return ReadResult.succeed(tempDatamark);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private ReadResult readKeyedDatamarkStorage(DatamarkConfig datamarkConfig) {
+        performedReloadCount.incrementAndGet();
+        String tempDatamark;
+        LOGGER.debug("通过共享的存储读取资源中的内容...");
+        try {
+            Map<String, String> datamarks = keyedDatamarkStorage.load();
+            tempDatamark = StringUtils.trim(datamarks.getOrDefault(resourceKey, StringUtils.EMPTY));
         } catch (Exception e) {
-            LOGGER.warn("刷新数据标识时发生异常, 将清除缓存并抛出异常, 异常信息如下: ", e);
-            cachedDatamark = null;
-            LOGGER.debug("最新缓存内容为: {}", cachedDatamark);
-            throw new ResourceReadFailedException(e, datamarkConfig.getResourceUrl());
+            LOGGER.warn("刷新数据标识时发生异常, 将抛出异常, 异常信息如下: ", e);
+            return ReadResult.failed(new ResourceReadFailedException(e, datamarkConfig.getResourceUrl()));
         }
         LOGGER.debug("校验 tempDatamark 内容...");
         if (!DatamarkUtil.isDatamarkValid(tempDatamark)) {
-            LOGGER.warn("数据标识不合法, 将清除缓存并抛出异常");
-            cachedDatamark = null;
-            LOGGER.debug("最新缓存内容为: {}", cachedDatamark);
-            throw new IllegalDatamarkException(tempDatamark);
+            LOGGER.warn("数据标识不合法, 将抛出异常");
+            return ReadResult.failed(new IllegalDatamarkException(tempDatamark));
         }
-        LOGGER.debug("更新缓存内容为 tempDatamark...");
-        cachedDatamark = tempDatamark;
-        LOGGER.debug("最新缓存内容为: {}", cachedDatamark);
+        return ReadResult.succeed(tempDatamark);
     }
 
     private void writeAndUpdateCache(String datamark) throws DatamarkException {
         LOGGER.debug("写入并更新缓存...");
+        DatamarkConfig datamarkConfig = snapshot.getDatamarkConfig();
         LOGGER.debug("确认服务允许更新...");
         if (!datamarkConfig.isServiceUpdateAllowed()) {
-            LOGGER.debug("最新缓存内容为: {}", cachedDatamark);
+            LOGGER.debug("最新缓存内容为: {}", snapshot.getDatamark());
             throw new UpdateNotAllowedException();
         }
         LOGGER.debug("Trim datamark, 并校验 datamark 内容...");
         datamark = StringUtils.trim(datamark);
         if (!DatamarkUtil.isDatamarkValid(datamark)) {
             LOGGER.warn("数据标识不合法, 将抛出异常");
-            LOGGER.debug("最新缓存内容为: {}", cachedDatamark);
+            LOGGER.debug("最新缓存内容为: {}", snapshot.getDatamark());
             throw new IllegalDatamarkException(datamark);
         }
         LOGGER.debug("验证资源是否可写...");
-        Resource resource = applicationContext.getResource(datamarkConfig.getResourceUrl());
-        if (!(resource instanceof WritableResource)) {
+        if (!isResourceWritable(datamarkConfig)) {
             LOGGER.warn("资源不可写, 将抛出异常");
-            LOGGER.debug("最新缓存内容为: {}", cachedDatamark);
+            LOGGER.debug("最新缓存内容为: {}", snapshot.getDatamark());
             throw new ResourceNotWritableException(datamarkConfig.getResourceUrl());
         }
-        LOGGER.debug("向资源中写入内容...");
+        if (datamarkConfig.isServiceWriteBehindEnabled()) {
+            LOGGER.debug("延迟写入已启用, 更新缓存内容为 datamark, 并安排资源的写入...");
+            lock.lock();
+            try {
+                pendingDatamark = datamark;
+                publishUpdate(datamarkConfig, datamark);
+                flushTask.schedule(datamarkConfig.getServiceWriteBehindDelay());
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        // 在 IO 锁中写入并发布，使并发的更新按照写入资源的顺序发布；写入期间缓存命中的读取不受影响。
+        ioLock.lock();
+        try {
+            LOGGER.debug("向资源中写入内容...");
+            writeResourceAndUpdateStamp(datamarkConfig, datamark);
+            LOGGER.debug("更新缓存内容为 datamark...");
+            lock.lock();
+            try {
+                publishUpdate(datamarkConfig, datamark);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private boolean isResourceWritable(DatamarkConfig datamarkConfig) {
+        ioLock.lock();
+        try {
+            if (Objects.nonNull(keyedDatamarkStorage)) {
+                return keyedDatamarkStorage.isWritable();
+            }
+            return resolveResource(datamarkConfig) instanceof WritableResource;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private void writeResourceAndUpdateStamp(DatamarkConfig datamarkConfig, String datamark)
+            throws DatamarkException {
+        ioLock.lock();
+        try {
+            if (Objects.nonNull(keyedDatamarkStorage)) {
+                try {
+                    keyedDatamarkStorage.write(resourceKey, datamark);
+                } catch (Exception e) {
+                    LOGGER.warn("写入数据标识时发生异常, 将抛出异常, 异常信息如下: ", e);
+                    throw new ResourceWriteFailedException(e, datamarkConfig.getResourceUrl());
+                }
+                return;
+            }
+            Resource resource = resolveResource(datamarkConfig);
+            if (!(resource instanceof WritableResource)) {
+                throw new ResourceNotWritableException(datamarkConfig.getResourceUrl());
+            }
+            try {
+                writeResource(datamarkConfig, (WritableResource) resource, datamark);
+            } catch (Exception e) {
+                LOGGER.warn("写入数据标识时发生异常, 将抛出异常, 异常信息如下: ", e);
+                LOGGER.debug("最新缓存内容为: {}", snapshot.getDatamark());
+                throw new ResourceWriteFailedException(e, datamarkConfig.getResourceUrl());
+            }
+            if (datamarkConfig.isResourceChangeDetectionEnabled()) {
+                updateResourceStamp(resource);
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private void runScheduledFlush() {
+        try {
+            flushPending();
+        } catch (DatamarkException e) {
+            LOGGER.warn("延迟写入数据标识失败, 将在延迟时间后重试, 异常信息如下: ", e);
+            rescheduleFlush();
+        }
+    }
+
+    private void rescheduleFlush() {
+        lock.lock();
+        try {
+            // 期间数据标识可能已经通过其它途径写入。
+            if (Objects.isNull(pendingDatamark)) {
+                return;
+            }
+            // 已经安排了写入时，不再重复安排，届时会写入最新的数据标识。
+            flushTask.schedule(snapshot.getDatamarkConfig().getServiceWriteBehindDelay());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushPending() throws DatamarkException {
+        ioLock.lock();
+        try {
+            // 在 IO 锁中获取尚未写入的数据标识，保证多个并发的写入按照更新的顺序进行。
+            String datamark;
+            DatamarkConfig datamarkConfig;
+            lock.lock();
+            try {
+                datamark = pendingDatamark;
+                datamarkConfig = snapshot.getDatamarkConfig();
+            } finally {
+                lock.unlock();
+            }
+            if (Objects.isNull(datamark)) {
+                return;
+            }
+            LOGGER.debug("将尚未写入的数据标识 {} 写入资源...", datamark);
+            writeResourceAndUpdateStamp(datamarkConfig, datamark);
+            lock.lock();
+            try {
+                // 写入期间可能产生了新的尚未写入的数据标识，此时保留它，等待下一次写入。
+                if (pendingDatamark == datamark) {
+                    pendingDatamark = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private String readResource(DatamarkConfig datamarkConfig, Resource resource) throws Exception {
+        FileDatamarkAccessor fileAccessor = resolveFileAccessor(datamarkConfig, resource);
+        if (Objects.nonNull(fileAccessor)) {
+            String datamark = fileAccessor.readFirstLine();
+            if (Objects.nonNull(datamark)) {
+                return datamark;
+            }
+            LOGGER.debug("资源的第一行超出了读取缓冲区的容量, 回退到通用的读取方式...");
+        }
+        try (
+                InputStream in = resource.getInputStream();
+                Scanner scanner = new Scanner(in, datamarkConfig.getResourceCharset())
+        ) {
+            if (!scanner.hasNextLine()) {
+                LOGGER.debug("资源中没有下一行内容, 将 tempDatamark 设置为空字符串...");
+                return StringUtils.EMPTY;
+            } else {
+                LOGGER.debug("资源中有下一行内容, 将 tempDatamark 设置为下一行的 trimmed 内容...");
+                return StringUtils.trim(scanner.nextLine());
+            }
+        }
+    }
+
+    private void writeResource(DatamarkConfig datamarkConfig, WritableResource resource, String datamark)
+            throws Exception {
+        FileDatamarkAccessor fileAccessor = resolveFileAccessor(datamarkConfig, resource);
+        if (Objects.nonNull(fileAccessor)) {
+            if (datamarkConfig.isResourceAtomicWriteEnabled()) {
+                fileAccessor.writeAtomically(datamark, datamarkConfig.isResourceSyncWriteEnabled());
+            } else {
+                fileAccessor.write(datamark, datamarkConfig.isResourceSyncWriteEnabled());
+            }
+            return;
+        }
         try (
-                OutputStream out = ((WritableResource) resource).getOutputStream();
+                OutputStream out = resource.getOutputStream();
                 PrintStream ps = new PrintStream(out, false, datamarkConfig.getResourceCharset())
         ) {
             ps.println(datamark);
+        }
+    }
+
+    /**
+     * 获取资源对应的文件数据标识访问器。
+     *
+     * @return 资源对应的文件数据标识访问器，如果资源不是文件系统中的文件，则返回 <code>null</code>。
+     */
+    @Nullable
+    private FileDatamarkAccessor resolveFileAccessor(DatamarkConfig datamarkConfig, Resource resource)
+            throws Exception {
+        if (!resource.isFile()) {
+            return null;
+        }
+        Charset charset = Charset.forName(datamarkConfig.getResourceCharset());
+        if (Objects.isNull(cachedFileAccessor) || !Objects.equals(cachedFileAccessor.getCharset(), charset)) {
+            cachedFileAccessor = new FileDatamarkAccessor(resource.getFile().toPath(), charset);
+        }
+        return cachedFileAccessor;
+    }
+
+    private Resource resolveResource(DatamarkConfig datamarkConfig) {
+        String resourceUrl = datamarkConfig.getResourceUrl();
+        if (Objects.isNull(cachedResource) || !Objects.equals(cachedResourceUrl, resourceUrl)) {
+            cachedResource = applicationContext.getResource(resourceUrl);
+            cachedResourceUrl = resourceUrl;
+            cachedFileAccessor = null;
+            resourceStampValid = false;
+        }
+        return cachedResource;
+    }
+
+    /**
+     * 记录资源最新的修改时间与内容长度，并返回它们与上一次记录的值相比是否发生了变化。
+     *
+     * <p>
+     * 如果无法获取资源的修改时间或内容长度，则认为资源发生了变化。
+     */
+    private boolean updateResourceStamp(Resource resource) {
+        long lastModified;
+        long contentLength;
+        try {
+            lastModified = resource.lastModified();
+            contentLength = resource.contentLength();
         } catch (Exception e) {
-            LOGGER.warn("写入数据标识时发生异常, 将抛出异常, 异常信息如下: ", e);
-            LOGGER.debug("最新缓存内容为: {}", cachedDatamark);
-            throw new ResourceWriteFailedException(e, datamarkConfig.getResourceUrl());
+            LOGGER.debug("无法获取资源的修改时间或内容长度, 认为资源发生了变化, 异常信息如下: ", e);
+            resourceStampValid = false;
+            return true;
+        }
+        boolean changed = !resourceStampValid ||
+                lastModified != resourceLastModified || contentLength != resourceContentLength;
+        resourceStampValid = true;
+        resourceLastModified = lastModified;
+        resourceContentLength = contentLength;
+        return changed;
+    }
+
+    /**
+     * 处理刷新失败。
+     *
+     * <p>
+     * 根据配置中的缓存策略，继续提供陈旧的数据标识、缓存失败的结果或者清除缓存，并在需要时安排后台重试。
+     *
+     * @return 参数中的异常，以便调用者直接抛出。
+     */
+    private DatamarkException handleReadFailure(DatamarkConfig datamarkConfig, DatamarkException failure) {
+        consecutiveFailureCount++;
+        lastFailure = failure;
+        long nowNanos = System.nanoTime();
+        String staleDatamark = snapshot.getDatamark();
+        long staleTtlNanos = TimeUnit.MILLISECONDS.toNanos(datamarkConfig.getServiceStaleTtl());
+        long negativeCacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(datamarkConfig.getServiceNegativeCacheTtl());
+        if (staleTtlNanos > 0 && Objects.nonNull(staleDatamark) && nowNanos - lastSuccessNanos < staleTtlNanos) {
+            LOGGER.warn("刷新数据标识失败, 在陈旧期限内继续提供数据标识 {}", staleDatamark);
+            snapshot = Snapshot.stale(datamarkConfig, staleDatamark, lastSuccessNanos + staleTtlNanos);
+        } else if (negativeCacheTtlNanos > 0) {
+            LOGGER.debug("刷新数据标识失败, 缓存失败的结果...");
+            snapshot = Snapshot.failed(datamarkConfig, failure, nowNanos + negativeCacheTtlNanos);
+        } else {
+            LOGGER.debug("刷新数据标识失败, 清除缓存...");
+            snapshot = new Snapshot(datamarkConfig, null);
+        }
+        if (staleTtlNanos > 0 || negativeCacheTtlNanos > 0) {
+            scheduleRetry(datamarkConfig);
+        }
+        return failure;
+    }
+
+    private void scheduleRetry(DatamarkConfig datamarkConfig) {
+        if (retryTask.isScheduled()) {
+            return;
+        }
+        long delay = ScheduledIoTask.backoffDelay(
+                datamarkConfig.getServiceRetryInitialDelay(), datamarkConfig.getServiceRetryMaxDelay(),
+                consecutiveFailureCount
+        );
+        LOGGER.debug("将在 {} 毫秒后重试刷新数据标识...", delay);
+        retryTask.schedule(delay);
+    }
+
+    private void rescheduleRetry() {
+        lock.lock();
+        try {
+            // 期间可能已经通过其它途径成功获取了数据标识。
+            if (consecutiveFailureCount == 0) {
+                return;
+            }
+            scheduleRetry(snapshot.getDatamarkConfig());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runScheduledRetry() {
+        // 重试期间可能已经通过其它途径成功获取了数据标识。
+        if (consecutiveFailureCount == 0) {
+            return;
+        }
+        try {
+            load(false);
+        } catch (DatamarkException e) {
+            LOGGER.debug("后台重试刷新数据标识失败, 异常信息如下: ", e);
+        }
+    }
+
+    /**
+     * 发布更新后的数据标识。
+     *
+     * <p>
+     * 递增更新序号，使在此之前开始的读取的结果被丢弃。
+     */
+    private void publishUpdate(DatamarkConfig datamarkConfig, String datamark) {
+        updateSequence++;
+        publish(datamarkConfig, datamark);
+    }
+
+    private void publish(DatamarkConfig datamarkConfig, String datamark) {
+        snapshot = new Snapshot(datamarkConfig, datamark);
+        lastSuccessNanos = System.nanoTime();
+        if (consecutiveFailureCount > 0) {
+            LOGGER.info("数据标识服务在连续 {} 次失败后恢复正常", consecutiveFailureCount);
+            consecutiveFailureCount = 0;
+            lastFailure = null;
+            retryTask.cancel();
+        }
+        LOGGER.debug("最新缓存内容为: {}", datamark);
+    }
+
+    /**
+     * 获取快照中可以直接提供的数据标识。
+     *
+     * @return 快照中可以直接提供的数据标识，如果快照中的数据标识不存在或者已经超出陈旧期限，则返回 <code>null</code>。
+     * @throws DatamarkException 快照中缓存的失败结果尚未过期时，抛出该失败结果。
+     */
+    @Nullable
+    private static String cachedDatamark(Snapshot snapshot) throws DatamarkException {
+        String datamark = snapshot.getDatamark();
+        if (Objects.nonNull(datamark)) {
+            if (!snapshot.isStale() || System.nanoTime() - snapshot.getDeadlineNanos() < 0) {
+                return datamark;
+            }
+            return null;
+        }
+        DatamarkException failure = snapshot.getFailure();
+        if (Objects.nonNull(failure) && System.nanoTime() - snapshot.getDeadlineNanos() < 0) {
+            throw failure;
         }
-        LOGGER.debug("更新缓存内容为 datamark...");
-        cachedDatamark = datamark;
-        LOGGER.debug("最新缓存内容为: {}", cachedDatamark);
+        return null;
     }
 
     @Override
     public String toString() {
+        Snapshot snapshot = this.snapshot;
         return "DatamarkServiceImpl{" +
-                "datamarkConfig=" + datamarkConfig +
+                "datamarkConfig=" + snapshot.getDatamarkConfig() +
                 ", applicationContext=" + applicationContext +
-                ", cachedDatamark='" + cachedDatamark + '\'' +
+                ", cachedDatamark='" + snapshot.getDatamark() + '\'' +
                 '}';
     }
+
+    /**
+     * 资源的读取结果。
+     */
+    private static final class ReadResult {
+
+        private static final ReadResult UNCHANGED = new ReadResult(null, null, true);
+
+        public static ReadResult succeed(String datamark) {
+            return new ReadResult(datamark, null, false);
+        }
+
+        public static ReadResult failed(DatamarkException failure) {
+            return new ReadResult(null, failure, false);
+        }
+
+        public static ReadResult unchanged() {
+            return UNCHANGED;
+        }
+
+        private final String datamark;
+        private final DatamarkException failure;
+        private final boolean unchanged;
+
+        private ReadResult(String datamark, DatamarkException failure, boolean unchanged) {
+            this.datamark = datamark;
+            this.failure = failure;
+            this.unchanged = unchanged;
+        }
+
+        public String getDatamark() {
+            return datamark;
+        }
+
+        public DatamarkException getFailure() {
+            return failure;
+        }
+
+        public boolean isUnchanged() {
+            return unchanged;
+        }
+
+        @Override
+        public String toString() {
+            return "ReadResult{" +
+                    "datamark='" + datamark + '\'' +
+                    ", failure=" + failure +
+                    ", unchanged=" + unchanged +
+                    '}';
+        }
+    }
+
+    /**
+     * 缓存快照。
+     *
+     * <p>
+     * 快照是不可变的，数据标识为 <code>null</code> 时，代表缓存未命中。<br>
+     * 陈旧的快照中的数据标识只在期限之前有效；失败的快照中没有数据标识，其中的失败结果只在期限之前有效。
+     */
+    private static final class Snapshot {
+
+        public static Snapshot stale(DatamarkConfig datamarkConfig, String datamark, long deadlineNanos) {
+            return new Snapshot(datamarkConfig, datamark, true, null, deadlineNanos);
+        }
+
+        public static Snapshot failed(DatamarkConfig datamarkConfig, DatamarkException failure, long deadlineNanos) {
+            return new Snapshot(datamarkConfig, null, false, failure, deadlineNanos);
+        }
+
+        private final DatamarkConfig datamarkConfig;
+        private final String datamark;
+        private final boolean stale;
+        private final DatamarkException failure;
+        private final long deadlineNanos;
+
+        public Snapshot(DatamarkConfig datamarkConfig, String datamark) {
+            this(datamarkConfig, datamark, false, null, 0L);
+        }
+
+        private Snapshot(
+                DatamarkConfig datamarkConfig, String datamark, boolean stale, DatamarkException failure,
+                long deadlineNanos
+        ) {
+            this.datamarkConfig = datamarkConfig;
+            this.datamark = datamark;
+            this.stale = stale;
+            this.failure = failure;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public Snapshot withDatamarkConfig(DatamarkConfig datamarkConfig) {
+            return new Snapshot(datamarkConfig, datamark, stale, failure, deadlineNanos);
+        }
+
+        public DatamarkConfig getDatamarkConfig() {
+            return datamarkConfig;
+        }
+
+        public String getDatamark() {
+            return datamark;
+        }
+
+        public boolean isStale() {
+            return stale;
+        }
+
+        public DatamarkException getFailure() {
+            return failure;
+        }
+
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "datamarkConfig=" + datamarkConfig +
+                    ", datamark='" + datamark + '\'' +
+                    ", stale=" + stale +
+                    ", failure=" + failure +
+                    ", deadlineNanos=" + deadlineNanos +
+                    '}';
+        }
+    }
 }
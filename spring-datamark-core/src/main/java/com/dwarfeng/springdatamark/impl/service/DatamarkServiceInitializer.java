@@ -0,0 +1,70 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 数据标识服务初始化器。
+ *
+ * <p>
+ * 以并行模式初始化的 {@link DatamarkServiceImpl} 在初始化时只提交初始读取，不等待读取完成。
+ * 该初始化器在所有单例初始化完成之后、应用上下文就绪之前，等待应用上下文中所有数据标识服务的初始读取完成，
+ * 因此多个服务的初始读取能够并行进行，而应用上下文就绪时所有服务的缓存都已经填充。<br>
+ * 任意一个服务的初始读取失败时，初始化器会在等待所有服务之后抛出异常，使应用上下文启动失败，
+ * 其它服务的失败会作为被抑制的异常附加在该异常上。
+ *
+ * <p>
+ * 通过命名空间声明并行模式的服务时，初始化器会被自动注册；手动声明服务时，需要同时声明该初始化器。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkServiceInitializer implements SmartInitializingSingleton, ApplicationContextAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatamarkServiceInitializer.class);
+
+    private ApplicationContext applicationContext;
+
+    public DatamarkServiceInitializer() {
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<String, DatamarkServiceImpl> services = applicationContext.getBeansOfType(
+                DatamarkServiceImpl.class, false, false
+        );
+        long startNanos = System.nanoTime();
+        BeanInitializationException exception = null;
+        for (Map.Entry<String, DatamarkServiceImpl> entry : services.entrySet()) {
+            try {
+                entry.getValue().awaitInitialization();
+            } catch (DatamarkException e) {
+                LOGGER.warn("数据标识服务 {} 初始化失败, 异常信息如下: ", entry.getKey(), e);
+                if (Objects.isNull(exception)) {
+                    exception = new BeanInitializationException("数据标识服务 " + entry.getKey() + " 初始化失败", e);
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (Objects.nonNull(exception)) {
+            throw exception;
+        }
+        LOGGER.debug("{} 个数据标识服务初始化完成, 等待耗时 {} 毫秒", services.size(),
+                (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    @Override
+    public void setApplicationContext(@Nonnull ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+}
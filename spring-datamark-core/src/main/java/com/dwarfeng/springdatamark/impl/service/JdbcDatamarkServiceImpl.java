@@ -0,0 +1,496 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.impl.util.JdbcDatamarkStorage;
+import com.dwarfeng.springdatamark.sdk.metrics.NoOpDatamarkMetrics;
+import com.dwarfeng.springdatamark.sdk.util.DatamarkUtil;
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import com.dwarfeng.springdatamark.stack.exception.*;
+import com.dwarfeng.springdatamark.stack.metrics.DatamarkMetrics;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于 JDBC 数据表的数据标识服务。
+ *
+ * <p>
+ * 数据标识保存在 {@link JdbcDatamarkStorage} 对应的数据表中，以服务的存储键区分，多个节点可以共享同一张数据表，
+ * 不再需要在节点之间同步资源文件。
+ *
+ * <p>
+ * 服务不直接查询数据表：初始化以及刷新时，服务委托存储加载所有注册在其中的键，
+ * 共享同一个存储的多个服务在启动与刷新时只需要一次查询；任意一个服务的刷新都会同时更新其它服务的缓存。<br>
+ * 缓存的数据标识与版本以不可变快照的形式通过 volatile 字段发布，缓存命中时，{@link #get()} 不需要获取任何锁。
+ *
+ * <p>
+ * 更新以乐观锁的方式写入：写入时携带缓存中的版本，如果数据表中的版本已经被其它节点修改，写入不会生效，
+ * 服务会重新加载数据表中的最新内容，并抛出 {@link DatamarkVersionConflictException}，由调用者决定是否重试。<br>
+ * 同一个服务的并发更新在服务内部串行化，不会相互冲突。<br>
+ * 写入数据表时不持有发布快照所用的锁，写入完成后才在锁内发布结果，因此缓存未命中时的读取以及存储的加载通知
+ * 不会等待其它线程的 JDBC 往返。
+ *
+ * <p>
+ * 加载与写入的结果按照存储分配的序号发布：序号比已发布的结果更小的加载在写入提交之前就已经开始，其结果会被丢弃；
+ * 除此之外，加载读到的行总是被接受，即使其版本比缓存中的版本更小（例如行被删除后重新插入），服务也能恢复。
+ *
+ * <p>
+ * 与 {@link DatamarkServiceImpl} 不同，加载失败时服务会继续提供缓存中的数据标识；
+ * 如果数据表中的数据标识不合法，{@link #get()} 会重新加载并抛出异常，直到数据标识被修正。<br>
+ * 数据标识配置中只有 {@link DatamarkConfig#isServiceUpdateAllowed()} 对该服务生效。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class JdbcDatamarkServiceImpl implements DatamarkService, InitializingBean, DisposableBean,
+        ApplicationContextAware, BeanNameAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcDatamarkServiceImpl.class);
+
+    /**
+     * 快照锁。
+     *
+     * <p>
+     * 保证快照的发布不会相互覆盖，持有该锁时不进行任何 JDBC 操作。
+     */
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * 写入锁。
+     *
+     * <p>
+     * 串行化同一个服务的更新，在写入数据表期间持有。加锁顺序为先写入锁，后快照锁。
+     */
+    private final Lock ioLock = new ReentrantLock();
+
+    // 已发布的结果的序号，只在持有快照锁时访问。
+    private long publishedSequence;
+
+    private volatile Snapshot snapshot = new Snapshot(null, null, -1L, null);
+    private volatile ApplicationContext applicationContext;
+
+    // 以下字段在初始化时确定，此后不再变化。
+    private String beanName = "datamarkService";
+    private JdbcDatamarkStorage jdbcDatamarkStorage;
+    private String storageKey;
+    private DatamarkMetrics datamarkMetrics;
+    private boolean metricsEnabled;
+
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    private final AtomicLong versionConflictCount = new AtomicLong();
+
+    public JdbcDatamarkServiceImpl() {
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Objects.requireNonNull(jdbcDatamarkStorage, "jdbcDatamarkStorage 不能为 null");
+        if (StringUtils.isEmpty(storageKey)) {
+            storageKey = beanName;
+        }
+        resolveDatamarkMetrics();
+        jdbcDatamarkStorage.register(storageKey, this::onRowLoaded);
+        // 如果存储已经在其它服务初始化时加载了该键，则直接使用加载的结果，不再查询数据表。
+        JdbcDatamarkStorage.Row row = jdbcDatamarkStorage.getLoadedRow(storageKey);
+        if (Objects.isNull(row)) {
+            loadAndGet();
+        } else {
+            onRowLoaded(row);
+            requireDatamark(snapshot);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        jdbcDatamarkStorage.unregister(storageKey);
+    }
+
+    @Override
+    public boolean updateAllowed() {
+        return snapshot.getDatamarkConfig().isServiceUpdateAllowed();
+    }
+
+    @Override
+    public String get() throws DatamarkException {
+        // 快速路径：缓存命中时，只需一次 volatile 读取。
+        String datamark = snapshot.getDatamark();
+        if (Objects.nonNull(datamark)) {
+            if (metricsEnabled) {
+                datamarkMetrics.recordGet(beanName, true);
+            }
+            return datamark;
+        }
+        if (metricsEnabled) {
+            datamarkMetrics.recordGet(beanName, false);
+        }
+        try {
+            return loadAndGet();
+        } catch (DatamarkException e) {
+            recordException(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void refresh() throws DatamarkException {
+        refreshAndGet();
+    }
+
+    @Override
+    public String refreshAndGet() throws DatamarkException {
+        try {
+            return loadAndGet();
+        } catch (DatamarkException e) {
+            recordException(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void update(String datamark) throws DatamarkException {
+        if (!metricsEnabled) {
+            writeAndUpdateCache(datamark);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        boolean succeed = false;
+        try {
+            writeAndUpdateCache(datamark);
+            succeed = true;
+        } catch (DatamarkException e) {
+            datamarkMetrics.recordException(beanName, e);
+            throw e;
+        } finally {
+            datamarkMetrics.recordUpdate(beanName, System.nanoTime() - startNanos, succeed);
+        }
+    }
+
+    /**
+     * 获取刷新次数，包括初始化与缓存未命中时的加载。
+     *
+     * <p>
+     * 由于加载可能由共享同一个存储的其它服务发起，该值只统计由本服务发起或等待的加载。
+     *
+     * @return 刷新次数。
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * 获取失败的刷新次数。
+     *
+     * @return 失败的刷新次数。
+     */
+    public long getRefreshFailureCount() {
+        return refreshFailureCount.get();
+    }
+
+    /**
+     * 获取更新时发生版本冲突的次数。
+     *
+     * @return 更新时发生版本冲突的次数。
+     */
+    public long getVersionConflictCount() {
+        return versionConflictCount.get();
+    }
+
+    /**
+     * 获取缓存中数据标识的版本。
+     *
+     * @return 缓存中数据标识的版本，数据表中不存在对应的行时返回 -1。
+     */
+    public long getCachedVersion() {
+        return snapshot.getVersion();
+    }
+
+    public DatamarkConfig getDatamarkConfig() {
+        return snapshot.getDatamarkConfig();
+    }
+
+    public void setDatamarkConfig(DatamarkConfig datamarkConfig) {
+        lock.lock();
+        try {
+            snapshot = snapshot.withDatamarkConfig(datamarkConfig);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public JdbcDatamarkStorage getJdbcDatamarkStorage() {
+        return jdbcDatamarkStorage;
+    }
+
+    public void setJdbcDatamarkStorage(JdbcDatamarkStorage jdbcDatamarkStorage) {
+        this.jdbcDatamarkStorage = jdbcDatamarkStorage;
+    }
+
+    public String getStorageKey() {
+        return storageKey;
+    }
+
+    /**
+     * 设置存储键。
+     *
+     * <p>
+     * 存储键是数据表中该服务对应的行的键，没有设置时使用服务的 Bean 名称。
+     *
+     * @param storageKey 存储键。
+     */
+    public void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    @Override
+    public void setBeanName(@Nonnull String beanName) {
+        this.beanName = beanName;
+    }
+
+    public DatamarkMetrics getDatamarkMetrics() {
+        return datamarkMetrics;
+    }
+
+    /**
+     * 设置指标记录器。
+     *
+     * <p>
+     * 该方法需要在服务初始化之前调用。如果没有调用该方法，服务会在初始化时使用应用上下文中唯一的 {@link DatamarkMetrics} Bean。
+     *
+     * @param datamarkMetrics 指标记录器。
+     */
+    public void setDatamarkMetrics(DatamarkMetrics datamarkMetrics) {
+        this.datamarkMetrics = datamarkMetrics;
+    }
+
+    public ApplicationContext getApplicationContext() {
+        return applicationContext;
+    }
+
+    @Override
+    public void setApplicationContext(@Nonnull ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    private void resolveDatamarkMetrics() {
+        if (Objects.isNull(datamarkMetrics)) {
+            datamarkMetrics = Objects.isNull(applicationContext) ? NoOpDatamarkMetrics.getInstance() :
+                    applicationContext.getBeanProvider(DatamarkMetrics.class)
+                            .getIfUnique(NoOpDatamarkMetrics::getInstance);
+        }
+        metricsEnabled = !(datamarkMetrics instanceof NoOpDatamarkMetrics);
+        LOGGER.debug("使用指标记录器 {}", datamarkMetrics);
+    }
+
+    private void recordException(DatamarkException e) {
+        if (metricsEnabled) {
+            datamarkMetrics.recordException(beanName, e);
+        }
+    }
+
+    /**
+     * 委托存储加载所有的键，并返回本服务的数据标识。
+     *
+     * <p>
+     * 加载的结果由存储通过 {@link #onRowLoaded(JdbcDatamarkStorage.Row)} 发布到快照中。
+     */
+    private String loadAndGet() throws DatamarkException {
+        long startNanos = System.nanoTime();
+        boolean succeed = false;
+        try {
+            LOGGER.debug("加载数据表中的数据标识...");
+            try {
+                jdbcDatamarkStorage.load();
+            } catch (Exception e) {
+                LOGGER.warn("加载数据标识时发生异常, 将抛出异常, 异常信息如下: ", e);
+                throw new ResourceReadFailedException(e, jdbcDatamarkStorage.describe(storageKey));
+            }
+            String datamark = requireDatamark(snapshot);
+            succeed = true;
+            return datamark;
+        } finally {
+            refreshCount.incrementAndGet();
+            if (!succeed) {
+                refreshFailureCount.incrementAndGet();
+            }
+            if (metricsEnabled) {
+                datamarkMetrics.recordRefresh(beanName, System.nanoTime() - startNanos, succeed);
+            }
+        }
+    }
+
+    private void onRowLoaded(JdbcDatamarkStorage.Row row) {
+        lock.lock();
+        try {
+            Snapshot current = snapshot;
+            // 本节点的更新可能在加载期间完成，此时加载开始得比更新的提交更早，结果可能比缓存更旧，需要丢弃。
+            // 版本不参与判断：行被删除后重新插入时，数据表中的版本会比缓存中的版本更小。
+            if (row.getSequence() < publishedSequence) {
+                LOGGER.debug("加载的序号 {} 比已发布的序号 {} 更旧, 丢弃本次加载的结果...", row.getSequence(),
+                        publishedSequence);
+                return;
+            }
+            publishedSequence = row.getSequence();
+            String datamark = StringUtils.trim(StringUtils.defaultString(row.getDatamark()));
+            if (!DatamarkUtil.isDatamarkValid(datamark)) {
+                LOGGER.warn("数据表中的数据标识 {} 不合法", datamark);
+                snapshot = new Snapshot(
+                        current.getDatamarkConfig(), null, row.getVersion(), new IllegalDatamarkException(datamark)
+                );
+                return;
+            }
+            snapshot = new Snapshot(current.getDatamarkConfig(), datamark, row.getVersion(), null);
+            LOGGER.debug("最新缓存内容为: {}, 版本: {}", datamark, row.getVersion());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeAndUpdateCache(String datamark) throws DatamarkException {
+        LOGGER.debug("写入并更新缓存...");
+        DatamarkConfig datamarkConfig = snapshot.getDatamarkConfig();
+        LOGGER.debug("确认服务允许更新...");
+        if (!datamarkConfig.isServiceUpdateAllowed()) {
+            throw new UpdateNotAllowedException();
+        }
+        LOGGER.debug("Trim datamark, 并校验 datamark 内容...");
+        datamark = StringUtils.trim(datamark);
+        if (!DatamarkUtil.isDatamarkValid(datamark)) {
+            LOGGER.warn("数据标识不合法, 将抛出异常");
+            throw new IllegalDatamarkException(datamark);
+        }
+        long expectedVersion;
+        ioLock.lock();
+        try {
+            // 写入锁保证在此期间只有加载会修改快照，读取到的版本要么是本服务上一次写入的版本，要么是更新的加载结果。
+            expectedVersion = snapshot.getVersion();
+            LOGGER.debug("以版本 {} 向数据表中写入内容...", expectedVersion);
+            long sequence;
+            try {
+                sequence = jdbcDatamarkStorage.write(storageKey, datamark, expectedVersion);
+            } catch (Exception e) {
+                LOGGER.warn("写入数据标识时发生异常, 将抛出异常, 异常信息如下: ", e);
+                throw new ResourceWriteFailedException(e, jdbcDatamarkStorage.describe(storageKey));
+            }
+            if (sequence >= 0) {
+                publishWritten(datamark, expectedVersion < 0 ? 0L : expectedVersion + 1, sequence);
+                return;
+            }
+        } finally {
+            ioLock.unlock();
+        }
+        LOGGER.warn("数据表中的版本与期望的版本 {} 不一致, 数据标识已被其它节点修改, 将重新加载并抛出异常", expectedVersion);
+        versionConflictCount.incrementAndGet();
+        try {
+            jdbcDatamarkStorage.load();
+        } catch (Exception e) {
+            LOGGER.warn("版本冲突后重新加载数据标识失败, 异常信息如下: ", e);
+        }
+        throw new DatamarkVersionConflictException(jdbcDatamarkStorage.describe(storageKey), expectedVersion);
+    }
+
+    private void publishWritten(String datamark, long version, long sequence) {
+        lock.lock();
+        try {
+            // 写入期间开始的加载已经读到了本次写入或者更新的内容，此时不再覆盖它的结果。
+            if (sequence < publishedSequence) {
+                LOGGER.debug("写入的序号 {} 比已发布的序号 {} 更旧, 保留加载的结果...", sequence, publishedSequence);
+                return;
+            }
+            publishedSequence = sequence;
+            snapshot = new Snapshot(snapshot.getDatamarkConfig(), datamark, version, null);
+            LOGGER.debug("最新缓存内容为: {}, 版本: {}", datamark, version);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String requireDatamark(Snapshot snapshot) throws DatamarkException {
+        String datamark = snapshot.getDatamark();
+        if (Objects.nonNull(datamark)) {
+            return datamark;
+        }
+        if (Objects.nonNull(snapshot.getFailure())) {
+            throw snapshot.getFailure();
+        }
+        throw new DatamarkException("数据标识尚未加载");
+    }
+
+    @Override
+    public String toString() {
+        Snapshot snapshot = this.snapshot;
+        return "JdbcDatamarkServiceImpl{" +
+                "datamarkConfig=" + snapshot.getDatamarkConfig() +
+                ", jdbcDatamarkStorage=" + jdbcDatamarkStorage +
+                ", storageKey='" + storageKey + '\'' +
+                ", cachedDatamark='" + snapshot.getDatamark() + '\'' +
+                ", cachedVersion=" + snapshot.getVersion() +
+                '}';
+    }
+
+    /**
+     * 缓存快照。
+     *
+     * <p>
+     * 快照是不可变的，数据标识为 <code>null</code> 时，代表缓存未命中，此时失败结果记录了数据表中的数据标识不合法的原因。
+     */
+    private static final class Snapshot {
+
+        private final DatamarkConfig datamarkConfig;
+        private final String datamark;
+        private final long version;
+        private final DatamarkException failure;
+
+        public Snapshot(DatamarkConfig datamarkConfig, String datamark, long version, DatamarkException failure) {
+            this.datamarkConfig = datamarkConfig;
+            this.datamark = datamark;
+            this.version = version;
+            this.failure = failure;
+        }
+
+        public Snapshot withDatamarkConfig(DatamarkConfig datamarkConfig) {
+            return new Snapshot(datamarkConfig, datamark, version, failure);
+        }
+
+        public DatamarkConfig getDatamarkConfig() {
+            return datamarkConfig;
+        }
+
+        public String getDatamark() {
+            return datamark;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public DatamarkException getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "datamarkConfig=" + datamarkConfig +
+                    ", datamark='" + datamark + '\'' +
+                    ", version=" + version +
+                    ", failure=" + failure +
+                    '}';
+        }
+    }
+}
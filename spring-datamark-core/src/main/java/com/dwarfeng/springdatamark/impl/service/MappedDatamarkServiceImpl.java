@@ -0,0 +1,453 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.impl.util.MappedDatamarkAccessor;
+import com.dwarfeng.springdatamark.sdk.metrics.NoOpDatamarkMetrics;
+import com.dwarfeng.springdatamark.sdk.util.DatamarkUtil;
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import com.dwarfeng.springdatamark.stack.exception.*;
+import com.dwarfeng.springdatamark.stack.metrics.DatamarkMetrics;
+import com.dwarfeng.springdatamark.stack.service.DatamarkService;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.io.Resource;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于内存映射文件的数据标识服务。
+ *
+ * <p>
+ * 数据标识保存在由 {@link MappedDatamarkAccessor} 管理的内存映射文件中，同一台主机上的多个进程可以共享同一个文件：
+ * 任意一个进程的 {@link #update(String)} 对其它所有进程立即可见，不需要等待它们刷新。
+ *
+ * <p>
+ * 服务缓存最近一次读取的数据标识以及它对应的版本号。{@link #get()} 只读取一次映射内存中的版本号，
+ * 如果版本号与缓存的版本号相同，则直接返回缓存的数据标识，整个过程不需要获取任何锁，也不进行任何系统调用；
+ * 版本号变化时，服务以顺序锁的方式重新读取映射内存中的数据标识。<br>
+ * 如果映射内存中的数据标识不合法，失败结果同样以版本号缓存，版本号不变时 {@link #get()} 直接抛出缓存的异常。
+ *
+ * <p>
+ * 读取与写入的结果按照发布序号发布：读取的序号在读取映射内存之前分配，写入的序号在写入完成之后分配，
+ * 序号比已发布的结果更小的读取在写入完成之前就已经开始，其结果会被丢弃。<br>
+ * 版本号不参与判断：文件被其它进程原地重新初始化时，映射内存中的版本号会比缓存的版本号更小，
+ * 此时读取到的结果仍然会被发布，缓存不会因此永久失效。
+ *
+ * <p>
+ * 该服务要求资源能够解析为文件系统中的文件。文件不存在或者为空时，服务会创建文件并以空的数据标识初始化；
+ * 文件已经存在但不是内存映射数据标识文件时，服务初始化失败，而不会覆盖文件中的内容。<br>
+ * 数据标识配置中只有 {@link DatamarkConfig#isServiceUpdateAllowed()} 对该服务生效。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class MappedDatamarkServiceImpl implements DatamarkService, InitializingBean, DisposableBean,
+        ApplicationContextAware, BeanNameAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedDatamarkServiceImpl.class);
+
+    /**
+     * 发布锁。
+     *
+     * <p>
+     * 保证快照的发布不会相互覆盖。读取与写入映射内存时不需要持有该锁。
+     */
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * 发布序号的生成器。
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    // 已发布的结果的序号，只在持有发布锁时访问。
+    private long publishedSequence;
+
+    private volatile Snapshot snapshot = new Snapshot(null, null, -1L, null);
+    private volatile ApplicationContext applicationContext;
+
+    // 以下字段在初始化时确定，此后不再变化。
+    private String beanName = "datamarkService";
+    private String url;
+    private String charset = "UTF-8";
+    private int slotCapacity = MappedDatamarkAccessor.DEFAULT_SLOT_CAPACITY;
+    private DatamarkMetrics datamarkMetrics;
+    private boolean metricsEnabled;
+    private MappedDatamarkAccessor accessor;
+
+    private final AtomicLong performedReloadCount = new AtomicLong();
+
+    public MappedDatamarkServiceImpl() {
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Objects.requireNonNull(url, "url 不能为 null");
+        resolveDatamarkMetrics();
+        Resource resource = applicationContext.getResource(url);
+        try {
+            accessor = new MappedDatamarkAccessor(
+                    resource.getFile().toPath(), Charset.forName(charset), slotCapacity
+            );
+        } catch (IOException e) {
+            throw new ResourceReadFailedException(e, url);
+        }
+        LOGGER.debug("使用内存映射文件 {}", accessor.getFile());
+        reload();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (Objects.nonNull(accessor)) {
+            accessor.close();
+        }
+    }
+
+    @Override
+    public boolean updateAllowed() {
+        return snapshot.getDatamarkConfig().isServiceUpdateAllowed();
+    }
+
+    @Override
+    public String get() throws DatamarkException {
+        // 快速路径：映射内存中的版本号与缓存的版本号相同时，直接返回缓存的数据标识。
+        Snapshot snapshot = this.snapshot;
+        if (accessor.getVersion() == snapshot.getVersion()) {
+            String datamark = snapshot.getDatamark();
+            if (Objects.nonNull(datamark)) {
+                if (metricsEnabled) {
+                    datamarkMetrics.recordGet(beanName, true);
+                }
+                return datamark;
+            }
+            recordException(snapshot.getFailure());
+            throw snapshot.getFailure();
+        }
+        if (metricsEnabled) {
+            datamarkMetrics.recordGet(beanName, false);
+        }
+        try {
+            return reload();
+        } catch (DatamarkException e) {
+            recordException(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void refresh() throws DatamarkException {
+        refreshAndGet();
+    }
+
+    @Override
+    public String refreshAndGet() throws DatamarkException {
+        try {
+            return reload();
+        } catch (DatamarkException e) {
+            recordException(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void update(String datamark) throws DatamarkException {
+        if (!metricsEnabled) {
+            writeAndUpdateCache(datamark);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        boolean succeed = false;
+        try {
+            writeAndUpdateCache(datamark);
+            succeed = true;
+        } catch (DatamarkException e) {
+            datamarkMetrics.recordException(beanName, e);
+            throw e;
+        } finally {
+            datamarkMetrics.recordUpdate(beanName, System.nanoTime() - startNanos, succeed);
+        }
+    }
+
+    /**
+     * 将映射内存中的内容同步到存储设备。
+     *
+     * <p>
+     * 其它进程读取数据标识时不需要调用该方法，仅在需要保证数据标识在主机掉电后仍然存在时调用。
+     */
+    public void flush() {
+        accessor.force();
+    }
+
+    /**
+     * 获取实际执行的映射内存读取次数。
+     *
+     * @return 实际执行的映射内存读取次数。
+     */
+    public long getPerformedReloadCount() {
+        return performedReloadCount.get();
+    }
+
+    /**
+     * 获取缓存中数据标识的版本号。
+     *
+     * @return 缓存中数据标识的版本号。
+     */
+    public long getCachedVersion() {
+        return snapshot.getVersion();
+    }
+
+    public DatamarkConfig getDatamarkConfig() {
+        return snapshot.getDatamarkConfig();
+    }
+
+    public void setDatamarkConfig(DatamarkConfig datamarkConfig) {
+        lock.lock();
+        try {
+            snapshot = snapshot.withDatamarkConfig(datamarkConfig);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 设置内存映射文件的地址。
+     *
+     * <p>
+     * 地址可以为 Spring 支持的任何资源，但必须能够解析为文件系统中的文件。
+     *
+     * @param url 内存映射文件的地址。
+     */
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    public void setCharset(String charset) {
+        this.charset = charset;
+    }
+
+    public int getSlotCapacity() {
+        return slotCapacity;
+    }
+
+    /**
+     * 设置槽位容量。
+     *
+     * <p>
+     * 槽位容量是数据标识编码后的最大字节长度，共享同一个文件的所有进程必须使用相同的槽位容量。
+     *
+     * @param slotCapacity 槽位容量。
+     */
+    public void setSlotCapacity(int slotCapacity) {
+        this.slotCapacity = slotCapacity;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    @Override
+    public void setBeanName(@Nonnull String beanName) {
+        this.beanName = beanName;
+    }
+
+    public DatamarkMetrics getDatamarkMetrics() {
+        return datamarkMetrics;
+    }
+
+    /**
+     * 设置指标记录器。
+     *
+     * <p>
+     * 该方法需要在服务初始化之前调用。如果没有调用该方法，服务会在初始化时使用应用上下文中唯一的 {@link DatamarkMetrics} Bean。
+     *
+     * @param datamarkMetrics 指标记录器。
+     */
+    public void setDatamarkMetrics(DatamarkMetrics datamarkMetrics) {
+        this.datamarkMetrics = datamarkMetrics;
+    }
+
+    public ApplicationContext getApplicationContext() {
+        return applicationContext;
+    }
+
+    @Override
+    public void setApplicationContext(@Nonnull ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    private void resolveDatamarkMetrics() {
+        if (Objects.isNull(datamarkMetrics)) {
+            datamarkMetrics = applicationContext.getBeanProvider(DatamarkMetrics.class)
+                    .getIfUnique(NoOpDatamarkMetrics::getInstance);
+        }
+        metricsEnabled = !(datamarkMetrics instanceof NoOpDatamarkMetrics);
+        LOGGER.debug("使用指标记录器 {}", datamarkMetrics);
+    }
+
+    private void recordException(DatamarkException e) {
+        if (metricsEnabled) {
+            datamarkMetrics.recordException(beanName, e);
+        }
+    }
+
+    private String reload() throws DatamarkException {
+        long startNanos = System.nanoTime();
+        boolean succeed = false;
+        try {
+            String datamark = doReload();
+            succeed = true;
+            return datamark;
+        } finally {
+            if (metricsEnabled) {
+                datamarkMetrics.recordRefresh(beanName, System.nanoTime() - startNanos, succeed);
+            }
+        }
+    }
+
+    private String doReload() throws DatamarkException {
+        LOGGER.debug("读取映射内存中的数据标识...");
+        performedReloadCount.incrementAndGet();
+        // 序号在读取之前分配，此后完成的写入的序号一定更大。
+        long readSequence = sequence.incrementAndGet();
+        MappedDatamarkAccessor.Read read;
+        try {
+            read = accessor.read();
+        } catch (IOException e) {
+            LOGGER.warn("读取数据标识时发生异常, 将抛出异常, 异常信息如下: ", e);
+            throw new ResourceReadFailedException(e, url);
+        }
+        String datamark = StringUtils.trim(read.getDatamark());
+        DatamarkException failure = null;
+        if (!DatamarkUtil.isDatamarkValid(datamark)) {
+            LOGGER.warn("数据标识不合法, 将抛出异常");
+            failure = new IllegalDatamarkException(datamark);
+        }
+        publish(failure == null ? datamark : null, read.getVersion(), failure, readSequence);
+        if (Objects.nonNull(failure)) {
+            throw failure;
+        }
+        return datamark;
+    }
+
+    private void writeAndUpdateCache(String datamark) throws DatamarkException {
+        LOGGER.debug("写入并更新缓存...");
+        DatamarkConfig datamarkConfig = snapshot.getDatamarkConfig();
+        LOGGER.debug("确认服务允许更新...");
+        if (!datamarkConfig.isServiceUpdateAllowed()) {
+            throw new UpdateNotAllowedException();
+        }
+        LOGGER.debug("Trim datamark, 并校验 datamark 内容...");
+        datamark = StringUtils.trim(datamark);
+        if (!DatamarkUtil.isDatamarkValid(datamark)) {
+            LOGGER.warn("数据标识不合法, 将抛出异常");
+            throw new IllegalDatamarkException(datamark);
+        }
+        long version;
+        try {
+            version = accessor.write(datamark);
+        } catch (IOException e) {
+            LOGGER.warn("写入数据标识时发生异常, 将抛出异常, 异常信息如下: ", e);
+            throw new ResourceWriteFailedException(e, url);
+        }
+        // 序号在写入完成之后分配，此前开始的读取的结果可能比本次写入更旧。
+        publish(datamark, version, null, sequence.incrementAndGet());
+    }
+
+    private void publish(String datamark, long version, DatamarkException failure, long publishSequence) {
+        lock.lock();
+        try {
+            // 并发的读取与写入可能以任意的顺序发布，在写入完成之前开始的读取不能覆盖写入的结果。
+            if (publishSequence < publishedSequence) {
+                LOGGER.debug("发布序号 {} 比已发布的序号 {} 更旧, 丢弃本次发布...", publishSequence, publishedSequence);
+                return;
+            }
+            publishedSequence = publishSequence;
+            snapshot = new Snapshot(snapshot.getDatamarkConfig(), datamark, version, failure);
+            LOGGER.debug("最新缓存内容为: {}, 版本: {}", datamark, version);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        Snapshot snapshot = this.snapshot;
+        return "MappedDatamarkServiceImpl{" +
+                "datamarkConfig=" + snapshot.getDatamarkConfig() +
+                ", url='" + url + '\'' +
+                ", charset='" + charset + '\'' +
+                ", slotCapacity=" + slotCapacity +
+                ", cachedDatamark='" + snapshot.getDatamark() + '\'' +
+                ", cachedVersion=" + snapshot.getVersion() +
+                '}';
+    }
+
+    /**
+     * 缓存快照。
+     *
+     * <p>
+     * 快照是不可变的，数据标识为 <code>null</code> 时，失败结果记录了映射内存中的数据标识不合法的原因。
+     */
+    private static final class Snapshot {
+
+        private final DatamarkConfig datamarkConfig;
+        private final String datamark;
+        private final long version;
+        private final DatamarkException failure;
+
+        public Snapshot(DatamarkConfig datamarkConfig, String datamark, long version, DatamarkException failure) {
+            this.datamarkConfig = datamarkConfig;
+            this.datamark = datamark;
+            this.version = version;
+            this.failure = failure;
+        }
+
+        public Snapshot withDatamarkConfig(DatamarkConfig datamarkConfig) {
+            return new Snapshot(datamarkConfig, datamark, version, failure);
+        }
+
+        public DatamarkConfig getDatamarkConfig() {
+            return datamarkConfig;
+        }
+
+        public String getDatamark() {
+            return datamark;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public DatamarkException getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "datamarkConfig=" + datamarkConfig +
+                    ", datamark='" + datamark + '\'' +
+                    ", version=" + version +
+                    ", failure=" + failure +
+                    '}';
+        }
+    }
+}
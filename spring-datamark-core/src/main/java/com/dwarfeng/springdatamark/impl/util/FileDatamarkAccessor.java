@@ -0,0 +1,253 @@
+package com.dwarfeng.springdatamark.impl.util;
+
+import com.dwarfeng.springdatamark.sdk.util.Constraints;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.*;
+
+/**
+ * 文件数据标识访问器。
+ *
+ * <p>
+ * 基于 {@link FileChannel} 读写文件系统中的数据标识存储文件。<br>
+ * 读取时，文件的开头部分被读入一个可复用的定长缓冲区，缓冲区的容量足以容纳一个最大长度的数据标识以及行尾的空白字符，
+ * 因此读取过程中除结果字符串之外不会产生额外的对象分配。<br>
+ * 如果缓冲区被填满但其中没有行结束符，并且文件仍有剩余内容，则说明文件的第一行超出了缓冲区的容量，
+ * 此时 {@link #readFirstLine()} 返回 <code>null</code>，调用者应当回退到通用的读取方式。
+ *
+ * <p>
+ * 写入时，既可以直接覆盖文件，也可以通过 {@link #writeAtomically(String, boolean)} 以“临时文件 + 原子移动”的方式写入。<br>
+ * 原子写入的实现同时以 {@link #writeAtomically(Path, Charset, String, boolean)} 的形式提供给其它需要替换整个文件的调用者，
+ * 保证所有的写入路径都沿用原文件的权限，并以相同的方式同步目录。
+ *
+ * <p>
+ * 该类不是线程安全的，调用者需要保证同一时刻只有一个线程访问同一个实例。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class FileDatamarkAccessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileDatamarkAccessor.class);
+
+    /**
+     * 缓冲区能够容纳的字符数。
+     *
+     * <p>
+     * 数据标识的最大长度的两倍，为第一行中数据标识两侧的空白字符以及行结束符留出余量。
+     */
+    private static final int BUFFER_CHAR_CAPACITY = Constraints.LENGTH_DATAMARK * 2;
+
+    private final Path file;
+    private final Charset charset;
+
+    private final ByteBuffer byteBuffer;
+    private final CharBuffer charBuffer;
+    private final CharsetDecoder decoder;
+
+    public FileDatamarkAccessor(@Nonnull Path file, @Nonnull Charset charset) {
+        this.file = file;
+        this.charset = charset;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        int byteCapacity = (int) Math.ceil(charset.newEncoder().maxBytesPerChar() * BUFFER_CHAR_CAPACITY);
+        this.byteBuffer = ByteBuffer.allocate(byteCapacity);
+        this.charBuffer = CharBuffer.allocate((int) Math.ceil(decoder.maxCharsPerByte() * byteCapacity));
+    }
+
+    /**
+     * 读取文件的第一行，并去除其两端的空白字符。
+     *
+     * <p>
+     * 行结束符的判定与 {@link java.util.Scanner#nextLine()} 一致。文件为空时，返回空字符串。
+     *
+     * @return 文件第一行 trim 后的内容，如果第一行超出了缓冲区的容量，则返回 <code>null</code>。
+     * @throws IOException IO 异常。
+     */
+    @Nullable
+    public String readFirstLine() throws IOException {
+        boolean exhausted = false;
+        byteBuffer.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (byteBuffer.hasRemaining()) {
+                if (channel.read(byteBuffer) < 0) {
+                    exhausted = true;
+                    break;
+                }
+            }
+        }
+        byteBuffer.flip();
+        decoder.reset();
+        charBuffer.clear();
+        decoder.decode(byteBuffer, charBuffer, exhausted);
+        if (exhausted) {
+            decoder.flush(charBuffer);
+        }
+        charBuffer.flip();
+        int length = charBuffer.remaining();
+        for (int i = 0; i < length; i++) {
+            if (isLineSeparator(charBuffer.get(i))) {
+                return trim(i);
+            }
+        }
+        return exhausted ? trim(length) : null;
+    }
+
+    private static boolean isLineSeparator(char c) {
+        return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085';
+    }
+
+    private String trim(int end) {
+        int begin = 0;
+        while (begin < end && charBuffer.get(begin) <= ' ') {
+            begin++;
+        }
+        while (end > begin && charBuffer.get(end - 1) <= ' ') {
+            end--;
+        }
+        if (begin == end) {
+            return StringUtils.EMPTY;
+        }
+        return charBuffer.subSequence(begin, end).toString();
+    }
+
+    /**
+     * 将数据标识写入文件。
+     *
+     * <p>
+     * 文件的原有内容会被覆盖，写入的内容为数据标识加上系统的行分隔符。
+     *
+     * @param datamark  数据标识。
+     * @param syncWrite 是否在写入后强制将内容同步到存储设备。
+     * @throws IOException IO 异常。
+     */
+    public void write(@Nonnull String datamark, boolean syncWrite) throws IOException {
+        writeContent(file, charset, datamark + System.lineSeparator(), syncWrite);
+    }
+
+    /**
+     * 以原子方式将数据标识写入文件。
+     *
+     * <p>
+     * 数据标识首先被写入与文件位于同一目录的临时文件，临时文件被同步到存储设备后，再通过原子移动替换文件。
+     * 因此，任何时刻读取文件，都只会得到完整的旧内容或完整的新内容。<br>
+     * 如果 <code>syncWrite</code> 为 <code>true</code>，还会在移动完成后同步文件所在的目录，以保证移动操作本身的耐久性。
+     *
+     * @param datamark  数据标识。
+     * @param syncWrite 是否在移动完成后同步文件所在的目录。
+     * @throws IOException IO 异常。
+     */
+    public void writeAtomically(@Nonnull String datamark, boolean syncWrite) throws IOException {
+        writeAtomically(file, charset, datamark + System.lineSeparator(), syncWrite);
+    }
+
+    /**
+     * 以原子方式将内容写入指定的文件。
+     *
+     * <p>
+     * 内容首先被写入与文件位于同一目录的隐藏临时文件，临时文件沿用原文件的 POSIX 权限，并被同步到存储设备，
+     * 再通过原子移动替换文件；文件系统不支持原子移动时，回退到普通的移动方式。<br>
+     * 如果 <code>syncWrite</code> 为 <code>true</code>，还会在移动完成后同步文件所在的目录。
+     *
+     * @param file      文件。
+     * @param charset   内容的字符集。
+     * @param content   完整的文件内容，不会追加行分隔符。
+     * @param syncWrite 是否在移动完成后同步文件所在的目录。
+     * @throws IOException IO 异常。
+     */
+    public static void writeAtomically(
+            @Nonnull Path file, @Nonnull Charset charset, @Nonnull String content, boolean syncWrite
+    ) throws IOException {
+        Path absoluteFile = file.toAbsolutePath();
+        Path directory = absoluteFile.getParent();
+        Path tempFile = Files.createTempFile(directory, "." + absoluteFile.getFileName() + ".", ".tmp");
+        try {
+            copyPermissions(absoluteFile, tempFile);
+            writeContent(tempFile, charset, content, true);
+            moveReplacing(tempFile, absoluteFile);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+        if (syncWrite) {
+            syncDirectory(directory);
+        }
+    }
+
+    private static void writeContent(Path target, Charset charset, String content, boolean syncWrite)
+            throws IOException {
+        ByteBuffer bytes = charset.encode(content);
+        try (FileChannel channel = FileChannel.open(
+                target, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (syncWrite) {
+                channel.force(true);
+            }
+        }
+    }
+
+    private static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOGGER.debug("文件系统不支持原子移动, 回退到普通的移动方式...");
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        // 临时文件默认只有所有者可以读写，需要沿用原文件的权限，否则替换后其它用户可能无法读取。
+        if (!Files.exists(source)) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+        } catch (UnsupportedOperationException e) {
+            LOGGER.debug("文件系统不支持 POSIX 权限, 将忽略权限的复制");
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        // 并不是所有的平台都支持以通道的方式打开目录（如 Windows），此时忽略目录的同步。
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.debug("无法同步目录 {}, 将忽略目录的同步, 异常信息如下: ", directory, e);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public String toString() {
+        return "FileDatamarkAccessor{" +
+                "file=" + file +
+                ", charset=" + charset +
+                '}';
+    }
+}
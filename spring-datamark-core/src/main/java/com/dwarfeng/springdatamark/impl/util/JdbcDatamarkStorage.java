@@ -0,0 +1,519 @@
+package com.dwarfeng.springdatamark.impl.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC 数据标识存储。
+ *
+ * <p>
+ * 多个数据标识服务的数据标识以键值的形式保存在同一张数据表中，每一行对应一个数据标识服务，表结构如下：
+ *
+ * <pre>
+ * CREATE TABLE datamark_storage (
+ *     storage_key VARCHAR(100) NOT NULL PRIMARY KEY,
+ *     datamark    VARCHAR(100),
+ *     version     BIGINT       NOT NULL
+ * );
+ * </pre>
+ * <p>
+ * 表名以及各列的列名均可以配置。
+ *
+ * <p>
+ * 存储负责加载所有注册在其中的键：{@link #load()} 以一条 <code>SELECT ... WHERE key IN (...)</code>
+ * 语句查询所有的键，并将每一行的结果通知给对应的侦听器，因此无论有多少个数据标识服务共享同一个存储，
+ * 启动与刷新时都只需要一次查询。<br>
+ * 加载以单飞（single-flight）的方式执行：同一时刻最多只有一个加载在进行，并发的加载请求会等待正在进行的加载，
+ * 并共享它的结果或异常。
+ *
+ * <p>
+ * 写入以乐观锁的方式进行：{@link #write(String, String, long)} 只在版本列的值与期望的版本一致时更新数据标识，
+ * 并将版本加一；期望的版本小于 0 时，代表数据表中还没有对应的行，此时插入新行，版本为 0。
+ * 版本不一致或者行已经被其它节点插入时，写入不会生效。
+ *
+ * <p>
+ * 存储为每一次加载与每一次生效的写入分配递增的序号：加载的序号在查询开始之前分配，并记录在加载的每一行中；
+ * 写入的序号在写入提交之后分配。序号较小的加载一定在序号较大的写入提交之前就已经开始，其结果可能比写入更旧，
+ * 侦听器可以据此丢弃过期的加载结果；而序号较大的加载一定读到了写入之后的数据表，即使其中的版本比缓存中的版本更小
+ * （例如行被删除后重新插入），也应当被接受。
+ *
+ * <p>
+ * 存储每一次都从数据源获取新的连接，并在使用后立即关闭，不参与 Spring 管理的事务；
+ * 如果连接没有开启自动提交，写入后会显式地提交。
+ *
+ * <p>
+ * 该类是线程安全的。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class JdbcDatamarkStorage implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcDatamarkStorage.class);
+
+    /**
+     * 单条查询语句中最多包含的键的数量。
+     *
+     * <p>
+     * 部分数据库限制了 <code>IN</code> 子句中参数的个数，键的数量超过该值时，会被拆分为多条查询语句。
+     */
+    private static final int MAX_KEYS_PER_QUERY = 1000;
+
+    /**
+     * 表名与列名的格式，允许带有模式名前缀，用于防止 SQL 注入。
+     */
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile(
+            "[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*"
+    );
+
+    private final Lock lock = new ReentrantLock();
+
+    private DataSource dataSource;
+    private String tableName = "datamark_storage";
+    private String keyColumn = "storage_key";
+    private String valueColumn = "datamark";
+    private String versionColumn = "version";
+
+    // 以下字段在初始化时确定，此后不再变化。
+    private String selectSqlPrefix;
+    private String updateSql;
+    private String insertSql;
+
+    // 以下字段只在持有锁时访问。
+    private final Set<String> keys = new LinkedHashSet<>();
+    private final Map<String, Consumer<Row>> listeners = new HashMap<>();
+    private CompletableFuture<Map<String, Row>> inFlightLoad;
+
+    private volatile Map<String, Row> loadedRows = Collections.emptyMap();
+
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public JdbcDatamarkStorage() {
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Objects.requireNonNull(dataSource, "dataSource 不能为 null");
+        checkIdentifier(tableName);
+        checkIdentifier(keyColumn);
+        checkIdentifier(valueColumn);
+        checkIdentifier(versionColumn);
+        selectSqlPrefix = "SELECT " + keyColumn + ", " + valueColumn + ", " + versionColumn +
+                " FROM " + tableName + " WHERE " + keyColumn + " IN (";
+        updateSql = "UPDATE " + tableName + " SET " + valueColumn + " = ?, " + versionColumn + " = ?" +
+                " WHERE " + keyColumn + " = ? AND " + versionColumn + " = ?";
+        insertSql = "INSERT INTO " + tableName + " (" + keyColumn + ", " + valueColumn + ", " + versionColumn + ")" +
+                " VALUES (?, ?, ?)";
+    }
+
+    private static void checkIdentifier(String identifier) {
+        if (Objects.isNull(identifier) || !IDENTIFIER_PATTERN.matcher(identifier).matches()) {
+            throw new IllegalArgumentException("非法的表名或列名: " + identifier);
+        }
+    }
+
+    /**
+     * 注册键以及键对应的侦听器。
+     *
+     * <p>
+     * 此后的每一次加载都会查询该键，并将查询到的行通知给侦听器；
+     * 数据表中不存在对应的行时，通知的行的 {@link Row#isPresent()} 为 <code>false</code>。
+     * 侦听器在执行加载的线程中被调用，不应该阻塞或者抛出异常。
+     *
+     * @param key      键。
+     * @param listener 侦听器。
+     */
+    public void register(@Nonnull String key, @Nonnull Consumer<Row> listener) {
+        lock.lock();
+        try {
+            keys.add(key);
+            listeners.put(key, listener);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移除键的侦听器。
+     *
+     * <p>
+     * 键本身仍会在此后的加载中被查询，直到存储被销毁。
+     *
+     * @param key 键。
+     */
+    public void unregister(@Nonnull String key) {
+        lock.lock();
+        try {
+            listeners.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取最近一次加载中键对应的行。
+     *
+     * @param key 键。
+     * @return 最近一次加载中键对应的行，如果最近一次加载没有查询该键，则返回 <code>null</code>。
+     */
+    @Nullable
+    public Row getLoadedRow(@Nonnull String key) {
+        return loadedRows.get(key);
+    }
+
+    /**
+     * 加载所有已注册的键，并将结果通知给对应的侦听器。
+     *
+     * <p>
+     * 如果已经有一个加载在进行，则等待它完成，并返回它的结果。
+     *
+     * @return 键与行组成的映射，包含本次加载查询的所有键。
+     * @throws SQLException 查询失败时抛出。
+     */
+    public Map<String, Row> load() throws SQLException {
+        CompletableFuture<Map<String, Row>> flight;
+        List<String> keysToLoad;
+        boolean leader = false;
+        lock.lock();
+        try {
+            flight = inFlightLoad;
+            if (Objects.isNull(flight)) {
+                flight = new CompletableFuture<>();
+                inFlightLoad = flight;
+                leader = true;
+            }
+            keysToLoad = new ArrayList<>(keys);
+        } finally {
+            lock.unlock();
+        }
+        if (!leader) {
+            LOGGER.debug("等待正在进行的加载...");
+            return awaitLoad(flight);
+        }
+        Map<String, Row> rows;
+        try {
+            rows = query(keysToLoad, sequence.incrementAndGet());
+            loadedRows = rows;
+            // 在结束单飞之前通知侦听器，保证先后两次加载的通知不会交错。
+            notifyListeners(rows);
+        } catch (Throwable t) {
+            endLoad(flight);
+            flight.completeExceptionally(t);
+            throw t;
+        }
+        endLoad(flight);
+        flight.complete(rows);
+        return rows;
+    }
+
+    private Map<String, Row> query(List<String> keysToLoad, long loadSequence) throws SQLException {
+        Map<String, Row> rows = new HashMap<>(Math.max(16, keysToLoad.size() * 2));
+        Row absentRow = Row.absent(loadSequence);
+        for (String key : keysToLoad) {
+            rows.put(key, absentRow);
+        }
+        if (keysToLoad.isEmpty()) {
+            return Collections.unmodifiableMap(rows);
+        }
+        LOGGER.debug("从数据表 {} 中加载 {} 个数据标识...", tableName, keysToLoad.size());
+        loadCount.incrementAndGet();
+        try (Connection connection = dataSource.getConnection()) {
+            for (int from = 0; from < keysToLoad.size(); from += MAX_KEYS_PER_QUERY) {
+                List<String> chunk = keysToLoad.subList(from, Math.min(from + MAX_KEYS_PER_QUERY, keysToLoad.size()));
+                queryChunk(connection, chunk, loadSequence, rows);
+            }
+        }
+        return Collections.unmodifiableMap(rows);
+    }
+
+    private void queryChunk(Connection connection, List<String> chunk, long loadSequence, Map<String, Row> rows)
+            throws SQLException {
+        StringBuilder sb = new StringBuilder(selectSqlPrefix);
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        sb.append(')');
+        try (PreparedStatement statement = connection.prepareStatement(sb.toString())) {
+            for (int i = 0; i < chunk.size(); i++) {
+                statement.setString(i + 1, chunk.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.put(
+                            resultSet.getString(1), new Row(resultSet.getString(2), resultSet.getLong(3), loadSequence)
+                    );
+                }
+            }
+        }
+    }
+
+    private void notifyListeners(Map<String, Row> rows) {
+        List<Map.Entry<String, Consumer<Row>>> entries;
+        lock.lock();
+        try {
+            entries = new ArrayList<>(listeners.entrySet());
+        } finally {
+            lock.unlock();
+        }
+        for (Map.Entry<String, Consumer<Row>> entry : entries) {
+            Row row = rows.get(entry.getKey());
+            if (Objects.isNull(row)) {
+                // 侦听器在本次加载开始之后才注册，它的键不在本次加载的结果中。
+                continue;
+            }
+            try {
+                entry.getValue().accept(row);
+            } catch (Exception e) {
+                LOGGER.warn("通知键 {} 的侦听器时发生异常, 异常信息如下: ", entry.getKey(), e);
+            }
+        }
+    }
+
+    private void endLoad(CompletableFuture<Map<String, Row>> flight) {
+        lock.lock();
+        try {
+            if (inFlightLoad == flight) {
+                inFlightLoad = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<String, Row> awaitLoad(CompletableFuture<Map<String, Row>> flight) throws SQLException {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 以乐观锁的方式写入数据标识。
+     *
+     * @param key             键。
+     * @param datamark        数据标识。
+     * @param expectedVersion 期望的版本，小于 0 时代表数据表中还没有对应的行。
+     * @return 写入生效时返回写入的序号，如果数据表中的版本与期望的版本不一致，则返回 -1。
+     * @throws SQLException 写入失败时抛出。
+     */
+    public long write(@Nonnull String key, @Nonnull String datamark, long expectedVersion) throws SQLException {
+        // 序号在写入提交之后分配，此后开始的加载一定能读到本次写入。
+        return doWrite(key, datamark, expectedVersion) ? sequence.incrementAndGet() : -1L;
+    }
+
+    private boolean doWrite(String key, String datamark, long expectedVersion) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            try {
+                boolean succeed = expectedVersion < 0 ?
+                        insert(connection, key, datamark) : update(connection, key, datamark, expectedVersion);
+                if (!autoCommit) {
+                    if (succeed) {
+                        connection.commit();
+                    } else {
+                        connection.rollback();
+                    }
+                }
+                return succeed;
+            } catch (SQLException e) {
+                if (!autoCommit) {
+                    connection.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private boolean update(Connection connection, String key, String datamark, long expectedVersion)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+            statement.setString(1, datamark);
+            statement.setLong(2, expectedVersion + 1);
+            statement.setString(3, key);
+            statement.setLong(4, expectedVersion);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    private boolean insert(Connection connection, String key, String datamark) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+            statement.setString(1, key);
+            statement.setString(2, datamark);
+            statement.setLong(3, 0L);
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            // 主键冲突说明行已经被其它节点插入，按照版本冲突处理。
+            if (e instanceof SQLIntegrityConstraintViolationException ||
+                    Objects.nonNull(e.getSQLState()) && e.getSQLState().startsWith("23")) {
+                LOGGER.debug("键 {} 对应的行已经存在, 插入未生效", key);
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 获取键的描述，用于日志以及异常信息。
+     *
+     * @param key 键。
+     * @return 键的描述。
+     */
+    public String describe(@Nonnull String key) {
+        return "jdbc:" + tableName + "/" + key;
+    }
+
+    /**
+     * 获取实际执行的加载次数。
+     *
+     * @return 实际执行的加载次数。
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public void setKeyColumn(String keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    public String getValueColumn() {
+        return valueColumn;
+    }
+
+    public void setValueColumn(String valueColumn) {
+        this.valueColumn = valueColumn;
+    }
+
+    public String getVersionColumn() {
+        return versionColumn;
+    }
+
+    public void setVersionColumn(String versionColumn) {
+        this.versionColumn = versionColumn;
+    }
+
+    /**
+     * 设置预先声明的键。
+     *
+     * <p>
+     * 预先声明的键在第一次加载时就会被查询，因此通过命名空间声明的多个数据标识服务在启动时只需要一次查询。
+     *
+     * @param keys 预先声明的键。
+     */
+    public void setKeys(Collection<String> keys) {
+        lock.lock();
+        try {
+            this.keys.addAll(keys);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JdbcDatamarkStorage{" +
+                "dataSource=" + dataSource +
+                ", tableName='" + tableName + '\'' +
+                ", keyColumn='" + keyColumn + '\'' +
+                ", valueColumn='" + valueColumn + '\'' +
+                ", versionColumn='" + versionColumn + '\'' +
+                '}';
+    }
+
+    /**
+     * 数据表中的一行。
+     *
+     * <p>
+     * 版本小于 0 的行代表数据表中不存在对应的行。每一行都记录了加载它的那一次加载的序号。
+     */
+    public static final class Row {
+
+        public static Row absent(long sequence) {
+            return new Row(null, -1L, sequence);
+        }
+
+        private final String datamark;
+        private final long version;
+        private final long sequence;
+
+        public Row(@Nullable String datamark, long version, long sequence) {
+            this.datamark = datamark;
+            this.version = version;
+            this.sequence = sequence;
+        }
+
+        public boolean isPresent() {
+            return version >= 0;
+        }
+
+        @Nullable
+        public String getDatamark() {
+            return datamark;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        @Override
+        public String toString() {
+            return "Row{" +
+                    "datamark='" + datamark + '\'' +
+                    ", version=" + version +
+                    ", sequence=" + sequence +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.dwarfeng.springdatamark.impl.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ResourceLoaderAware;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.WritableResource;
+
+import javax.annotation.Nonnull;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 键值数据标识存储。
+ *
+ * <p>
+ * 多个数据标识服务的数据标识保存在同一个资源中，资源中的每一行都是 <code>键=数据标识</code> 的形式，
+ * 键与数据标识两侧的空白字符会被忽略，空行以及以 <code>#</code> 开头的行会被忽略。例如：
+ *
+ * <pre>
+ * # 数据标识存储
+ * orderService=node-1
+ * userService=node-1
+ * </pre>
+ *
+ * <p>
+ * 存储负责读取并解析整个资源：{@link #load()} 只读取一次资源，并将每一个键的数据标识通知给对应的侦听器，
+ * 因此无论有多少个数据标识服务共享同一个资源，启动与刷新时都只需要一次 IO。资源中不存在的键，其数据标识为空字符串。<br>
+ * 加载以单飞（single-flight）的方式执行：同一时刻最多只有一个加载在进行，并发的加载请求会等待正在进行的加载，
+ * 并共享它的结果或异常。
+ *
+ * <p>
+ * {@link #write(String, String)} 只修改指定的键对应的一行，其它的行（包括注释）保持不变。
+ * 写入前会重新读取资源，因此其它进程对其它键的修改不会丢失。对于文件系统中的资源，
+ * 新的内容通过 {@link FileDatamarkAccessor#writeAtomically(Path, Charset, String, boolean)} 写入：
+ * 临时文件沿用资源文件的权限，通过原子移动替换资源文件后，资源文件所在的目录也会被同步。
+ *
+ * <p>
+ * 该类是线程安全的。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class KeyedDatamarkStorage implements ResourceLoaderAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyedDatamarkStorage.class);
+
+    private static final char SEPARATOR = '=';
+    private static final String COMMENT_PREFIX = "#";
+
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * IO 锁。
+     *
+     * <p>
+     * 串行化资源的读写，并保护资源的缓存。需要同时持有两把锁时，总是先获取 IO 锁，再获取 {@link #lock}。
+     */
+    private final Lock ioLock = new ReentrantLock();
+
+    private String resourceUrl;
+    private String resourceCharset = "UTF-8";
+    private volatile ResourceLoader resourceLoader;
+
+    // 以下字段只在持有锁时访问。
+    private final Map<String, Consumer<String>> listeners = new HashMap<>();
+    private CompletableFuture<Map<String, String>> inFlightLoad;
+
+    // 以下字段只在持有 IO 锁时访问。
+    private Resource cachedResource;
+
+    private volatile Map<String, String> loadedDatamarks;
+
+    private final AtomicLong loadCount = new AtomicLong();
+
+    public KeyedDatamarkStorage() {
+    }
+
+    /**
+     * 注册键的侦听器。
+     *
+     * <p>
+     * 此后的每一次加载与写入都会将键对应的数据标识通知给侦听器，侦听器在执行加载的线程中被调用，
+     * 不应该阻塞或者抛出异常，也不应该在持有会被 IO 阻塞的锁时调用该存储的方法。
+     *
+     * @param key      键。
+     * @param listener 侦听器。
+     */
+    public void register(@Nonnull String key, @Nonnull Consumer<String> listener) {
+        lock.lock();
+        try {
+            listeners.put(key, listener);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移除键的侦听器。
+     *
+     * @param key 键。
+     */
+    public void unregister(@Nonnull String key) {
+        lock.lock();
+        try {
+            listeners.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回存储是否已经加载过资源。
+     *
+     * @return 存储是否已经加载过资源。
+     */
+    public boolean isLoaded() {
+        return Objects.nonNull(loadedDatamarks);
+    }
+
+    /**
+     * 获取最近一次加载或写入后键对应的数据标识。
+     *
+     * @param key 键。
+     * @return 键对应的数据标识，资源中不存在该键时返回空字符串。
+     * @throws IllegalStateException 存储尚未加载过资源时抛出。
+     */
+    public String getLoadedDatamark(@Nonnull String key) {
+        Map<String, String> datamarks = loadedDatamarks;
+        if (Objects.isNull(datamarks)) {
+            throw new IllegalStateException("存储尚未加载过资源");
+        }
+        return datamarks.getOrDefault(key, StringUtils.EMPTY);
+    }
+
+    /**
+     * 刷新所有的键。
+     *
+     * <p>
+     * 等价于 {@link #load()}，只读取并解析一次资源，并将结果通知给所有的侦听器。
+     *
+     * @return 键与数据标识组成的映射。
+     * @throws IOException 读取失败时抛出。
+     */
+    public Map<String, String> refreshAll() throws IOException {
+        return load();
+    }
+
+    /**
+     * 读取并解析资源，并将结果通知给所有的侦听器。
+     *
+     * <p>
+     * 如果已经有一个加载在进行，则等待它完成，并返回它的结果。
+     *
+     * @return 键与数据标识组成的映射，不包含资源中不存在的键。
+     * @throws IOException 读取失败时抛出。
+     */
+    public Map<String, String> load() throws IOException {
+        CompletableFuture<Map<String, String>> flight;
+        boolean leader = false;
+        lock.lock();
+        try {
+            flight = inFlightLoad;
+            if (Objects.isNull(flight)) {
+                flight = new CompletableFuture<>();
+                inFlightLoad = flight;
+                leader = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!leader) {
+            LOGGER.debug("等待正在进行的加载...");
+            return awaitLoad(flight);
+        }
+        Map<String, String> datamarks;
+        try {
+            ioLock.lock();
+            try {
+                datamarks = parse(readLines());
+                loadedDatamarks = datamarks;
+                // 在 IO 锁中通知侦听器，保证加载与写入的通知不会交错。
+                notifyListeners(datamarks, null);
+            } finally {
+                ioLock.unlock();
+            }
+        } catch (Throwable t) {
+            endLoad(flight);
+            flight.completeExceptionally(t);
+            throw t;
+        }
+        endLoad(flight);
+        flight.complete(datamarks);
+        return datamarks;
+    }
+
+    private void endLoad(CompletableFuture<Map<String, String>> flight) {
+        lock.lock();
+        try {
+            if (inFlightLoad == flight) {
+                inFlightLoad = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<String, String> awaitLoad(CompletableFuture<Map<String, String>> flight) throws IOException {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 返回资源是否可写。
+     *
+     * @return 资源是否可写。
+     */
+    public boolean isWritable() {
+        ioLock.lock();
+        try {
+            return resolveResource() instanceof WritableResource;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * 写入键对应的数据标识。
+     *
+     * <p>
+     * 写入后，其它键的侦听器会收到写入时重新读取的数据标识，被写入的键的侦听器不会收到通知。
+     *
+     * @param key      键。
+     * @param datamark 数据标识。
+     * @throws IOException 读取或写入失败，或者资源不可写时抛出。
+     */
+    public void write(@Nonnull String key, @Nonnull String datamark) throws IOException {
+        if (!Objects.equals(parseKey(key + SEPARATOR), key) || StringUtils.containsAny(key, '\r', '\n')) {
+            throw new IllegalArgumentException("非法的键: " + key);
+        }
+        ioLock.lock();
+        try {
+            Resource resource = resolveResource();
+            if (!(resource instanceof WritableResource)) {
+                throw new IOException("资源不可写: " + resourceUrl);
+            }
+            // 重新读取资源，保证其它进程对其它键的修改不会丢失。
+            List<String> lines = resource.exists() ? readLines() : new ArrayList<>();
+            boolean replaced = false;
+            for (int i = 0; i < lines.size(); i++) {
+                if (Objects.equals(parseKey(lines.get(i)), key)) {
+                    lines.set(i, key + SEPARATOR + datamark);
+                    replaced = true;
+                    break;
+                }
+            }
+            if (!replaced) {
+                lines.add(key + SEPARATOR + datamark);
+            }
+            writeLines((WritableResource) resource, lines);
+            Map<String, String> datamarks = parse(lines);
+            loadedDatamarks = datamarks;
+            notifyListeners(datamarks, key);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private List<String> readLines() throws IOException {
+        Resource resource = resolveResource();
+        loadCount.incrementAndGet();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                resource.getInputStream(), Charset.forName(resourceCharset)
+        ))) {
+            String line;
+            while (Objects.nonNull(line = reader.readLine())) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private void writeLines(WritableResource resource, List<String> lines) throws IOException {
+        Charset charset = Charset.forName(resourceCharset);
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append(System.lineSeparator());
+        }
+        if (!resource.isFile()) {
+            try (OutputStream out = resource.getOutputStream()) {
+                out.write(sb.toString().getBytes(charset));
+            }
+            return;
+        }
+        // 与单个数据标识的原子写入共用同一个实现：沿用原文件的权限，并在移动后同步目录。
+        FileDatamarkAccessor.writeAtomically(resource.getFile().toPath(), charset, sb.toString(), true);
+    }
+
+    private static Map<String, String> parse(List<String> lines) {
+        Map<String, String> datamarks = new HashMap<>();
+        for (String line : lines) {
+            String key = parseKey(line);
+            if (Objects.isNull(key)) {
+                continue;
+            }
+            String value = StringUtils.trim(line.substring(line.indexOf(SEPARATOR) + 1));
+            // 重复的键以第一次出现的为准，与写入时替换的行保持一致。
+            datamarks.putIfAbsent(key, value);
+        }
+        return Collections.unmodifiableMap(datamarks);
+    }
+
+    /**
+     * 解析行中的键。
+     *
+     * @return 行中的键，如果该行是空行、注释或者不包含分隔符，则返回 <code>null</code>。
+     */
+    private static String parseKey(String line) {
+        String trimmed = StringUtils.trim(line);
+        if (StringUtils.isEmpty(trimmed) || trimmed.startsWith(COMMENT_PREFIX)) {
+            return null;
+        }
+        int index = trimmed.indexOf(SEPARATOR);
+        if (index < 0) {
+            return null;
+        }
+        return StringUtils.trim(trimmed.substring(0, index));
+    }
+
+    private void notifyListeners(Map<String, String> datamarks, String excludedKey) {
+        List<Map.Entry<String, Consumer<String>>> entries;
+        lock.lock();
+        try {
+            entries = new ArrayList<>(listeners.entrySet());
+        } finally {
+            lock.unlock();
+        }
+        for (Map.Entry<String, Consumer<String>> entry : entries) {
+            if (Objects.equals(entry.getKey(), excludedKey)) {
+                continue;
+            }
+            try {
+                entry.getValue().accept(datamarks.getOrDefault(entry.getKey(), StringUtils.EMPTY));
+            } catch (Exception e) {
+                LOGGER.warn("通知键 {} 的侦听器时发生异常, 异常信息如下: ", entry.getKey(), e);
+            }
+        }
+    }
+
+    private Resource resolveResource() {
+        if (Objects.isNull(cachedResource)) {
+            cachedResource = Objects.requireNonNull(resourceLoader, "resourceLoader 不能为 null")
+                    .getResource(resourceUrl);
+        }
+        return cachedResource;
+    }
+
+    /**
+     * 获取实际执行的资源读取次数，包括写入前的读取。
+     *
+     * @return 实际执行的资源读取次数。
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public String getResourceUrl() {
+        return resourceUrl;
+    }
+
+    public void setResourceUrl(String resourceUrl) {
+        this.resourceUrl = resourceUrl;
+    }
+
+    public String getResourceCharset() {
+        return resourceCharset;
+    }
+
+    public void setResourceCharset(String resourceCharset) {
+        this.resourceCharset = resourceCharset;
+    }
+
+    @Override
+    public void setResourceLoader(@Nonnull ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyedDatamarkStorage{" +
+                "resourceUrl='" + resourceUrl + '\'' +
+                ", resourceCharset='" + resourceCharset + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,419 @@
+package com.dwarfeng.springdatamark.impl.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 内存映射数据标识访问器。
+ *
+ * <p>
+ * 数据标识保存在一个布局固定的小文件中，文件被映射到内存，同一台主机上的多个进程映射同一个文件时，
+ * 共享同一份物理内存，因此任意一个进程的写入对其它所有进程立即可见。文件的布局如下：
+ *
+ * <pre>
+ * 偏移量  长度  内容
+ * 0       4     魔数 0x444D4B31（"DMK1"）
+ * 4       4     每个槽位中数据标识的字节容量
+ * 8       8     版本号
+ * 16      4+N   槽位 0：数据标识的字节长度 + 数据标识的字节
+ * 20+N    4+N   槽位 1：数据标识的字节长度 + 数据标识的字节
+ * </pre>
+ *
+ * <p>
+ * 版本号为 v 时，有效的数据标识保存在槽位 <code>v &amp; 1</code> 中。
+ * 写入时，新的数据标识首先被写入另一个槽位，然后再递增版本号，因此写入进程在写入过程中崩溃时，
+ * 有效的槽位不会被破坏，读取者也不会永久地等待一个未完成的写入。<br>
+ * 读取以顺序锁（seqlock）的方式进行：读取者在读取槽位之前与之后分别读取版本号，
+ * 如果两次读取的版本号不同，说明槽位在读取期间可能被覆盖，此时重新读取。
+ * 因此读取不需要任何锁，也不需要任何系统调用；仅检查数据标识是否变化时，只需要读取一次版本号。
+ *
+ * <p>
+ * 写入者之间通过 {@link FileChannel#lock()} 协调，同一个进程中的多个写入者还会通过进程内的锁串行化，
+ * 以避免 {@link java.nio.channels.OverlappingFileLockException}。
+ *
+ * <p>
+ * 读写之间的顺序由内存屏障保证：在 Java 9 及以上的版本中使用 <code>VarHandle</code> 的屏障方法，
+ * 在 Java 8 中使用 <code>sun.misc.Unsafe</code> 的屏障方法，两者都不可用时，回退到 volatile 字段的读写。
+ *
+ * <p>
+ * 该类是线程安全的。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class MappedDatamarkAccessor implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedDatamarkAccessor.class);
+
+    /**
+     * 魔数，"DMK1" 的 ASCII 编码。
+     */
+    public static final int MAGIC = 0x444D4B31;
+
+    /**
+     * 默认的槽位容量，单位为字节。
+     */
+    public static final int DEFAULT_SLOT_CAPACITY = 1024;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int VERSION_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * 无锁读取的最大尝试次数，超过该次数后，读取者会持有写入锁读取。
+     */
+    private static final int MAX_OPTIMISTIC_READ_ATTEMPTS = 64;
+
+    private final Path file;
+    private final Charset charset;
+    private final int slotCapacity;
+
+    private final Lock writeLock = new ReentrantLock();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    public MappedDatamarkAccessor(@Nonnull Path file, @Nonnull Charset charset) throws IOException {
+        this(file, charset, DEFAULT_SLOT_CAPACITY);
+    }
+
+    public MappedDatamarkAccessor(@Nonnull Path file, @Nonnull Charset charset, int slotCapacity) throws IOException {
+        if (slotCapacity <= 0) {
+            throw new IllegalArgumentException("slotCapacity 必须大于 0");
+        }
+        this.file = file;
+        this.charset = charset;
+        this.slotCapacity = slotCapacity;
+        long fileSize = fileSize(slotCapacity);
+        FileChannel channel = FileChannel.open(
+                file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+        );
+        try {
+            FileLock fileLock = channel.lock();
+            try {
+                long currentSize = channel.size();
+                if (currentSize == 0) {
+                    LOGGER.debug("内存映射文件 {} 为空, 初始化文件布局...", file);
+                    ByteBuffer init = ByteBuffer.allocate((int) fileSize);
+                    init.putInt(MAGIC_OFFSET, MAGIC);
+                    init.putInt(CAPACITY_OFFSET, slotCapacity);
+                    channel.write(init, 0);
+                    channel.force(true);
+                } else if (currentSize != fileSize) {
+                    throw new IOException("文件 " + file + " 的大小 " + currentSize + " 与内存映射文件的布局不符, " +
+                            "该文件可能不是内存映射数据标识文件, 或者槽位容量不一致");
+                }
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            } finally {
+                fileLock.release();
+            }
+            if (buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("文件 " + file + " 不是内存映射数据标识文件");
+            }
+            if (buffer.getInt(CAPACITY_OFFSET) != slotCapacity) {
+                throw new IOException("文件 " + file + " 的槽位容量 " + buffer.getInt(CAPACITY_OFFSET) +
+                        " 与期望的槽位容量 " + slotCapacity + " 不一致");
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.channel = channel;
+    }
+
+    private static long fileSize(int slotCapacity) {
+        return HEADER_SIZE + 2L * (4 + slotCapacity);
+    }
+
+    private int slotOffset(long version) {
+        return HEADER_SIZE + (int) (version & 1) * (4 + slotCapacity);
+    }
+
+    /**
+     * 获取当前的版本号。
+     *
+     * <p>
+     * 该方法只读取一次映射内存，不获取任何锁，也不进行任何系统调用，适合在每一次读取数据标识时调用，
+     * 以判断缓存的数据标识是否仍然有效。
+     *
+     * @return 当前的版本号。
+     */
+    public long getVersion() {
+        long version = buffer.getLong(VERSION_OFFSET);
+        Fences.loadFence();
+        return version;
+    }
+
+    /**
+     * 读取当前的数据标识。
+     *
+     * @return 读取的结果，包括数据标识以及它对应的版本号。
+     * @throws IOException 文件中的内容不合法时抛出。
+     */
+    public Read read() throws IOException {
+        for (int i = 0; i < MAX_OPTIMISTIC_READ_ATTEMPTS; i++) {
+            long version = getVersion();
+            byte[] bytes = readSlot(version);
+            Fences.loadFence();
+            if (buffer.getLong(VERSION_OFFSET) == version) {
+                return new Read(decode(bytes), version);
+            }
+        }
+        // 写入过于频繁，持有写入锁读取，保证读取能够完成。
+        LOGGER.debug("无锁读取连续 {} 次失败, 持有写入锁读取...", MAX_OPTIMISTIC_READ_ATTEMPTS);
+        writeLock.lock();
+        try {
+            FileLock fileLock = channel.lock();
+            try {
+                long version = getVersion();
+                return new Read(decode(readSlot(version)), version);
+            } finally {
+                fileLock.release();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 读取槽位中的字节。
+     *
+     * <p>
+     * 槽位可能在读取期间被覆盖，此时读取的长度可能是任意值，因此需要在解码之前校验版本号。
+     *
+     * @return 槽位中的字节，如果读取的长度不合法，则返回 <code>null</code>。
+     */
+    private byte[] readSlot(long version) {
+        int offset = slotOffset(version);
+        int length = buffer.getInt(offset);
+        if (length < 0 || length > slotCapacity) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset + 4);
+        duplicate.get(bytes);
+        return bytes;
+    }
+
+    private String decode(byte[] bytes) throws IOException {
+        if (bytes == null) {
+            throw new IOException("文件 " + file + " 中的数据标识长度不合法");
+        }
+        return new String(bytes, charset);
+    }
+
+    /**
+     * 写入数据标识。
+     *
+     * @param datamark 数据标识。
+     * @return 写入后的版本号。
+     * @throws IOException 写入失败，或者数据标识的字节长度超出槽位容量时抛出。
+     */
+    public long write(@Nonnull String datamark) throws IOException {
+        byte[] bytes = datamark.getBytes(charset);
+        if (bytes.length > slotCapacity) {
+            throw new IOException("数据标识的字节长度 " + bytes.length + " 超出了槽位容量 " + slotCapacity);
+        }
+        writeLock.lock();
+        try {
+            FileLock fileLock = channel.lock();
+            try {
+                return writeSlot(bytes);
+            } finally {
+                fileLock.release();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private long writeSlot(byte[] bytes) {
+        long version = buffer.getLong(VERSION_OFFSET);
+        long nextVersion = version + 1;
+        // 首先写入另一个槽位，此时读取者仍然读取当前的槽位。
+        int offset = slotOffset(nextVersion);
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset + 4);
+        duplicate.put(bytes);
+        buffer.putInt(offset, bytes.length);
+        // 槽位的内容必须在版本号之前对读取者可见。
+        Fences.storeFence();
+        buffer.putLong(VERSION_OFFSET, nextVersion);
+        // 版本号必须在下一次写入槽位之前对读取者可见。
+        Fences.fullFence();
+        return nextVersion;
+    }
+
+    /**
+     * 将映射内存中的内容同步到存储设备。
+     *
+     * <p>
+     * 其它进程通过映射内存读取时不需要调用该方法，仅在需要保证内容在主机掉电后仍然存在时调用。
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public int getSlotCapacity() {
+        return slotCapacity;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedDatamarkAccessor{" +
+                "file=" + file +
+                ", charset=" + charset +
+                ", slotCapacity=" + slotCapacity +
+                '}';
+    }
+
+    /**
+     * 读取的结果。
+     */
+    public static final class Read {
+
+        private final String datamark;
+        private final long version;
+
+        public Read(String datamark, long version) {
+            this.datamark = datamark;
+            this.version = version;
+        }
+
+        public String getDatamark() {
+            return datamark;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public String toString() {
+            return "Read{" +
+                    "datamark='" + datamark + '\'' +
+                    ", version=" + version +
+                    '}';
+        }
+    }
+
+    /**
+     * 内存屏障。
+     */
+    private static final class Fences {
+
+        private static final MethodHandle LOAD_FENCE;
+        private static final MethodHandle STORE_FENCE;
+        private static final MethodHandle FULL_FENCE;
+
+        @SuppressWarnings("unused")
+        private static volatile int fallback;
+
+        static {
+            MethodHandle[] handles = resolveVarHandleFences();
+            if (handles == null) {
+                handles = resolveUnsafeFences();
+            }
+            if (handles == null) {
+                LOGGER.debug("无法获取内存屏障方法, 回退到 volatile 字段的读写");
+                handles = new MethodHandle[3];
+            }
+            LOAD_FENCE = handles[0];
+            STORE_FENCE = handles[1];
+            FULL_FENCE = handles[2];
+        }
+
+        private static MethodHandle[] resolveVarHandleFences() {
+            try {
+                Class<?> varHandleClass = Class.forName("java.lang.invoke.VarHandle");
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                MethodType type = MethodType.methodType(void.class);
+                return new MethodHandle[]{
+                        lookup.findStatic(varHandleClass, "acquireFence", type),
+                        lookup.findStatic(varHandleClass, "releaseFence", type),
+                        lookup.findStatic(varHandleClass, "fullFence", type)
+                };
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        private static MethodHandle[] resolveUnsafeFences() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                Object unsafe = field.get(null);
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodType type = MethodType.methodType(void.class);
+                return new MethodHandle[]{
+                        lookup.findVirtual(unsafeClass, "loadFence", type).bindTo(unsafe),
+                        lookup.findVirtual(unsafeClass, "storeFence", type).bindTo(unsafe),
+                        lookup.findVirtual(unsafeClass, "fullFence", type).bindTo(unsafe)
+                };
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        static void loadFence() {
+            invoke(LOAD_FENCE);
+        }
+
+        static void storeFence() {
+            invoke(STORE_FENCE);
+        }
+
+        static void fullFence() {
+            invoke(FULL_FENCE);
+        }
+
+        private static void invoke(MethodHandle handle) {
+            if (handle == null) {
+                fallback++;
+                return;
+            }
+            try {
+                handle.invokeExact();
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        private Fences() {
+            throw new IllegalStateException("禁止实例化");
+        }
+    }
+}
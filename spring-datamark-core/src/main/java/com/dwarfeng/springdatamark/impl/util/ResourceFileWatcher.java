@@ -0,0 +1,330 @@
+package com.dwarfeng.springdatamark.impl.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 资源文件监视器。
+ *
+ * <p>
+ * 基于 {@link WatchService} 监视文件的变化，所有的数据标识服务实例共享同一个监视器以及同一个监视线程。
+ *
+ * <p>
+ * 监视器对文件事件进行防抖处理：在防抖时间内连续发生的多个事件只会触发一次回调，回调在最后一个事件发生后的防抖时间到期时执行。<br>
+ * 回调执行前，监视器会计算文件内容的摘要，只有当文件内容与上一次回调（或注册）时的内容不同时，才会真正执行回调。<br>
+ * 防抖的计时在共享的调度执行器中进行，摘要的计算与回调的执行则提交到共享的 IO 执行器中，不会阻塞调度执行器。
+ *
+ * <p>
+ * 如果被监视的目录被删除或者所在的文件系统被卸载，该目录的监视会失效，监视器会记录警告日志并移除该目录的监视；
+ * 如果目录此时仍然存在，监视器会尝试重新监视该目录。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class ResourceFileWatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceFileWatcher.class);
+
+    private static final ResourceFileWatcher INSTANCE = new ResourceFileWatcher();
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * 获取共享的资源文件监视器。
+     *
+     * @return 共享的资源文件监视器。
+     */
+    public static ResourceFileWatcher getInstance() {
+        return INSTANCE;
+    }
+
+    private final Object lock = new Object();
+
+    private final Map<Path, WatchKey> directoryKeyMap = new HashMap<>();
+    private final Map<Path, Set<Registration>> fileRegistrationMap = new HashMap<>();
+
+    private WatchService watchService;
+
+    private ResourceFileWatcher() {
+    }
+
+    /**
+     * 注册需要监视的文件。
+     *
+     * @param file           需要监视的文件。
+     * @param debounceMillis 防抖时间，单位为毫秒。
+     * @param callback       文件内容变化时执行的回调。
+     * @return 注册信息，可以用于取消注册。
+     * @throws IOException IO 异常。
+     */
+    public Registration register(@Nonnull Path file, long debounceMillis, @Nonnull Runnable callback)
+            throws IOException {
+        Path normalizedFile = file.toAbsolutePath().normalize();
+        Path directory = normalizedFile.getParent();
+        synchronized (lock) {
+            ensureStarted();
+            if (!directoryKeyMap.containsKey(directory)) {
+                WatchKey watchKey = directory.register(
+                        watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY
+                );
+                directoryKeyMap.put(directory, watchKey);
+            }
+            Registration registration = new Registration(normalizedFile, debounceMillis, callback);
+            fileRegistrationMap.computeIfAbsent(normalizedFile, k -> new LinkedHashSet<>()).add(registration);
+            LOGGER.debug("开始监视文件 {}, 防抖时间 {} 毫秒", normalizedFile, debounceMillis);
+            return registration;
+        }
+    }
+
+    /**
+     * 获取文件所在的目录是否正在被监视。
+     *
+     * @param file 文件。
+     * @return 文件所在的目录是否正在被监视。
+     */
+    boolean isWatching(@Nonnull Path file) {
+        Path directory = file.toAbsolutePath().normalize().getParent();
+        synchronized (lock) {
+            return directoryKeyMap.containsKey(directory);
+        }
+    }
+
+    private void ensureStarted() throws IOException {
+        if (Objects.nonNull(watchService)) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        Thread thread = SharedExecutors.daemonThreadFactory("spring-datamark-file-watcher").newThread(
+                this::watchLoop
+        );
+        thread.start();
+    }
+
+    private void unregister(Registration registration) {
+        synchronized (lock) {
+            Set<Registration> registrations = fileRegistrationMap.get(registration.file);
+            if (Objects.isNull(registrations) || !registrations.remove(registration)) {
+                return;
+            }
+            LOGGER.debug("停止监视文件 {}", registration.file);
+            if (!registrations.isEmpty()) {
+                return;
+            }
+            fileRegistrationMap.remove(registration.file);
+            // 如果目录下已经没有任何被监视的文件，则取消目录的监视。
+            Path directory = registration.file.getParent();
+            boolean directoryInUse = fileRegistrationMap.keySet().stream()
+                    .anyMatch(p -> Objects.equals(p.getParent(), directory));
+            if (!directoryInUse) {
+                Optional.ofNullable(directoryKeyMap.remove(directory)).ifPresent(WatchKey::cancel);
+            }
+        }
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey watchKey;
+            try {
+                watchKey = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            try {
+                handleWatchKey(watchKey);
+            } catch (Exception e) {
+                LOGGER.warn("处理文件监视事件时发生异常, 异常信息如下: ", e);
+            } finally {
+                if (!watchKey.reset()) {
+                    handleInvalidWatchKey(watchKey);
+                }
+            }
+        }
+    }
+
+    private void handleInvalidWatchKey(WatchKey watchKey) {
+        Path directory = (Path) watchKey.watchable();
+        synchronized (lock) {
+            // 目录的监视已经因为取消注册而被取消，无需处理。
+            if (directoryKeyMap.get(directory) != watchKey) {
+                return;
+            }
+            directoryKeyMap.remove(directory);
+            if (!Files.isDirectory(directory)) {
+                LOGGER.warn("目录 {} 的监视已失效, 目录可能已被删除或卸载, 该目录下的文件将不再被监视", directory);
+                return;
+            }
+            try {
+                WatchKey newWatchKey = directory.register(
+                        watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY
+                );
+                directoryKeyMap.put(directory, newWatchKey);
+                LOGGER.warn("目录 {} 的监视已失效, 已重新监视该目录", directory);
+            } catch (IOException e) {
+                LOGGER.warn("目录 {} 的监视已失效, 且无法重新监视该目录, 该目录下的文件将不再被监视, 异常信息如下: ",
+                        directory, e);
+            }
+        }
+    }
+
+    private void handleWatchKey(WatchKey watchKey) {
+        Path directory = (Path) watchKey.watchable();
+        List<Registration> triggeredRegistrations = new ArrayList<>();
+        synchronized (lock) {
+            for (WatchEvent<?> event : watchKey.pollEvents()) {
+                // 事件溢出时，无法确定具体的文件，触发该目录下的所有注册。
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    fileRegistrationMap.forEach((file, registrations) -> {
+                        if (Objects.equals(file.getParent(), directory)) {
+                            triggeredRegistrations.addAll(registrations);
+                        }
+                    });
+                    continue;
+                }
+                Path file = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+                Set<Registration> registrations = fileRegistrationMap.get(file);
+                if (Objects.nonNull(registrations)) {
+                    triggeredRegistrations.addAll(registrations);
+                }
+            }
+        }
+        triggeredRegistrations.forEach(Registration::schedule);
+    }
+
+    @Nullable
+    private static byte[] digest(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, length);
+            }
+            return messageDigest.digest();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            LOGGER.debug("计算文件 {} 的摘要时发生异常, 异常信息如下: ", file, e);
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceFileWatcher{" +
+                "directoryKeyMap=" + directoryKeyMap +
+                ", fileRegistrationMap=" + fileRegistrationMap +
+                '}';
+    }
+
+    /**
+     * 文件监视的注册信息。
+     */
+    public final class Registration {
+
+        private final Path file;
+        private final long debounceMillis;
+        private final Runnable callback;
+
+        /**
+         * 摘要锁。
+         *
+         * <p>
+         * 串行化摘要的计算与比较，与注册信息本身的监视器分离，计算摘要时不会阻塞监视线程的防抖计时。
+         */
+        private final Object digestLock = new Object();
+
+        private ScheduledFuture<?> pendingFuture;
+        private boolean cancelled;
+        private byte[] lastDigest;
+
+        private Registration(Path file, long debounceMillis, Runnable callback) {
+            this.file = file;
+            this.debounceMillis = debounceMillis;
+            this.callback = callback;
+            this.lastDigest = digest(file);
+        }
+
+        /**
+         * 取消注册。
+         */
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                if (Objects.nonNull(pendingFuture)) {
+                    pendingFuture.cancel(false);
+                    pendingFuture = null;
+                }
+            }
+            unregister(this);
+        }
+
+        private synchronized void schedule() {
+            if (cancelled) {
+                return;
+            }
+            // 防抖：取消尚未执行的回调，并重新计时。
+            if (Objects.nonNull(pendingFuture)) {
+                pendingFuture.cancel(false);
+            }
+            pendingFuture = SharedExecutors.scheduler().schedule(
+                    this::dispatch, debounceMillis, TimeUnit.MILLISECONDS
+            );
+        }
+
+        private void dispatch() {
+            synchronized (this) {
+                pendingFuture = null;
+            }
+            // 调度执行器只负责计时，摘要的计算与回调可能阻塞，提交到 IO 执行器中执行。
+            try {
+                SharedExecutors.io().execute(this::fire);
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("IO 执行器拒绝了文件 {} 的变化回调, 将在防抖时间后重试", file);
+                schedule();
+            }
+        }
+
+        private void fire() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+            }
+            synchronized (digestLock) {
+                byte[] currentDigest = digest(file);
+                if (Objects.nonNull(currentDigest) && Arrays.equals(currentDigest, lastDigest)) {
+                    LOGGER.debug("文件 {} 的内容没有变化, 忽略本次事件", file);
+                    return;
+                }
+                lastDigest = currentDigest;
+            }
+            LOGGER.debug("文件 {} 的内容发生变化, 执行回调...", file);
+            try {
+                callback.run();
+            } catch (Exception e) {
+                LOGGER.warn("执行文件 {} 的变化回调时发生异常, 异常信息如下: ", file, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Registration{" +
+                    "file=" + file +
+                    ", debounceMillis=" + debounceMillis +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.dwarfeng.springdatamark.impl.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟执行的 IO 任务。
+ *
+ * <p>
+ * 任务的计时在共享的调度执行器中进行，到期后任务被提交到共享的 IO 执行器中执行，
+ * 因此可能阻塞的资源读写不会占用调度执行器的线程。<br>
+ * 同一时刻最多只安排一次执行：已经安排且尚未到期时，再次安排不会生效；到期后即可再次安排，
+ * 因此任务可以在执行结束时安排下一次执行。<br>
+ * IO 执行器拒绝任务时，执行构造时指定的拒绝回调，回调通常会重新安排任务。
+ *
+ * <p>
+ * 调用 {@link #stop()} 之后，任务不再执行，也不能再被安排。
+ *
+ * <p>
+ * 该类同时提供定时刷新与后台重试使用的延迟时间计算方法。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class ScheduledIoTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledIoTask.class);
+
+    /**
+     * 计算首次执行的延迟时间。
+     *
+     * <p>
+     * 延迟时间在 <code>[1, interval]</code> 中随机选取，避免同时启动的多个任务同时执行。
+     *
+     * @param interval 执行间隔，单位为毫秒，必须大于 0。
+     * @return 首次执行的延迟时间，单位为毫秒。
+     */
+    public static long initialDelay(long interval) {
+        return ThreadLocalRandom.current().nextLong(interval) + 1;
+    }
+
+    /**
+     * 计算带有抖动的延迟时间。
+     *
+     * <p>
+     * 延迟时间在 <code>[interval * (1 - jitter), interval * (1 + jitter)]</code> 中随机选取，并且不小于 1。
+     * 抖动比例被限制在 <code>[0, 1]</code> 之间。
+     *
+     * @param interval 执行间隔，单位为毫秒。
+     * @param jitter   抖动比例。
+     * @return 带有抖动的延迟时间，单位为毫秒。
+     */
+    public static long jitteredDelay(long interval, double jitter) {
+        double boundedJitter = Math.max(0.0, Math.min(1.0, jitter));
+        return Math.max(1L, Math.round(
+                interval * (1.0 + boundedJitter * (ThreadLocalRandom.current().nextDouble() * 2.0 - 1.0))
+        ));
+    }
+
+    /**
+     * 计算指数退避的延迟时间。
+     *
+     * <p>
+     * 第一次失败后等待初始延迟时间，此后每一次连续的失败都使延迟时间加倍，直到达到最大延迟时间。
+     *
+     * @param initialDelay 初始延迟时间，单位为毫秒。
+     * @param maxDelay     最大延迟时间，单位为毫秒。
+     * @param failureCount 连续失败的次数。
+     * @return 指数退避的延迟时间，单位为毫秒。
+     */
+    public static long backoffDelay(long initialDelay, long maxDelay, int failureCount) {
+        long delay = Math.min(initialDelay, maxDelay);
+        for (int i = 1; i < failureCount && delay < maxDelay; i++) {
+            delay = Math.min(delay * 2, maxDelay);
+        }
+        return delay;
+    }
+
+    private final String name;
+    private final Runnable task;
+    private final Runnable rejectionHandler;
+
+    private final Object lock = new Object();
+
+    // 以下字段只在持有锁时访问。
+    private ScheduledFuture<?> future;
+
+    private volatile boolean stopped;
+
+    /**
+     * 构造器。
+     *
+     * @param name             任务名称，用于日志。
+     * @param task             在 IO 执行器中执行的任务。
+     * @param rejectionHandler IO 执行器拒绝任务时，在调度执行器中执行的回调，不应长时间阻塞。
+     */
+    public ScheduledIoTask(@Nonnull String name, @Nonnull Runnable task, @Nonnull Runnable rejectionHandler) {
+        this.name = name;
+        this.task = task;
+        this.rejectionHandler = rejectionHandler;
+    }
+
+    /**
+     * 安排任务在延迟时间后执行。
+     *
+     * @param delayMillis 延迟时间，单位为毫秒。
+     * @return 是否安排了任务，任务已经安排且尚未到期，或者任务已经停止时返回 <code>false</code>。
+     */
+    public boolean schedule(long delayMillis) {
+        synchronized (lock) {
+            if (stopped || Objects.nonNull(future)) {
+                return false;
+            }
+            future = SharedExecutors.scheduler().schedule(this::onScheduled, delayMillis, TimeUnit.MILLISECONDS);
+            return true;
+        }
+    }
+
+    /**
+     * 取消已经安排且尚未到期的执行。
+     *
+     * <p>
+     * 取消之后任务仍然可以被再次安排；已经提交到 IO 执行器中的执行不受影响。
+     */
+    public void cancel() {
+        synchronized (lock) {
+            if (Objects.isNull(future)) {
+                return;
+            }
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * 停止任务。
+     *
+     * <p>
+     * 取消已经安排的执行，此后任务不再执行，也不能再被安排。
+     */
+    public void stop() {
+        synchronized (lock) {
+            stopped = true;
+            cancel();
+        }
+    }
+
+    /**
+     * 获取任务是否已经安排且尚未到期。
+     *
+     * @return 任务是否已经安排且尚未到期。
+     */
+    public boolean isScheduled() {
+        synchronized (lock) {
+            return Objects.nonNull(future);
+        }
+    }
+
+    /**
+     * 获取任务是否已经停止。
+     *
+     * @return 任务是否已经停止。
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    private void onScheduled() {
+        synchronized (lock) {
+            future = null;
+            if (stopped) {
+                return;
+            }
+        }
+        try {
+            SharedExecutors.io().execute(this::run);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("IO 执行器拒绝了任务 {}, 执行拒绝回调", name);
+            rejectionHandler.run();
+        }
+    }
+
+    private void run() {
+        // 提交到 IO 执行器之后，任务可能已经停止。
+        if (stopped) {
+            return;
+        }
+        task.run();
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduledIoTask{" +
+                "name='" + name + '\'' +
+                ", stopped=" + stopped +
+                '}';
+    }
+}
@@ -0,0 +1,242 @@
+package com.dwarfeng.springdatamark.impl.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享执行器。
+ *
+ * <p>
+ * 为所有的数据标识服务实例提供共享的后台执行器，避免每个服务实例各自创建线程。<br>
+ * 执行器中的线程均为守护线程，不会阻止 JVM 退出。<br>
+ * 所有的执行器都在第一次使用时才会被创建。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class SharedExecutors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedExecutors.class);
+
+    private static final int SCHEDULER_POOL_SIZE = 2;
+    private static final int IO_POOL_SIZE = 4;
+    private static final int IO_QUEUE_CAPACITY = 1024;
+    private static final long IO_KEEP_ALIVE_SECONDS = 60L;
+
+    /**
+     * 使用虚拟线程时，同时执行的 IO 任务的最大数量。
+     *
+     * <p>
+     * 虚拟线程阻塞的代价很低，但任务占用的文件句柄、数据库连接等资源并不廉价，
+     * 大量服务同时初始化或刷新时，不应同时发起无限多的 IO。
+     */
+    private static final int IO_VIRTUAL_CONCURRENCY = 16;
+
+    /**
+     * 获取共享的调度执行器。
+     *
+     * <p>
+     * 调度执行器被所有的数据标识服务实例共享，提交到其中的任务应当是短小的，不应长时间阻塞。
+     *
+     * @return 共享的调度执行器。
+     */
+    public static ScheduledExecutorService scheduler() {
+        return SchedulerHolder.SCHEDULER;
+    }
+
+    /**
+     * 获取共享的 IO 执行器。
+     *
+     * <p>
+     * IO 执行器用于执行可能阻塞的资源读写，被所有的异步数据标识服务共享。<br>
+     * 如果运行时支持虚拟线程（Java 21 及以上），IO 执行器为每个任务创建一个虚拟线程，
+     * 但同时执行的任务数量受信号量限制，其余的任务在各自的虚拟线程中等待；
+     * 否则，IO 执行器是一个有界的线程池。<br>
+     * 无论使用哪种实现，同时执行与等待执行的任务数量均有上限，超出上限的任务会被拒绝，
+     * 并抛出 {@link RejectedExecutionException}。
+     *
+     * @return 共享的 IO 执行器。
+     */
+    public static ExecutorService io() {
+        return IoHolder.IO;
+    }
+
+    /**
+     * 创建守护线程工厂。
+     *
+     * @param namePrefix 线程名称前缀。
+     * @return 守护线程工厂。
+     */
+    public static ThreadFactory daemonThreadFactory(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private SharedExecutors() {
+        throw new IllegalStateException("禁止实例化");
+    }
+
+    /**
+     * 延迟初始化调度执行器的持有者。
+     */
+    private static final class SchedulerHolder {
+
+        private static final ScheduledExecutorService SCHEDULER;
+
+        static {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                    SCHEDULER_POOL_SIZE, daemonThreadFactory("spring-datamark-scheduler")
+            );
+            // 被取消的任务立即从队列中移除，防止防抖等频繁取消的场景下队列膨胀。
+            executor.setRemoveOnCancelPolicy(true);
+            SCHEDULER = executor;
+        }
+    }
+
+    /**
+     * 延迟初始化 IO 执行器的持有者。
+     */
+    private static final class IoHolder {
+
+        private static final ExecutorService IO;
+
+        static {
+            ExecutorService executor = tryCreateVirtualThreadExecutor();
+            if (Objects.isNull(executor)) {
+                ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                        IO_POOL_SIZE, IO_POOL_SIZE, IO_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(IO_QUEUE_CAPACITY), daemonThreadFactory("spring-datamark-io")
+                );
+                // 空闲的线程在保活时间后退出，没有 IO 任务时不占用线程。
+                threadPoolExecutor.allowCoreThreadTimeOut(true);
+                executor = threadPoolExecutor;
+                LOGGER.debug("运行时不支持虚拟线程, IO 执行器使用有界线程池");
+            } else {
+                executor = new ConcurrencyLimitedExecutor(
+                        executor, IO_VIRTUAL_CONCURRENCY, IO_VIRTUAL_CONCURRENCY + IO_QUEUE_CAPACITY
+                );
+                LOGGER.debug("IO 执行器使用虚拟线程, 最多同时执行 {} 个任务", IO_VIRTUAL_CONCURRENCY);
+            }
+            IO = executor;
+        }
+
+        /**
+         * 尝试创建基于虚拟线程的执行器。
+         *
+         * <p>
+         * 项目以 Java 8 为编译目标，因此通过反射调用 <code>Executors#newVirtualThreadPerTaskExecutor()</code>。
+         *
+         * @return 基于虚拟线程的执行器，如果运行时不支持虚拟线程，则返回 <code>null</code>。
+         */
+        private static ExecutorService tryCreateVirtualThreadExecutor() {
+            try {
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) method.invoke(null);
+            } catch (NoSuchMethodException e) {
+                return null;
+            } catch (Exception e) {
+                LOGGER.debug("无法创建基于虚拟线程的执行器, 异常信息如下: ", e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 限制并发数量的执行器。
+     *
+     * <p>
+     * 任务被提交到委托的执行器中，并在执行前获取信号量，因此同时执行的任务数量不超过许可的数量。<br>
+     * 已提交但尚未完成的任务数量超过上限时，新的任务会被拒绝，与有界线程池的队列上限保持一致。<br>
+     * 执行器的生命周期由委托的执行器决定。<br>
+     * 该类对包可见，以便在不支持虚拟线程的运行时中，以普通的线程池作为委托执行器进行测试。
+     */
+    static final class ConcurrencyLimitedExecutor extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+        private final int maxPending;
+        private final AtomicInteger pending = new AtomicInteger();
+
+        public ConcurrencyLimitedExecutor(ExecutorService delegate, int concurrency, int maxPending) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(concurrency);
+            this.maxPending = maxPending;
+        }
+
+        @Override
+        public void execute(@Nonnull Runnable command) {
+            Objects.requireNonNull(command, "command 不能为 null");
+            if (pending.incrementAndGet() > maxPending) {
+                pending.decrementAndGet();
+                throw new RejectedExecutionException("IO 执行器中未完成的任务数量超过上限 " + maxPending);
+            }
+            try {
+                delegate.execute(() -> runWithPermit(command));
+            } catch (RuntimeException e) {
+                pending.decrementAndGet();
+                throw e;
+            }
+        }
+
+        private void runWithPermit(Runnable command) {
+            try {
+                // 任务可能是 submit 生成的 FutureTask，放弃执行会使其永远无法完成，因此不响应中断。
+                permits.acquireUninterruptibly();
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            } finally {
+                pending.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Nonnull
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public String toString() {
+            return "ConcurrencyLimitedExecutor{" +
+                    "delegate=" + delegate +
+                    ", availablePermits=" + permits.availablePermits() +
+                    ", maxPending=" + maxPending +
+                    ", pending=" + pending.get() +
+                    '}';
+        }
+    }
+}
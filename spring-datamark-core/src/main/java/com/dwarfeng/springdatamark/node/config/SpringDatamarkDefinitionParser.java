@@ -1,16 +1,26 @@
 package com.dwarfeng.springdatamark.node.config;
 
 import com.dwarfeng.springdatamark.impl.service.DatamarkServiceImpl;
+import com.dwarfeng.springdatamark.impl.service.DatamarkServiceInitializer;
+import com.dwarfeng.springdatamark.impl.service.JdbcDatamarkServiceImpl;
+import com.dwarfeng.springdatamark.impl.service.MappedDatamarkServiceImpl;
+import com.dwarfeng.springdatamark.impl.util.JdbcDatamarkStorage;
+import com.dwarfeng.springdatamark.impl.util.KeyedDatamarkStorage;
 import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.ManagedList;
 import org.springframework.beans.factory.xml.BeanDefinitionParser;
 import org.springframework.beans.factory.xml.ParserContext;
 import org.w3c.dom.Element;
 
 import javax.annotation.Nonnull;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Datamark 相关的 BeanDefinitionParser。
@@ -21,6 +31,7 @@ import java.util.Objects;
 public class SpringDatamarkDefinitionParser implements BeanDefinitionParser {
 
     private static final String DATAMARK_NAMESPACE_URL = "http://dwarfeng.com/schema/spring-datamark";
+    private static final String KEYED_STORAGE_KEYS_ATTRIBUTE = "springDatamark.keyedStorageKeys";
 
     @Override
     public BeanDefinition parse(Element element, @Nonnull ParserContext parserContext) {
@@ -38,27 +49,103 @@ public class SpringDatamarkDefinitionParser implements BeanDefinitionParser {
         if (Objects.isNull(resourceSettingElement)) {
             datamarkConfigBuilder.addPropertyValue("resourceUrl", "classpath:datamark/storage");
             datamarkConfigBuilder.addPropertyValue("resourceCharset", "UTF-8");
+            datamarkConfigBuilder.addPropertyValue("resourceWatchEnabled", false);
+            datamarkConfigBuilder.addPropertyValue("resourceWatchDebounce", 500L);
+            datamarkConfigBuilder.addPropertyValue("resourceChangeDetectionEnabled", false);
+            datamarkConfigBuilder.addPropertyValue("resourceSyncWriteEnabled", false);
+            datamarkConfigBuilder.addPropertyValue("resourceAtomicWriteEnabled", false);
+            datamarkConfigBuilder.addPropertyValue("resourceKey", "");
         } else {
             datamarkConfigBuilder.addPropertyValue("resourceUrl", ParserUtil.mayResolve(
                     parserContext, resourceSettingElement.getAttribute("url")));
             datamarkConfigBuilder.addPropertyValue("resourceCharset", ParserUtil.mayResolve(
                     parserContext, resourceSettingElement.getAttribute("charset")));
+            datamarkConfigBuilder.addPropertyValue("resourceWatchEnabled", ParserUtil.mayResolve(
+                    parserContext, resourceSettingElement.getAttribute("watch-enabled")));
+            datamarkConfigBuilder.addPropertyValue("resourceWatchDebounce", ParserUtil.mayResolve(
+                    parserContext, resourceSettingElement.getAttribute("watch-debounce")));
+            datamarkConfigBuilder.addPropertyValue("resourceChangeDetectionEnabled", ParserUtil.mayResolve(
+                    parserContext, resourceSettingElement.getAttribute("change-detection-enabled")));
+            datamarkConfigBuilder.addPropertyValue("resourceSyncWriteEnabled", ParserUtil.mayResolve(
+                    parserContext, resourceSettingElement.getAttribute("sync-write-enabled")));
+            datamarkConfigBuilder.addPropertyValue("resourceAtomicWriteEnabled", ParserUtil.mayResolve(
+                    parserContext, resourceSettingElement.getAttribute("atomic-write-enabled")));
+            datamarkConfigBuilder.addPropertyValue("resourceKey", ParserUtil.mayResolve(
+                    parserContext, resourceSettingElement.getAttribute("key")));
         }
         // 解析 service-setting。
         Element serviceSettingElement = (Element) element.getElementsByTagNameNS(
                 DATAMARK_NAMESPACE_URL, "service-setting").item(0);
         if (Objects.isNull(serviceSettingElement)) {
             datamarkConfigBuilder.addPropertyValue("serviceUpdateAllowed", true);
+            datamarkConfigBuilder.addPropertyValue("serviceWriteBehindEnabled", false);
+            datamarkConfigBuilder.addPropertyValue("serviceWriteBehindDelay", 100L);
+            datamarkConfigBuilder.addPropertyValue("serviceStaleTtl", 0L);
+            datamarkConfigBuilder.addPropertyValue("serviceNegativeCacheTtl", 0L);
+            datamarkConfigBuilder.addPropertyValue("serviceRetryInitialDelay", 1000L);
+            datamarkConfigBuilder.addPropertyValue("serviceRetryMaxDelay", 60000L);
+            datamarkConfigBuilder.addPropertyValue("serviceRefreshInterval", 0L);
+            datamarkConfigBuilder.addPropertyValue("serviceRefreshJitter", 0.1);
+            datamarkConfigBuilder.addPropertyValue("serviceInitMode", "sync");
         } else {
             datamarkConfigBuilder.addPropertyValue("serviceUpdateAllowed", ParserUtil.mayResolve(
                     parserContext, serviceSettingElement.getAttribute("update-allowed")));
+            datamarkConfigBuilder.addPropertyValue("serviceWriteBehindEnabled", ParserUtil.mayResolve(
+                    parserContext, serviceSettingElement.getAttribute("write-behind-enabled")));
+            datamarkConfigBuilder.addPropertyValue("serviceWriteBehindDelay", ParserUtil.mayResolve(
+                    parserContext, serviceSettingElement.getAttribute("write-behind-delay")));
+            datamarkConfigBuilder.addPropertyValue("serviceStaleTtl", ParserUtil.mayResolve(
+                    parserContext, serviceSettingElement.getAttribute("stale-ttl")));
+            datamarkConfigBuilder.addPropertyValue("serviceNegativeCacheTtl", ParserUtil.mayResolve(
+                    parserContext, serviceSettingElement.getAttribute("negative-cache-ttl")));
+            datamarkConfigBuilder.addPropertyValue("serviceRetryInitialDelay", ParserUtil.mayResolve(
+                    parserContext, serviceSettingElement.getAttribute("retry-initial-delay")));
+            datamarkConfigBuilder.addPropertyValue("serviceRetryMaxDelay", ParserUtil.mayResolve(
+                    parserContext, serviceSettingElement.getAttribute("retry-max-delay")));
+            datamarkConfigBuilder.addPropertyValue("serviceRefreshInterval", ParserUtil.mayResolve(
+                    parserContext, serviceSettingElement.getAttribute("refresh-interval")));
+            datamarkConfigBuilder.addPropertyValue("serviceRefreshJitter", ParserUtil.mayResolve(
+                    parserContext, serviceSettingElement.getAttribute("refresh-jitter")));
+            datamarkConfigBuilder.addPropertyValue("serviceInitMode", ParserUtil.mayResolve(
+                    parserContext, serviceSettingElement.getAttribute("init-mode")));
         }
         // 注册 DatamarkConfig。
         datamarkConfigBuilder.setScope(BeanDefinition.SCOPE_SINGLETON);
         datamarkConfigBuilder.setLazyInit(false);
         parserContext.getRegistry().registerBeanDefinition(configId, datamarkConfigBuilder.getBeanDefinition());
-        // 构造 DatamarkService。
-        BeanDefinitionBuilder datamarkServiceBuilder = BeanDefinitionBuilder.rootBeanDefinition(DatamarkServiceImpl.class);
+        // 解析 jdbc-setting 与 mapped-setting，并构造 DatamarkService。
+        Element jdbcSettingElement = (Element) element.getElementsByTagNameNS(
+                DATAMARK_NAMESPACE_URL, "jdbc-setting").item(0);
+        Element mappedSettingElement = (Element) element.getElementsByTagNameNS(
+                DATAMARK_NAMESPACE_URL, "mapped-setting").item(0);
+        if (Objects.nonNull(jdbcSettingElement) && Objects.nonNull(mappedSettingElement)) {
+            throw new IllegalStateException("jdbc-setting and mapped-setting can not be used together in " + serviceId);
+        }
+        BeanDefinitionBuilder datamarkServiceBuilder;
+        if (Objects.nonNull(mappedSettingElement)) {
+            datamarkServiceBuilder = BeanDefinitionBuilder.rootBeanDefinition(MappedDatamarkServiceImpl.class);
+            datamarkServiceBuilder.addPropertyValue("url", ParserUtil.mayResolve(
+                    parserContext, mappedSettingElement.getAttribute("url")));
+            datamarkServiceBuilder.addPropertyValue("charset", ParserUtil.mayResolve(
+                    parserContext, mappedSettingElement.getAttribute("charset")));
+            datamarkServiceBuilder.addPropertyValue("slotCapacity", ParserUtil.mayResolve(
+                    parserContext, mappedSettingElement.getAttribute("slot-capacity")));
+        } else if (Objects.isNull(jdbcSettingElement)) {
+            datamarkServiceBuilder = BeanDefinitionBuilder.rootBeanDefinition(DatamarkServiceImpl.class);
+            mayRegisterInitializer(parserContext, serviceSettingElement);
+            String keyedStorageId = mayRegisterKeyedStorage(parserContext, resourceSettingElement);
+            if (Objects.nonNull(keyedStorageId)) {
+                datamarkServiceBuilder.addPropertyValue(
+                        "keyedDatamarkStorage", new RuntimeBeanReference(keyedStorageId)
+                );
+            }
+        } else {
+            String storageId = registerJdbcStorage(parserContext, jdbcSettingElement, serviceId);
+            datamarkServiceBuilder = BeanDefinitionBuilder.rootBeanDefinition(JdbcDatamarkServiceImpl.class);
+            datamarkServiceBuilder.addPropertyValue("jdbcDatamarkStorage", new RuntimeBeanReference(storageId));
+            datamarkServiceBuilder.addPropertyValue("storageKey", resolveStorageKey(
+                    parserContext, jdbcSettingElement, serviceId));
+        }
         // DatamarkService 参数赋值。
         datamarkServiceBuilder.addPropertyValue("datamarkConfig", new RuntimeBeanReference(configId));
         // 注册构造 DatamarkService。
@@ -69,6 +156,121 @@ public class SpringDatamarkDefinitionParser implements BeanDefinitionParser {
         return null;
     }
 
+    /**
+     * 注册 jdbc-setting 对应的 JdbcDatamarkStorage，并将服务的存储键追加到存储预先声明的键中。
+     *
+     * <p>
+     * 数据源、表名以及列名均相同的 jdbc-setting 共享同一个存储，因此这些服务在启动与刷新时只需要一次查询。
+     *
+     * @return 存储的 bean id。
+     */
+    private String registerJdbcStorage(ParserContext parserContext, Element jdbcSettingElement, String serviceId) {
+        String dataSourceRef = ParserUtil.mayResolve(parserContext, jdbcSettingElement.getAttribute("data-source-ref"));
+        String table = ParserUtil.mayResolve(parserContext, jdbcSettingElement.getAttribute("table"));
+        String keyColumn = ParserUtil.mayResolve(parserContext, jdbcSettingElement.getAttribute("key-column"));
+        String valueColumn = ParserUtil.mayResolve(parserContext, jdbcSettingElement.getAttribute("value-column"));
+        String versionColumn = ParserUtil.mayResolve(parserContext, jdbcSettingElement.getAttribute("version-column"));
+        String storageKey = resolveStorageKey(parserContext, jdbcSettingElement, serviceId);
+        String storageId = JdbcDatamarkStorage.class.getName() + "#" + dataSourceRef + "#" + table + "(" +
+                keyColumn + "," + valueColumn + "," + versionColumn + ")";
+        BeanDefinition storageDefinition;
+        if (parserContext.getRegistry().containsBeanDefinition(storageId)) {
+            storageDefinition = parserContext.getRegistry().getBeanDefinition(storageId);
+        } else {
+            BeanDefinitionBuilder storageBuilder = BeanDefinitionBuilder.rootBeanDefinition(JdbcDatamarkStorage.class);
+            storageBuilder.addPropertyValue("dataSource", new RuntimeBeanReference(dataSourceRef));
+            storageBuilder.addPropertyValue("tableName", table);
+            storageBuilder.addPropertyValue("keyColumn", keyColumn);
+            storageBuilder.addPropertyValue("valueColumn", valueColumn);
+            storageBuilder.addPropertyValue("versionColumn", versionColumn);
+            storageBuilder.addPropertyValue("keys", new ManagedList<String>());
+            storageBuilder.setScope(BeanDefinition.SCOPE_SINGLETON);
+            storageBuilder.setLazyInit(false);
+            storageDefinition = storageBuilder.getBeanDefinition();
+            parserContext.getRegistry().registerBeanDefinition(storageId, storageDefinition);
+        }
+        @SuppressWarnings("unchecked")
+        List<String> keys = (List<String>) Objects.requireNonNull(
+                storageDefinition.getPropertyValues().get("keys"));
+        if (keys.contains(storageKey)) {
+            throw new IllegalStateException("Duplicated datamark storage key " + storageKey + " in table " + table);
+        }
+        keys.add(storageKey);
+        return storageId;
+    }
+
+    /**
+     * 如果 service-setting 中的初始化模式为并行模式，则注册 DatamarkServiceInitializer。
+     *
+     * <p>
+     * 应用上下文中只会注册一个初始化器，它会等待所有以并行模式初始化的服务。
+     */
+    private void mayRegisterInitializer(ParserContext parserContext, Element serviceSettingElement) {
+        if (Objects.isNull(serviceSettingElement)) {
+            return;
+        }
+        String initMode = ParserUtil.mayResolve(parserContext, serviceSettingElement.getAttribute("init-mode"));
+        if (!DatamarkConfig.INIT_MODE_PARALLEL.equals(initMode)) {
+            return;
+        }
+        String initializerId = DatamarkServiceInitializer.class.getName();
+        if (parserContext.getRegistry().containsBeanDefinition(initializerId)) {
+            return;
+        }
+        BeanDefinitionBuilder initializerBuilder = BeanDefinitionBuilder.rootBeanDefinition(
+                DatamarkServiceInitializer.class
+        );
+        initializerBuilder.setScope(BeanDefinition.SCOPE_SINGLETON);
+        initializerBuilder.setLazyInit(false);
+        parserContext.getRegistry().registerBeanDefinition(initializerId, initializerBuilder.getBeanDefinition());
+    }
+
+    /**
+     * 如果 resource-setting 中指定了资源键，则注册对应的 KeyedDatamarkStorage。
+     *
+     * <p>
+     * 地址与字符集均相同的 resource-setting 共享同一个存储，因此这些服务在启动与刷新时只需要读取一次资源。
+     *
+     * @return 存储的 bean id，如果没有指定资源键，则返回 <code>null</code>。
+     */
+    private String mayRegisterKeyedStorage(ParserContext parserContext, Element resourceSettingElement) {
+        if (Objects.isNull(resourceSettingElement)) {
+            return null;
+        }
+        String key = ParserUtil.mayResolve(parserContext, resourceSettingElement.getAttribute("key"));
+        if (StringUtils.isEmpty(key)) {
+            return null;
+        }
+        String url = ParserUtil.mayResolve(parserContext, resourceSettingElement.getAttribute("url"));
+        String charset = ParserUtil.mayResolve(parserContext, resourceSettingElement.getAttribute("charset"));
+        String storageId = KeyedDatamarkStorage.class.getName() + "#" + url + "#" + charset;
+        BeanDefinition storageDefinition;
+        if (parserContext.getRegistry().containsBeanDefinition(storageId)) {
+            storageDefinition = parserContext.getRegistry().getBeanDefinition(storageId);
+        } else {
+            BeanDefinitionBuilder storageBuilder = BeanDefinitionBuilder.rootBeanDefinition(KeyedDatamarkStorage.class);
+            storageBuilder.addPropertyValue("resourceUrl", url);
+            storageBuilder.addPropertyValue("resourceCharset", charset);
+            storageBuilder.setScope(BeanDefinition.SCOPE_SINGLETON);
+            storageBuilder.setLazyInit(false);
+            storageDefinition = storageBuilder.getBeanDefinition();
+            storageDefinition.setAttribute(KEYED_STORAGE_KEYS_ATTRIBUTE, new HashSet<String>());
+            parserContext.getRegistry().registerBeanDefinition(storageId, storageDefinition);
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> keys = (Set<String>) Objects.requireNonNull(
+                storageDefinition.getAttribute(KEYED_STORAGE_KEYS_ATTRIBUTE));
+        if (!keys.add(key)) {
+            throw new IllegalStateException("Duplicated datamark resource key " + key + " in resource " + url);
+        }
+        return storageId;
+    }
+
+    private String resolveStorageKey(ParserContext parserContext, Element jdbcSettingElement, String serviceId) {
+        String storageKey = ParserUtil.mayResolve(parserContext, jdbcSettingElement.getAttribute("key"));
+        return StringUtils.isEmpty(storageKey) ? serviceId : storageKey;
+    }
+
     private void checkBeanDuplicated(ParserContext parserContext, String id) {
         if (parserContext.getRegistry().containsBeanDefinition(id)) {
             throw new IllegalStateException("Duplicated spring bean id " + id);
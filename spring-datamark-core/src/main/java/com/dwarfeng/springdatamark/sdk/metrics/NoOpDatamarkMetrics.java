@@ -0,0 +1,57 @@
+package com.dwarfeng.springdatamark.sdk.metrics;
+
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import com.dwarfeng.springdatamark.stack.metrics.DatamarkMetrics;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 不执行任何操作的数据标识指标记录器。
+ *
+ * <p>
+ * 数据标识服务与数据标识实体侦听器在使用该记录器时，会跳过所有的指标采集（包括计时），因此不会产生任何额外的开销。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public final class NoOpDatamarkMetrics implements DatamarkMetrics {
+
+    private static final NoOpDatamarkMetrics INSTANCE = new NoOpDatamarkMetrics();
+
+    /**
+     * 获取不执行任何操作的数据标识指标记录器。
+     *
+     * @return 不执行任何操作的数据标识指标记录器。
+     */
+    public static NoOpDatamarkMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private NoOpDatamarkMetrics() {
+    }
+
+    @Override
+    public void recordGet(@Nonnull String serviceId, boolean hit) {
+    }
+
+    @Override
+    public void recordRefresh(@Nonnull String serviceId, long durationNanos, boolean succeed) {
+    }
+
+    @Override
+    public void recordUpdate(@Nonnull String serviceId, long durationNanos, boolean succeed) {
+    }
+
+    @Override
+    public void recordException(@Nonnull String serviceId, @Nonnull DatamarkException exception) {
+    }
+
+    @Override
+    public void recordEntityCallback(@Nonnull Class<?> entityClass, @Nonnull String callback, long durationNanos) {
+    }
+
+    @Override
+    public String toString() {
+        return "NoOpDatamarkMetrics{}";
+    }
+}
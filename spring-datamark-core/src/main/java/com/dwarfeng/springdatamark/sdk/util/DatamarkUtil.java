@@ -1,7 +1,13 @@
 package com.dwarfeng.springdatamark.sdk.util;
 
+import com.dwarfeng.springdatamark.sdk.validator.CharTableDatamarkValidator;
+import com.dwarfeng.springdatamark.stack.validator.DatamarkValidator;
+
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Iterator;
 import java.util.Objects;
+import java.util.ServiceLoader;
 
 /**
  * 数据标识工具类。
@@ -11,22 +17,55 @@ import java.util.Objects;
  */
 public final class DatamarkUtil {
 
+    private static volatile DatamarkValidator validator = loadValidator();
+
+    private static DatamarkValidator loadValidator() {
+        Iterator<DatamarkValidator> iterator = ServiceLoader.load(
+                DatamarkValidator.class, DatamarkUtil.class.getClassLoader()
+        ).iterator();
+        if (iterator.hasNext()) {
+            return iterator.next();
+        }
+        return CharTableDatamarkValidator.defaultInstance();
+    }
+
     /**
      * 检查数据标识是否合法。
      *
+     * <p>
+     * 该方法委托给当前注册的 {@link DatamarkValidator}，默认的校验器为
+     * {@link CharTableDatamarkValidator#defaultInstance()}。
+     *
      * @param datamark 数据标识。
      * @return 数据标识是否合法。
      */
     // 为了代码的可阅读性，此处不做简化。
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public static boolean isDatamarkValid(@Nullable String datamark) {
-        if (Objects.isNull(datamark)) {
-            return false;
-        }
-        if (datamark.length() > Constraints.LENGTH_DATAMARK) {
-            return false;
-        }
-        return datamark.matches("^[a-zA-Z0-9.\\-_]*$");
+        return validator.isValid(datamark);
+    }
+
+    /**
+     * 获取当前注册的数据标识校验器。
+     *
+     * @return 当前注册的数据标识校验器。
+     * @since 1.2.0
+     */
+    public static DatamarkValidator getValidator() {
+        return validator;
+    }
+
+    /**
+     * 注册数据标识校验器。
+     *
+     * <p>
+     * 注册后，所有的数据标识服务以及集成模块都将使用新的校验器。
+     *
+     * @param validator 新的数据标识校验器。
+     * @since 1.2.0
+     */
+    public static void setValidator(@Nonnull DatamarkValidator validator) {
+        DatamarkUtil.validator = Objects.requireNonNull(validator, "validator 不能为 null");
     }
 
     private DatamarkUtil() {
@@ -0,0 +1,108 @@
+package com.dwarfeng.springdatamark.sdk.validator;
+
+import com.dwarfeng.springdatamark.sdk.util.Constraints;
+import com.dwarfeng.springdatamark.stack.validator.DatamarkValidator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * 基于字符表的数据标识校验器。
+ *
+ * <p>
+ * 校验器在构造时根据允许的字符预先计算一张 ASCII 查找表，校验时只需对数据标识进行一次遍历，
+ * 同时检查长度与字符，整个过程不产生任何内存分配。
+ *
+ * <p>
+ * 如果部署方需要使用自定义的字符集，可以继承该类，在无参构造器中调用父类构造器传入允许的字符，
+ * 并通过 {@link java.util.ServiceLoader} 机制注册子类。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class CharTableDatamarkValidator implements DatamarkValidator {
+
+    /**
+     * 默认允许的字符，与 1.2.0 之前的正则表达式 <code>^[a-zA-Z0-9.\-_]*$</code> 等价。
+     */
+    public static final String DEFAULT_ALLOWED_CHARACTERS =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789.-_";
+
+    private static final int ASCII_TABLE_SIZE = 128;
+
+    private static final CharTableDatamarkValidator DEFAULT_INSTANCE = new CharTableDatamarkValidator();
+
+    /**
+     * 获取默认的校验器实例。
+     *
+     * @return 默认的校验器实例。
+     */
+    public static CharTableDatamarkValidator defaultInstance() {
+        return DEFAULT_INSTANCE;
+    }
+
+    private final boolean[] allowedTable;
+    private final int maxLength;
+
+    public CharTableDatamarkValidator() {
+        this(DEFAULT_ALLOWED_CHARACTERS, Constraints.LENGTH_DATAMARK);
+    }
+
+    public CharTableDatamarkValidator(@Nonnull String allowedCharacters) {
+        this(allowedCharacters, Constraints.LENGTH_DATAMARK);
+    }
+
+    public CharTableDatamarkValidator(@Nonnull String allowedCharacters, int maxLength) {
+        if (maxLength < 0 || maxLength > Constraints.LENGTH_DATAMARK) {
+            throw new IllegalArgumentException(
+                    "maxLength 必须介于 0 与 " + Constraints.LENGTH_DATAMARK + " 之间: " + maxLength
+            );
+        }
+        this.allowedTable = new boolean[ASCII_TABLE_SIZE];
+        for (int i = 0; i < allowedCharacters.length(); i++) {
+            char c = allowedCharacters.charAt(i);
+            if (c >= ASCII_TABLE_SIZE) {
+                throw new IllegalArgumentException("允许的字符必须是 ASCII 字符: " + c);
+            }
+            allowedTable[c] = true;
+        }
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public boolean isValid(@Nullable String datamark) {
+        if (Objects.isNull(datamark)) {
+            return false;
+        }
+        int length = datamark.length();
+        if (length > maxLength) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = datamark.charAt(i);
+            if (c >= ASCII_TABLE_SIZE || !allowedTable[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (char c = 0; c < ASCII_TABLE_SIZE; c++) {
+            if (allowedTable[c]) {
+                sb.append(c);
+            }
+        }
+        return "CharTableDatamarkValidator{" +
+                "allowedCharacters='" + sb + '\'' +
+                ", maxLength=" + maxLength +
+                '}';
+    }
+}
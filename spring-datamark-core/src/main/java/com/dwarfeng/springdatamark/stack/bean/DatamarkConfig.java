@@ -8,10 +8,179 @@ package com.dwarfeng.springdatamark.stack.bean;
  */
 public class DatamarkConfig {
 
+    /**
+     * 初始化模式：在服务初始化时同步读取资源。
+     *
+     * @since 1.2.0
+     */
+    public static final String INIT_MODE_SYNC = "sync";
+
+    /**
+     * 初始化模式：在服务初始化时并行读取资源，并在所有单例初始化完成之后统一等待。
+     *
+     * @since 1.2.0
+     */
+    public static final String INIT_MODE_PARALLEL = "parallel";
+
+    /**
+     * 初始化模式：第一次获取数据标识时再读取资源。
+     *
+     * @since 1.2.0
+     */
+    public static final String INIT_MODE_LAZY = "lazy";
+
     private String resourceUrl;
     private String resourceCharset;
     private boolean serviceUpdateAllowed;
 
+    /**
+     * 是否监视资源文件的变化，并在变化时自动刷新。
+     *
+     * @since 1.2.0
+     */
+    private boolean resourceWatchEnabled = false;
+
+    /**
+     * 资源文件监视的防抖时间，单位为毫秒。
+     *
+     * @since 1.2.0
+     */
+    private long resourceWatchDebounce = 500L;
+
+    /**
+     * 是否启用资源的变更检测。
+     *
+     * <p>
+     * 启用后，刷新时会首先比较资源的最后修改时间与内容长度，如果与上一次读取时相同，则跳过本次读取。
+     *
+     * @since 1.2.0
+     */
+    private boolean resourceChangeDetectionEnabled = false;
+
+    /**
+     * 写入资源文件后，是否强制将内容同步到存储设备。
+     *
+     * <p>
+     * 仅对文件系统中的资源生效。启用后，每次更新都会等待内容落盘，耐久性更好，但写入延迟会显著增加。
+     * 启用原子写入时，临时文件总是会被同步到存储设备，该选项决定是否额外同步资源文件所在的目录。
+     *
+     * @since 1.2.0
+     */
+    private boolean resourceSyncWriteEnabled = false;
+
+    /**
+     * 是否以原子方式写入资源文件。
+     *
+     * <p>
+     * 仅对文件系统中的资源生效。启用后，数据标识会先写入同一目录下的临时文件并同步到存储设备，
+     * 再通过原子移动替换资源文件，因此并发的读取者或者进程崩溃都不会观察到被截断的资源文件。
+     *
+     * @since 1.2.0
+     */
+    private boolean resourceAtomicWriteEnabled = false;
+
+    /**
+     * 是否启用延迟写入。
+     *
+     * <p>
+     * 启用后，更新方法只校验数据标识并立即更新内存中的数据标识，资源的写入由后台线程延迟执行，
+     * 延迟时间内的多次更新只会产生一次写入，写入的内容为最后一次更新的数据标识。
+     *
+     * @since 1.2.0
+     */
+    private boolean serviceWriteBehindEnabled = false;
+
+    /**
+     * 延迟写入的延迟时间，单位为毫秒。
+     *
+     * @since 1.2.0
+     */
+    private long serviceWriteBehindDelay = 100L;
+
+    /**
+     * 陈旧数据标识的最长提供时间，单位为毫秒。
+     *
+     * <p>
+     * 大于 0 时，如果刷新失败，服务会在最后一次成功获取数据标识后的该时间内继续提供最后一次成功获取的数据标识，
+     * 同时在后台以指数退避的方式重试刷新。<br>
+     * 等于 0 时，刷新失败会立即清除缓存。
+     *
+     * @since 1.2.0
+     */
+    private long serviceStaleTtl = 0L;
+
+    /**
+     * 失败结果的缓存时间，单位为毫秒。
+     *
+     * <p>
+     * 大于 0 时，如果刷新失败并且没有可以提供的数据标识，服务会在该时间内直接抛出最后一次失败的异常，
+     * 而不是在每一次获取时都重新读取资源，同时在后台以指数退避的方式重试刷新。
+     *
+     * @since 1.2.0
+     */
+    private long serviceNegativeCacheTtl = 0L;
+
+    /**
+     * 后台重试刷新的初始延迟时间，单位为毫秒。
+     *
+     * <p>
+     * 每一次连续的失败都会使延迟时间加倍，直到达到最大延迟时间。
+     *
+     * @since 1.2.0
+     */
+    private long serviceRetryInitialDelay = 1000L;
+
+    /**
+     * 后台重试刷新的最大延迟时间，单位为毫秒。
+     *
+     * @since 1.2.0
+     */
+    private long serviceRetryMaxDelay = 60000L;
+
+    /**
+     * 定时刷新的间隔时间，单位为毫秒。
+     *
+     * <p>
+     * 大于 0 时，服务会通过共享的调度器定时刷新数据标识；等于 0 时，不进行定时刷新。
+     *
+     * @since 1.2.0
+     */
+    private long serviceRefreshInterval = 0L;
+
+    /**
+     * 定时刷新的抖动比例，取值范围为 [0, 1]。
+     *
+     * <p>
+     * 每一次定时刷新的实际间隔时间在 <code>间隔时间 * (1 ± 抖动比例)</code> 的范围内随机选取，
+     * 以避免多个服务在同一时刻集中访问资源。
+     *
+     * @since 1.2.0
+     */
+    private double serviceRefreshJitter = 0.1;
+
+    /**
+     * 资源中数据标识的键。
+     *
+     * <p>
+     * 为空时，资源的第一行即为数据标识；不为空时，资源中的每一行都是 <code>键=数据标识</code> 的形式，
+     * 服务读写其中与该键对应的一行，地址相同的多个服务共享同一个资源，一次解析即可填充所有服务的缓存。
+     *
+     * @since 1.2.0
+     */
+    private String resourceKey = "";
+
+    /**
+     * 服务的初始化模式。
+     *
+     * <p>
+     * <code>sync</code>：在服务初始化时同步读取资源；
+     * <code>parallel</code>：在服务初始化时将读取提交到共享的有界线程池中，并在所有单例初始化完成之后统一等待；
+     * <code>lazy</code>：服务初始化时不读取资源，第一次获取数据标识时再读取。
+     *
+     * @since 1.2.0
+     */
+    private String serviceInitMode = "sync";
+
     public DatamarkConfig() {
     }
 
@@ -45,12 +214,147 @@ public class DatamarkConfig {
         this.serviceUpdateAllowed = serviceUpdateAllowed;
     }
 
+    public boolean isResourceWatchEnabled() {
+        return resourceWatchEnabled;
+    }
+
+    public void setResourceWatchEnabled(boolean resourceWatchEnabled) {
+        this.resourceWatchEnabled = resourceWatchEnabled;
+    }
+
+    public long getResourceWatchDebounce() {
+        return resourceWatchDebounce;
+    }
+
+    public void setResourceWatchDebounce(long resourceWatchDebounce) {
+        this.resourceWatchDebounce = resourceWatchDebounce;
+    }
+
+    public boolean isResourceChangeDetectionEnabled() {
+        return resourceChangeDetectionEnabled;
+    }
+
+    public void setResourceChangeDetectionEnabled(boolean resourceChangeDetectionEnabled) {
+        this.resourceChangeDetectionEnabled = resourceChangeDetectionEnabled;
+    }
+
+    public boolean isResourceSyncWriteEnabled() {
+        return resourceSyncWriteEnabled;
+    }
+
+    public void setResourceSyncWriteEnabled(boolean resourceSyncWriteEnabled) {
+        this.resourceSyncWriteEnabled = resourceSyncWriteEnabled;
+    }
+
+    public boolean isResourceAtomicWriteEnabled() {
+        return resourceAtomicWriteEnabled;
+    }
+
+    public void setResourceAtomicWriteEnabled(boolean resourceAtomicWriteEnabled) {
+        this.resourceAtomicWriteEnabled = resourceAtomicWriteEnabled;
+    }
+
+    public boolean isServiceWriteBehindEnabled() {
+        return serviceWriteBehindEnabled;
+    }
+
+    public void setServiceWriteBehindEnabled(boolean serviceWriteBehindEnabled) {
+        this.serviceWriteBehindEnabled = serviceWriteBehindEnabled;
+    }
+
+    public long getServiceWriteBehindDelay() {
+        return serviceWriteBehindDelay;
+    }
+
+    public void setServiceWriteBehindDelay(long serviceWriteBehindDelay) {
+        this.serviceWriteBehindDelay = serviceWriteBehindDelay;
+    }
+
+    public long getServiceStaleTtl() {
+        return serviceStaleTtl;
+    }
+
+    public void setServiceStaleTtl(long serviceStaleTtl) {
+        this.serviceStaleTtl = serviceStaleTtl;
+    }
+
+    public long getServiceNegativeCacheTtl() {
+        return serviceNegativeCacheTtl;
+    }
+
+    public void setServiceNegativeCacheTtl(long serviceNegativeCacheTtl) {
+        this.serviceNegativeCacheTtl = serviceNegativeCacheTtl;
+    }
+
+    public long getServiceRetryInitialDelay() {
+        return serviceRetryInitialDelay;
+    }
+
+    public void setServiceRetryInitialDelay(long serviceRetryInitialDelay) {
+        this.serviceRetryInitialDelay = serviceRetryInitialDelay;
+    }
+
+    public long getServiceRetryMaxDelay() {
+        return serviceRetryMaxDelay;
+    }
+
+    public void setServiceRetryMaxDelay(long serviceRetryMaxDelay) {
+        this.serviceRetryMaxDelay = serviceRetryMaxDelay;
+    }
+
+    public long getServiceRefreshInterval() {
+        return serviceRefreshInterval;
+    }
+
+    public void setServiceRefreshInterval(long serviceRefreshInterval) {
+        this.serviceRefreshInterval = serviceRefreshInterval;
+    }
+
+    public double getServiceRefreshJitter() {
+        return serviceRefreshJitter;
+    }
+
+    public void setServiceRefreshJitter(double serviceRefreshJitter) {
+        this.serviceRefreshJitter = serviceRefreshJitter;
+    }
+
+    public String getResourceKey() {
+        return resourceKey;
+    }
+
+    public void setResourceKey(String resourceKey) {
+        this.resourceKey = resourceKey;
+    }
+
+    public String getServiceInitMode() {
+        return serviceInitMode;
+    }
+
+    public void setServiceInitMode(String serviceInitMode) {
+        this.serviceInitMode = serviceInitMode;
+    }
+
     @Override
     public String toString() {
         return "DatamarkConfig{" +
                 "resourceUrl='" + resourceUrl + '\'' +
                 ", resourceCharset='" + resourceCharset + '\'' +
                 ", serviceUpdateAllowed=" + serviceUpdateAllowed +
+                ", resourceWatchEnabled=" + resourceWatchEnabled +
+                ", resourceWatchDebounce=" + resourceWatchDebounce +
+                ", resourceChangeDetectionEnabled=" + resourceChangeDetectionEnabled +
+                ", resourceSyncWriteEnabled=" + resourceSyncWriteEnabled +
+                ", resourceAtomicWriteEnabled=" + resourceAtomicWriteEnabled +
+                ", serviceWriteBehindEnabled=" + serviceWriteBehindEnabled +
+                ", serviceWriteBehindDelay=" + serviceWriteBehindDelay +
+                ", serviceStaleTtl=" + serviceStaleTtl +
+                ", serviceNegativeCacheTtl=" + serviceNegativeCacheTtl +
+                ", serviceRetryInitialDelay=" + serviceRetryInitialDelay +
+                ", serviceRetryMaxDelay=" + serviceRetryMaxDelay +
+                ", serviceRefreshInterval=" + serviceRefreshInterval +
+                ", serviceRefreshJitter=" + serviceRefreshJitter +
+                ", resourceKey='" + resourceKey + '\'' +
+                ", serviceInitMode='" + serviceInitMode + '\'' +
                 '}';
     }
 }
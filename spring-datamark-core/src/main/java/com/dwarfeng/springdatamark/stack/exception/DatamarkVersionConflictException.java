@@ -0,0 +1,43 @@
+package com.dwarfeng.springdatamark.stack.exception;
+
+/**
+ * 数据标识版本冲突异常。
+ *
+ * <p>
+ * 以乐观锁的方式写入数据标识时，如果存储中的版本与写入前读取的版本不一致，说明数据标识已经被其它节点修改，
+ * 此时抛出该异常。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkVersionConflictException extends DatamarkException {
+
+    private static final long serialVersionUID = 2470356581370383129L;
+
+    private final String resourceUrl;
+    private final long expectedVersion;
+
+    public DatamarkVersionConflictException(String resourceUrl, long expectedVersion) {
+        this.resourceUrl = resourceUrl;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public DatamarkVersionConflictException(Throwable cause, String resourceUrl, long expectedVersion) {
+        super(cause);
+        this.resourceUrl = resourceUrl;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public String getResourceUrl() {
+        return resourceUrl;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    @Override
+    public String getMessage() {
+        return "数据标识版本冲突: " + resourceUrl + ", 期望的版本: " + expectedVersion;
+    }
+}
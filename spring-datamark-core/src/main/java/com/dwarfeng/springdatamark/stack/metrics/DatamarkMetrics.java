@@ -0,0 +1,66 @@
+package com.dwarfeng.springdatamark.stack.metrics;
+
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 数据标识指标记录器。
+ *
+ * <p>
+ * 数据标识指标记录器是一个 SPI，数据标识服务与数据标识实体侦听器通过它记录运行时的指标，
+ * 部署方可以将其实现为对接任意监控系统的适配器。<br>
+ * 只要应用上下文中存在唯一一个该类型的 Bean，数据标识服务与数据标识实体侦听器就会自动使用它；
+ * 否则，将使用 {@link com.dwarfeng.springdatamark.sdk.metrics.NoOpDatamarkMetrics}，此时不会产生任何额外的开销。
+ *
+ * <p>
+ * 指标记录器会在数据标识服务的读取路径以及实体回调中被频繁调用，实现类应当是线程安全的，且应当尽量避免内存分配。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public interface DatamarkMetrics {
+
+    /**
+     * 记录一次数据标识的获取。
+     *
+     * @param serviceId 数据标识服务的 Bean 名称。
+     * @param hit       是否命中缓存。
+     */
+    void recordGet(@Nonnull String serviceId, boolean hit);
+
+    /**
+     * 记录一次数据标识的刷新。
+     *
+     * @param serviceId     数据标识服务的 Bean 名称。
+     * @param durationNanos 刷新的耗时，单位为纳秒。
+     * @param succeed       刷新是否成功。
+     */
+    void recordRefresh(@Nonnull String serviceId, long durationNanos, boolean succeed);
+
+    /**
+     * 记录一次数据标识的更新。
+     *
+     * @param serviceId     数据标识服务的 Bean 名称。
+     * @param durationNanos 更新的耗时，单位为纳秒。
+     * @param succeed       更新是否成功。
+     */
+    void recordUpdate(@Nonnull String serviceId, long durationNanos, boolean succeed);
+
+    /**
+     * 记录一次数据标识服务向调用者抛出的异常。
+     *
+     * @param serviceId 数据标识服务的 Bean 名称。
+     * @param exception 抛出的异常。
+     */
+    void recordException(@Nonnull String serviceId, @Nonnull DatamarkException exception);
+
+    /**
+     * 记录一次实体回调。
+     *
+     * @param entityClass   实体的类。
+     * @param callback      回调的名称，如 <code>prePersist</code>。
+     * @param durationNanos 回调的耗时，单位为纳秒。
+     */
+    void recordEntityCallback(@Nonnull Class<?> entityClass, @Nonnull String callback, long durationNanos);
+}
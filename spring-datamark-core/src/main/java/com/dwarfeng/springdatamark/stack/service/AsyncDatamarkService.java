@@ -0,0 +1,53 @@
+package com.dwarfeng.springdatamark.stack.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步数据标识服务。
+ *
+ * <p>
+ * {@link DatamarkService} 的异步版本，所有可能阻塞的操作都在后台执行，调用线程不会等待资源的读写。<br>
+ * 操作失败时，返回的 {@link CompletableFuture} 以 {@link com.dwarfeng.springdatamark.stack.exception.DatamarkException}
+ * 异常完成。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public interface AsyncDatamarkService {
+
+    /**
+     * 返回服务是否允许更新。
+     *
+     * @return 服务是否允许更新。
+     */
+    boolean updateAllowed();
+
+    /**
+     * 获取数据标识。
+     *
+     * @return 以数据标识完成的 CompletableFuture。
+     */
+    CompletableFuture<String> get();
+
+    /**
+     * 刷新数据标识。
+     *
+     * @return 刷新完成时完成的 CompletableFuture。
+     */
+    CompletableFuture<Void> refresh();
+
+    /**
+     * 刷新数据标识并获取。
+     *
+     * @return 以刷新后的数据标识完成的 CompletableFuture。
+     */
+    CompletableFuture<String> refreshAndGet();
+
+    /**
+     * 更新数据标识。
+     *
+     * @param datamark 数据标识。
+     * @return 更新完成时完成的 CompletableFuture。
+     */
+    CompletableFuture<Void> update(String datamark);
+}
@@ -0,0 +1,30 @@
+package com.dwarfeng.springdatamark.stack.validator;
+
+import javax.annotation.Nullable;
+
+/**
+ * 数据标识校验器。
+ *
+ * <p>
+ * 数据标识校验器是一个 SPI，部署方可以通过 {@link java.util.ServiceLoader} 机制，
+ * 即在 <code>META-INF/services/com.dwarfeng.springdatamark.stack.validator.DatamarkValidator</code>
+ * 文件中声明实现类，替换默认的校验规则；
+ * 也可以通过 {@link com.dwarfeng.springdatamark.sdk.util.DatamarkUtil#setValidator(DatamarkValidator)}
+ * 在程序中直接注册。
+ *
+ * <p>
+ * 校验器会在数据标识服务的更新与资源读取路径上被频繁调用，实现类应当是线程安全的，且应当尽量避免内存分配。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public interface DatamarkValidator {
+
+    /**
+     * 检查数据标识是否合法。
+     *
+     * @param datamark 数据标识。
+     * @return 数据标识是否合法。
+     */
+    boolean isValid(@Nullable String datamark);
+}
@@ -0,0 +1,183 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import com.dwarfeng.springdatamark.stack.exception.ResourceReadFailedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.newDatamarkConfig;
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.newDatamarkService;
+import static org.junit.Assert.*;
+
+/**
+ * {@link AsyncDatamarkServiceImpl} 合并并发操作的测试。
+ *
+ * <p>
+ * 任务提交到手动执行的执行器中，由测试决定任务执行的时机，因此可以确定地观察合并的行为。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class AsyncDatamarkServiceImplTest {
+
+    private ControllableResource resource;
+    private GenericApplicationContext applicationContext;
+    private DatamarkServiceImpl datamarkService;
+    private ManualExecutor executor;
+    private AsyncDatamarkServiceImpl asyncDatamarkService;
+
+    @Before
+    public void setUp() throws Exception {
+        resource = new ControllableResource("v1");
+        applicationContext = resource.newApplicationContext();
+        DatamarkConfig datamarkConfig = newDatamarkConfig(ControllableResource.LOCATION);
+        // 懒加载模式下服务初始化时不读取资源，缓存为空。
+        datamarkConfig.setServiceInitMode(DatamarkConfig.INIT_MODE_LAZY);
+        datamarkService = newDatamarkService(datamarkConfig, applicationContext);
+        executor = new ManualExecutor();
+        asyncDatamarkService = new AsyncDatamarkServiceImpl(datamarkService, executor);
+    }
+
+    @After
+    public void tearDown() {
+        datamarkService.destroy();
+        applicationContext.close();
+    }
+
+    @Test
+    public void testConcurrentGetsOnColdCacheShareOneTask() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(asyncDatamarkService.get());
+        }
+        assertEquals(1, executor.getPendingCount());
+        assertFalse(futures.get(0).isDone());
+
+        executor.runAll();
+        for (CompletableFuture<String> future : futures) {
+            assertEquals("v1", future.getNow(null));
+        }
+        assertEquals(1, resource.getReadCount());
+    }
+
+    @Test
+    public void testCacheHitCompletesWithoutTask() throws Exception {
+        asyncDatamarkService.get();
+        executor.runAll();
+
+        CompletableFuture<String> future = asyncDatamarkService.get();
+        assertTrue(future.isDone());
+        assertEquals("v1", future.getNow(null));
+        assertEquals(0, executor.getPendingCount());
+    }
+
+    @Test
+    public void testConcurrentRefreshesShareOneTask() throws Exception {
+        resource.setContent("v2");
+        CompletableFuture<String> first = asyncDatamarkService.refreshAndGet();
+        CompletableFuture<Void> second = asyncDatamarkService.refresh();
+        CompletableFuture<String> third = asyncDatamarkService.refreshAndGet();
+        assertEquals(1, executor.getPendingCount());
+
+        executor.runAll();
+        assertEquals("v2", first.getNow(null));
+        assertTrue(second.isDone());
+        assertEquals("v2", third.getNow(null));
+        assertEquals(1, resource.getReadCount());
+
+        // 刷新完成后解除合并，此后的刷新提交新的任务。
+        asyncDatamarkService.refresh();
+        assertEquals(1, executor.getPendingCount());
+    }
+
+    @Test
+    public void testUpdatesNotCoalesced() throws Exception {
+        CompletableFuture<Void> first = asyncDatamarkService.update("v2");
+        CompletableFuture<Void> second = asyncDatamarkService.update("v3");
+        assertEquals(2, executor.getPendingCount());
+
+        executor.runAll();
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals("v3", resource.getContent());
+        assertEquals("v3", datamarkService.get());
+    }
+
+    @Test
+    public void testCancellingOneCallerDoesNotAffectOthers() throws Exception {
+        CompletableFuture<String> cancelled = asyncDatamarkService.get();
+        CompletableFuture<String> other = asyncDatamarkService.get();
+        assertTrue(cancelled.cancel(true));
+
+        executor.runAll();
+        assertTrue(cancelled.isCancelled());
+        assertEquals("v1", other.getNow(null));
+    }
+
+    @Test
+    public void testConcurrentGetsShareOneFailure() throws Exception {
+        resource.setReadFailed(true);
+        CompletableFuture<String> first = asyncDatamarkService.get();
+        CompletableFuture<String> second = asyncDatamarkService.get();
+        assertEquals(1, executor.getPendingCount());
+
+        executor.runAll();
+        Throwable firstFailure = failureOf(first);
+        assertTrue(firstFailure instanceof ResourceReadFailedException);
+        assertSame(firstFailure, failureOf(second));
+        assertEquals(1, resource.getReadCount());
+    }
+
+    @Test
+    public void testRejectedTaskCompletesExceptionallyAndReleasesCoalescing() {
+        AsyncDatamarkServiceImpl rejectingService = new AsyncDatamarkServiceImpl(datamarkService, command -> {
+            throw new RejectedExecutionException("测试拒绝");
+        });
+        assertTrue(failureOf(rejectingService.get()) instanceof RejectedExecutionException);
+        // 被拒绝的操作不会残留为正在执行的操作，此后的请求仍然会尝试提交。
+        assertTrue(failureOf(rejectingService.get()) instanceof RejectedExecutionException);
+        assertTrue(failureOf(rejectingService.refreshAndGet()) instanceof RejectedExecutionException);
+    }
+
+    private static Throwable failureOf(CompletableFuture<?> future) {
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.getNow(null);
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("CompletableFuture 没有以异常完成");
+    }
+
+    /**
+     * 手动执行的执行器，提交的任务只有在调用 {@link #runAll()} 时才会在调用线程中执行。
+     */
+    private static final class ManualExecutor implements Executor {
+
+        private final List<Runnable> pendingTasks = new ArrayList<>();
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            pendingTasks.add(command);
+        }
+
+        synchronized int getPendingCount() {
+            return pendingTasks.size();
+        }
+
+        void runAll() {
+            List<Runnable> tasks;
+            synchronized (this) {
+                tasks = new ArrayList<>(pendingTasks);
+                pendingTasks.clear();
+            }
+            tasks.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.WritableResource;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 可控的资源。
+ *
+ * <p>
+ * 用于测试数据标识服务的并发行为：资源的内容保存在内存中，可以统计读写次数、让读取失败，
+ * 或者让读取与写入阻塞在闸门上，直到测试放行。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+final class ControllableResource extends AbstractResource implements WritableResource {
+
+    /**
+     * 资源地址，通过 {@link #newApplicationContext()} 创建的应用上下文会将该地址解析为本资源。
+     */
+    static final String LOCATION = "controllable:datamark";
+
+    private final AtomicInteger readCount = new AtomicInteger();
+    private final AtomicInteger writeCount = new AtomicInteger();
+    private final Semaphore readStarted = new Semaphore(0);
+    private final Semaphore writeStarted = new Semaphore(0);
+
+    private volatile String content;
+    private volatile boolean readFailed;
+    private volatile CountDownLatch readGate;
+    private volatile CountDownLatch writeGate;
+
+    ControllableResource(String content) {
+        this.content = content;
+    }
+
+    /**
+     * 创建将 {@link #LOCATION} 解析为本资源的应用上下文。
+     *
+     * @return 已经刷新的应用上下文。
+     */
+    GenericApplicationContext newApplicationContext() {
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.addProtocolResolver((location, resourceLoader) -> LOCATION.equals(location) ? this : null);
+        applicationContext.refresh();
+        return applicationContext;
+    }
+
+    /**
+     * 关闭读取闸门，此后的读取都会阻塞，直到调用 {@link #openReadGate()}。
+     */
+    void closeReadGate() {
+        // 只关心闸门关闭之后开始的读取。
+        readStarted.drainPermits();
+        readGate = new CountDownLatch(1);
+    }
+
+    /**
+     * 打开读取闸门，放行所有阻塞的读取。
+     */
+    void openReadGate() {
+        CountDownLatch gate = readGate;
+        readGate = null;
+        if (Objects.nonNull(gate)) {
+            gate.countDown();
+        }
+    }
+
+    /**
+     * 关闭写入闸门，此后的写入都会阻塞，直到调用 {@link #openWriteGate()}。
+     */
+    void closeWriteGate() {
+        // 只关心闸门关闭之后开始的写入。
+        writeStarted.drainPermits();
+        writeGate = new CountDownLatch(1);
+    }
+
+    /**
+     * 打开写入闸门，放行所有阻塞的写入。
+     */
+    void openWriteGate() {
+        CountDownLatch gate = writeGate;
+        writeGate = null;
+        if (Objects.nonNull(gate)) {
+            gate.countDown();
+        }
+    }
+
+    /**
+     * 等待一次写入开始，只统计最近一次关闭写入闸门之后开始的写入。
+     *
+     * @param timeoutMillis 超时时间，单位为毫秒。
+     * @return 是否在超时时间内有写入开始。
+     * @throws InterruptedException 等待被中断时抛出。
+     */
+    boolean awaitWriteStarted(long timeoutMillis) throws InterruptedException {
+        return writeStarted.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 等待一次读取开始，只统计最近一次关闭读取闸门之后开始的读取。
+     *
+     * @param timeoutMillis 超时时间，单位为毫秒。
+     * @return 是否在超时时间内有读取开始。
+     * @throws InterruptedException 等待被中断时抛出。
+     */
+    boolean awaitReadStarted(long timeoutMillis) throws InterruptedException {
+        return readStarted.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Nonnull
+    @Override
+    public InputStream getInputStream() throws IOException {
+        readCount.incrementAndGet();
+        // 在读取开始时确定资源的内容，模拟读取期间资源被修改的情形。
+        String snapshot = content;
+        boolean failed = readFailed;
+        CountDownLatch gate = readGate;
+        readStarted.release();
+        if (Objects.nonNull(gate)) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+        if (failed) {
+            throw new IOException("读取失败");
+        }
+        return new ByteArrayInputStream(snapshot.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nonnull
+    @Override
+    public OutputStream getOutputStream() {
+        return new ByteArrayOutputStream() {
+
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                // 包装流关闭时会再次关闭本流，只有第一次关闭代表写入完成。
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                CountDownLatch gate = writeGate;
+                writeStarted.release();
+                if (Objects.nonNull(gate)) {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(e);
+                    }
+                }
+                content = new String(toByteArray(), StandardCharsets.UTF_8).trim();
+                writeCount.incrementAndGet();
+            }
+        };
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Nonnull
+    @Override
+    public String getDescription() {
+        return "Controllable resource [" + LOCATION + "]";
+    }
+
+    String getContent() {
+        return content;
+    }
+
+    void setContent(String content) {
+        this.content = content;
+    }
+
+    void setReadFailed(boolean readFailed) {
+        this.readFailed = readFailed;
+    }
+
+    int getReadCount() {
+        return readCount.get();
+    }
+
+    int getWriteCount() {
+        return writeCount.get();
+    }
+}
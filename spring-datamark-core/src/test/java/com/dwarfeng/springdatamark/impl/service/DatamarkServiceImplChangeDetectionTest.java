@@ -0,0 +1,116 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.newDatamarkService;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link DatamarkServiceImpl} 基于修改时间与内容长度的变更检测的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkServiceImplChangeDetectionTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private GenericApplicationContext applicationContext;
+    private Path resourcePath;
+    private DatamarkServiceImpl datamarkService;
+
+    @Before
+    public void setUp() throws Exception {
+        applicationContext = new GenericApplicationContext();
+        applicationContext.refresh();
+        resourcePath = temporaryFolder.newFile("datamark.storage").toPath();
+        writeResource("v1", 1_000_000L);
+    }
+
+    @After
+    public void tearDown() {
+        if (Objects.nonNull(datamarkService)) {
+            datamarkService.destroy();
+        }
+        applicationContext.close();
+    }
+
+    @Test
+    public void testUnchangedResourceSkipsReload() throws Exception {
+        datamarkService = newChangeDetectingService(true);
+        assertEquals(1L, datamarkService.getPerformedReloadCount());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("v1", datamarkService.refreshAndGet());
+        }
+        assertEquals(1L, datamarkService.getPerformedReloadCount());
+        assertEquals(3L, datamarkService.getSkippedReloadCount());
+    }
+
+    @Test
+    public void testChangedLengthTriggersReload() throws Exception {
+        datamarkService = newChangeDetectingService(true);
+        // 修改时间不变，内容长度变化。
+        writeResource("v10", 1_000_000L);
+        assertEquals("v10", datamarkService.refreshAndGet());
+        assertEquals(2L, datamarkService.getPerformedReloadCount());
+        assertEquals(0L, datamarkService.getSkippedReloadCount());
+    }
+
+    @Test
+    public void testChangedModifiedTimeTriggersReload() throws Exception {
+        datamarkService = newChangeDetectingService(true);
+        // 内容长度不变，修改时间变化。
+        writeResource("v2", 2_000_000L);
+        assertEquals("v2", datamarkService.refreshAndGet());
+        assertEquals(2L, datamarkService.getPerformedReloadCount());
+        assertEquals(0L, datamarkService.getSkippedReloadCount());
+    }
+
+    @Test
+    public void testUpdateRecordsResourceStamp() throws Exception {
+        datamarkService = newChangeDetectingService(true);
+        datamarkService.update("v2");
+        // 服务自身的写入已经记录了资源的戳记，此后的刷新不需要重新读取资源。
+        assertEquals("v2", datamarkService.refreshAndGet());
+        assertEquals(1L, datamarkService.getPerformedReloadCount());
+        assertEquals(1L, datamarkService.getSkippedReloadCount());
+    }
+
+    @Test
+    public void testDisabledChangeDetectionAlwaysReloads() throws Exception {
+        datamarkService = newChangeDetectingService(false);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("v1", datamarkService.refreshAndGet());
+        }
+        assertEquals(4L, datamarkService.getPerformedReloadCount());
+        assertEquals(0L, datamarkService.getSkippedReloadCount());
+    }
+
+    private DatamarkServiceImpl newChangeDetectingService(boolean changeDetectionEnabled) throws Exception {
+        DatamarkConfig datamarkConfig = DatamarkServiceTestSupport.newDatamarkConfig(resourcePath.toUri().toString());
+        datamarkConfig.setResourceChangeDetectionEnabled(changeDetectionEnabled);
+        return newDatamarkService(datamarkConfig, applicationContext);
+    }
+
+    /**
+     * 写入资源，并将资源的修改时间设置为指定的值，避免文件系统的时间精度影响测试。
+     */
+    private void writeResource(String datamark, long lastModifiedMillis) throws Exception {
+        Files.write(resourcePath, datamark.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(resourcePath, FileTime.fromMillis(lastModifiedMillis));
+    }
+}
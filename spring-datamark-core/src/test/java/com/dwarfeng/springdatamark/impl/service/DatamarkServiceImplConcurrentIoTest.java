@@ -0,0 +1,102 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link DatamarkServiceImpl} 在锁外进行资源读写的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkServiceImplConcurrentIoTest {
+
+    /**
+     * 缓存命中的读取不应等待资源的读写，在该时间内没有返回即视为被阻塞。
+     */
+    private static final long GET_TIMEOUT_MILLIS = 1000L;
+
+    private ControllableResource resource;
+    private GenericApplicationContext applicationContext;
+    private DatamarkServiceImpl datamarkService;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        resource = new ControllableResource("v1");
+        applicationContext = resource.newApplicationContext();
+        datamarkService = newDatamarkService(newDatamarkConfig(ControllableResource.LOCATION), applicationContext);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        resource.openReadGate();
+        resource.openWriteGate();
+        executor.shutdownNow();
+        datamarkService.destroy();
+        applicationContext.close();
+    }
+
+    @Test
+    public void testGetDoesNotWaitForSlowRead() throws Exception {
+        resource.setContent("v2");
+        resource.closeReadGate();
+        Future<String> refreshFuture = executor.submit(() -> datamarkService.refreshAndGet());
+        assertTrue(resource.awaitReadStarted(TIMEOUT_MILLIS));
+
+        assertEquals("v1", executor.submit(() -> datamarkService.get()).get(GET_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        resource.openReadGate();
+        assertEquals("v2", refreshFuture.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals("v2", datamarkService.get());
+    }
+
+    @Test
+    public void testGetDoesNotWaitForSlowWrite() throws Exception {
+        resource.closeWriteGate();
+        Future<?> updateFuture = executor.submit(() -> {
+            datamarkService.update("v2");
+            return null;
+        });
+        assertTrue(resource.awaitWriteStarted(TIMEOUT_MILLIS));
+
+        assertEquals("v1", executor.submit(() -> datamarkService.get()).get(GET_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        resource.openWriteGate();
+        updateFuture.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals("v2", datamarkService.get());
+        assertEquals("v2", resource.getContent());
+    }
+
+    @Test
+    public void testSlowRefreshDoesNotOverwriteNewerUpdate() throws Exception {
+        resource.closeReadGate();
+        // 刷新在更新之前开始，读取到的是更新之前的内容。
+        Future<String> refreshFuture = executor.submit(() -> datamarkService.refreshAndGet());
+        assertTrue(resource.awaitReadStarted(TIMEOUT_MILLIS));
+        Future<?> updateFuture = executor.submit(() -> {
+            datamarkService.update("v2");
+            return null;
+        });
+        awaitWaitingIn(DatamarkServiceImpl.class.getName() + ".writeAndUpdateCache");
+
+        resource.openReadGate();
+        refreshFuture.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        updateFuture.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals("v2", datamarkService.get());
+        assertEquals("v2", resource.getContent());
+        assertEquals("v2", datamarkService.refreshAndGet());
+    }
+}
@@ -0,0 +1,154 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import com.dwarfeng.springdatamark.stack.exception.ResourceReadFailedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.awaitCondition;
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.newDatamarkService;
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatamarkServiceImpl} 陈旧缓存、失败缓存与后台重试的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkServiceImplDegradationTest {
+
+    private static final long LONG_DELAY = TimeUnit.MINUTES.toMillis(10);
+
+    private ControllableResource resource;
+    private GenericApplicationContext applicationContext;
+    private DatamarkServiceImpl datamarkService;
+
+    @Before
+    public void setUp() {
+        resource = new ControllableResource("v1");
+        applicationContext = resource.newApplicationContext();
+    }
+
+    @After
+    public void tearDown() {
+        if (Objects.nonNull(datamarkService)) {
+            datamarkService.destroy();
+        }
+        applicationContext.close();
+    }
+
+    @Test
+    public void testStaleDatamarkServedWithinStaleTtl() throws Exception {
+        DatamarkConfig datamarkConfig = newDatamarkConfig();
+        datamarkConfig.setServiceStaleTtl(LONG_DELAY);
+        datamarkConfig.setServiceRetryInitialDelay(LONG_DELAY);
+        datamarkConfig.setServiceRetryMaxDelay(LONG_DELAY);
+        datamarkService = newDatamarkService(datamarkConfig, applicationContext);
+
+        resource.setReadFailed(true);
+        assertRefreshFails();
+        assertTrue(datamarkService.isDegraded());
+        int readCount = resource.getReadCount();
+        assertEquals("v1", datamarkService.get());
+        // 陈旧的数据标识直接由缓存提供，不会读取资源。
+        assertEquals(readCount, resource.getReadCount());
+    }
+
+    @Test
+    public void testStaleDatamarkExpiresAfterStaleTtl() throws Exception {
+        DatamarkConfig datamarkConfig = newDatamarkConfig();
+        datamarkConfig.setServiceStaleTtl(100L);
+        datamarkConfig.setServiceRetryInitialDelay(LONG_DELAY);
+        datamarkConfig.setServiceRetryMaxDelay(LONG_DELAY);
+        datamarkService = newDatamarkService(datamarkConfig, applicationContext);
+
+        resource.setReadFailed(true);
+        assertRefreshFails();
+        Thread.sleep(200L);
+        try {
+            datamarkService.get();
+            fail("陈旧期限过后应当重新读取资源并抛出异常");
+        } catch (ResourceReadFailedException expected) {
+            // 期望的异常。
+        }
+    }
+
+    @Test
+    public void testNegativeCacheThrowsWithoutReading() throws Exception {
+        DatamarkConfig datamarkConfig = newDatamarkConfig();
+        datamarkConfig.setServiceNegativeCacheTtl(LONG_DELAY);
+        datamarkConfig.setServiceRetryInitialDelay(LONG_DELAY);
+        datamarkConfig.setServiceRetryMaxDelay(LONG_DELAY);
+        datamarkService = newDatamarkService(datamarkConfig, applicationContext);
+
+        resource.setReadFailed(true);
+        DatamarkException failure = assertRefreshFails();
+        int readCount = resource.getReadCount();
+        for (int i = 0; i < 10; i++) {
+            try {
+                datamarkService.get();
+                fail("失败缓存期间应当抛出缓存的异常");
+            } catch (DatamarkException e) {
+                assertSame(failure, e);
+            }
+        }
+        assertEquals(readCount, resource.getReadCount());
+    }
+
+    @Test
+    public void testWithoutDegradationEveryGetReadsAgain() throws Exception {
+        datamarkService = newDatamarkService(newDatamarkConfig(), applicationContext);
+
+        resource.setReadFailed(true);
+        assertRefreshFails();
+        int readCount = resource.getReadCount();
+        for (int i = 0; i < 3; i++) {
+            try {
+                datamarkService.get();
+                fail("资源读取失败时应当抛出异常");
+            } catch (ResourceReadFailedException expected) {
+                // 期望的异常。
+            }
+        }
+        assertEquals(readCount + 3, resource.getReadCount());
+    }
+
+    @Test
+    public void testBackgroundRetryBacksOffAndRecovers() throws Exception {
+        DatamarkConfig datamarkConfig = newDatamarkConfig();
+        datamarkConfig.setServiceStaleTtl(LONG_DELAY);
+        datamarkConfig.setServiceRetryInitialDelay(20L);
+        datamarkConfig.setServiceRetryMaxDelay(40L);
+        datamarkService = newDatamarkService(datamarkConfig, applicationContext);
+
+        resource.setReadFailed(true);
+        assertRefreshFails();
+        // 后台重试持续失败时，连续失败次数不断增加。
+        assertTrue(awaitCondition(() -> datamarkService.getConsecutiveFailureCount() >= 3));
+        assertEquals("v1", datamarkService.get());
+
+        resource.setContent("v2");
+        resource.setReadFailed(false);
+        assertTrue(awaitCondition(() -> !datamarkService.isDegraded()));
+        assertEquals("v2", datamarkService.get());
+    }
+
+    private DatamarkException assertRefreshFails() {
+        try {
+            datamarkService.refresh();
+        } catch (DatamarkException e) {
+            return e;
+        }
+        throw new AssertionError("资源读取失败时刷新应当抛出异常");
+    }
+
+    private DatamarkConfig newDatamarkConfig() {
+        return DatamarkServiceTestSupport.newDatamarkConfig(ControllableResource.LOCATION);
+    }
+}
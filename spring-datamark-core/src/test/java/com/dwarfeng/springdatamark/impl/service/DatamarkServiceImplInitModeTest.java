@@ -0,0 +1,165 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import com.dwarfeng.springdatamark.stack.exception.ResourceReadFailedException;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatamarkServiceImpl} 并行与懒加载初始化，以及 {@link DatamarkServiceInitializer} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkServiceImplInitModeTest {
+
+    private final List<ControllableResource> resources = new ArrayList<>();
+    private final List<GenericApplicationContext> applicationContexts = new ArrayList<>();
+    private final List<DatamarkServiceImpl> services = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        resources.forEach(ControllableResource::openReadGate);
+        services.forEach(DatamarkServiceImpl::destroy);
+        applicationContexts.forEach(GenericApplicationContext::close);
+    }
+
+    @Test
+    public void testParallelInitDoesNotBlockAndGetWaitsForLoad() throws Exception {
+        ControllableResource resource = newResource("v1");
+        resource.closeReadGate();
+        // 初始读取被阻塞，服务的初始化仍然立即返回。
+        DatamarkServiceImpl service = newService(resource, DatamarkConfig.INIT_MODE_PARALLEL);
+        assertTrue(resource.awaitReadStarted(TIMEOUT_MILLIS));
+        assertNull(service.getIfPresent());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 初始读取完成之前的获取操作等待并共享初始读取的结果。
+            Future<String> getFuture = executor.submit(service::get);
+            awaitWaitingIn(DatamarkServiceImpl.class.getName() + ".awaitLoad");
+            resource.openReadGate();
+            assertEquals("v1", getFuture.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        service.awaitInitialization();
+        assertEquals(1, resource.getReadCount());
+    }
+
+    @Test
+    public void testParallelInitLoadsConcurrently() throws Exception {
+        List<ControllableResource> blockedResources = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ControllableResource resource = newResource("v" + i);
+            resource.closeReadGate();
+            blockedResources.add(resource);
+            newService(resource, DatamarkConfig.INIT_MODE_PARALLEL);
+        }
+        // 三个服务的初始读取同时进行。
+        for (ControllableResource resource : blockedResources) {
+            assertTrue(resource.awaitReadStarted(TIMEOUT_MILLIS));
+        }
+        blockedResources.forEach(ControllableResource::openReadGate);
+        for (int i = 0; i < 3; i++) {
+            services.get(i).awaitInitialization();
+            assertEquals("v" + i, services.get(i).getIfPresent());
+        }
+    }
+
+    @Test
+    public void testLazyInitReadsOnFirstGet() throws Exception {
+        ControllableResource resource = newResource("v1");
+        DatamarkServiceImpl service = newService(resource, DatamarkConfig.INIT_MODE_LAZY);
+        assertEquals(0, resource.getReadCount());
+        // 懒加载模式下没有需要等待的初始读取。
+        service.awaitInitialization();
+        assertEquals("v1", service.get());
+        assertEquals(1, resource.getReadCount());
+    }
+
+    @Test
+    public void testInitializerAggregatesFailures() throws Exception {
+        DatamarkServiceImpl succeedService = newService(newResource("v1"), DatamarkConfig.INIT_MODE_PARALLEL);
+        ControllableResource failedResource1 = newResource("v1");
+        failedResource1.setReadFailed(true);
+        DatamarkServiceImpl failedService1 = newService(failedResource1, DatamarkConfig.INIT_MODE_PARALLEL);
+        ControllableResource failedResource2 = newResource("v1");
+        failedResource2.setReadFailed(true);
+        DatamarkServiceImpl failedService2 = newService(failedResource2, DatamarkConfig.INIT_MODE_PARALLEL);
+
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContexts.add(applicationContext);
+        applicationContext.getBeanFactory().registerSingleton("succeedService", succeedService);
+        applicationContext.getBeanFactory().registerSingleton("failedService1", failedService1);
+        applicationContext.getBeanFactory().registerSingleton("failedService2", failedService2);
+        applicationContext.refresh();
+        DatamarkServiceInitializer initializer = new DatamarkServiceInitializer();
+        initializer.setApplicationContext(applicationContext);
+
+        try {
+            initializer.afterSingletonsInstantiated();
+            fail("存在初始化失败的服务时应当抛出异常");
+        } catch (BeanInitializationException e) {
+            // 等待所有的服务之后才抛出异常，两个服务的失败都被记录。
+            Set<Throwable> failures = new HashSet<>();
+            failures.add(e.getCause());
+            failures.addAll(Arrays.asList(e.getSuppressed()));
+            assertEquals(2, failures.size());
+            for (Throwable failure : failures) {
+                assertTrue(failure instanceof ResourceReadFailedException);
+            }
+        }
+        assertEquals("v1", succeedService.getIfPresent());
+    }
+
+    @Test
+    public void testInitializerSucceedsWhenAllServicesLoad() throws Exception {
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContexts.add(applicationContext);
+        for (int i = 0; i < 3; i++) {
+            applicationContext.getBeanFactory().registerSingleton(
+                    "service" + i, newService(newResource("v" + i), DatamarkConfig.INIT_MODE_PARALLEL)
+            );
+        }
+        applicationContext.refresh();
+        DatamarkServiceInitializer initializer = new DatamarkServiceInitializer();
+        initializer.setApplicationContext(applicationContext);
+
+        initializer.afterSingletonsInstantiated();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("v" + i, services.get(i).getIfPresent());
+        }
+    }
+
+    private ControllableResource newResource(String content) {
+        ControllableResource resource = new ControllableResource(content);
+        resources.add(resource);
+        return resource;
+    }
+
+    private DatamarkServiceImpl newService(ControllableResource resource, String initMode) throws Exception {
+        GenericApplicationContext applicationContext = resource.newApplicationContext();
+        applicationContexts.add(applicationContext);
+        DatamarkConfig datamarkConfig = newDatamarkConfig(ControllableResource.LOCATION);
+        datamarkConfig.setServiceInitMode(initMode);
+        DatamarkServiceImpl service = newDatamarkService(datamarkConfig, applicationContext);
+        services.add(service);
+        return service;
+    }
+}
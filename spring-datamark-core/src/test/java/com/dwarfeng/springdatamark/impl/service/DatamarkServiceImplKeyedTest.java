@@ -0,0 +1,187 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.impl.util.KeyedDatamarkStorage;
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * {@link DatamarkServiceImpl} 通过 {@link KeyedDatamarkStorage} 共享同一个资源的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkServiceImplKeyedTest {
+
+    private static final int UPDATE_COUNT = 20;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private GenericApplicationContext applicationContext;
+    private Path resourcePath;
+    private KeyedDatamarkStorage storage;
+    private final List<DatamarkServiceImpl> services = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        applicationContext = new GenericApplicationContext();
+        applicationContext.refresh();
+        resourcePath = temporaryFolder.newFile("datamark.properties").toPath();
+        writeResource("# 数据标识存储", "order=order-1", "user=user-1");
+        storage = new KeyedDatamarkStorage();
+        storage.setResourceUrl(resourcePath.toUri().toString());
+        storage.setResourceCharset(StandardCharsets.UTF_8.name());
+        storage.setResourceLoader(applicationContext);
+    }
+
+    @After
+    public void tearDown() {
+        for (DatamarkServiceImpl service : services) {
+            service.destroy();
+        }
+        applicationContext.close();
+    }
+
+    @Test
+    public void testServicesShareOneLoadOnStartup() throws Exception {
+        DatamarkServiceImpl orderService = newService("order");
+        DatamarkServiceImpl userService = newService("user");
+        DatamarkServiceImpl missingService = newService("missing");
+        assertEquals("order-1", orderService.get());
+        assertEquals("user-1", userService.get());
+        // 资源中不存在的键，其数据标识为空字符串。
+        assertEquals("", missingService.get());
+        assertEquals(1L, storage.getLoadCount());
+    }
+
+    @Test
+    public void testUpdateDoesNotOverwriteOtherKey() throws Exception {
+        DatamarkServiceImpl orderService = newService("order");
+        DatamarkServiceImpl userService = newService("user");
+
+        orderService.update("order-2");
+        assertEquals("order-2", orderService.get());
+        assertEquals("user-1", userService.get());
+        assertEquals(Arrays.asList("# 数据标识存储", "order=order-2", "user=user-1"), readResource());
+
+        userService.update("user-2");
+        assertEquals("order-2", orderService.refreshAndGet());
+        assertEquals("user-2", userService.get());
+        assertEquals(Arrays.asList("# 数据标识存储", "order=order-2", "user=user-2"), readResource());
+    }
+
+    @Test
+    public void testUpdateKeepsExternalChangeOfOtherKey() throws Exception {
+        DatamarkServiceImpl orderService = newService("order");
+        DatamarkServiceImpl userService = newService("user");
+        // 模拟其它进程修改了另一个键，写入前重新读取资源，因此该修改不会丢失。
+        writeResource("# 数据标识存储", "order=order-1", "user=external");
+
+        orderService.update("order-2");
+        assertEquals(Arrays.asList("# 数据标识存储", "order=order-2", "user=external"), readResource());
+        // 写入时重新读取的内容会推送给其它键的服务。
+        assertEquals("external", userService.get());
+    }
+
+    @Test
+    public void testUpdateKeepsFilePermissions() throws Exception {
+        assumeTrue(
+                "文件系统不支持 POSIX 权限",
+                Files.getFileStore(resourcePath).supportsFileAttributeView(PosixFileAttributeView.class)
+        );
+        // 与临时文件的默认权限（仅所有者可读写）不同的权限。
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(resourcePath, permissions);
+        DatamarkServiceImpl orderService = newService("order");
+
+        orderService.update("order-2");
+        assertEquals(Arrays.asList("# 数据标识存储", "order=order-2", "user=user-1"), readResource());
+        assertEquals(permissions, Files.getPosixFilePermissions(resourcePath));
+        // 临时文件已经被移动到资源文件的位置，目录中不会残留其它文件。
+        try (Stream<Path> files = Files.list(resourcePath.getParent())) {
+            assertEquals(Collections.singletonList(resourcePath), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testConcurrentUpdatesOfDifferentKeys() throws Exception {
+        DatamarkServiceImpl orderService = newService("order");
+        DatamarkServiceImpl userService = newService("user");
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> orderFuture = executor.submit(() -> updateRepeatedly(orderService, "order", barrier));
+            Future<?> userFuture = executor.submit(() -> updateRepeatedly(userService, "user", barrier));
+            orderFuture.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            userFuture.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(
+                Arrays.asList("# 数据标识存储", "order=order-" + UPDATE_COUNT, "user=user-" + UPDATE_COUNT),
+                readResource()
+        );
+        assertEquals("order-" + UPDATE_COUNT, orderService.refreshAndGet());
+        assertEquals("user-" + UPDATE_COUNT, userService.get());
+    }
+
+    @Test
+    public void testRefreshAllLoadsOnce() throws Exception {
+        DatamarkServiceImpl orderService = newService("order");
+        DatamarkServiceImpl userService = newService("user");
+        writeResource("order=order-2", "user=user-2");
+        long loadCount = storage.getLoadCount();
+
+        storage.refreshAll();
+        assertEquals(loadCount + 1, storage.getLoadCount());
+        assertEquals("order-2", orderService.get());
+        assertEquals("user-2", userService.get());
+        // 缓存已经由共享的存储更新，读取不会再次读取资源。
+        assertEquals(loadCount + 1, storage.getLoadCount());
+    }
+
+    private Void updateRepeatedly(DatamarkServiceImpl service, String prefix, CyclicBarrier barrier)
+            throws Exception {
+        barrier.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        for (int i = 2; i <= UPDATE_COUNT; i++) {
+            service.update(prefix + "-" + i);
+        }
+        return null;
+    }
+
+    private DatamarkServiceImpl newService(String resourceKey) throws Exception {
+        DatamarkConfig datamarkConfig = newDatamarkConfig(resourcePath.toUri().toString());
+        datamarkConfig.setResourceKey(resourceKey);
+        DatamarkServiceImpl service = newDatamarkService(datamarkConfig, applicationContext, storage);
+        services.add(service);
+        return service;
+    }
+
+    private void writeResource(String... lines) throws Exception {
+        Files.write(resourcePath, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private List<String> readResource() throws Exception {
+        return Files.readAllLines(resourcePath, StandardCharsets.UTF_8);
+    }
+}
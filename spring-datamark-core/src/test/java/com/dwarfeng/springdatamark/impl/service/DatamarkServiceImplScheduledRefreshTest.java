@@ -0,0 +1,93 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import com.dwarfeng.springdatamark.stack.exception.DatamarkException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.Objects;
+
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link DatamarkServiceImpl} 定时刷新的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkServiceImplScheduledRefreshTest {
+
+    private static final long REFRESH_INTERVAL = 50L;
+
+    private ControllableResource resource;
+    private GenericApplicationContext applicationContext;
+    private DatamarkServiceImpl datamarkService;
+
+    @Before
+    public void setUp() {
+        resource = new ControllableResource("v1");
+        applicationContext = resource.newApplicationContext();
+    }
+
+    @After
+    public void tearDown() {
+        if (Objects.nonNull(datamarkService)) {
+            datamarkService.destroy();
+        }
+        applicationContext.close();
+    }
+
+    @Test
+    public void testScheduledRefreshPicksUpChanges() throws Exception {
+        datamarkService = newRefreshingService(0.5);
+        resource.setContent("v2");
+        assertTrue(awaitCondition(() -> isCached("v2")));
+
+        // 每一次刷新完成后安排下一次刷新，刷新持续进行。
+        long refreshCount = datamarkService.getRefreshCount();
+        assertTrue(awaitCondition(() -> datamarkService.getRefreshCount() >= refreshCount + 3));
+    }
+
+    @Test
+    public void testScheduledRefreshContinuesAfterFailure() throws Exception {
+        datamarkService = newRefreshingService(0.0);
+        resource.setReadFailed(true);
+        assertTrue(awaitCondition(() -> datamarkService.getRefreshFailureCount() >= 2));
+
+        resource.setContent("v2");
+        resource.setReadFailed(false);
+        assertTrue(awaitCondition(() -> isCached("v2")));
+    }
+
+    @Test
+    public void testDestroyStopsScheduledRefresh() throws Exception {
+        datamarkService = newRefreshingService(0.5);
+        assertTrue(awaitCondition(() -> datamarkService.getRefreshCount() >= 3));
+        datamarkService.destroy();
+        // 已经提交的刷新可能仍在进行，等待它结束后再统计。
+        Thread.sleep(REFRESH_INTERVAL * 2);
+        int readCount = resource.getReadCount();
+        Thread.sleep(REFRESH_INTERVAL * 6);
+        assertEquals(readCount, resource.getReadCount());
+        datamarkService = null;
+    }
+
+    private DatamarkServiceImpl newRefreshingService(double jitter) throws Exception {
+        DatamarkConfig datamarkConfig = newDatamarkConfig(ControllableResource.LOCATION);
+        datamarkConfig.setServiceRefreshInterval(REFRESH_INTERVAL);
+        datamarkConfig.setServiceRefreshJitter(jitter);
+        return newDatamarkService(datamarkConfig, applicationContext);
+    }
+
+    private boolean isCached(String datamark) {
+        try {
+            return datamark.equals(datamarkService.getIfPresent());
+        } catch (DatamarkException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatamarkServiceImpl} 单飞读取的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkServiceImplSingleFlightTest {
+
+    private static final int THREAD_COUNT = 8;
+
+    private ControllableResource resource;
+    private GenericApplicationContext applicationContext;
+    private DatamarkServiceImpl datamarkService;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        resource = new ControllableResource("v1");
+        applicationContext = resource.newApplicationContext();
+        DatamarkConfig datamarkConfig = newDatamarkConfig(ControllableResource.LOCATION);
+        // 懒加载模式下服务初始化时不读取资源，缓存为空。
+        datamarkConfig.setServiceInitMode(DatamarkConfig.INIT_MODE_LAZY);
+        datamarkService = newDatamarkService(datamarkConfig, applicationContext);
+        executor = Executors.newFixedThreadPool(THREAD_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        resource.openReadGate();
+        executor.shutdownNow();
+        datamarkService.destroy();
+        applicationContext.close();
+    }
+
+    @Test
+    public void testConcurrentGetOnColdCacheReadsOnce() throws Exception {
+        assertEquals(0, resource.getReadCount());
+        resource.closeReadGate();
+        List<Future<String>> futures = submitAll(() -> datamarkService.get());
+        awaitBlocked();
+        resource.openReadGate();
+        for (Future<String> future : futures) {
+            assertEquals("v1", future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+        assertEquals(1, resource.getReadCount());
+    }
+
+    @Test
+    public void testConcurrentRefreshesShareOneRead() throws Exception {
+        assertEquals("v1", datamarkService.get());
+        int readCount = resource.getReadCount();
+        resource.setContent("v2");
+        resource.closeReadGate();
+        List<Future<String>> futures = submitAll(() -> datamarkService.refreshAndGet());
+        awaitBlocked();
+        resource.openReadGate();
+        for (Future<String> future : futures) {
+            assertEquals("v2", future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+        assertEquals(readCount + 1, resource.getReadCount());
+    }
+
+    @Test
+    public void testConcurrentGetsShareOneFailure() throws Exception {
+        resource.setReadFailed(true);
+        resource.closeReadGate();
+        List<Future<String>> futures = submitAll(() -> datamarkService.get());
+        awaitBlocked();
+        resource.openReadGate();
+        Throwable failure = null;
+        for (Future<String> future : futures) {
+            try {
+                future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                fail("资源读取失败时应当抛出异常");
+            } catch (ExecutionException e) {
+                // 所有的等待者共享同一次读取的异常。
+                if (Objects.isNull(failure)) {
+                    failure = e.getCause();
+                }
+                assertSame(failure, e.getCause());
+            }
+        }
+        assertEquals(1, resource.getReadCount());
+    }
+
+    private List<Future<String>> submitAll(Callable<String> task) {
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            futures.add(executor.submit(task));
+        }
+        return futures;
+    }
+
+    /**
+     * 等待一次读取开始，并等待所有的任务线程都阻塞在读取闸门或者正在进行的读取上。
+     */
+    private void awaitBlocked() throws Exception {
+        assertTrue(resource.awaitReadStarted(TIMEOUT_MILLIS));
+        assertTrue("任务线程没有全部阻塞", awaitCondition(() -> countBlockedWorkers() >= THREAD_COUNT));
+    }
+
+    private static int countBlockedWorkers() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!thread.getName().startsWith("pool-")) {
+                continue;
+            }
+            Thread.State state = thread.getState();
+            if (state != Thread.State.WAITING && state != Thread.State.TIMED_WAITING) {
+                continue;
+            }
+            // 空闲的线程池线程也处于等待状态，需要通过调用栈区分：
+            // 发起读取的线程阻塞在读取闸门上，其它线程阻塞在正在进行的读取上。
+            for (StackTraceElement element : thread.getStackTrace()) {
+                String className = element.getClassName();
+                if (className.equals(ControllableResource.class.getName()) ||
+                        className.equals(CompletableFuture.class.getName())) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+}
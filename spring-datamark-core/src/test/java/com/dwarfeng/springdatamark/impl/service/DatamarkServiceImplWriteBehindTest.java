@@ -0,0 +1,126 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.awaitCondition;
+import static com.dwarfeng.springdatamark.impl.service.DatamarkServiceTestSupport.newDatamarkService;
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatamarkServiceImpl} 延迟写入与原子写入的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkServiceImplWriteBehindTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private GenericApplicationContext applicationContext;
+    private Path resourcePath;
+
+    @Before
+    public void setUp() throws Exception {
+        applicationContext = new GenericApplicationContext();
+        applicationContext.refresh();
+        resourcePath = temporaryFolder.newFile("datamark.storage").toPath();
+        Files.write(resourcePath, "initial".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Test
+    public void testUpdateVisibleBeforeFlushAndPersistedAfter() throws Exception {
+        DatamarkConfig datamarkConfig = newDatamarkConfig();
+        datamarkConfig.setServiceWriteBehindEnabled(true);
+        // 延迟时间足够长，保证测试期间不会自动写入。
+        datamarkConfig.setServiceWriteBehindDelay(TimeUnit.MINUTES.toMillis(10));
+        DatamarkServiceImpl datamarkService = newDatamarkService(datamarkConfig, applicationContext);
+        try {
+            datamarkService.update("updated");
+            assertEquals("updated", datamarkService.get());
+            // 尚未写入资源时，刷新返回内存中的数据标识，而不是资源中的旧内容。
+            assertEquals("updated", datamarkService.refreshAndGet());
+            assertEquals("initial", readResource());
+
+            datamarkService.flush();
+            assertEquals("updated", readResource());
+            assertEquals("updated", datamarkService.refreshAndGet());
+        } finally {
+            datamarkService.destroy();
+        }
+    }
+
+    @Test
+    public void testScheduledFlushWritesLatestDatamark() throws Exception {
+        DatamarkConfig datamarkConfig = newDatamarkConfig();
+        datamarkConfig.setServiceWriteBehindEnabled(true);
+        datamarkConfig.setServiceWriteBehindDelay(50L);
+        DatamarkServiceImpl datamarkService = newDatamarkService(datamarkConfig, applicationContext);
+        try {
+            datamarkService.update("first");
+            datamarkService.update("second");
+            assertEquals("second", datamarkService.get());
+            assertTrue(awaitCondition(() -> "second".equals(readResource())));
+        } finally {
+            datamarkService.destroy();
+        }
+    }
+
+    @Test
+    public void testDestroyFlushesPendingDatamark() throws Exception {
+        DatamarkConfig datamarkConfig = newDatamarkConfig();
+        datamarkConfig.setServiceWriteBehindEnabled(true);
+        datamarkConfig.setServiceWriteBehindDelay(TimeUnit.MINUTES.toMillis(10));
+        DatamarkServiceImpl datamarkService = newDatamarkService(datamarkConfig, applicationContext);
+        datamarkService.update("pending");
+        assertEquals("initial", readResource());
+        datamarkService.destroy();
+        assertEquals("pending", readResource());
+    }
+
+    @Test
+    public void testAtomicWriteLeavesNoTemporaryFile() throws Exception {
+        DatamarkConfig datamarkConfig = newDatamarkConfig();
+        datamarkConfig.setResourceAtomicWriteEnabled(true);
+        DatamarkServiceImpl datamarkService = newDatamarkService(datamarkConfig, applicationContext);
+        try {
+            datamarkService.update("atomic");
+            assertEquals("atomic", readResource());
+            File[] files = temporaryFolder.getRoot().listFiles();
+            assertArrayEquals(new File[]{resourcePath.toFile()}, files);
+        } finally {
+            datamarkService.destroy();
+        }
+    }
+
+    private DatamarkConfig newDatamarkConfig() {
+        return DatamarkServiceTestSupport.newDatamarkConfig(resourcePath.toUri().toString());
+    }
+
+    private String readResource() {
+        try {
+            return new String(Files.readAllBytes(resourcePath), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
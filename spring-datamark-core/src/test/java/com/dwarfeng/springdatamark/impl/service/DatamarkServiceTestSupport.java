@@ -0,0 +1,122 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.impl.util.KeyedDatamarkStorage;
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import org.springframework.context.ApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 数据标识服务测试的公共方法。
+ *
+ * <p>
+ * 提供服务的构造与等待条件成立的方法，供本包中的测试共用。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+final class DatamarkServiceTestSupport {
+
+    /**
+     * 测试中等待异步行为的超时时间，单位为毫秒。
+     */
+    static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * 以 UTF-8 字符集创建允许更新的数据标识配置。
+     *
+     * @param url 资源地址。
+     * @return 数据标识配置。
+     */
+    static DatamarkConfig newDatamarkConfig(String url) {
+        return new DatamarkConfig(url, StandardCharsets.UTF_8.name(), true);
+    }
+
+    /**
+     * 创建并初始化数据标识服务。
+     *
+     * @param datamarkConfig     数据标识配置。
+     * @param applicationContext 用于加载资源的应用上下文。
+     * @return 已经初始化的数据标识服务。
+     * @throws Exception 初始化失败时抛出。
+     */
+    static DatamarkServiceImpl newDatamarkService(
+            DatamarkConfig datamarkConfig, ApplicationContext applicationContext
+    ) throws Exception {
+        return newDatamarkService(datamarkConfig, applicationContext, null);
+    }
+
+    /**
+     * 创建并初始化数据标识服务。
+     *
+     * @param datamarkConfig       数据标识配置。
+     * @param applicationContext   用于加载资源的应用上下文。
+     * @param keyedDatamarkStorage 共享的数据标识存储，为 <code>null</code> 时服务独占资源。
+     * @return 已经初始化的数据标识服务。
+     * @throws Exception 初始化失败时抛出。
+     */
+    static DatamarkServiceImpl newDatamarkService(
+            DatamarkConfig datamarkConfig, ApplicationContext applicationContext,
+            KeyedDatamarkStorage keyedDatamarkStorage
+    ) throws Exception {
+        DatamarkServiceImpl datamarkService = new DatamarkServiceImpl();
+        datamarkService.setDatamarkConfig(datamarkConfig);
+        if (Objects.nonNull(keyedDatamarkStorage)) {
+            datamarkService.setKeyedDatamarkStorage(keyedDatamarkStorage);
+        }
+        datamarkService.setApplicationContext(applicationContext);
+        datamarkService.afterPropertiesSet();
+        return datamarkService;
+    }
+
+    /**
+     * 等待条件成立。
+     *
+     * @param condition 条件。
+     * @return 条件是否在 {@link #TIMEOUT_MILLIS} 内成立。
+     * @throws InterruptedException 等待被中断时抛出。
+     */
+    static boolean awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10L);
+        }
+        return true;
+    }
+
+    /**
+     * 等待某个线程阻塞在指定的方法中。
+     *
+     * @param method 方法的全限定名，格式为 <code>类名.方法名</code>。
+     * @throws InterruptedException 等待被中断时抛出。
+     */
+    static void awaitWaitingIn(String method) throws InterruptedException {
+        assertTrue("没有线程阻塞在 " + method + " 中", awaitCondition(() -> isWaitingIn(method)));
+    }
+
+    private static boolean isWaitingIn(String method) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getState() != Thread.State.WAITING) {
+                continue;
+            }
+            for (StackTraceElement element : thread.getStackTrace()) {
+                if (method.equals(element.getClassName() + "." + element.getMethodName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private DatamarkServiceTestSupport() {
+        throw new IllegalStateException("禁止实例化");
+    }
+}
@@ -0,0 +1,197 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.impl.util.JdbcDatamarkStorage;
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import com.dwarfeng.springdatamark.stack.exception.DatamarkVersionConflictException;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link JdbcDatamarkServiceImpl} 基于嵌入式 H2 数据库的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class JdbcDatamarkServiceImplTest {
+
+    private JdbcDataSource dataSource;
+    private Connection keepAliveConnection;
+    private JdbcDatamarkStorage storage;
+    private final List<JdbcDatamarkServiceImpl> services = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        // 每个测试使用独立的内存数据库，保持一个连接以防止数据库在连接全部关闭后被销毁。
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID());
+        keepAliveConnection = dataSource.getConnection();
+        try (Statement statement = keepAliveConnection.createStatement()) {
+            statement.execute("CREATE TABLE datamark_storage (" +
+                    "storage_key VARCHAR(100) NOT NULL PRIMARY KEY, " +
+                    "datamark VARCHAR(100), " +
+                    "version BIGINT NOT NULL)");
+        }
+        execute("INSERT INTO datamark_storage (storage_key, datamark, version) VALUES ('a', 'a1', 0)");
+        execute("INSERT INTO datamark_storage (storage_key, datamark, version) VALUES ('b', 'b1', 0)");
+        storage = new JdbcDatamarkStorage();
+        storage.setDataSource(dataSource);
+        storage.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (JdbcDatamarkServiceImpl service : services) {
+            service.destroy();
+        }
+        keepAliveConnection.close();
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        JdbcDatamarkServiceImpl service = newService("a");
+        assertEquals("a1", service.get());
+        assertEquals(0L, service.getCachedVersion());
+
+        execute("UPDATE datamark_storage SET datamark = 'a2', version = 1 WHERE storage_key = 'a'");
+        assertEquals("a1", service.get());
+        assertEquals("a2", service.refreshAndGet());
+        assertEquals(1L, service.getCachedVersion());
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        JdbcDatamarkServiceImpl service = newService("a");
+        service.update("a2");
+        assertEquals("a2", service.get());
+        assertEquals(1L, service.getCachedVersion());
+        assertEquals("a2", queryDatamark("a"));
+        assertEquals(1L, queryVersion("a"));
+    }
+
+    @Test
+    public void testUpdateInsertsMissingRow() throws Exception {
+        JdbcDatamarkServiceImpl service = newService("a");
+        execute("DELETE FROM datamark_storage WHERE storage_key = 'a'");
+        // 数据表中不存在对应的行时，数据标识视为空字符串。
+        assertEquals("", service.refreshAndGet());
+        assertEquals(-1L, service.getCachedVersion());
+
+        service.update("a2");
+        assertEquals("a2", service.get());
+        assertEquals("a2", queryDatamark("a"));
+        assertEquals(0L, queryVersion("a"));
+    }
+
+    @Test
+    public void testOptimisticConflict() throws Exception {
+        JdbcDatamarkServiceImpl service = newService("a");
+        // 模拟其它节点的更新。
+        execute("UPDATE datamark_storage SET datamark = 'other', version = 1 WHERE storage_key = 'a'");
+        try {
+            service.update("a2");
+            fail("数据表中的版本已被修改时应当抛出版本冲突异常");
+        } catch (DatamarkVersionConflictException ignored) {
+        }
+        assertEquals(1L, service.getVersionConflictCount());
+        assertEquals("other", queryDatamark("a"));
+        // 冲突之后服务重新加载了数据表中的最新内容，重试可以成功。
+        assertEquals("other", service.get());
+        assertEquals(1L, service.getCachedVersion());
+        service.update("a2");
+        assertEquals("a2", queryDatamark("a"));
+        assertEquals(2L, queryVersion("a"));
+    }
+
+    @Test
+    public void testSharedTableBetweenTwoKeys() throws Exception {
+        storage.setKeys(Arrays.asList("a", "b"));
+        JdbcDatamarkServiceImpl serviceA = newService("a");
+        JdbcDatamarkServiceImpl serviceB = newService("b");
+        assertEquals("a1", serviceA.get());
+        assertEquals("b1", serviceB.get());
+        // 预先声明的键在第一次加载时一起查询，第二个服务直接使用该结果，不再查询数据表。
+        assertEquals(1L, storage.getLoadCount());
+
+        serviceA.update("a2");
+        assertEquals("a2", serviceA.get());
+        assertEquals("b1", serviceB.get());
+        assertEquals("b1", queryDatamark("b"));
+        assertEquals(0L, queryVersion("b"));
+
+        execute("UPDATE datamark_storage SET datamark = 'b2', version = 1 WHERE storage_key = 'b'");
+        // 任意一个服务的刷新都会以一次查询同时更新其它服务的缓存。
+        long loadCount = storage.getLoadCount();
+        assertEquals("a2", serviceA.refreshAndGet());
+        assertEquals(loadCount + 1, storage.getLoadCount());
+        assertEquals("b2", serviceB.get());
+    }
+
+    @Test
+    public void testRecoversFromReinsertedRow() throws Exception {
+        JdbcDatamarkServiceImpl service = newService("a");
+        service.update("a2");
+        service.update("a3");
+        assertEquals(2L, service.getCachedVersion());
+
+        // 行被删除后重新插入，数据表中的版本比缓存中的版本更小。
+        execute("DELETE FROM datamark_storage WHERE storage_key = 'a'");
+        execute("INSERT INTO datamark_storage (storage_key, datamark, version) VALUES ('a', 'reinserted', 0)");
+        assertEquals("reinserted", service.refreshAndGet());
+        assertEquals(0L, service.getCachedVersion());
+
+        service.update("a4");
+        assertEquals("a4", queryDatamark("a"));
+        assertEquals(1L, queryVersion("a"));
+    }
+
+    private JdbcDatamarkServiceImpl newService(String storageKey) throws Exception {
+        JdbcDatamarkServiceImpl service = new JdbcDatamarkServiceImpl();
+        service.setDatamarkConfig(new DatamarkConfig("unused", StandardCharsets.UTF_8.name(), true));
+        service.setJdbcDatamarkStorage(storage);
+        service.setStorageKey(storageKey);
+        service.afterPropertiesSet();
+        services.add(service);
+        return service;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = keepAliveConnection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private String queryDatamark(String storageKey) throws SQLException {
+        return queryColumn(storageKey, "datamark");
+    }
+
+    private long queryVersion(String storageKey) throws SQLException {
+        return Long.parseLong(queryColumn(storageKey, "version"));
+    }
+
+    private String queryColumn(String storageKey, String column) throws SQLException {
+        try (PreparedStatement statement = keepAliveConnection.prepareStatement(
+                "SELECT " + column + " FROM datamark_storage WHERE storage_key = ?"
+        )) {
+            statement.setString(1, storageKey);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                return resultSet.getString(1);
+            }
+        }
+    }
+}
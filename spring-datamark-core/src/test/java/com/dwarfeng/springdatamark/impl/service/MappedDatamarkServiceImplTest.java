@@ -0,0 +1,174 @@
+package com.dwarfeng.springdatamark.impl.service;
+
+import com.dwarfeng.springdatamark.impl.util.MappedDatamarkAccessor;
+import com.dwarfeng.springdatamark.stack.bean.DatamarkConfig;
+import com.dwarfeng.springdatamark.stack.exception.ResourceReadFailedException;
+import com.dwarfeng.springdatamark.stack.exception.ResourceWriteFailedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link MappedDatamarkServiceImpl} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class MappedDatamarkServiceImplTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private GenericApplicationContext applicationContext;
+    private Path mappedPath;
+    private final List<MappedDatamarkServiceImpl> services = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        applicationContext = new GenericApplicationContext();
+        applicationContext.refresh();
+        mappedPath = temporaryFolder.getRoot().toPath().resolve("datamark.mapped");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (MappedDatamarkServiceImpl service : services) {
+            service.destroy();
+        }
+        applicationContext.close();
+    }
+
+    @Test
+    public void testInitializeEmptyFile() throws Exception {
+        MappedDatamarkServiceImpl service = newService();
+        assertTrue(Files.exists(mappedPath));
+        assertEquals("", service.get());
+        assertEquals(0L, service.getCachedVersion());
+    }
+
+    @Test
+    public void testUpdateVisibleToOtherAccessorWithoutRefresh() throws Exception {
+        MappedDatamarkServiceImpl writer = newService();
+        MappedDatamarkServiceImpl reader = newService();
+        assertEquals("", reader.get());
+        long reloadCount = reader.getPerformedReloadCount();
+
+        writer.update("updated");
+        // 另一个访问器映射了同一个文件，版本号变化后，下一次读取即可得到新的数据标识。
+        assertEquals("updated", reader.get());
+        assertEquals(reloadCount + 1, reader.getPerformedReloadCount());
+        assertEquals(writer.getCachedVersion(), reader.getCachedVersion());
+
+        // 版本号没有变化时，读取直接返回缓存的数据标识，不再读取映射内存。
+        assertEquals("updated", reader.get());
+        assertEquals(reloadCount + 1, reader.getPerformedReloadCount());
+    }
+
+    @Test
+    public void testDatamarkSurvivesReopen() throws Exception {
+        MappedDatamarkServiceImpl service = newService();
+        service.update("first");
+        service.update("second");
+        service.destroy();
+        services.remove(service);
+
+        MappedDatamarkServiceImpl reopened = newService();
+        assertEquals("second", reopened.get());
+        assertEquals(2L, reopened.getCachedVersion());
+    }
+
+    @Test
+    public void testRecoversFromInPlaceReinitialization() throws Exception {
+        MappedDatamarkServiceImpl service = newService();
+        service.update("first");
+        service.update("second");
+        assertEquals(2L, service.getCachedVersion());
+
+        // 其它进程原地重新初始化了文件，映射内存中的版本号比缓存的版本号更小。
+        reinitialize("reset");
+        assertEquals("reset", service.get());
+        assertEquals(0L, service.getCachedVersion());
+        // 重新初始化之后，缓存重新生效，读取不再读取映射内存。
+        long reloadCount = service.getPerformedReloadCount();
+        assertEquals("reset", service.get());
+        assertEquals(reloadCount, service.getPerformedReloadCount());
+
+        service.update("after");
+        assertEquals("after", service.get());
+        assertEquals(1L, service.getCachedVersion());
+    }
+
+    @Test
+    public void testOversizedDatamarkRejected() throws Exception {
+        MappedDatamarkServiceImpl service = newService(4);
+        try {
+            service.update("oversized");
+            fail("数据标识的字节长度超出槽位容量时应当抛出异常");
+        } catch (ResourceWriteFailedException ignored) {
+        }
+        assertEquals("", service.get());
+        assertEquals(0L, service.getCachedVersion());
+    }
+
+    @Test
+    public void testExistingNonMappedFileNotOverwritten() throws Exception {
+        byte[] content = "plain datamark".getBytes(StandardCharsets.UTF_8);
+        Files.write(mappedPath, content);
+        try {
+            newService();
+            fail("文件不是内存映射数据标识文件时应当初始化失败");
+        } catch (ResourceReadFailedException ignored) {
+        }
+        assertArrayEquals(content, Files.readAllBytes(mappedPath));
+    }
+
+    /**
+     * 不截断文件，按照内存映射文件的布局原地写入版本号为 0 的内容。
+     */
+    private void reinitialize(String datamark) throws Exception {
+        int slotCapacity = MappedDatamarkAccessor.DEFAULT_SLOT_CAPACITY;
+        byte[] bytes = datamark.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer content = ByteBuffer.allocate(16 + 2 * (4 + slotCapacity));
+        content.putInt(0, MappedDatamarkAccessor.MAGIC);
+        content.putInt(4, slotCapacity);
+        content.putLong(8, 0L);
+        content.putInt(16, bytes.length);
+        content.position(20);
+        content.put(bytes);
+        content.rewind();
+        try (FileChannel channel = FileChannel.open(mappedPath, StandardOpenOption.WRITE)) {
+            while (content.hasRemaining()) {
+                channel.write(content, content.position());
+            }
+        }
+    }
+
+    private MappedDatamarkServiceImpl newService() throws Exception {
+        return newService(MappedDatamarkAccessor.DEFAULT_SLOT_CAPACITY);
+    }
+
+    private MappedDatamarkServiceImpl newService(int slotCapacity) throws Exception {
+        MappedDatamarkServiceImpl service = new MappedDatamarkServiceImpl();
+        service.setDatamarkConfig(new DatamarkConfig("unused", StandardCharsets.UTF_8.name(), true));
+        service.setUrl(mappedPath.toUri().toString());
+        service.setSlotCapacity(slotCapacity);
+        service.setApplicationContext(applicationContext);
+        service.afterPropertiesSet();
+        services.add(service);
+        return service;
+    }
+}
@@ -0,0 +1,118 @@
+package com.dwarfeng.springdatamark.impl.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SharedExecutors.ConcurrencyLimitedExecutor} 的测试。
+ *
+ * <p>
+ * 以普通的线程池作为委托执行器，因此测试不依赖运行时是否支持虚拟线程。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class ConcurrencyLimitedExecutorTest {
+
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private ExecutorService delegate;
+    private CountDownLatch gate;
+
+    @Before
+    public void setUp() {
+        delegate = Executors.newCachedThreadPool();
+        gate = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        gate.countDown();
+        delegate.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrencyLimited() throws Exception {
+        ExecutorService executor = new SharedExecutors.ConcurrencyLimitedExecutor(delegate, 2, 100);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Semaphore started = new Semaphore(0);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                started.release();
+                awaitGate();
+                running.decrementAndGet();
+            }));
+        }
+        // 只有两个任务获得了许可，其余的任务等待许可。
+        assertTrue(started.tryAcquire(2, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertFalse(started.tryAcquire(200L, TimeUnit.MILLISECONDS));
+        assertEquals(2, running.get());
+
+        gate.countDown();
+        for (Future<?> future : futures) {
+            future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void testPendingLimitRejectsAndRecovers() throws Exception {
+        ExecutorService executor = new SharedExecutors.ConcurrencyLimitedExecutor(delegate, 1, 3);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(executor.submit(this::awaitGate));
+        }
+        // 已提交但尚未完成的任务数量达到上限，新的任务被拒绝。
+        try {
+            executor.execute(() -> {
+            });
+            fail("未完成的任务数量超过上限时应当拒绝任务");
+        } catch (RejectedExecutionException expected) {
+            // 期望的异常。
+        }
+
+        gate.countDown();
+        for (Future<?> future : futures) {
+            future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        // 任务完成后释放名额，可以再次提交任务。
+        assertEquals("done", executor.submit(() -> "done").get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testDelegateRejectionReleasesPendingSlot() throws Exception {
+        ExecutorService rejectingDelegate = Executors.newSingleThreadExecutor();
+        rejectingDelegate.shutdown();
+        ExecutorService executor = new SharedExecutors.ConcurrencyLimitedExecutor(rejectingDelegate, 1, 1);
+        // 委托执行器拒绝任务时，名额被释放，后续的拒绝仍然来自委托执行器，而不是未完成任务数量的上限。
+        for (int i = 0; i < 3; i++) {
+            try {
+                executor.execute(() -> {
+                });
+                fail("委托执行器已关闭时应当拒绝任务");
+            } catch (RejectedExecutionException e) {
+                assertFalse(String.valueOf(e.getMessage()).contains("超过上限"));
+            }
+        }
+        assertTrue(executor.isShutdown());
+    }
+
+    private void awaitGate() {
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.dwarfeng.springdatamark.impl.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ResourceFileWatcher} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class ResourceFileWatcherTest {
+
+    private static final long DEBOUNCE_MILLIS = 200L;
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * 等待不应发生的回调的时间，足够覆盖防抖时间与监视事件的延迟。
+     */
+    private static final long QUIET_MILLIS = DEBOUNCE_MILLIS * 5;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<ResourceFileWatcher.Registration> registrations = new ArrayList<>();
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.newFolder("watched").toPath().resolve("datamark.storage");
+        writeFile("v0");
+    }
+
+    @After
+    public void tearDown() {
+        registrations.forEach(ResourceFileWatcher.Registration::cancel);
+    }
+
+    @Test
+    public void testConsecutiveChangesTriggerOneCallback() throws Exception {
+        Semaphore callbacks = register();
+        for (int i = 1; i <= 5; i++) {
+            writeFile("v" + i);
+            Thread.sleep(DEBOUNCE_MILLIS / 10);
+        }
+        // 防抖时间内的多次变化只触发一次回调。
+        assertTrue(callbacks.tryAcquire(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertFalse(callbacks.tryAcquire(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+
+        writeFile("v6");
+        assertTrue(callbacks.tryAcquire(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testUnchangedContentDoesNotTriggerCallback() throws Exception {
+        Semaphore callbacks = register();
+        // 文件被重写，但内容与注册时相同。
+        writeFile("v0");
+        assertFalse(callbacks.tryAcquire(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testCancelledRegistrationDoesNotTriggerCallback() throws Exception {
+        Semaphore cancelledCallbacks = register();
+        Semaphore callbacks = register();
+        registrations.get(0).cancel();
+
+        writeFile("v1");
+        assertTrue(callbacks.tryAcquire(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertFalse(cancelledCallbacks.tryAcquire(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+
+        // 目录下已经没有被监视的文件时，目录的监视也被取消。
+        registrations.get(1).cancel();
+        assertFalse(ResourceFileWatcher.getInstance().isWatching(file));
+    }
+
+    @Test
+    public void testReRegistrationAfterDirectoryRecreated() throws Exception {
+        register();
+        assertTrue(ResourceFileWatcher.getInstance().isWatching(file));
+
+        // 删除被监视的目录，目录的监视失效，并且由于目录不存在而被移除。
+        Files.delete(file);
+        Files.delete(file.getParent());
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (ResourceFileWatcher.getInstance().isWatching(file)) {
+            assertTrue("失效的目录监视没有被移除", System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+
+        // 目录重新创建后，重新注册的文件可以继续被监视。
+        Files.createDirectory(file.getParent());
+        writeFile("v0");
+        Semaphore callbacks = register();
+        assertTrue(ResourceFileWatcher.getInstance().isWatching(file));
+        writeFile("v1");
+        assertTrue(callbacks.tryAcquire(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private Semaphore register() throws Exception {
+        Semaphore callbacks = new Semaphore(0);
+        registrations.add(ResourceFileWatcher.getInstance().register(file, DEBOUNCE_MILLIS, callbacks::release));
+        return callbacks;
+    }
+
+    private void writeFile(String content) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,107 @@
+package com.dwarfeng.springdatamark.impl.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ScheduledIoTask} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class ScheduledIoTaskTest {
+
+    private static final int SAMPLE_COUNT = 10_000;
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    @Test
+    public void testJitteredDelayWithinBounds() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            long delay = ScheduledIoTask.jitteredDelay(1000L, 0.2);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        assertTrue("延迟时间 " + min + " 小于下限", min >= 800L);
+        assertTrue("延迟时间 " + max + " 大于上限", max <= 1200L);
+        // 延迟时间在间隔的两侧浮动，而不是固定的偏移。
+        assertTrue(min < 900L);
+        assertTrue(max > 1100L);
+    }
+
+    @Test
+    public void testJitteredDelayBoundsJitter() {
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            assertEquals(1000L, ScheduledIoTask.jitteredDelay(1000L, 0.0));
+            assertEquals(1000L, ScheduledIoTask.jitteredDelay(1000L, -1.0));
+            // 抖动比例被限制为 1，延迟时间不小于 1。
+            long delay = ScheduledIoTask.jitteredDelay(1000L, 5.0);
+            assertTrue(delay >= 1L && delay <= 2000L);
+        }
+    }
+
+    @Test
+    public void testInitialDelayWithinInterval() {
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            long delay = ScheduledIoTask.initialDelay(100L);
+            assertTrue(delay >= 1L && delay <= 100L);
+        }
+        assertEquals(1L, ScheduledIoTask.initialDelay(1L));
+    }
+
+    @Test
+    public void testBackoffDelayDoublesUpToMax() {
+        assertEquals(10L, ScheduledIoTask.backoffDelay(10L, 100L, 1));
+        assertEquals(20L, ScheduledIoTask.backoffDelay(10L, 100L, 2));
+        assertEquals(40L, ScheduledIoTask.backoffDelay(10L, 100L, 3));
+        assertEquals(80L, ScheduledIoTask.backoffDelay(10L, 100L, 4));
+        assertEquals(100L, ScheduledIoTask.backoffDelay(10L, 100L, 5));
+        assertEquals(100L, ScheduledIoTask.backoffDelay(10L, 100L, Integer.MAX_VALUE));
+        // 初始延迟时间大于最大延迟时间时，使用最大延迟时间。
+        assertEquals(100L, ScheduledIoTask.backoffDelay(500L, 100L, 1));
+    }
+
+    @Test
+    public void testScheduleOnceUntilFired() throws Exception {
+        Semaphore runs = new Semaphore(0);
+        ScheduledIoTask task = new ScheduledIoTask("test", runs::release, () -> {
+        });
+        try {
+            assertTrue(task.schedule(100L));
+            // 已经安排且尚未到期时，再次安排不会生效。
+            assertFalse(task.schedule(0L));
+            assertTrue(task.isScheduled());
+            assertTrue(runs.tryAcquire(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            assertFalse(runs.tryAcquire(300L, TimeUnit.MILLISECONDS));
+
+            // 到期后可以再次安排。
+            assertTrue(task.schedule(0L));
+            assertTrue(runs.tryAcquire(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        } finally {
+            task.stop();
+        }
+    }
+
+    @Test
+    public void testCancelAndStop() throws Exception {
+        Semaphore runs = new Semaphore(0);
+        ScheduledIoTask task = new ScheduledIoTask("test", runs::release, () -> {
+        });
+        assertTrue(task.schedule(100L));
+        task.cancel();
+        assertFalse(task.isScheduled());
+        assertFalse(runs.tryAcquire(300L, TimeUnit.MILLISECONDS));
+
+        // 取消之后仍然可以再次安排；停止之后不能再安排。
+        assertTrue(task.schedule(100L));
+        task.stop();
+        assertTrue(task.isStopped());
+        assertFalse(task.schedule(0L));
+        assertFalse(runs.tryAcquire(300L, TimeUnit.MILLISECONDS));
+    }
+}
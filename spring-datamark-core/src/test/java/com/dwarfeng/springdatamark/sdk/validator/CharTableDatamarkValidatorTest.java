@@ -0,0 +1,128 @@
+package com.dwarfeng.springdatamark.sdk.validator;
+
+import com.dwarfeng.springdatamark.sdk.util.Constraints;
+import com.dwarfeng.springdatamark.sdk.util.DatamarkUtil;
+import com.dwarfeng.springdatamark.stack.validator.DatamarkValidator;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link CharTableDatamarkValidator} 的测试。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class CharTableDatamarkValidatorTest {
+
+    /**
+     * 1.2.0 之前的数据标识校验使用的正则表达式。
+     */
+    private static final Pattern LEGACY_PATTERN = Pattern.compile("^[a-zA-Z0-9.\\-_]*$");
+
+    private DatamarkValidator originalValidator;
+
+    @Before
+    public void setUp() {
+        originalValidator = DatamarkUtil.getValidator();
+    }
+
+    @After
+    public void tearDown() {
+        DatamarkUtil.setValidator(originalValidator);
+    }
+
+    @Test
+    public void testEquivalentToLegacyRegexForAllChars() {
+        CharTableDatamarkValidator validator = CharTableDatamarkValidator.defaultInstance();
+        for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; i++) {
+            char c = (char) i;
+            // 单独的字符，以及位于合法字符之间的字符。
+            String single = String.valueOf(c);
+            String embedded = "a" + c + "b";
+            assertEquals("字符 0x" + Integer.toHexString(i), isLegacyValid(single), validator.isValid(single));
+            assertEquals("字符 0x" + Integer.toHexString(i), isLegacyValid(embedded), validator.isValid(embedded));
+        }
+    }
+
+    @Test
+    public void testEquivalentToLegacyRegexAtLengthBoundary() {
+        CharTableDatamarkValidator validator = CharTableDatamarkValidator.defaultInstance();
+        String[] datamarks = {
+                null,
+                "",
+                StringUtils.repeat('a', Constraints.LENGTH_DATAMARK - 1),
+                StringUtils.repeat('a', Constraints.LENGTH_DATAMARK),
+                StringUtils.repeat('a', Constraints.LENGTH_DATAMARK + 1),
+                StringUtils.repeat('a', Constraints.LENGTH_DATAMARK - 1) + "!",
+        };
+        for (String datamark : datamarks) {
+            assertEquals(String.valueOf(datamark), isLegacyValid(datamark), validator.isValid(datamark));
+        }
+        assertTrue(validator.isValid(StringUtils.repeat('a', Constraints.LENGTH_DATAMARK)));
+        assertFalse(validator.isValid(StringUtils.repeat('a', Constraints.LENGTH_DATAMARK + 1)));
+    }
+
+    @Test
+    public void testCustomCharactersAndLength() {
+        CharTableDatamarkValidator validator = new CharTableDatamarkValidator("abc:", 4);
+        assertTrue(validator.isValid("a:bc"));
+        assertFalse(validator.isValid("a:bcc"));
+        assertFalse(validator.isValid("a-b"));
+        assertEquals(4, validator.getMaxLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonAsciiCharacterRejected() {
+        new CharTableDatamarkValidator("abc\u00e9");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxLengthAboveConstraintRejected() {
+        new CharTableDatamarkValidator(CharTableDatamarkValidator.DEFAULT_ALLOWED_CHARACTERS,
+                Constraints.LENGTH_DATAMARK + 1);
+    }
+
+    @Test
+    public void testRegisterCustomValidator() {
+        assertFalse(DatamarkUtil.isDatamarkValid("node:1"));
+        DatamarkUtil.setValidator(new ColonDatamarkValidator());
+        assertTrue(DatamarkUtil.isDatamarkValid("node:1"));
+        assertFalse(DatamarkUtil.isDatamarkValid("node_1"));
+
+        DatamarkUtil.setValidator(originalValidator);
+        assertFalse(DatamarkUtil.isDatamarkValid("node:1"));
+        assertTrue(DatamarkUtil.isDatamarkValid("node_1"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testRegisterNullValidatorRejected() {
+        DatamarkUtil.setValidator(null);
+    }
+
+    private static boolean isLegacyValid(String datamark) {
+        if (Objects.isNull(datamark)) {
+            return false;
+        }
+        if (datamark.length() > Constraints.LENGTH_DATAMARK) {
+            return false;
+        }
+        return LEGACY_PATTERN.matcher(datamark).matches();
+    }
+
+    /**
+     * 按照类文档中的方式，通过无参构造器声明自定义字符集的校验器。
+     */
+    private static final class ColonDatamarkValidator extends CharTableDatamarkValidator {
+
+        public ColonDatamarkValidator() {
+            super("abcdefghijklmnopqrstuvwxyz0123456789:");
+        }
+    }
+}
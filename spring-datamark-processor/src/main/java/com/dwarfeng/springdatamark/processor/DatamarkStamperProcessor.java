@@ -0,0 +1,510 @@
+package com.dwarfeng.springdatamark.processor;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 数据标识写入器注解处理器。
+ *
+ * <p>
+ * 在编译期为每个含有 <code>@DatamarkField</code> 注解字段（包括从父类继承的字段）的非抽象类生成一个数据标识写入器，
+ * 写入器与实体类位于同一个包中，名称为实体类的简单名称（嵌套类的各级简单名称以下划线连接）加上
+ * {@link #STAMPER_NAME_SUFFIX}，并实现 <code>com.dwarfeng.springdatamark.api.integration.jpa.DatamarkStamper</code>
+ * 接口。<br>
+ * 所有生成的写入器都会被登记在 {@link #INDEX_LOCATION} 索引文件中，运行时通过该索引发现写入器。
+ *
+ * <p>
+ * 字段的收集规则与运行时扫描一致：父类的字段在前，子类的字段在后，子类中的字段覆盖父类中的同名字段。
+ * 字段的写入规则也与运行时一致：优先调用字段对应的公共写方法（名称为 <code>set</code> 加上首字母大写的字段名称），
+ * 否则直接写入字段。<br>
+ * 如果某个字段既没有可以调用的公共写方法，也无法从写入器中直接写入（如私有字段），则不会为该类生成写入器，
+ * 该类在运行时回退到反射扫描。<br>
+ * 如果某个字段既没有可以调用的公共写方法，其类型也无法接受字符串，则该字段在运行时同样无法写入，处理器会报告编译错误。
+ *
+ * <p>
+ * 处理器不依赖 <code>spring-datamark-api</code>，只需要加入编译期的注解处理器路径即可，示例配置如下：
+ * <blockquote><pre>
+ * &lt;dependency&gt;
+ *     &lt;groupId&gt;com.dwarfeng&lt;/groupId&gt;
+ *     &lt;artifactId&gt;spring-datamark-processor&lt;/artifactId&gt;
+ *     &lt;scope&gt;provided&lt;/scope&gt;
+ * &lt;/dependency&gt;
+ * </pre></blockquote>
+ *
+ * <p>
+ * 索引文件在每次编译结束时生成。生成之前，处理器会读取输出目录中已有的索引文件，
+ * 保留本次编译没有涉及的类的条目，并以本次编译的结果替换被重新编译的类的条目，
+ * 因此增量编译不会丢失之前登记的写入器，也不会保留已经失效的条目。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+@SupportedAnnotationTypes("*")
+public class DatamarkStamperProcessor extends AbstractProcessor {
+
+    /**
+     * 索引文件在类路径中的位置。
+     */
+    public static final String INDEX_LOCATION = "META-INF/spring-datamark.stampers";
+
+    /**
+     * 写入器名称的后缀。
+     */
+    public static final String STAMPER_NAME_SUFFIX = "_DatamarkStamper";
+
+    private static final String DATAMARK_FIELD_ANNOTATION =
+            "com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField";
+    private static final String DATAMARK_STAMPER_INTERFACE =
+            "com.dwarfeng.springdatamark.api.integration.jpa.DatamarkStamper";
+
+    private final Map<String, String> index = new TreeMap<>();
+
+    /**
+     * 本次编译处理过的所有类的二进制名称。
+     *
+     * <p>
+     * 合并已有的索引文件时，这些类的旧条目会被本次编译的结果替换。
+     */
+    private final Set<String> processedTypes = new HashSet<>();
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+    private Filer filer;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        messager = processingEnv.getMessager();
+        filer = processingEnv.getFiler();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        // 如果编译期的类路径中不存在 DatamarkField 注解，则没有任何类需要处理。
+        if (Objects.isNull(elements.getTypeElement(DATAMARK_FIELD_ANNOTATION))) {
+            return false;
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+        for (TypeElement typeElement : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            processType(typeElement);
+        }
+        // 不声明任何注解，以免影响其它的注解处理器。
+        return false;
+    }
+
+    private void processType(TypeElement typeElement) {
+        // 递归处理嵌套类。
+        for (TypeElement nested : ElementFilter.typesIn(typeElement.getEnclosedElements())) {
+            processType(nested);
+        }
+        String binaryName = elements.getBinaryName(typeElement).toString();
+        if (!processedTypes.add(binaryName)) {
+            return;
+        }
+        // 抽象类（如 @MappedSuperclass）不会被直接实例化，不需要生成写入器。
+        if (typeElement.getKind() != ElementKind.CLASS || typeElement.getModifiers().contains(Modifier.ABSTRACT)) {
+            return;
+        }
+        String qualifiedName = typeElement.getQualifiedName().toString();
+        List<VariableElement> fields = collectDatamarkFields(typeElement);
+        if (fields.isEmpty()) {
+            return;
+        }
+        if (!isAccessible(typeElement)) {
+            note(typeElement, "类 " + qualifiedName + " 无法从同一个包中访问, 将在运行时回退到反射扫描");
+            return;
+        }
+        PackageElement packageElement = elements.getPackageOf(typeElement);
+        List<String> statements = new ArrayList<>(fields.size());
+        for (VariableElement field : fields) {
+            if (!isWritable(typeElement, field)) {
+                messager.printMessage(
+                        Diagnostic.Kind.ERROR,
+                        "类 " + qualifiedName + " 的字段 " + field.getSimpleName() +
+                                " 的类型无法接受字符串, 且不存在对应的写方法, 无法设置数据标识",
+                        field
+                );
+                return;
+            }
+            String statement = writeStatement(typeElement, packageElement, field);
+            if (Objects.isNull(statement)) {
+                note(typeElement, "类 " + qualifiedName + " 的字段 " + field.getSimpleName() +
+                        " 既没有公共写方法, 也无法直接写入, 将在运行时回退到反射扫描");
+                return;
+            }
+            statements.add(statement);
+        }
+        String stamperSimpleName = stamperSimpleName(typeElement);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String stamperName = packageName.isEmpty() ? stamperSimpleName : packageName + "." + stamperSimpleName;
+        try {
+            writeStamper(typeElement, packageName, stamperName, stamperSimpleName, fields, statements);
+        } catch (IOException e) {
+            messager.printMessage(
+                    Diagnostic.Kind.ERROR, "生成数据标识写入器 " + stamperName + " 时发生异常: " + e, typeElement
+            );
+            return;
+        }
+        index.put(binaryName, stamperName);
+    }
+
+    /**
+     * 收集类层次结构中所有含有 DatamarkField 注解的字段。
+     *
+     * <p>
+     * 返回的字段按照父类在前、子类在后的顺序排列，子类中的字段覆盖父类中的同名字段。
+     */
+    private List<VariableElement> collectDatamarkFields(TypeElement typeElement) {
+        Deque<List<VariableElement>> hierarchyFields = new ArrayDeque<>();
+        Set<String> fieldNames = new HashSet<>();
+        TypeElement current = typeElement;
+        while (Objects.nonNull(current) &&
+                !current.getQualifiedName().contentEquals(Object.class.getCanonicalName())) {
+            List<VariableElement> declaredFields = new ArrayList<>();
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (!hasDatamarkField(field)) {
+                    continue;
+                }
+                if (!fieldNames.add(field.getSimpleName().toString())) {
+                    continue;
+                }
+                declaredFields.add(field);
+            }
+            hierarchyFields.push(declaredFields);
+            current = superclassOf(current);
+        }
+        List<VariableElement> result = new ArrayList<>();
+        for (List<VariableElement> declaredFields : hierarchyFields) {
+            result.addAll(declaredFields);
+        }
+        return result;
+    }
+
+    private TypeElement superclassOf(TypeElement typeElement) {
+        TypeMirror superclass = typeElement.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    private boolean hasDatamarkField(VariableElement field) {
+        return Objects.nonNull(datamarkFieldMirror(field));
+    }
+
+    private AnnotationMirror datamarkFieldMirror(VariableElement field) {
+        for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(DATAMARK_FIELD_ANNOTATION)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private String serviceIdOf(VariableElement field) {
+        AnnotationMirror mirror = datamarkFieldMirror(field);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("serviceId")) {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return "";
+    }
+
+    /**
+     * 判断类是否可以从与其位于同一个包中的写入器访问。
+     */
+    private boolean isAccessible(TypeElement typeElement) {
+        Element current = typeElement;
+        while (current instanceof TypeElement) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            current = current.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * 判断字段是否能够以字符串类型的数据标识写入。
+     *
+     * <p>
+     * 与运行时一致，字段存在对应的公共写方法，或者字段的类型能够接受字符串时，字段是可写入的。
+     */
+    private boolean isWritable(TypeElement typeElement, VariableElement field) {
+        return Objects.nonNull(findWriteMethod(typeElement, field.getSimpleName().toString())) ||
+                types.isAssignable(stringType(), field.asType());
+    }
+
+    /**
+     * 生成写入字段的语句。
+     *
+     * @return 写入字段的语句，如果字段无法从写入器中写入，则返回 <code>null</code>。
+     */
+    private String writeStatement(TypeElement typeElement, PackageElement packageElement, VariableElement field) {
+        String entityName = typeElement.getQualifiedName().toString();
+        String fieldName = field.getSimpleName().toString();
+        // 与运行时一致，优先使用公共写方法。
+        ExecutableElement writeMethod = findWriteMethod(typeElement, fieldName);
+        if (Objects.nonNull(writeMethod)) {
+            return "((" + entityName + ") entity)." + writeMethod.getSimpleName() + "(datamark);";
+        }
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) ||
+                modifiers.contains(Modifier.STATIC)) {
+            return null;
+        }
+        if (!types.isAssignable(stringType(), field.asType())) {
+            return null;
+        }
+        // 非公共的字段只有在声明它的类与写入器位于同一个包中时才能直接访问。
+        TypeElement declaringType = (TypeElement) field.getEnclosingElement();
+        if (!modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(declaringType).equals(packageElement)) {
+            return null;
+        }
+        return "((" + entityName + ") entity)." + fieldName + " = datamark;";
+    }
+
+    /**
+     * 查找字段对应的公共写方法。
+     *
+     * <p>
+     * 查找规则与运行时一致：写方法的名称为 <code>set</code> 加上首字母大写的字段名称，
+     * 必须是非静态的公共方法，返回类型为 <code>void</code>，且只有一个能够接受字符串类型的数据标识的参数；
+     * 存在多个重载时，优先使用参数类型为 {@link String} 的写方法。
+     */
+    private ExecutableElement findWriteMethod(TypeElement typeElement, String fieldName) {
+        String methodName = "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        ExecutableElement result = null;
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(typeElement))) {
+            if (!method.getSimpleName().contentEquals(methodName) || !isWriteMethod(method)) {
+                continue;
+            }
+            if (types.isSameType(stringType(), method.getParameters().get(0).asType())) {
+                return method;
+            }
+            if (Objects.isNull(result)) {
+                result = method;
+            }
+        }
+        return result;
+    }
+
+    private boolean isWriteMethod(ExecutableElement method) {
+        Set<Modifier> modifiers = method.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)) {
+            return false;
+        }
+        if (method.getReturnType().getKind() != TypeKind.VOID) {
+            return false;
+        }
+        List<? extends VariableElement> parameters = method.getParameters();
+        // 写方法的参数必须能够接受字符串类型的数据标识。
+        return parameters.size() == 1 && types.isAssignable(stringType(), parameters.get(0).asType());
+    }
+
+    private TypeMirror stringType() {
+        return elements.getTypeElement(String.class.getCanonicalName()).asType();
+    }
+
+    private String stamperSimpleName(TypeElement typeElement) {
+        Deque<String> names = new ArrayDeque<>();
+        Element current = typeElement;
+        while (current instanceof TypeElement) {
+            names.push(current.getSimpleName().toString());
+            current = current.getEnclosingElement();
+        }
+        return String.join("_", names) + STAMPER_NAME_SUFFIX;
+    }
+
+    private void writeStamper(
+            TypeElement typeElement, String packageName, String stamperName, String stamperSimpleName,
+            List<VariableElement> fields, List<String> statements
+    ) throws IOException {
+        String entityName = typeElement.getQualifiedName().toString();
+        JavaFileObject sourceFile = filer.createSourceFile(stamperName, typeElement);
+        try (PrintWriter out = new PrintWriter(sourceFile.openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * {@link " + entityName + "} 的数据标识写入器。");
+            out.println(" *");
+            out.println(" * <p>");
+            out.println(" * 该类由 " + DatamarkStamperProcessor.class.getName() + " 自动生成，请勿手动修改。");
+            out.println(" */");
+            out.println("public final class " + stamperSimpleName + " implements " +
+                    DATAMARK_STAMPER_INTERFACE + " {");
+            out.println();
+            out.println("    private static final String[] FIELD_NAMES = {");
+            for (VariableElement field : fields) {
+                out.println("            " + literal(field.getSimpleName().toString()) + ",");
+            }
+            out.println("    };");
+            out.println("    private static final String[] SERVICE_IDS = {");
+            for (VariableElement field : fields) {
+                out.println("            " + literal(serviceIdOf(field)) + ",");
+            }
+            out.println("    };");
+            out.println();
+            out.println("    public " + stamperSimpleName + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<?> getEntityClass() {");
+            out.println("        return " + entityName + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public int getFieldCount() {");
+            out.println("        return FIELD_NAMES.length;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String getFieldName(int index) {");
+            out.println("        return FIELD_NAMES[index];");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String getServiceId(int index) {");
+            out.println("        return SERVICE_IDS[index];");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void setValue(Object entity, int index, String datamark) {");
+            out.println("        switch (index) {");
+            for (int i = 0; i < statements.size(); i++) {
+                out.println("            case " + i + ":");
+                out.println("                " + statements.get(i));
+                out.println("                return;");
+            }
+            out.println("            default:");
+            out.println("                throw new IndexOutOfBoundsException(\"Index: \" + index);");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void writeIndex() {
+        // 读取已有的索引文件，替换本次编译处理过的类的条目。
+        Map<String, String> existingIndex = readExistingIndex();
+        if (index.isEmpty() && Objects.isNull(existingIndex)) {
+            return;
+        }
+        Map<String, String> mergedIndex = new TreeMap<>();
+        if (Objects.nonNull(existingIndex)) {
+            mergedIndex.putAll(existingIndex);
+            mergedIndex.keySet().removeAll(processedTypes);
+        }
+        mergedIndex.putAll(index);
+        try {
+            FileObject resource = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8);
+                 PrintWriter out = new PrintWriter(writer)) {
+                out.println("# 该文件由 " + DatamarkStamperProcessor.class.getName() + " 自动生成，请勿手动修改。");
+                for (Map.Entry<String, String> entry : mergedIndex.entrySet()) {
+                    out.println(entry.getKey() + "=" + entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "生成数据标识写入器索引时发生异常: " + e);
+        }
+    }
+
+    /**
+     * 读取输出目录中已有的索引文件。
+     *
+     * @return 已有的索引，如果索引文件不存在或无法读取，则返回 <code>null</code>。
+     */
+    private Map<String, String> readExistingIndex() {
+        Map<String, String> result = new TreeMap<>();
+        try {
+            FileObject resource = filer.getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(resource.openInputStream(), StandardCharsets.UTF_8)
+            )) {
+                String line;
+                while (Objects.nonNull(line = reader.readLine())) {
+                    line = line.trim();
+                    int separatorIndex = line.indexOf('=');
+                    if (line.isEmpty() || line.startsWith("#") || separatorIndex <= 0) {
+                        continue;
+                    }
+                    result.put(line.substring(0, separatorIndex).trim(), line.substring(separatorIndex + 1).trim());
+                }
+            }
+        } catch (IOException e) {
+            // 索引文件不存在（如首次编译或清理之后的编译）。
+            return null;
+        }
+        return result;
+    }
+
+    private void note(Element element, String message) {
+        messager.printMessage(Diagnostic.Kind.NOTE, message, element);
+    }
+
+    private static String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,275 @@
+package com.dwarfeng.springdatamark.processor;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.persistence.MappedSuperclass;
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DatamarkStamperProcessor} 的测试。
+ *
+ * <p>
+ * 测试使用 {@link JavaCompiler} 编译测试资源中的夹具源文件，并检查生成的写入器与索引文件。<br>
+ * 夹具中包含与 <code>spring-datamark-api</code> 中同名的 <code>DatamarkField</code> 注解与
+ * <code>DatamarkStamper</code> 接口，处理器只通过名称识别它们，因此测试不依赖 <code>spring-datamark-api</code>。
+ *
+ * @author DwArFeng
+ * @since 1.2.0
+ */
+public class DatamarkStamperProcessorTest {
+
+    private static final String FIXTURE_ROOT = "fixtures";
+    private static final String CHANGED_FIXTURE_ROOT = "fixtures-changed";
+    private static final String FIXTURE_PACKAGE = "com.dwarfeng.springdatamark.processor.fixture";
+    private static final String[] API_STUBS = {
+            "com/dwarfeng/springdatamark/api/integration/jpa/DatamarkField.java",
+            "com/dwarfeng/springdatamark/api/integration/jpa/DatamarkStamper.java"
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File classOutput;
+    private File sourceOutput;
+
+    @Before
+    public void setUp() throws Exception {
+        classOutput = temporaryFolder.newFolder("classes");
+        sourceOutput = temporaryFolder.newFolder("generated-sources");
+    }
+
+    @Test
+    public void testMappedSuperclassFieldOverride() throws Exception {
+        Compilation compilation = compile(FIXTURE_ROOT, fixture("AuditedBase"), fixture("OverridingEntity"));
+        assertTrue(compilation.toString(), compilation.success);
+
+        // 抽象的父类不生成写入器。
+        Map<String, String> index = readIndex();
+        assertEquals(Collections.singletonMap(
+                FIXTURE_PACKAGE + ".OverridingEntity", FIXTURE_PACKAGE + ".OverridingEntity_DatamarkStamper"
+        ), index);
+
+        try (URLClassLoader classLoader = newClassLoader()) {
+            Object stamper = newStamper(classLoader, FIXTURE_PACKAGE + ".OverridingEntity_DatamarkStamper");
+            // 父类的字段在前，被子类覆盖的同名字段只出现一次，且使用子类的注解。
+            assertEquals(2, invoke(stamper, "getFieldCount"));
+            assertEquals("createdDatamark", invoke(stamper, "getFieldName", 0));
+            assertEquals("datamark", invoke(stamper, "getFieldName", 1));
+            assertEquals("", invoke(stamper, "getServiceId", 0));
+            assertEquals("childService", invoke(stamper, "getServiceId", 1));
+
+            Object entity = classLoader.loadClass(FIXTURE_PACKAGE + ".OverridingEntity").getConstructor()
+                    .newInstance();
+            setValue(stamper, entity, 0, "v0");
+            setValue(stamper, entity, 1, "v1");
+            assertEquals("v0", invoke(entity, "getCreatedDatamark"));
+            assertEquals("v1", invoke(entity, "getDatamark"));
+            assertEquals(1, invoke(entity, "getSetterInvocationCount"));
+            assertNull(invoke(entity, "getBaseDatamark"));
+        }
+    }
+
+    @Test
+    public void testNestedClassIndexedByBinaryName() throws Exception {
+        Compilation compilation = compile(FIXTURE_ROOT, fixture("Outer"));
+        assertTrue(compilation.toString(), compilation.success);
+
+        // 索引中使用二进制名称，生成的源文件中使用限定名称。
+        String entityName = FIXTURE_PACKAGE + ".Outer$Inner";
+        String stamperName = FIXTURE_PACKAGE + ".Outer_Inner_DatamarkStamper";
+        assertEquals(Collections.singletonMap(entityName, stamperName), readIndex());
+        assertTrue(readGeneratedSource(stamperName).contains("((" + FIXTURE_PACKAGE + ".Outer.Inner) entity)"));
+
+        try (URLClassLoader classLoader = newClassLoader()) {
+            Class<?> entityClass = Class.forName(entityName, false, classLoader);
+            Object stamper = newStamper(classLoader, stamperName);
+            assertSame(entityClass, invoke(stamper, "getEntityClass"));
+            Object entity = entityClass.getConstructor().newInstance();
+            setValue(stamper, entity, 0, "v1");
+            assertEquals("v1", invoke(entity, "getDatamark"));
+        }
+    }
+
+    @Test
+    public void testPrivateFieldWithoutSetterFallsBack() throws Exception {
+        Compilation compilation = compile(FIXTURE_ROOT, fixture("PrivateFieldEntity"));
+        assertTrue(compilation.toString(), compilation.success);
+
+        // 不生成写入器，也不登记索引，运行时回退到反射扫描。
+        assertTrue(compilation.hasDiagnostic(Diagnostic.Kind.NOTE, "PrivateFieldEntity"));
+        assertFalse(new File(classOutput, DatamarkStamperProcessor.INDEX_LOCATION).exists());
+        assertFalse(generatedSourceFile(FIXTURE_PACKAGE + ".PrivateFieldEntity_DatamarkStamper").exists());
+    }
+
+    @Test
+    public void testWriteMethodNamedAfterCapitalizedFieldName() throws Exception {
+        Compilation compilation = compile(FIXTURE_ROOT, fixture("CapitalizedEntity"));
+        assertTrue(compilation.toString(), compilation.success);
+
+        // 字段 aField 对应的写方法是 setAField，与运行时的查找规则一致。
+        String stamperName = FIXTURE_PACKAGE + ".CapitalizedEntity_DatamarkStamper";
+        assertTrue(readGeneratedSource(stamperName).contains(".setAField(datamark);"));
+        try (URLClassLoader classLoader = newClassLoader()) {
+            Object stamper = newStamper(classLoader, stamperName);
+            Object entity = classLoader.loadClass(FIXTURE_PACKAGE + ".CapitalizedEntity").getConstructor()
+                    .newInstance();
+            setValue(stamper, entity, 0, "v1");
+            assertEquals("v1", invoke(entity, "getAField"));
+        }
+    }
+
+    @Test
+    public void testNonStringFieldRejected() throws Exception {
+        Compilation compilation = compile(FIXTURE_ROOT, fixture("NonStringFieldEntity"));
+        assertFalse(compilation.success);
+        assertTrue(compilation.toString(), compilation.hasDiagnostic(Diagnostic.Kind.ERROR, "NonStringFieldEntity"));
+    }
+
+    @Test
+    public void testIncrementalCompilationMergesIndex() throws Exception {
+        assertTrue(compile(FIXTURE_ROOT, fixture("AuditedBase"), fixture("OverridingEntity")).success);
+        // 只重新编译部分源文件时，保留之前登记的条目。
+        assertTrue(compile(FIXTURE_ROOT, fixture("Outer")).success);
+        Map<String, String> expected = new TreeMap<>();
+        expected.put(FIXTURE_PACKAGE + ".OverridingEntity", FIXTURE_PACKAGE + ".OverridingEntity_DatamarkStamper");
+        expected.put(FIXTURE_PACKAGE + ".Outer$Inner", FIXTURE_PACKAGE + ".Outer_Inner_DatamarkStamper");
+        assertEquals(expected, readIndex());
+
+        // 重新编译的类不再含有 DatamarkField 注解字段时，移除其失效的条目。
+        assertTrue(compile(CHANGED_FIXTURE_ROOT, fixture("Outer")).success);
+        expected.remove(FIXTURE_PACKAGE + ".Outer$Inner");
+        assertEquals(expected, readIndex());
+    }
+
+    private static String fixture(String simpleName) {
+        return FIXTURE_PACKAGE.replace('.', '/') + "/" + simpleName + ".java";
+    }
+
+    private Compilation compile(String root, String... fixtures) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<>();
+        List<File> sourceFiles = new ArrayList<>();
+        for (String apiStub : API_STUBS) {
+            sourceFiles.add(resourceFile(FIXTURE_ROOT, apiStub));
+        }
+        for (String fixture : fixtures) {
+            sourceFiles.add(resourceFile(root, fixture));
+        }
+        String classpath = classOutput.getAbsolutePath() + File.pathSeparator +
+                Paths.get(MappedSuperclass.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> options = Arrays.asList(
+                "-d", classOutput.getAbsolutePath(),
+                "-s", sourceOutput.getAbsolutePath(),
+                "-classpath", classpath,
+                "-encoding", StandardCharsets.UTF_8.name()
+        );
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(
+                diagnosticCollector, Locale.getDefault(), StandardCharsets.UTF_8
+        )) {
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                    null, fileManager, diagnosticCollector, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(sourceFiles)
+            );
+            task.setProcessors(Collections.singletonList(new DatamarkStamperProcessor()));
+            boolean success = task.call();
+            return new Compilation(success, diagnosticCollector.getDiagnostics());
+        }
+    }
+
+    private File resourceFile(String root, String path) throws Exception {
+        URL url = getClass().getClassLoader().getResource(root + "/" + path);
+        assertNotNull("测试夹具 " + root + "/" + path + " 不存在", url);
+        return Paths.get(url.toURI()).toFile();
+    }
+
+    private Map<String, String> readIndex() throws IOException {
+        Map<String, String> result = new TreeMap<>();
+        Path indexPath = new File(classOutput, DatamarkStamperProcessor.INDEX_LOCATION).toPath();
+        for (String line : Files.readAllLines(indexPath, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int separatorIndex = line.indexOf('=');
+            result.put(line.substring(0, separatorIndex), line.substring(separatorIndex + 1));
+        }
+        return result;
+    }
+
+    private File generatedSourceFile(String className) {
+        return new File(sourceOutput, className.replace('.', File.separatorChar) + ".java");
+    }
+
+    private String readGeneratedSource(String className) throws IOException {
+        return new String(Files.readAllBytes(generatedSourceFile(className).toPath()), StandardCharsets.UTF_8);
+    }
+
+    private URLClassLoader newClassLoader() throws Exception {
+        return new URLClassLoader(new URL[]{classOutput.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private static Object newStamper(ClassLoader classLoader, String stamperName) throws Exception {
+        return classLoader.loadClass(stamperName).getConstructor().newInstance();
+    }
+
+    private static void setValue(Object stamper, Object entity, int index, String datamark) throws Exception {
+        stamper.getClass().getMethod("setValue", Object.class, int.class, String.class)
+                .invoke(stamper, entity, index, datamark);
+    }
+
+    private static Object invoke(Object target, String methodName, Object... args) throws Exception {
+        for (Method method : target.getClass().getMethods()) {
+            if (method.getName().equals(methodName) && method.getParameterCount() == args.length) {
+                return method.invoke(target, args);
+            }
+        }
+        throw new NoSuchMethodException(target.getClass().getName() + "." + methodName);
+    }
+
+    /**
+     * 编译结果。
+     */
+    private static final class Compilation {
+
+        private final boolean success;
+        private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+        private Compilation(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+            this.success = success;
+            this.diagnostics = diagnostics;
+        }
+
+        private boolean hasDiagnostic(Diagnostic.Kind kind, String content) {
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+                if (diagnostic.getKind() == kind && diagnostic.getMessage(Locale.ROOT).contains(content)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            StringJoiner sj = new StringJoiner(System.lineSeparator());
+            sj.add("success=" + success);
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+                sj.add(diagnostic.getKind() + ": " + diagnostic.getMessage(Locale.ROOT));
+            }
+            return sj.toString();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.dwarfeng.springdatamark.processor.fixture;
+
+public class Outer {
+
+    public static class Inner {
+
+        String datamark;
+    }
+}
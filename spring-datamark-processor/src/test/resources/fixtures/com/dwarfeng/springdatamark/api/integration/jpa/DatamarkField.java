@@ -0,0 +1,14 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+import java.lang.annotation.*;
+
+/**
+ * 与 spring-datamark-api 中的注解同名的测试夹具，处理器只通过名称识别注解。
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+@Documented
+public @interface DatamarkField {
+
+    String serviceId() default "";
+}
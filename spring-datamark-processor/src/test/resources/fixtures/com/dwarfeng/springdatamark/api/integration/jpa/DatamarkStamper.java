@@ -0,0 +1,17 @@
+package com.dwarfeng.springdatamark.api.integration.jpa;
+
+/**
+ * 与 spring-datamark-api 中的接口同名的测试夹具，生成的写入器实现该接口。
+ */
+public interface DatamarkStamper {
+
+    Class<?> getEntityClass();
+
+    int getFieldCount();
+
+    String getFieldName(int index);
+
+    String getServiceId(int index);
+
+    void setValue(Object entity, int index, String datamark);
+}
@@ -0,0 +1,23 @@
+package com.dwarfeng.springdatamark.processor.fixture;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+
+import javax.persistence.MappedSuperclass;
+
+@MappedSuperclass
+public abstract class AuditedBase {
+
+    @DatamarkField(serviceId = "baseService")
+    protected String datamark;
+
+    @DatamarkField
+    protected String createdDatamark;
+
+    public String getBaseDatamark() {
+        return datamark;
+    }
+
+    public String getCreatedDatamark() {
+        return createdDatamark;
+    }
+}
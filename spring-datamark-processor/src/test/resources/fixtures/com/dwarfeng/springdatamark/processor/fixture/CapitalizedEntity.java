@@ -0,0 +1,17 @@
+package com.dwarfeng.springdatamark.processor.fixture;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+
+public class CapitalizedEntity {
+
+    @DatamarkField
+    private String aField;
+
+    public String getAField() {
+        return aField;
+    }
+
+    public void setAField(String aField) {
+        this.aField = aField;
+    }
+}
@@ -0,0 +1,9 @@
+package com.dwarfeng.springdatamark.processor.fixture;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+
+public class NonStringFieldEntity {
+
+    @DatamarkField
+    Integer datamark;
+}
@@ -0,0 +1,16 @@
+package com.dwarfeng.springdatamark.processor.fixture;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+
+public class Outer {
+
+    public static class Inner {
+
+        @DatamarkField
+        String datamark;
+
+        public String getDatamark() {
+            return datamark;
+        }
+    }
+}
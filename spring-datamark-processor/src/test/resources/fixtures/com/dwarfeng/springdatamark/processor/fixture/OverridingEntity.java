@@ -0,0 +1,24 @@
+package com.dwarfeng.springdatamark.processor.fixture;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+
+public class OverridingEntity extends AuditedBase {
+
+    @DatamarkField(serviceId = "childService")
+    private String datamark;
+
+    private int setterInvocationCount;
+
+    public String getDatamark() {
+        return datamark;
+    }
+
+    public void setDatamark(String datamark) {
+        this.datamark = datamark;
+        setterInvocationCount++;
+    }
+
+    public int getSetterInvocationCount() {
+        return setterInvocationCount;
+    }
+}
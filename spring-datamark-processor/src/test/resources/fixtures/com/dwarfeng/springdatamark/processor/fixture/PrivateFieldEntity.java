@@ -0,0 +1,13 @@
+package com.dwarfeng.springdatamark.processor.fixture;
+
+import com.dwarfeng.springdatamark.api.integration.jpa.DatamarkField;
+
+public class PrivateFieldEntity {
+
+    @DatamarkField
+    private String datamark;
+
+    public String getDatamark() {
+        return datamark;
+    }
+}